@@ -0,0 +1,9 @@
+package com.didiglobal.turbo.benchmark;
+
+import com.didiglobal.turbo.engine.annotation.EnableTurboEngine;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@EnableTurboEngine
+@SpringBootApplication(scanBasePackages = {"com.didiglobal.turbo.benchmark"})
+public class BenchmarkApplication {
+}
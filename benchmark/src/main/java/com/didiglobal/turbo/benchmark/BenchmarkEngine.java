@@ -0,0 +1,114 @@
+package com.didiglobal.turbo.benchmark;
+
+import com.didiglobal.turbo.engine.bo.NodeInstance;
+import com.didiglobal.turbo.engine.common.ErrorEnum;
+import com.didiglobal.turbo.engine.engine.ProcessEngine;
+import com.didiglobal.turbo.engine.model.InstanceData;
+import com.didiglobal.turbo.engine.param.CommitTaskParam;
+import com.didiglobal.turbo.engine.param.CreateFlowParam;
+import com.didiglobal.turbo.engine.param.DeployFlowParam;
+import com.didiglobal.turbo.engine.param.RollbackTaskParam;
+import com.didiglobal.turbo.engine.param.StartProcessParam;
+import com.didiglobal.turbo.engine.param.UpdateFlowParam;
+import com.didiglobal.turbo.engine.result.CommonResult;
+import com.didiglobal.turbo.engine.result.CreateFlowResult;
+import com.didiglobal.turbo.engine.result.DeployFlowResult;
+import com.didiglobal.turbo.engine.result.RuntimeResult;
+import org.apache.commons.collections4.CollectionUtils;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+
+/**
+ * A turbo engine on the in-memory H2 database of the benchmark, shared by the engine states.
+ * Every call is checked, an unexpected result fails the benchmark instead of being measured.
+ */
+final class BenchmarkEngine {
+
+    private static final String TENANT = "benchmark";
+    private static final String CALLER = "benchmark";
+    private static final String OPERATOR = "benchmark";
+
+    private final ConfigurableApplicationContext applicationContext;
+    private final ProcessEngine processEngine;
+
+    private BenchmarkEngine(ConfigurableApplicationContext applicationContext) {
+        this.applicationContext = applicationContext;
+        this.processEngine = applicationContext.getBean(ProcessEngine.class);
+    }
+
+    static BenchmarkEngine start() {
+        return new BenchmarkEngine(SpringApplication.run(BenchmarkApplication.class));
+    }
+
+    void close() {
+        applicationContext.close();
+    }
+
+    /**
+     * Create, update and deploy a flow.
+     *
+     * @return flowModuleId
+     */
+    String deploy(String flowKey, String flowModel) {
+        CreateFlowParam createFlowParam = new CreateFlowParam(TENANT, CALLER);
+        createFlowParam.setFlowKey(flowKey);
+        createFlowParam.setFlowName(flowKey);
+        createFlowParam.setOperator(OPERATOR);
+        CreateFlowResult createFlowResult = check(processEngine.createFlow(createFlowParam));
+
+        UpdateFlowParam updateFlowParam = new UpdateFlowParam(TENANT, CALLER);
+        updateFlowParam.setFlowModuleId(createFlowResult.getFlowModuleId());
+        updateFlowParam.setFlowModel(flowModel);
+        updateFlowParam.setOperator(OPERATOR);
+        check(processEngine.updateFlow(updateFlowParam));
+
+        DeployFlowParam deployFlowParam = new DeployFlowParam(TENANT, CALLER);
+        deployFlowParam.setFlowModuleId(createFlowResult.getFlowModuleId());
+        deployFlowParam.setOperator(OPERATOR);
+        DeployFlowResult deployFlowResult = check(processEngine.deployFlow(deployFlowParam));
+        return deployFlowResult.getFlowModuleId();
+    }
+
+    RuntimeResult startProcess(String flowModuleId, List<InstanceData> variables) {
+        StartProcessParam startProcessParam = new StartProcessParam();
+        startProcessParam.setFlowModuleId(flowModuleId);
+        startProcessParam.setVariables(variables);
+        return check(processEngine.startProcess(startProcessParam));
+    }
+
+    RuntimeResult commitTask(RuntimeResult runtimeResult, List<InstanceData> variables, String callActivityFlowModuleId) {
+        CommitTaskParam commitTaskParam = new CommitTaskParam();
+        commitTaskParam.setFlowInstanceId(runtimeResult.getFlowInstanceId());
+        commitTaskParam.setTaskInstanceId(getActiveTaskInstanceId(runtimeResult));
+        commitTaskParam.setVariables(variables);
+        commitTaskParam.setCallActivityFlowModuleId(callActivityFlowModuleId);
+        return check(processEngine.commitTask(commitTaskParam));
+    }
+
+    RuntimeResult rollbackTask(RuntimeResult runtimeResult) {
+        RollbackTaskParam rollbackTaskParam = new RollbackTaskParam();
+        rollbackTaskParam.setFlowInstanceId(runtimeResult.getFlowInstanceId());
+        rollbackTaskParam.setTaskInstanceId(getActiveTaskInstanceId(runtimeResult));
+        return check(processEngine.rollbackTask(rollbackTaskParam));
+    }
+
+    // the active task of the deepest sub flow instance
+    private static String getActiveTaskInstanceId(RuntimeResult runtimeResult) {
+        NodeInstance activeTaskInstance = runtimeResult.getActiveTaskInstance();
+        while (CollectionUtils.isNotEmpty(activeTaskInstance.getSubNodeResultList())) {
+            activeTaskInstance = activeTaskInstance.getSubNodeResultList().get(0).getActiveTaskInstance();
+        }
+        return activeTaskInstance.getNodeInstanceId();
+    }
+
+    private static <T extends CommonResult> T check(T result) {
+        int errCode = result.getErrCode();
+        if (errCode != ErrorEnum.SUCCESS.getErrNo() && errCode != ErrorEnum.COMMIT_SUSPEND.getErrNo()
+            && errCode != ErrorEnum.ROLLBACK_SUSPEND.getErrNo()) {
+            throw new IllegalStateException("unexpected result: " + result);
+        }
+        return result;
+    }
+}
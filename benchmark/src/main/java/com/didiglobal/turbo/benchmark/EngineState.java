@@ -0,0 +1,83 @@
+package com.didiglobal.turbo.benchmark;
+
+import com.didiglobal.turbo.engine.model.InstanceData;
+import com.didiglobal.turbo.engine.result.RuntimeResult;
+import com.google.common.collect.Lists;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.List;
+
+/**
+ * A turbo engine with the flow of {@link #model} deployed.
+ */
+@State(Scope.Benchmark)
+public class EngineState {
+
+    static final int LINEAR_USER_TASK_COUNT = 5;
+    static final int GATEWAY_COUNT = 10;
+
+    @Param({"linear", "gateway", "callActivity"})
+    public String model;
+
+    BenchmarkEngine engine;
+    String flowModuleId;
+    // the flowModuleId to commit the callActivity with, null for the other models
+    String subFlowModuleId;
+    List<InstanceData> variables;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        engine = BenchmarkEngine.start();
+        variables = Lists.newArrayList(new InstanceData(FlowModels.GATEWAY_VARIABLE, GATEWAY_COUNT + 1));
+        switch (model) {
+            case "linear":
+                flowModuleId = engine.deploy("linear", FlowModels.linear(LINEAR_USER_TASK_COUNT));
+                break;
+            case "gateway":
+                flowModuleId = engine.deploy("gateway", FlowModels.gateway(GATEWAY_COUNT));
+                break;
+            case "callActivity":
+                subFlowModuleId = engine.deploy("subFlow", FlowModels.linear(2));
+                flowModuleId = engine.deploy("callActivity", FlowModels.callActivity(subFlowModuleId));
+                break;
+            default:
+                throw new IllegalArgumentException("unknown model: " + model);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (engine != null) {
+            engine.close();
+        }
+    }
+
+    RuntimeResult startProcess() {
+        return engine.startProcess(flowModuleId, variables);
+    }
+
+    RuntimeResult commitTask(RuntimeResult runtimeResult) {
+        return engine.commitTask(runtimeResult, variables, subFlowModuleId);
+    }
+
+    RuntimeResult rollbackTask(RuntimeResult runtimeResult) {
+        return engine.rollbackTask(runtimeResult);
+    }
+
+    /**
+     * Start an instance and commit until a task which can be rolled back is active:
+     * the second userTask of linear and gateway, the second userTask of the sub flow of callActivity.
+     */
+    RuntimeResult startRollbackableProcess() {
+        RuntimeResult runtimeResult = commitTask(startProcess());
+        if (subFlowModuleId != null) {
+            runtimeResult = commitTask(runtimeResult);
+        }
+        return runtimeResult;
+    }
+}
@@ -0,0 +1,80 @@
+package com.didiglobal.turbo.benchmark;
+
+import com.didiglobal.turbo.engine.exception.ProcessException;
+import com.didiglobal.turbo.engine.util.ExpressionCalculator;
+import com.didiglobal.turbo.engine.util.impl.GroovyExpressionCalculator;
+import com.didiglobal.turbo.engine.util.impl.NativeExpressionCalculator;
+import com.google.common.collect.Maps;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Typical gateway conditions calculated by groovy and by the native calculator, which falls back to groovy
+ * for anything it does not support.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpressionBenchmark {
+
+    @Param({
+        "amount > 1000 && level == 'A'",
+        "${orderStatus == 'PAID' || orderStatus == 'SHIPPED'}",
+        "city in ['BJ', 'SH', 'GZ', 'SZ'] && age >= 18 && !blacklisted",
+        "score >= 60.5 && score < 90 && remark != null"
+    })
+    public String expression;
+
+    private ExpressionCalculator groovyExpressionCalculator;
+    private ExpressionCalculator nativeExpressionCalculator;
+    private Map<String, Object> dataMap;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        GroovyExpressionCalculator groovy = new GroovyExpressionCalculator();
+        NativeExpressionCalculator nativeCalculator = new NativeExpressionCalculator();
+        Field field = ReflectionUtils.findField(NativeExpressionCalculator.class, "groovyExpressionCalculator");
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, nativeCalculator, groovy);
+        groovyExpressionCalculator = groovy;
+        nativeExpressionCalculator = nativeCalculator;
+
+        dataMap = Maps.newHashMap();
+        dataMap.put("amount", 2000);
+        dataMap.put("level", "A");
+        dataMap.put("orderStatus", "SHIPPED");
+        dataMap.put("city", "SZ");
+        dataMap.put("age", 30L);
+        dataMap.put("blacklisted", false);
+        dataMap.put("score", 88.5d);
+        dataMap.put("remark", "ok");
+    }
+
+    @Benchmark
+    public Boolean groovy() throws ProcessException {
+        return groovyExpressionCalculator.calculate(expression, dataMap);
+    }
+
+    @Benchmark
+    public Boolean nativeCalculator() throws ProcessException {
+        return nativeExpressionCalculator.calculate(expression, dataMap);
+    }
+}
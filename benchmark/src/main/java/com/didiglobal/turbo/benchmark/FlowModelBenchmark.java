@@ -0,0 +1,69 @@
+package com.didiglobal.turbo.benchmark;
+
+import com.didiglobal.turbo.engine.exception.DefinitionException;
+import com.didiglobal.turbo.engine.exception.ProcessException;
+import com.didiglobal.turbo.engine.model.FlowElement;
+import com.didiglobal.turbo.engine.model.FlowModel;
+import com.didiglobal.turbo.engine.util.FlowModelUtil;
+import com.didiglobal.turbo.engine.validator.FlowModelValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse and validate models of growing size, a gateway model of n gateways has about 4n elements.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlowModelBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int gatewayCount;
+
+    private ConfigurableApplicationContext applicationContext;
+    private FlowModelValidator flowModelValidator;
+    private String flowModelStr;
+    private FlowModel flowModel;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        applicationContext = SpringApplication.run(BenchmarkApplication.class);
+        flowModelValidator = applicationContext.getBean(FlowModelValidator.class);
+        flowModelStr = FlowModels.gateway(gatewayCount);
+        flowModel = FlowModelUtil.parseModelFromString(flowModelStr);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        applicationContext.close();
+    }
+
+    @Benchmark
+    public Map<String, FlowElement> parse() {
+        return FlowModelUtil.getFlowElementMap(flowModelStr);
+    }
+
+    @Benchmark
+    public void validate() throws ProcessException, DefinitionException {
+        flowModelValidator.validate(flowModel);
+    }
+}
@@ -0,0 +1,162 @@
+package com.didiglobal.turbo.benchmark;
+
+import com.alibaba.fastjson.JSON;
+import com.didiglobal.turbo.engine.common.Constants;
+import com.didiglobal.turbo.engine.common.FlowElementType;
+import com.didiglobal.turbo.engine.model.CallActivity;
+import com.didiglobal.turbo.engine.model.EndEvent;
+import com.didiglobal.turbo.engine.model.ExclusiveGateway;
+import com.didiglobal.turbo.engine.model.FlowElement;
+import com.didiglobal.turbo.engine.model.FlowModel;
+import com.didiglobal.turbo.engine.model.SequenceFlow;
+import com.didiglobal.turbo.engine.model.StartEvent;
+import com.didiglobal.turbo.engine.model.UserTask;
+import com.google.common.collect.Lists;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generated flow models of the benchmarks. Every model suspends at its first task after start, and committing
+ * that task moves to a second userTask, so commit and rollback are measured the same way on all models.
+ */
+public final class FlowModels {
+
+    // variable which makes all the gateway conditions true
+    public static final String GATEWAY_VARIABLE = "level";
+
+    private final List<FlowElement> flowElementList = new ArrayList<>();
+    private int sequenceFlowCount;
+
+    private FlowModels() {
+    }
+
+    /**
+     * start -> userTask1 -> ... -> userTaskN -> end
+     */
+    public static String linear(int userTaskCount) {
+        return JSON.toJSONString(linearModel(userTaskCount));
+    }
+
+    public static FlowModel linearModel(int userTaskCount) {
+        FlowModels models = new FlowModels();
+        String previous = models.startEvent("startEvent");
+        for (int i = 1; i <= userTaskCount; i++) {
+            String userTask = models.userTask("userTask" + i);
+            models.sequenceFlow(previous, userTask, null, false);
+            previous = userTask;
+        }
+        models.sequenceFlow(previous, models.endEvent("endEvent"), null, false);
+        return models.build();
+    }
+
+    /**
+     * start -> userTask1 -> gateway1 -> ... -> gatewayN -> userTask2 -> end,
+     * each gateway goes on while {@code level > i} and ends by default otherwise.
+     */
+    public static String gateway(int gatewayCount) {
+        return JSON.toJSONString(gatewayModel(gatewayCount));
+    }
+
+    public static FlowModel gatewayModel(int gatewayCount) {
+        FlowModels models = new FlowModels();
+        String userTask1 = models.userTask("userTask1");
+        models.sequenceFlow(models.startEvent("startEvent"), userTask1, null, false);
+        String previous = userTask1;
+        String previousCondition = null;
+        for (int i = 1; i <= gatewayCount; i++) {
+            String gateway = models.exclusiveGateway("gateway" + i);
+            models.sequenceFlow(previous, gateway, previousCondition, false);
+            models.sequenceFlow(gateway, models.endEvent("endEvent" + i), null, true);
+            previous = gateway;
+            previousCondition = GATEWAY_VARIABLE + " > " + i;
+        }
+        String userTask2 = models.userTask("userTask2");
+        models.sequenceFlow(previous, userTask2, previousCondition, false);
+        models.sequenceFlow(userTask2, models.endEvent("endEvent"), null, false);
+        return models.build();
+    }
+
+    /**
+     * start -> callActivity(sync, single) -> userTask2 -> end
+     */
+    public static String callActivity(String subFlowModuleId) {
+        FlowModels models = new FlowModels();
+        String callActivity = models.callActivity("callActivity", subFlowModuleId);
+        models.sequenceFlow(models.startEvent("startEvent"), callActivity, null, false);
+        String userTask2 = models.userTask("userTask2");
+        models.sequenceFlow(callActivity, userTask2, null, false);
+        models.sequenceFlow(userTask2, models.endEvent("endEvent"), null, false);
+        return JSON.toJSONString(models.build());
+    }
+
+    private FlowModel build() {
+        FlowModel flowModel = new FlowModel();
+        flowModel.setFlowElementList(flowElementList);
+        return flowModel;
+    }
+
+    private String startEvent(String key) {
+        return add(new StartEvent(), key, FlowElementType.START_EVENT, null);
+    }
+
+    private String endEvent(String key) {
+        return add(new EndEvent(), key, FlowElementType.END_EVENT, null);
+    }
+
+    private String userTask(String key) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(Constants.ELEMENT_PROPERTIES.NAME, key);
+        return add(new UserTask(), key, FlowElementType.USER_TASK, properties);
+    }
+
+    private String exclusiveGateway(String key) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(Constants.ELEMENT_PROPERTIES.NAME, key);
+        properties.put(Constants.ELEMENT_PROPERTIES.HOOK_INFO_IDS, "");
+        return add(new ExclusiveGateway(), key, FlowElementType.EXCLUSIVE_GATEWAY, properties);
+    }
+
+    private String callActivity(String key, String subFlowModuleId) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(Constants.ELEMENT_PROPERTIES.NAME, key);
+        properties.put(Constants.ELEMENT_PROPERTIES.CALL_ACTIVITY_EXECUTE_TYPE, Constants.CALL_ACTIVITY_EXECUTE_TYPE.SYNC);
+        properties.put(Constants.ELEMENT_PROPERTIES.CALL_ACTIVITY_INSTANCE_TYPE, Constants.CALL_ACTIVITY_INSTANCE_TYPE.SINGLE);
+        properties.put(Constants.ELEMENT_PROPERTIES.CALL_ACTIVITY_FLOW_MODULE_ID, subFlowModuleId);
+        properties.put(Constants.ELEMENT_PROPERTIES.CALL_ACTIVITY_IN_PARAM_TYPE, Constants.CALL_ACTIVITY_PARAM_TYPE.FULL);
+        properties.put(Constants.ELEMENT_PROPERTIES.CALL_ACTIVITY_IN_PARAM, "");
+        properties.put(Constants.ELEMENT_PROPERTIES.CALL_ACTIVITY_OUT_PARAM_TYPE, Constants.CALL_ACTIVITY_PARAM_TYPE.FULL);
+        properties.put(Constants.ELEMENT_PROPERTIES.CALL_ACTIVITY_OUT_PARAM, "");
+        return add(new CallActivity(), key, FlowElementType.CALL_ACTIVITY, properties);
+    }
+
+    private void sequenceFlow(String source, String target, String condition, boolean isDefault) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(Constants.ELEMENT_PROPERTIES.CONDITION, condition == null ? "" : condition);
+        properties.put(Constants.ELEMENT_PROPERTIES.DEFAULT_CONDITION, String.valueOf(isDefault));
+        String key = add(new SequenceFlow(), "sequenceFlow" + (++sequenceFlowCount), FlowElementType.SEQUENCE_FLOW,
+            properties);
+        FlowElement sequenceFlow = flowElementList.get(flowElementList.size() - 1);
+        sequenceFlow.setIncoming(Lists.newArrayList(source));
+        sequenceFlow.setOutgoing(Lists.newArrayList(target));
+        for (FlowElement flowElement : flowElementList) {
+            if (flowElement.getKey().equals(source)) {
+                flowElement.getOutgoing().add(key);
+            } else if (flowElement.getKey().equals(target)) {
+                flowElement.getIncoming().add(key);
+            }
+        }
+    }
+
+    private String add(FlowElement flowElement, String key, int type, Map<String, Object> properties) {
+        flowElement.setKey(key);
+        flowElement.setType(type);
+        flowElement.setIncoming(new ArrayList<>());
+        flowElement.setOutgoing(new ArrayList<>());
+        flowElement.setProperties(properties == null ? new HashMap<>() : properties);
+        flowElementList.add(flowElement);
+        return key;
+    }
+}
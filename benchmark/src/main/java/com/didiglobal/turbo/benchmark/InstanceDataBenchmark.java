@@ -0,0 +1,98 @@
+package com.didiglobal.turbo.benchmark;
+
+import com.didiglobal.turbo.engine.model.InstanceData;
+import com.didiglobal.turbo.engine.util.InstanceDataCodec;
+import com.didiglobal.turbo.engine.util.InstanceDataCodecRegistry;
+import com.didiglobal.turbo.engine.util.InstanceDataUtil;
+import com.google.common.collect.Maps;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialize and deserialize instance data of growing size, as it's done on every commit, with each codec.
+ * The encoded length of each case is reported as the {@code storedSize:bytes} counter, to compare the stored size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InstanceDataBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int variableCount;
+
+    @Param({"json", "binary", "binary-deflate"})
+    public String codecName;
+
+    private InstanceDataCodec codec;
+    private Map<String, InstanceData> instanceDataMap;
+    private String instanceDataStr;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        instanceDataMap = Maps.newHashMapWithExpectedSize(variableCount);
+        for (int i = 0; i < variableCount; i++) {
+            String key = "variable" + i;
+            Object value;
+            switch (i % 3) {
+                case 0:
+                    value = "value" + i;
+                    break;
+                case 1:
+                    value = i;
+                    break;
+                default:
+                    value = i % 2 == 0;
+                    break;
+            }
+            instanceDataMap.put(key, new InstanceData(key, value));
+        }
+        codec = new InstanceDataCodecRegistry().get(codecName);
+        instanceDataStr = codec.encode(instanceDataMap.values());
+    }
+
+    @Benchmark
+    public String serialize() {
+        return codec.encode(instanceDataMap.values());
+    }
+
+    @Benchmark
+    public Map<String, InstanceData> deserialize() {
+        return InstanceDataUtil.getInstanceDataMap(codec.decode(instanceDataStr));
+    }
+
+    /**
+     * Encode once and report the encoded length. Events counters are summed over iterations, so it runs one.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    public String storedSize(StoredSize storedSize) {
+        String encoded = codec.encode(instanceDataMap.values());
+        storedSize.bytes = encoded.length();
+        return encoded;
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class StoredSize {
+        public long bytes;
+    }
+}
@@ -0,0 +1,63 @@
+package com.didiglobal.turbo.benchmark;
+
+import com.didiglobal.turbo.engine.result.RuntimeResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of startProcess, commitTask and rollbackTask through {@link com.didiglobal.turbo.engine.engine.ProcessEngine}
+ * on the models of {@link EngineState}. The instances to commit and rollback are prepared out of the measurement.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProcessEngineBenchmark {
+
+    @State(Scope.Thread)
+    public static class StartedInstance {
+        RuntimeResult runtimeResult;
+
+        @Setup(Level.Invocation)
+        public void setUp(EngineState engineState) {
+            runtimeResult = engineState.startProcess();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class RollbackableInstance {
+        RuntimeResult runtimeResult;
+
+        @Setup(Level.Invocation)
+        public void setUp(EngineState engineState) {
+            runtimeResult = engineState.startRollbackableProcess();
+        }
+    }
+
+    @Benchmark
+    public RuntimeResult startProcess(EngineState engineState) {
+        return engineState.startProcess();
+    }
+
+    @Benchmark
+    public RuntimeResult commitTask(EngineState engineState, StartedInstance startedInstance) {
+        return engineState.commitTask(startedInstance.runtimeResult);
+    }
+
+    @Benchmark
+    public RuntimeResult rollbackTask(EngineState engineState, RollbackableInstance rollbackableInstance) {
+        return engineState.rollbackTask(rollbackableInstance.runtimeResult);
+    }
+}
@@ -0,0 +1,82 @@
+package com.didiglobal.turbo.benchmark;
+
+import com.didiglobal.turbo.engine.model.InstanceData;
+import com.didiglobal.turbo.engine.result.RuntimeResult;
+import com.google.common.collect.Lists;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of rollbackTask across a long history: the rollback from userTask2 to userTask1 of the gateway model
+ * goes back over every gateway, and each earlier round of rollback and commit leaves one more set of
+ * node instances in the flow instance.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RollbackBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class HistoryEngineState {
+
+        @Param({"10", "100"})
+        public int gatewayCount;
+
+        BenchmarkEngine engine;
+        String flowModuleId;
+        List<InstanceData> variables;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            engine = BenchmarkEngine.start();
+            flowModuleId = engine.deploy("gateway" + gatewayCount, FlowModels.gateway(gatewayCount));
+            variables = Lists.newArrayList(new InstanceData(FlowModels.GATEWAY_VARIABLE, gatewayCount + 1));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            if (engine != null) {
+                engine.close();
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class HistoryInstance {
+
+        @Param({"0", "20"})
+        public int historyRounds;
+
+        RuntimeResult runtimeResult;
+
+        @Setup(Level.Invocation)
+        public void setUp(HistoryEngineState state) {
+            BenchmarkEngine engine = state.engine;
+            runtimeResult = engine.commitTask(engine.startProcess(state.flowModuleId, state.variables), state.variables, null);
+            for (int round = 0; round < historyRounds; round++) {
+                runtimeResult = engine.commitTask(engine.rollbackTask(runtimeResult), state.variables, null);
+            }
+        }
+    }
+
+    @Benchmark
+    public RuntimeResult rollbackTask(HistoryEngineState state, HistoryInstance historyInstance) {
+        return state.engine.rollbackTask(historyInstance.runtimeResult);
+    }
+}
@@ -46,10 +46,12 @@ DROP TABLE IF EXISTS `ei_flow_instance`;
 CREATE TABLE IF NOT EXISTS `ei_flow_instance` (
     `id` bigint(20) unsigned NOT NULL AUTO_INCREMENT COMMENT '自增主键',
     `flow_instance_id` varchar(128) NOT NULL DEFAULT '' COMMENT '流程执行实例id',
+    `parent_flow_instance_id` varchar(128) NOT NULL DEFAULT '' COMMENT '父流程执行实例id',
     `flow_deploy_id` varchar(128) NOT NULL DEFAULT '' COMMENT '流程模型部署id',
     `flow_module_id` varchar(128) NOT NULL DEFAULT '' COMMENT '流程模型id',
     `tenant_id` varchar(16) NOT NULL DEFAULT '' COMMENT '业务方标识',
     `status` tinyint(4) NOT NULL DEFAULT '0' COMMENT '状态(1.执行完成 2.执行中 3.执行终止(强制终止))',
+    `version` int(11) NOT NULL DEFAULT '0' COMMENT '版本号(每次提交、回滚及状态变更时递增)',
     `create_time` datetime NOT NULL DEFAULT '1970-01-01 00:00:00' COMMENT '流程创建时间',
     `modify_time` datetime NOT NULL DEFAULT '1970-01-01 00:00:00' COMMENT '流程修改时间',
     `archive` tinyint(4) NOT NULL DEFAULT '0' COMMENT '归档状态(0未删除，1删除)',
@@ -59,6 +61,26 @@ CREATE TABLE IF NOT EXISTS `ei_flow_instance` (
     UNIQUE KEY `uniq_flow_instance_id` (`flow_instance_id`)
     ) ENGINE=InnoDB DEFAULT CHARSET=utf8 ROW_FORMAT=COMPACT COMMENT='流程执行实例表';
 
+DROP TABLE IF EXISTS `ei_flow_instance_mapping`;
+CREATE TABLE IF NOT EXISTS `ei_flow_instance_mapping` (
+    `id` bigint(20) unsigned NOT NULL AUTO_INCREMENT COMMENT '自增主键',
+    `flow_instance_id` varchar(128) NOT NULL DEFAULT '' COMMENT '流程执行实例id',
+    `node_instance_id` varchar(128) NOT NULL DEFAULT '' COMMENT '节点执行实例id',
+    `node_key` varchar(64) NOT NULL DEFAULT '' COMMENT '节点唯一标识',
+    `sub_flow_instance_id` varchar(128) NOT NULL DEFAULT '' COMMENT '子流程执行实例id',
+    `root_flow_instance_id` varchar(128) NOT NULL DEFAULT '' COMMENT '根流程执行实例id',
+    `type` tinyint(4) NOT NULL DEFAULT '0' COMMENT '状态(1.执行 2.回滚)',
+    `create_time` datetime NOT NULL DEFAULT '1970-01-01 00:00:00' COMMENT '流程创建时间',
+    `modify_time` datetime NOT NULL DEFAULT '1970-01-01 00:00:00' COMMENT '流程修改时间',
+    `archive` tinyint(4) NOT NULL DEFAULT '0' COMMENT '归档状态(0未删除，1删除)',
+    `tenant` varchar(100) NOT NULL DEFAULT 'didi' COMMENT '租户',
+    `caller` varchar(100) NOT NULL DEFAULT 'optimus-prime' COMMENT '调用方',
+    PRIMARY KEY (`id`),
+    KEY `idx_fii` (`flow_instance_id`),
+    KEY `idx_rfii` (`root_flow_instance_id`),
+    KEY `idx_sfii` (`sub_flow_instance_id`)
+    ) ENGINE=InnoDB DEFAULT CHARSET=utf8 ROW_FORMAT=COMPACT COMMENT='父子流程实例映射表';
+
 DROP TABLE IF EXISTS `ei_node_instance`;
 CREATE TABLE IF NOT EXISTS `ei_node_instance` (
     `id` bigint(20) unsigned NOT NULL AUTO_INCREMENT COMMENT '自增主键',
@@ -109,6 +131,9 @@ CREATE TABLE IF NOT EXISTS `ei_instance_data` (
     `node_key` varchar(64)  NOT NULL DEFAULT '' COMMENT '节点唯一标识',
     `tenant_id` varchar(16)  NOT NULL DEFAULT '' COMMENT '业务方标识',
     `instance_data` longtext  COMMENT '数据列表json',
+    `instance_data_encode` varchar(32)  NOT NULL DEFAULT '' COMMENT '实例数据编码(空为json)',
+    `checkpoint_instance_data_id` varchar(128)  NOT NULL DEFAULT '' COMMENT '增量数据所基于的全量实例数据id(空为全量数据)',
+    `delta_seq` int(11) NOT NULL DEFAULT '0' COMMENT '距全量数据的增量序号',
     `type` tinyint(4) NOT NULL DEFAULT '0' COMMENT '操作类型(1.实例初始化 2.系统执行 3.系统主动获取 4.上游更新 5.任务提交 6.任务撤回)',
     `create_time` datetime NOT NULL DEFAULT '1970-01-01 00:00:00' COMMENT '流程创建时间',
     `archive` tinyint(4) NOT NULL DEFAULT '0' COMMENT '归档状态(0未删除，1删除)',
@@ -119,4 +144,35 @@ CREATE TABLE IF NOT EXISTS `ei_instance_data` (
     KEY `idx_flow_instance_id` (`flow_instance_id`)
     ) ENGINE=InnoDB DEFAULT CHARSET=utf8 ROW_FORMAT=COMPACT COMMENT='节点执行记录表';
 
+DROP TABLE IF EXISTS `ei_call_activity_task`;
+CREATE TABLE IF NOT EXISTS `ei_call_activity_task` (
+    `id` bigint(20) unsigned NOT NULL AUTO_INCREMENT COMMENT '自增主键',
+    `flow_instance_id` varchar(128) NOT NULL DEFAULT '' COMMENT '父流程执行实例id',
+    `node_instance_id` varchar(128) NOT NULL DEFAULT '' COMMENT '父流程CallActivity节点执行实例id',
+    `node_key` varchar(64) NOT NULL DEFAULT '' COMMENT '节点唯一标识',
+    `sub_flow_module_id` varchar(128) NOT NULL DEFAULT '' COMMENT '子流程模型id',
+    `variables` longtext COMMENT '子流程启动数据列表json',
+    `status` tinyint(4) NOT NULL DEFAULT '0' COMMENT '状态(1.待执行 2.执行中 3.已完成 4.已失败 5.已取消)',
+    `retry_count` int(11) NOT NULL DEFAULT '0' COMMENT '重试次数',
+    `next_run_time` datetime NOT NULL DEFAULT '1970-01-01 00:00:00' COMMENT '下次执行时间(执行中为租约到期时间)',
+    `version` int(11) NOT NULL DEFAULT '0' COMMENT '版本号(每次认领或更新自增)',
+    `err_msg` varchar(512) NOT NULL DEFAULT '' COMMENT '最近一次失败原因',
+    `create_time` datetime NOT NULL DEFAULT '1970-01-01 00:00:00' COMMENT '创建时间',
+    `modify_time` datetime NOT NULL DEFAULT '1970-01-01 00:00:00' COMMENT '修改时间',
+    `archive` tinyint(4) NOT NULL DEFAULT '0' COMMENT '归档状态(0未删除，1删除)',
+    `tenant` varchar(100) NOT NULL DEFAULT 'didi' COMMENT '租户',
+    `caller` varchar(100) NOT NULL DEFAULT 'optimus-prime' COMMENT '调用方',
+    PRIMARY KEY (`id`),
+    UNIQUE KEY `uniq_fii_nii` (`flow_instance_id`,`node_instance_id`),
+    KEY `idx_status_next_run_time` (`status`,`next_run_time`)
+    ) ENGINE=InnoDB DEFAULT CHARSET=utf8 ROW_FORMAT=COMPACT COMMENT='异步子流程任务表';
+
+DROP TABLE IF EXISTS `em_flow_deploy_epoch`;
+CREATE TABLE IF NOT EXISTS `em_flow_deploy_epoch` (
+    `id` bigint(20) unsigned NOT NULL AUTO_INCREMENT COMMENT '自增主键',
+    `epoch` bigint(20) NOT NULL DEFAULT '0' COMMENT '部署版本号(每次部署自增)',
+    `modify_time` datetime NOT NULL DEFAULT '1970-01-01 00:00:00' COMMENT '修改时间',
+    PRIMARY KEY (`id`)
+    ) ENGINE=InnoDB DEFAULT CHARSET=utf8 ROW_FORMAT=COMPACT COMMENT='流程部署版本表';
+
 -- 在ei_instance_data表中,如果需要存储表情符号, MySQL的建表语句需要切换utf8mb4
\ No newline at end of file
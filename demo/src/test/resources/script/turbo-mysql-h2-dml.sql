@@ -5,3 +5,8 @@ VALUES (1, 'e7f6a27e-7cc3-11ec-b11c-02420abe030c', '测试流程', 'testFlowKey'
 -- 模型部署
 INSERT INTO em_flow_deployment (id, flow_deploy_id, flow_module_id, flow_name, flow_key, tenant_id, flow_model, status, create_time, modify_time, operator, remark, archive, tenant, caller)
 VALUES (1, '450a101f-ae74-11ed-a29f-42f50c2c0006', 'e7f6a27e-7cc3-11ec-b11c-02420abe030c', '测试流程', 'testFlowKey', '', '{"flowElementList":[{"incoming":[],"outgoing":["Flow_3599vu7"],"dockers":[],"type":2,"properties":{"name":"开始","x":310,"y":200,"text":{"x":310,"y":240,"value":"开始"}},"key":"Event_0vbtunu"},{"incoming":["Flow_3599vu7"],"outgoing":["Flow_1f2ei89"],"dockers":[],"type":4,"properties":{"name":"","x":520,"y":200,"text":""},"key":"Activity_0ivtksn"},{"incoming":["Flow_1f2ei89"],"outgoing":["Flow_1rkk099"],"dockers":[],"type":6,"properties":{"name":"","x":730,"y":200,"text":""},"key":"Gateway_2qj55i1"},{"incoming":["Flow_1rkk099"],"outgoing":[],"dockers":[],"type":3,"properties":{"name":"结束","x":950,"y":200,"text":{"x":950,"y":240,"value":"结束"}},"key":"Event_03pjf39"},{"incoming":["Event_0vbtunu"],"outgoing":["Activity_0ivtksn"],"type":1,"dockers":[],"properties":{"name":"","text":"","startPoint":"{\\\"x\\\":328,\\\"y\\\":200}","endPoint":"{\\\"x\\\":470,\\\"y\\\":200}","pointsList":"\\\"\\\""},"key":"Flow_3599vu7"},{"incoming":["Activity_0ivtksn"],"outgoing":["Gateway_2qj55i1"],"type":1,"dockers":[],"properties":{"name":"","text":"","startPoint":"{\\\"x\\\":570,\\\"y\\\":200}","endPoint":"{\\\"x\\\":705,\\\"y\\\":200}","pointsList":"\\\"\\\""},"key":"Flow_1f2ei89"},{"incoming":["Gateway_2qj55i1"],"outgoing":["Event_03pjf39"],"type":1,"dockers":[],"properties":{"conditionsequenceflow":"a==1","name":"","text":"","startPoint":"{\\\"x\\\":755,\\\"y\\\":200}","endPoint":"{\\\"x\\\":932,\\\"y\\\":200}","pointsList":"\\\"\\\""},"key":"Flow_1rkk099"}]}', 1, '2022-01-24 17:10:31', '2022-01-24 17:10:31', 'testOperator', '', 0, 'testTenant', 'testCaller');
+
+
+-- 部署版本
+INSERT INTO em_flow_deploy_epoch (id, epoch, modify_time)
+VALUES (1, 0, '2022-01-24 17:10:31');
@@ -0,0 +1,86 @@
+package com.didiglobal.turbo.engine.bo;
+
+import com.didiglobal.turbo.engine.model.FlowElement;
+import com.google.common.base.MoreObjects;
+
+import java.util.Map;
+
+/**
+ * Immutable, parsed view of a flow deployment.
+ * <p>
+ * A deployment never changes once it is inserted, so the parsed model can be shared by all requests.
+ * Elements in {@link #getFlowElementMap()} are read-only and must not be modified by callers.
+ */
+public final class CompiledFlowInfo {
+
+    private final String flowDeployId;
+    private final String flowModuleId;
+    private final String tenant;
+    private final String caller;
+    private final String flowModel;
+    private final Map<String, FlowElement> flowElementMap;
+    private final FlowGraph flowGraph;
+
+    public CompiledFlowInfo(String flowDeployId, String flowModuleId, String tenant, String caller,
+                            String flowModel, Map<String, FlowElement> flowElementMap, FlowGraph flowGraph) {
+        this.flowDeployId = flowDeployId;
+        this.flowModuleId = flowModuleId;
+        this.tenant = tenant;
+        this.caller = caller;
+        this.flowModel = flowModel;
+        this.flowElementMap = flowElementMap;
+        this.flowGraph = flowGraph;
+    }
+
+    public String getFlowDeployId() {
+        return flowDeployId;
+    }
+
+    public String getFlowModuleId() {
+        return flowModuleId;
+    }
+
+    public String getTenant() {
+        return tenant;
+    }
+
+    public String getCaller() {
+        return caller;
+    }
+
+    public String getFlowModel() {
+        return flowModel;
+    }
+
+    public Map<String, FlowElement> getFlowElementMap() {
+        return flowElementMap;
+    }
+
+    public FlowGraph getFlowGraph() {
+        return flowGraph;
+    }
+
+    /**
+     * Build a detached {@link FlowInfo}, which is safe to be modified by the caller.
+     */
+    public FlowInfo toFlowInfo() {
+        FlowInfo flowInfo = new FlowInfo();
+        flowInfo.setFlowDeployId(flowDeployId);
+        flowInfo.setFlowModuleId(flowModuleId);
+        flowInfo.setTenant(tenant);
+        flowInfo.setCaller(caller);
+        flowInfo.setFlowModel(flowModel);
+        return flowInfo;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+            .add("flowDeployId", flowDeployId)
+            .add("flowModuleId", flowModuleId)
+            .add("tenant", tenant)
+            .add("caller", caller)
+            .add("flowElementCount", flowElementMap == null ? 0 : flowElementMap.size())
+            .toString();
+    }
+}
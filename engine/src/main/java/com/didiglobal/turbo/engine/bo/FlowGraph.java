@@ -0,0 +1,211 @@
+package com.didiglobal.turbo.engine.bo;
+
+import com.didiglobal.turbo.engine.common.FlowElementType;
+import com.didiglobal.turbo.engine.model.FlowElement;
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.Maps;
+import org.apache.commons.collections4.CollectionUtils;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index-based graph compiled from a flow model.
+ * <p>
+ * Every element gets an int index. For each element, successors keep the node reached through each outgoing
+ * with sequenceFlows collapsed, aligned with the sequenceFlow the outgoing starts with. The startEvent and the
+ * (source node, target node) to sequenceFlow relation are resolved while compiling.
+ * <p>
+ * Compiling never fails: an unknown element key is resolved to {@link #NONE}, validators decide whether
+ * the model is acceptable.
+ */
+public final class FlowGraph {
+
+    public static final int NONE = -1;
+
+    private static final int[] EMPTY = new int[0];
+
+    private final FlowElement[] elements;
+    private final Map<String, Integer> indexMap;
+    private final int startEventIndex;
+    private final int startEventCount;
+    private final int endEventCount;
+    // per element: the first sequenceFlow of each outgoing
+    private final int[][] outgoingFlows;
+    // per element: the node reached through each outgoing, sequenceFlows collapsed
+    private final int[][] successors;
+    // (source node index << 32 | target node index) -> sequenceFlow index
+    private final Map<Long, Integer> sequenceFlowTable;
+
+    private FlowGraph(FlowElement[] elements, Map<String, Integer> indexMap) {
+        this.elements = elements;
+        this.indexMap = indexMap;
+        this.outgoingFlows = new int[elements.length][];
+        this.successors = new int[elements.length][];
+        this.sequenceFlowTable = Maps.newHashMapWithExpectedSize(elements.length);
+
+        int startIndex = NONE;
+        int startCount = 0;
+        int endCount = 0;
+        for (int index = 0; index < elements.length; index++) {
+            FlowElement element = elements[index];
+            if (element.getType() == FlowElementType.START_EVENT) {
+                startCount++;
+                if (startIndex == NONE) {
+                    startIndex = index;
+                }
+            } else if (element.getType() == FlowElementType.END_EVENT) {
+                endCount++;
+            }
+            compileOutgoing(index);
+        }
+        this.startEventIndex = startIndex;
+        this.startEventCount = startCount;
+        this.endEventCount = endCount;
+    }
+
+    public static FlowGraph compile(Map<String, FlowElement> flowElementMap) {
+        return compile(flowElementMap == null ? Collections.<FlowElement>emptyList() : flowElementMap.values());
+    }
+
+    public static FlowGraph compile(Collection<FlowElement> flowElements) {
+        FlowElement[] elements = new FlowElement[flowElements.size()];
+        Map<String, Integer> indexMap = Maps.newHashMapWithExpectedSize(elements.length);
+        int index = 0;
+        for (FlowElement flowElement : flowElements) {
+            elements[index] = flowElement;
+            indexMap.putIfAbsent(flowElement.getKey(), index);
+            index++;
+        }
+        return new FlowGraph(elements, indexMap);
+    }
+
+    private void compileOutgoing(int index) {
+        List<String> outgoingKeys = elements[index].getOutgoing();
+        if (CollectionUtils.isEmpty(outgoingKeys)) {
+            outgoingFlows[index] = EMPTY;
+            successors[index] = EMPTY;
+            return;
+        }
+        int size = outgoingKeys.size();
+        int[] flows = new int[size];
+        int[] targets = new int[size];
+        for (int i = 0; i < size; i++) {
+            int outgoing = getIndex(outgoingKeys.get(i));
+            flows[i] = outgoing;
+            targets[i] = collapse(outgoing);
+            if (isSequenceFlow(outgoing) && targets[i] != NONE && !isSequenceFlow(index)) {
+                sequenceFlowTable.putIfAbsent(pair(index, targets[i]), outgoing);
+            }
+        }
+        outgoingFlows[index] = flows;
+        successors[index] = targets;
+    }
+
+    // follow the first outgoing of sequenceFlows until a node is reached, a ring of sequenceFlows ends up NONE
+    private int collapse(int index) {
+        int current = index;
+        for (int step = 0; step <= elements.length && isSequenceFlow(current); step++) {
+            List<String> outgoingKeys = elements[current].getOutgoing();
+            if (CollectionUtils.isEmpty(outgoingKeys)) {
+                return NONE;
+            }
+            current = getIndex(outgoingKeys.get(0));
+        }
+        return isSequenceFlow(current) ? NONE : current;
+    }
+
+    private boolean isSequenceFlow(int index) {
+        return index != NONE && elements[index].getType() == FlowElementType.SEQUENCE_FLOW;
+    }
+
+    private static long pair(int source, int target) {
+        return ((long) source << 32) | (target & 0xFFFFFFFFL);
+    }
+
+    public int size() {
+        return elements.length;
+    }
+
+    public int getIndex(String elementKey) {
+        Integer index = elementKey == null ? null : indexMap.get(elementKey);
+        return index == null ? NONE : index;
+    }
+
+    public FlowElement getElement(int index) {
+        return index == NONE ? null : elements[index];
+    }
+
+    public FlowElement getElement(String elementKey) {
+        return getElement(getIndex(elementKey));
+    }
+
+    public FlowElement getStartEvent() {
+        return getElement(startEventIndex);
+    }
+
+    public int getStartEventCount() {
+        return startEventCount;
+    }
+
+    public int getEndEventCount() {
+        return endEventCount;
+    }
+
+    /**
+     * Nodes reached through each outgoing of the element, aligned with {@link #getOutgoingFlows(int)}.
+     * The returned array is shared and must not be modified.
+     */
+    public int[] getSuccessors(int index) {
+        return successors[index];
+    }
+
+    /**
+     * The first sequenceFlow of each outgoing of the element.
+     * The returned array is shared and must not be modified.
+     */
+    public int[] getOutgoingFlows(int index) {
+        return outgoingFlows[index];
+    }
+
+    /**
+     * Get the node reached through the first outgoing of the element
+     *
+     * @param elementKey
+     * @return node or null
+     */
+    public FlowElement getUniqueNextNode(String elementKey) {
+        int index = getIndex(elementKey);
+        if (index == NONE || successors[index].length == 0) {
+            return null;
+        }
+        return getElement(successors[index][0]);
+    }
+
+    /**
+     * Get sequenceFlow between sourceNode and targetNode
+     *
+     * @param sourceNodeKey
+     * @param targetNodeKey
+     * @return sequenceFlow or null
+     */
+    public FlowElement getSequenceFlow(String sourceNodeKey, String targetNodeKey) {
+        int source = getIndex(sourceNodeKey);
+        int target = getIndex(targetNodeKey);
+        if (source == NONE || target == NONE) {
+            return null;
+        }
+        Integer sequenceFlow = sequenceFlowTable.get(pair(source, target));
+        return sequenceFlow == null ? null : elements[sequenceFlow];
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+            .add("size", elements.length)
+            .add("startEvent", startEventIndex == NONE ? null : elements[startEventIndex].getKey())
+            .toString();
+    }
+}
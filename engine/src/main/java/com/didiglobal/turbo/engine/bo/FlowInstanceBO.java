@@ -8,6 +8,7 @@ public class FlowInstanceBO {
     private String flowModuleId;
     private Integer status;
     private String parentFlowInstanceId;
+    private Integer version;
 
     public String getFlowInstanceId() {
         return flowInstanceId;
@@ -49,6 +50,14 @@ public class FlowInstanceBO {
         this.parentFlowInstanceId = parentFlowInstanceId;
     }
 
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(this)
@@ -57,6 +66,7 @@ public class FlowInstanceBO {
             .add("flowModuleId", flowModuleId)
             .add("status", status)
             .add("parentFlowInstanceId", parentFlowInstanceId)
+            .add("version", version)
             .toString();
     }
 }
@@ -0,0 +1,132 @@
+package com.didiglobal.turbo.engine.bo;
+
+import com.didiglobal.turbo.engine.common.FlowInstanceMappingType;
+import com.didiglobal.turbo.engine.entity.FlowInstanceMappingPO;
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * CallActivity hierarchy of a root flowInstance, indexed from its flowInstance mappings.
+ * <p>
+ * A subFlowInstance may be mapped by several callActivity nodeInstances: rollback and re-execution of a callActivity
+ * terminates the old mapping and maps the same subFlowInstance to a new nodeInstance. The parent of a subFlowInstance
+ * is the EXECUTE mapping if any, or else the latest one.
+ */
+public final class FlowInstanceHierarchy {
+
+    private final String rootFlowInstanceId;
+    private final int size;
+    // flowInstanceId|nodeInstanceId -> mappings of the callActivity nodeInstance, order by id
+    private final Map<String, List<FlowInstanceMappingPO>> nodeMappingMap = Maps.newHashMap();
+    // flowInstanceId -> mappings of its callActivity nodeInstances, order by id
+    private final Map<String, List<FlowInstanceMappingPO>> childMappingMap = Maps.newHashMap();
+    // subFlowInstanceId -> mapping to its parent
+    private final Map<String, FlowInstanceMappingPO> parentMappingMap = Maps.newHashMap();
+
+    /**
+     * @param mappingList mappings of the hierarchy order by id
+     */
+    public FlowInstanceHierarchy(String rootFlowInstanceId, List<FlowInstanceMappingPO> mappingList) {
+        this.rootFlowInstanceId = rootFlowInstanceId;
+        this.size = mappingList.size();
+        for (FlowInstanceMappingPO mappingPO : mappingList) {
+            nodeMappingMap.computeIfAbsent(key(mappingPO.getFlowInstanceId(), mappingPO.getNodeInstanceId()),
+                key -> Lists.newArrayList()).add(mappingPO);
+            childMappingMap.computeIfAbsent(mappingPO.getFlowInstanceId(), key -> Lists.newArrayList()).add(mappingPO);
+            FlowInstanceMappingPO parentMappingPO = parentMappingMap.get(mappingPO.getSubFlowInstanceId());
+            if (parentMappingPO == null || !isExecute(parentMappingPO) || isExecute(mappingPO)) {
+                parentMappingMap.put(mappingPO.getSubFlowInstanceId(), mappingPO);
+            }
+        }
+    }
+
+    private static boolean isExecute(FlowInstanceMappingPO mappingPO) {
+        return mappingPO.getType() != null && mappingPO.getType() == FlowInstanceMappingType.EXECUTE;
+    }
+
+    private static String key(String flowInstanceId, String nodeInstanceId) {
+        return flowInstanceId + "|" + nodeInstanceId;
+    }
+
+    public String getRootFlowInstanceId() {
+        return rootFlowInstanceId;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return mappings of the callActivity nodeInstance order by id, empty while it's not a callActivity
+     */
+    public List<FlowInstanceMappingPO> getMappingList(String flowInstanceId, String nodeInstanceId) {
+        List<FlowInstanceMappingPO> mappingList = nodeMappingMap.get(key(flowInstanceId, nodeInstanceId));
+        return mappingList == null ? Collections.emptyList() : Collections.unmodifiableList(mappingList);
+    }
+
+    /**
+     * @return the mapping from the parent callActivity nodeInstance, null for the root or a flowInstance out of the hierarchy
+     */
+    public FlowInstanceMappingPO getParentMapping(String flowInstanceId) {
+        return parentMappingMap.get(flowInstanceId);
+    }
+
+    /**
+     * All the nested subFlowInstanceIds of the flowInstance, itself excluded
+     */
+    public Set<String> getSubFlowInstanceIds(String flowInstanceId) {
+        Set<String> result = new TreeSet<>();
+        Deque<String> pending = new ArrayDeque<>();
+        pending.push(flowInstanceId);
+        while (!pending.isEmpty()) {
+            List<FlowInstanceMappingPO> childMappingList = childMappingMap.get(pending.pop());
+            if (childMappingList == null) {
+                continue;
+            }
+            for (FlowInstanceMappingPO mappingPO : childMappingList) {
+                String subFlowInstanceId = mappingPO.getSubFlowInstanceId();
+                if (!subFlowInstanceId.equals(flowInstanceId) && result.add(subFlowInstanceId)) {
+                    pending.push(subFlowInstanceId);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Mappings from the root down to the flowInstance, one per level
+     *
+     * @return empty for the root or a flowInstance out of the hierarchy
+     */
+    public List<FlowInstanceMappingPO> getAncestorPath(String flowInstanceId) {
+        List<FlowInstanceMappingPO> path = Lists.newArrayList();
+        FlowInstanceMappingPO mappingPO = parentMappingMap.get(flowInstanceId);
+        // bounded by size against a broken ring of mappings
+        while (mappingPO != null && path.size() < size) {
+            path.add(mappingPO);
+            mappingPO = parentMappingMap.get(mappingPO.getFlowInstanceId());
+        }
+        return Lists.reverse(path);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+            .add("rootFlowInstanceId", rootFlowInstanceId)
+            .add("size", size)
+            .toString();
+    }
+}
@@ -0,0 +1,59 @@
+package com.didiglobal.turbo.engine.bo;
+
+import com.didiglobal.turbo.engine.entity.FlowInstanceMappingPO;
+import com.didiglobal.turbo.engine.entity.NodeInstancePO;
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.Lists;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Node instances of a flowInstance and the subFlowInstances under it, loaded in batches for building history.
+ */
+public final class FlowInstanceHistory {
+
+    private final FlowInstanceHierarchy hierarchy;
+    // flowInstanceId -> nodeInstances order by id
+    private final Map<String, List<NodeInstancePO>> nodeInstanceMap;
+
+    public FlowInstanceHistory(FlowInstanceHierarchy hierarchy, Map<String, List<NodeInstancePO>> nodeInstanceMap) {
+        this.hierarchy = hierarchy;
+        this.nodeInstanceMap = nodeInstanceMap;
+    }
+
+    /**
+     * @return nodeInstances order by id, empty while the flowInstance is not loaded
+     */
+    public List<NodeInstancePO> getNodeInstanceList(String flowInstanceId) {
+        List<NodeInstancePO> nodeInstanceList = nodeInstanceMap.get(flowInstanceId);
+        return nodeInstanceList == null ? Collections.emptyList() : Collections.unmodifiableList(nodeInstanceList);
+    }
+
+    /**
+     * @return nodeInstances order by id desc, empty while the flowInstance is not loaded
+     */
+    public List<NodeInstancePO> getDescNodeInstanceList(String flowInstanceId) {
+        return Lists.reverse(getNodeInstanceList(flowInstanceId));
+    }
+
+    /**
+     * @return mappings of the callActivity nodeInstance order by id
+     */
+    public List<FlowInstanceMappingPO> getMappingList(String flowInstanceId, String nodeInstanceId) {
+        return hierarchy.getMappingList(flowInstanceId, nodeInstanceId);
+    }
+
+    public int getFlowInstanceCount() {
+        return nodeInstanceMap.size();
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+            .add("hierarchy", hierarchy)
+            .add("flowInstanceCount", nodeInstanceMap.size())
+            .toString();
+    }
+}
@@ -0,0 +1,113 @@
+package com.didiglobal.turbo.engine.bo;
+
+import com.didiglobal.turbo.engine.model.InstanceData;
+import com.didiglobal.turbo.engine.util.InstanceDataUtil;
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.Maps;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Instance data of one flowInstance fetched in a runtime call, parsed once per instanceDataId.
+ * <p>
+ * A saved instanceData row never changes, so a parsed map can be handed out again and again in the call.
+ * Each {@link #get(String)} returns a copy of the map, callers may put into it freely. Values are converted by their
+ * declared types once per instanceDataId, the copies share the converted values.
+ * <p>
+ * The checkpoint of each row is kept as well, so a new row is written as a delta against the rows fetched or written
+ * in the call without reading them again.
+ */
+public final class InstanceDataSnapshot {
+
+    private final String flowInstanceId;
+    // instanceDataId -> parsed instance data
+    private final Map<String, Entry> parsedMap = Maps.newHashMap();
+
+    public InstanceDataSnapshot(String flowInstanceId) {
+        this.flowInstanceId = flowInstanceId;
+    }
+
+    public String getFlowInstanceId() {
+        return flowInstanceId;
+    }
+
+    public boolean contains(String instanceDataId) {
+        return parsedMap.containsKey(instanceDataId);
+    }
+
+    /**
+     * @return a copy of the parsed instance data, or null while it's not fetched
+     */
+    public Map<String, InstanceData> get(String instanceDataId) {
+        Entry entry = parsedMap.get(instanceDataId);
+        return entry == null ? null : entry.variableStore.copy();
+    }
+
+    /**
+     * @return a read-only view of the parsed instance data, or null while it's not fetched
+     */
+    public Map<String, InstanceData> getReadOnly(String instanceDataId) {
+        Entry entry = parsedMap.get(instanceDataId);
+        return entry == null ? null : Collections.unmodifiableMap(entry.variableStore);
+    }
+
+    /**
+     * @return the checkpoint the row is a delta against, empty for a full row, null while it's not fetched
+     */
+    public String getCheckpointInstanceDataId(String instanceDataId) {
+        Entry entry = parsedMap.get(instanceDataId);
+        return entry == null ? null : entry.checkpointInstanceDataId;
+    }
+
+    /**
+     * @return the number of rows since the checkpoint, 0 for a full row or while it's not fetched
+     */
+    public int getDeltaSeq(String instanceDataId) {
+        Entry entry = parsedMap.get(instanceDataId);
+        return entry == null ? 0 : entry.deltaSeq;
+    }
+
+    /**
+     * @param instanceData the instance data json of a full instanceData row
+     */
+    public void put(String instanceDataId, String instanceData) {
+        put(instanceDataId, InstanceDataUtil.getInstanceDataMap(instanceData), null, 0);
+    }
+
+    /**
+     * @param instanceDataMap          the full instance data of the row, copied
+     * @param checkpointInstanceDataId the checkpoint of a delta row, blank for a full row
+     * @param deltaSeq                 the number of rows since the checkpoint
+     */
+    public void put(String instanceDataId, Map<String, InstanceData> instanceDataMap, String checkpointInstanceDataId, int deltaSeq) {
+        parsedMap.put(instanceDataId, new Entry(new VariableStore(instanceDataMap),
+            StringUtils.defaultString(checkpointInstanceDataId), StringUtils.isBlank(checkpointInstanceDataId) ? 0 : deltaSeq));
+    }
+
+    public int size() {
+        return parsedMap.size();
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+            .add("flowInstanceId", flowInstanceId)
+            .add("size", parsedMap.size())
+            .toString();
+    }
+
+    private static final class Entry {
+
+        private final VariableStore variableStore;
+        private final String checkpointInstanceDataId;
+        private final int deltaSeq;
+
+        private Entry(VariableStore variableStore, String checkpointInstanceDataId, int deltaSeq) {
+            this.variableStore = variableStore;
+            this.checkpointInstanceDataId = checkpointInstanceDataId;
+            this.deltaSeq = deltaSeq;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.didiglobal.turbo.engine.bo;
+
+import com.didiglobal.turbo.engine.entity.NodeInstancePO;
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Node instances of one flowInstance, selected once in a runtime call and attached to its
+ * {@link com.didiglobal.turbo.engine.common.RuntimeContext}.
+ * <p>
+ * Executors look up node instances here instead of querying them one by one. The node instances saved in the call
+ * are put back, so the snapshot keeps up with the db until the call ends. It's never shared between calls.
+ */
+public final class NodeInstanceSnapshot {
+
+    private final String flowInstanceId;
+    // nodeInstanceId -> nodeInstance, ordered by id asc and followed by the ones created in the call
+    private final Map<String, NodeInstancePO> nodeInstanceMap;
+    // sourceNodeInstanceId + nodeKey -> the latest nodeInstance executed from the source
+    private final Map<String, NodeInstancePO> sourceIndex;
+
+    /**
+     * @param nodeInstanceList all the node instances of the flowInstance order by id asc
+     */
+    public NodeInstanceSnapshot(String flowInstanceId, List<NodeInstancePO> nodeInstanceList) {
+        this.flowInstanceId = flowInstanceId;
+        int expectedSize = nodeInstanceList == null ? 0 : nodeInstanceList.size();
+        this.nodeInstanceMap = Maps.newLinkedHashMapWithExpectedSize(expectedSize);
+        this.sourceIndex = Maps.newHashMapWithExpectedSize(expectedSize);
+        if (nodeInstanceList != null) {
+            nodeInstanceList.forEach(this::put);
+        }
+    }
+
+    public String getFlowInstanceId() {
+        return flowInstanceId;
+    }
+
+    /**
+     * @return nodeInstance or null
+     */
+    public NodeInstancePO get(String nodeInstanceId) {
+        return nodeInstanceId == null ? null : nodeInstanceMap.get(nodeInstanceId);
+    }
+
+    /**
+     * Get the nodeInstance of nodeKey executed from the sourceNodeInstance
+     *
+     * @return nodeInstance or null
+     */
+    public NodeInstancePO getBySource(String sourceNodeInstanceId, String nodeKey) {
+        return sourceIndex.get(sourceKey(sourceNodeInstanceId, nodeKey));
+    }
+
+    /**
+     * @return all the node instances, the latest first
+     */
+    public List<NodeInstancePO> getDescList() {
+        return Lists.reverse(Lists.newArrayList(nodeInstanceMap.values()));
+    }
+
+    public int size() {
+        return nodeInstanceMap.size();
+    }
+
+    /**
+     * Put a nodeInstance saved in the call: a new one is appended, an existing one is replaced in place.
+     */
+    public void put(NodeInstancePO nodeInstancePO) {
+        nodeInstanceMap.put(nodeInstancePO.getNodeInstanceId(), nodeInstancePO);
+        sourceIndex.put(sourceKey(nodeInstancePO.getSourceNodeInstanceId(), nodeInstancePO.getNodeKey()), nodeInstancePO);
+    }
+
+    private static String sourceKey(String sourceNodeInstanceId, String nodeKey) {
+        return sourceNodeInstanceId + '|' + nodeKey;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+            .add("flowInstanceId", flowInstanceId)
+            .add("size", nodeInstanceMap.size())
+            .toString();
+    }
+}
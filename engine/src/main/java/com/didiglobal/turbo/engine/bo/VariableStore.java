@@ -0,0 +1,258 @@
+package com.didiglobal.turbo.engine.bo;
+
+import com.didiglobal.turbo.engine.common.DataType;
+import com.didiglobal.turbo.engine.model.InstanceData;
+import com.didiglobal.turbo.engine.util.InstanceDataUtil;
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Instance data of a flowInstance, with the value of each variable converted by its declared {@link DataType} once,
+ * while it's put.
+ * <p>
+ * Variable names are interned, integer, long and double values are kept unboxed. {@link #asDataMap()} is a read-only
+ * view of the converted values for expression calculation, so a gateway doesn't copy the variables per condition.
+ * A {@link #copy()} or a {@link #putAll(Map)} from another store shares the converted variables instead of converting
+ * them again. The {@link InstanceData} put into a store should not be modified afterwards.
+ */
+public final class VariableStore extends AbstractMap<String, InstanceData> {
+
+    private static final Interner<String> NAME_INTERNER = Interners.newWeakInterner();
+
+    private final Map<String, Variable> variableMap;
+
+    private final Map<String, Object> dataMap = new DataView();
+
+    public VariableStore() {
+        this.variableMap = new HashMap<>();
+    }
+
+    public VariableStore(Map<String, InstanceData> instanceDataMap) {
+        this.variableMap = new HashMap<>(Math.max(16, (int) (instanceDataMap.size() / 0.75f) + 1));
+        putAll(instanceDataMap);
+    }
+
+    private VariableStore(VariableStore variableStore) {
+        this.variableMap = new HashMap<>(variableStore.variableMap);
+    }
+
+    /**
+     * @return the map itself while it's a store already, null for null
+     */
+    public static VariableStore of(Map<String, InstanceData> instanceDataMap) {
+        if (instanceDataMap == null || instanceDataMap instanceof VariableStore) {
+            return (VariableStore) instanceDataMap;
+        }
+        return new VariableStore(instanceDataMap);
+    }
+
+    /**
+     * @return a modifiable copy which shares the converted variables
+     */
+    public VariableStore copy() {
+        return new VariableStore(this);
+    }
+
+    /**
+     * Read-only view of variable name to converted value, it reflects later changes of the store.
+     */
+    public Map<String, Object> asDataMap() {
+        return dataMap;
+    }
+
+    /**
+     * @return the converted value, null while the variable is absent
+     */
+    public Object getValue(String name) {
+        Variable variable = variableMap.get(name);
+        return variable == null ? null : variable.getValue();
+    }
+
+    @Override
+    public int size() {
+        return variableMap.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return variableMap.containsKey(key);
+    }
+
+    @Override
+    public InstanceData get(Object key) {
+        Variable variable = variableMap.get(key);
+        return variable == null ? null : variable.instanceData;
+    }
+
+    @Override
+    public InstanceData put(String key, InstanceData instanceData) {
+        return unwrap(variableMap.put(key == null ? null : NAME_INTERNER.intern(key), new Variable(instanceData)));
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends InstanceData> instanceDataMap) {
+        if (instanceDataMap instanceof VariableStore) {
+            variableMap.putAll(((VariableStore) instanceDataMap).variableMap);
+            return;
+        }
+        for (Map.Entry<? extends String, ? extends InstanceData> entry : instanceDataMap.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public InstanceData remove(Object key) {
+        return unwrap(variableMap.remove(key));
+    }
+
+    @Override
+    public void clear() {
+        variableMap.clear();
+    }
+
+    @Override
+    public Set<Map.Entry<String, InstanceData>> entrySet() {
+        return new AbstractSet<Map.Entry<String, InstanceData>>() {
+            @Override
+            public Iterator<Map.Entry<String, InstanceData>> iterator() {
+                Iterator<Map.Entry<String, Variable>> iterator = variableMap.entrySet().iterator();
+                return new Iterator<Map.Entry<String, InstanceData>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Map.Entry<String, InstanceData> next() {
+                        Map.Entry<String, Variable> entry = iterator.next();
+                        return new SimpleImmutableEntry<>(entry.getKey(), entry.getValue().instanceData);
+                    }
+
+                    @Override
+                    public void remove() {
+                        iterator.remove();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return variableMap.size();
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+            .add("size", variableMap.size())
+            .toString();
+    }
+
+    private static InstanceData unwrap(Variable variable) {
+        return variable == null ? null : variable.instanceData;
+    }
+
+    private final class DataView extends AbstractMap<String, Object> {
+
+        @Override
+        public int size() {
+            return variableMap.size();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return variableMap.containsKey(key);
+        }
+
+        @Override
+        public Object get(Object key) {
+            Variable variable = variableMap.get(key);
+            return variable == null ? null : variable.getValue();
+        }
+
+        @Override
+        public Set<Map.Entry<String, Object>> entrySet() {
+            return new AbstractSet<Map.Entry<String, Object>>() {
+                @Override
+                public Iterator<Map.Entry<String, Object>> iterator() {
+                    Iterator<Map.Entry<String, Variable>> iterator = variableMap.entrySet().iterator();
+                    return new Iterator<Map.Entry<String, Object>>() {
+                        @Override
+                        public boolean hasNext() {
+                            return iterator.hasNext();
+                        }
+
+                        @Override
+                        public Map.Entry<String, Object> next() {
+                            Map.Entry<String, Variable> entry = iterator.next();
+                            return new SimpleImmutableEntry<>(entry.getKey(), entry.getValue().getValue());
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return variableMap.size();
+                }
+            };
+        }
+    }
+
+    private static final class Variable {
+        private static final byte REFERENCE = 0;
+        private static final byte INTEGER = 1;
+        private static final byte LONG = 2;
+        private static final byte DOUBLE = 3;
+
+        private final InstanceData instanceData;
+        private final byte kind;
+        // value of INTEGER and LONG, raw bits of DOUBLE
+        private final long bits;
+        private final Object reference;
+
+        private Variable(InstanceData instanceData) {
+            this.instanceData = instanceData;
+            Object value = InstanceDataUtil.parseInstanceData(instanceData);
+            DataType dataType = instanceData == null ? null : DataType.getType(instanceData.getType());
+            if (dataType == DataType.T_INTEGER && value instanceof Integer) {
+                this.kind = INTEGER;
+                this.bits = (Integer) value;
+                this.reference = null;
+            } else if (dataType == DataType.T_LONG && value instanceof Long) {
+                this.kind = LONG;
+                this.bits = (Long) value;
+                this.reference = null;
+            } else if (dataType == DataType.T_DOUBLE && value instanceof Double) {
+                this.kind = DOUBLE;
+                this.bits = Double.doubleToRawLongBits((Double) value);
+                this.reference = null;
+            } else {
+                this.kind = REFERENCE;
+                this.bits = 0L;
+                this.reference = value;
+            }
+        }
+
+        private Object getValue() {
+            switch (kind) {
+                case INTEGER:
+                    return (int) bits;
+                case LONG:
+                    return bits;
+                case DOUBLE:
+                    return Double.longBitsToDouble(bits);
+                default:
+                    return reference;
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.didiglobal.turbo.engine.common;
+
+public class CallActivityTaskStatus {
+
+    public static final int PENDING = 1; //待执行
+    public static final int RUNNING = 2; //执行中
+    public static final int SUCCESS = 3; //已完成
+    public static final int FAILED = 4; //已失败
+    public static final int CANCELED = 5; //已取消
+}
@@ -18,6 +18,9 @@ public class Constants {
         public static final String CALL_ACTIVITY_IN_PARAM = "callActivityInParam";
         public static final String CALL_ACTIVITY_OUT_PARAM_TYPE = "callActivityOutParamType";
         public static final String CALL_ACTIVITY_OUT_PARAM = "callActivityOutParam";
+        public static final String CALL_ACTIVITY_MULTI_INSTANCE_COLLECTION = "callActivityMultiInstanceCollection";
+        public static final String CALL_ACTIVITY_MULTI_INSTANCE_ELEMENT = "callActivityMultiInstanceElement";
+        public static final String CALL_ACTIVITY_MULTI_INSTANCE_COMPLETION_COUNT = "callActivityMultiInstanceCompletionCount";
     }
 
     public static final class CALL_ACTIVITY_PARAM_TYPE {
@@ -34,6 +37,8 @@ public class Constants {
     public static final class CALL_ACTIVITY_INSTANCE_TYPE {
         public static final String SINGLE = "single";
         public static final String MULTIPLE = "multiple";
+        // the key of the collection element in the variables of each subFlowInstance, by default
+        public static final String DEFAULT_ELEMENT = "item";
     }
 
     public static final class CALL_ACTIVITY_DATA_TRANSFER_TYPE {
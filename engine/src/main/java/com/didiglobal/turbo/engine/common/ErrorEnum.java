@@ -37,6 +37,7 @@ public enum ErrorEnum {
     ELEMENT_LACK_OUTGOING(3215, "Element lack outgoing"),
     REQUIRED_ELEMENT_ATTRIBUTES(3216, "required element attributes"),
     MODEL_UNKNOWN_ELEMENT_VALUE(3217, "Unknown element value"),
+    PARALLEL_BRANCH_NOT_JOINED(3218, "Parallel branch ends without join"),
 
     //4000~4999 流程执行错误
     COMMIT_FAILED(4001, "Commit task failed"),
@@ -59,6 +60,8 @@ public enum ErrorEnum {
     GROOVY_CALCULATE_FAILED(4018, "Groovy calculate failed"),
     GET_CALL_ACTIVITY_MODEL_FAILED(4019, "Get CallActivity model failed"),
     NO_RECEIVE_SUB_FLOW_INSTANCE(4020, "Do not receive subFlowInstanceId"),
+    FLOW_INSTANCE_CONFLICT(4021, "FlowInstance is modified concurrently, retry later"),
+    PARALLEL_JOIN_FAILED(4022, "Parallel join failed"),
 
 
     //5000~5999 系统错误
@@ -6,5 +6,6 @@ public class FlowElementType {
     public static final int END_EVENT = 3;
     public static final int USER_TASK = 4;
     public static final int EXCLUSIVE_GATEWAY = 6;
+    public static final int PARALLEL_GATEWAY = 7;
     public static final int CALL_ACTIVITY = 8;
 }
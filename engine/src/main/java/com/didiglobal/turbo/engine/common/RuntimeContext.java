@@ -1,6 +1,10 @@
 package com.didiglobal.turbo.engine.common;
 
+import com.didiglobal.turbo.engine.bo.FlowGraph;
+import com.didiglobal.turbo.engine.bo.InstanceDataSnapshot;
 import com.didiglobal.turbo.engine.bo.NodeInstanceBO;
+import com.didiglobal.turbo.engine.bo.NodeInstanceSnapshot;
+import com.didiglobal.turbo.engine.bo.VariableStore;
 import com.didiglobal.turbo.engine.model.FlowElement;
 import com.didiglobal.turbo.engine.model.InstanceData;
 import com.didiglobal.turbo.engine.result.RuntimeResult;
@@ -21,6 +25,7 @@ public class RuntimeContext {
     private String tenant;
     private String caller;
     private Map<String, FlowElement> flowElementMap;
+    private FlowGraph flowGraph;
 
     //2.runtime info
     //2.1 flowInstance info
@@ -29,6 +34,7 @@ public class RuntimeContext {
     private NodeInstanceBO suspendNodeInstance; //point to the userTaskInstance to commit/rollback
     private List<NodeInstanceBO> nodeInstanceList;  //processed nodeInstance list
     private Stack<String> suspendNodeInstanceStack; // suspendNodeInstance Stack: commitNode > ... > currentNode
+    private NodeInstanceSnapshot nodeInstanceSnapshot; // node instances of the flowInstance, selected once in the call
 
     //2.2 current info
     private FlowElement currentNodeModel;
@@ -37,6 +43,7 @@ public class RuntimeContext {
     //2.3 data info
     private String instanceDataId;
     private Map<String, InstanceData> instanceDataMap;
+    private InstanceDataSnapshot instanceDataSnapshot; // instance data fetched in the call, parsed once
 
     //2.4 process status
     private int processStatus;
@@ -93,6 +100,14 @@ public class RuntimeContext {
         this.flowElementMap = flowElementMap;
     }
 
+    public FlowGraph getFlowGraph() {
+        return flowGraph;
+    }
+
+    public void setFlowGraph(FlowGraph flowGraph) {
+        this.flowGraph = flowGraph;
+    }
+
     public String getFlowInstanceId() {
         return flowInstanceId;
     }
@@ -133,6 +148,14 @@ public class RuntimeContext {
         this.suspendNodeInstanceStack = suspendNodeInstanceStack;
     }
 
+    public NodeInstanceSnapshot getNodeInstanceSnapshot() {
+        return nodeInstanceSnapshot;
+    }
+
+    public void setNodeInstanceSnapshot(NodeInstanceSnapshot nodeInstanceSnapshot) {
+        this.nodeInstanceSnapshot = nodeInstanceSnapshot;
+    }
+
     public FlowElement getCurrentNodeModel() {
         return currentNodeModel;
     }
@@ -162,7 +185,15 @@ public class RuntimeContext {
     }
 
     public void setInstanceDataMap(Map<String, InstanceData> instanceDataMap) {
-        this.instanceDataMap = instanceDataMap;
+        this.instanceDataMap = VariableStore.of(instanceDataMap);
+    }
+
+    public InstanceDataSnapshot getInstanceDataSnapshot() {
+        return instanceDataSnapshot;
+    }
+
+    public void setInstanceDataSnapshot(InstanceDataSnapshot instanceDataSnapshot) {
+        this.instanceDataSnapshot = instanceDataSnapshot;
     }
 
     public int getProcessStatus() {
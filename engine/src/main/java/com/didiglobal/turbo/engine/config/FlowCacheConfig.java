@@ -0,0 +1,41 @@
+package com.didiglobal.turbo.engine.config;
+
+import com.didiglobal.turbo.engine.spi.FlowCache;
+import com.didiglobal.turbo.engine.spi.impl.LocalFlowCache;
+import com.didiglobal.turbo.engine.spi.impl.RedisFlowCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The shipped {@link FlowCache} chosen by turbo.cache.type: local, or redis while jedis is on the classpath.
+ * Any other cache is given as a {@link FlowCache} bean by the application. No flow cache by default.
+ */
+@Configuration
+public class FlowCacheConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "turbo.cache.type", havingValue = "local")
+    public FlowCache localFlowCache(@Value("${turbo.cache.local.maxSize:100000}") long maxSize) {
+        return new LocalFlowCache(maxSize);
+    }
+
+    // nested, so jedis is loaded only while it's present
+    @Configuration
+    @ConditionalOnClass(name = "redis.clients.jedis.JedisPool")
+    static class RedisFlowCacheConfig {
+
+        @Bean(destroyMethod = "close")
+        @ConditionalOnProperty(name = "turbo.cache.type", havingValue = "redis")
+        public FlowCache redisFlowCache(@Value("${turbo.cache.redis.host:127.0.0.1}") String host,
+                                        @Value("${turbo.cache.redis.port:6379}") int port,
+                                        @Value("${turbo.cache.redis.password:}") String password,
+                                        @Value("${turbo.cache.redis.database:0}") int database,
+                                        @Value("${turbo.cache.redis.timeoutMillis:200}") int timeoutMillis,
+                                        @Value("${turbo.cache.redis.maxTotal:16}") int maxTotal) {
+            return new RedisFlowCache(host, port, password, database, timeoutMillis, maxTotal);
+        }
+    }
+}
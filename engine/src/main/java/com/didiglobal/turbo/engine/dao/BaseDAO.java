@@ -10,4 +10,7 @@ import org.slf4j.LoggerFactory;
 @DS("engine")
 public class BaseDAO<M extends BaseMapper<T>, T> extends ServiceImpl<M, T> implements IService<T> {
     protected static final Logger LOGGER = LoggerFactory.getLogger(BaseDAO.class);
+
+    // max rows of a multi-row statement
+    protected static final int BATCH_SIZE = 500;
 }
@@ -0,0 +1,114 @@
+package com.didiglobal.turbo.engine.dao;
+
+import com.didiglobal.turbo.engine.dao.mapper.CallActivityTaskMapper;
+import com.didiglobal.turbo.engine.entity.CallActivityTaskPO;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Durable tasks of async callActivity nodes. A task is claimed by increasing its version, and every later update of
+ * the task checks the claimed version, so a worker whose lease has expired and been taken over can't overwrite it.
+ */
+@Repository
+public class CallActivityTaskDAO extends BaseDAO<CallActivityTaskMapper, CallActivityTaskPO> {
+
+    // max length of err_msg
+    private static final int ERR_MSG_LENGTH = 512;
+
+    public CallActivityTaskPO selectByNodeInstanceId(String flowInstanceId, String nodeInstanceId) {
+        return baseMapper.selectByNodeInstanceId(flowInstanceId, nodeInstanceId);
+    }
+
+    /**
+     * Select pending tasks and running tasks whose lease has expired, earliest first.
+     */
+    public List<CallActivityTaskPO> selectDueList(Date now, int limit) {
+        return baseMapper.selectDueList(now, limit);
+    }
+
+    /**
+     * Count tasks by status, e.g. FAILED tasks whose MainFlow is stuck at the callActivity node.
+     */
+    public long countByStatus(int status) {
+        return baseMapper.countByStatus(status);
+    }
+
+    /**
+     * Insert: insert callActivityTaskPO, return -1 while insert failed.
+     * Within a fork of the {@link UnitOfWork}, it's inserted while the fork is merged.
+     *
+     * @param callActivityTaskPO
+     * @return
+     */
+    public int insert(CallActivityTaskPO callActivityTaskPO) {
+        if (UnitOfWork.deferInFork(() -> baseMapper.insert(callActivityTaskPO))) {
+            return 1;
+        }
+        try {
+            return baseMapper.insert(callActivityTaskPO);
+        } catch (Exception e) {
+            LOGGER.error("insert exception.||callActivityTaskPO={}", callActivityTaskPO, e);
+        }
+        return -1;
+    }
+
+    /**
+     * Claim the task to run until leaseTime, the version of callActivityTaskPO is increased on success.
+     *
+     * @return false while the task has been claimed by others
+     */
+    public boolean claim(CallActivityTaskPO callActivityTaskPO, Date leaseTime) {
+        int version = callActivityTaskPO.getVersion();
+        if (baseMapper.claim(callActivityTaskPO.getId(), version, leaseTime, new Date()) == 0) {
+            return false;
+        }
+        callActivityTaskPO.setVersion(version + 1);
+        return true;
+    }
+
+    /**
+     * Set the final status of a claimed task.
+     *
+     * @return false while the lease has been taken over by others
+     */
+    public boolean finish(CallActivityTaskPO callActivityTaskPO, int status, String errMsg) {
+        return baseMapper.finish(callActivityTaskPO.getId(), callActivityTaskPO.getVersion(), status,
+            abbreviate(errMsg), new Date()) > 0;
+    }
+
+    /**
+     * Release a claimed task to run again at nextRunTime, with the retry count increased.
+     *
+     * @return false while the lease has been taken over by others
+     */
+    public boolean retryLater(CallActivityTaskPO callActivityTaskPO, Date nextRunTime, String errMsg) {
+        return baseMapper.retryLater(callActivityTaskPO.getId(), callActivityTaskPO.getVersion(), nextRunTime,
+            abbreviate(errMsg), new Date()) > 0;
+    }
+
+    /**
+     * Cancel a pending task.
+     *
+     * @return false while the task is not pending
+     */
+    public boolean cancel(CallActivityTaskPO callActivityTaskPO) {
+        return baseMapper.cancel(callActivityTaskPO.getId(), new Date()) > 0;
+    }
+
+    /**
+     * Submit a failed task again with new params, to run at once.
+     *
+     * @return false while the task is not failed
+     */
+    public boolean resubmit(CallActivityTaskPO callActivityTaskPO) {
+        return baseMapper.resubmit(callActivityTaskPO.getId(), callActivityTaskPO.getSubFlowModuleId(),
+            callActivityTaskPO.getVariables(), new Date()) > 0;
+    }
+
+    private static String abbreviate(String errMsg) {
+        return StringUtils.abbreviate(StringUtils.defaultString(errMsg), ERR_MSG_LENGTH);
+    }
+}
@@ -0,0 +1,174 @@
+package com.didiglobal.turbo.engine.dao;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.serializer.SimplePropertyPreFilter;
+import com.didiglobal.turbo.engine.common.RedisConstants;
+import com.didiglobal.turbo.engine.entity.FlowDeploymentPO;
+import com.didiglobal.turbo.engine.entity.FlowInstancePO;
+import com.didiglobal.turbo.engine.metrics.EngineMetrics;
+import com.didiglobal.turbo.engine.spi.FlowCache;
+import com.didiglobal.turbo.engine.spi.impl.LocalFlowCache;
+import com.google.common.cache.CacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.Resource;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Read deployments and flow instances through the {@link FlowCache} bean, the db is read directly while there's none.
+ * <p>
+ * A miss is loaded from the db and put only while the key is still absent. After a transaction updating the status of a
+ * flow instance commits, its entry is replaced by a short-lived invalidation marker instead of being written through:
+ * a read racing with the update may have loaded the old status before the commit, and the marker keeps it from
+ * putting that status back. While the marker lives the db is read without filling the cache. Within a transaction the
+ * db is read directly, so a unit of work sees its own writes. Failures of the cache are logged and fall back to the db.
+ */
+@Component
+public class FlowCacheTemplate {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FlowCacheTemplate.class);
+
+    // value of an invalidated flow instance, never valid json
+    static final String INVALIDATED = "#invalidated";
+
+    // columns of a flow instance in the cache, the version changes on every update and is not cached
+    private static final SimplePropertyPreFilter FLOW_INSTANCE_FILTER = new SimplePropertyPreFilter(FlowInstancePO.class,
+        "flowInstanceId", "flowDeployId", "flowModuleId", "parentFlowInstanceId", "status", "tenant", "caller");
+
+    @Autowired(required = false)
+    private FlowCache flowCache;
+
+    @Resource
+    private EngineMetrics engineMetrics;
+
+    @Value("${turbo.cache.flowDeployment.expireSeconds:" + RedisConstants.FLOW_EXPIRED_SECOND + "}")
+    private int flowDeploymentExpireSeconds = RedisConstants.FLOW_EXPIRED_SECOND;
+
+    @Value("${turbo.cache.flowInstance.expireSeconds:" + RedisConstants.FLOW_INSTANCE_EXPIRED_SECOND + "}")
+    private int flowInstanceExpireSeconds = RedisConstants.FLOW_INSTANCE_EXPIRED_SECOND;
+
+    // longer than a read of a flow instance from the db, so a status loaded before an update is not put back
+    @Value("${turbo.cache.flowInstance.invalidatedSeconds:10}")
+    private int flowInstanceInvalidatedSeconds = 10;
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    void init(FlowCache flowCache, EngineMetrics engineMetrics) {
+        this.flowCache = flowCache;
+        this.engineMetrics = engineMetrics;
+    }
+
+    public boolean isEnabled() {
+        return flowCache != null;
+    }
+
+    /**
+     * @param loader select from the db while missed
+     */
+    public FlowDeploymentPO getFlowDeployment(String flowDeployId, Supplier<FlowDeploymentPO> loader) {
+        return get(RedisConstants.FLOW_INFO + flowDeployId, FlowDeploymentPO.class, flowDeploymentExpireSeconds, loader);
+    }
+
+    /**
+     * @param loader select from the db while missed
+     * @return flow instance without version and modifyTime while it's read from the cache
+     */
+    public FlowInstancePO getFlowInstance(String flowInstanceId, Supplier<FlowInstancePO> loader) {
+        return get(RedisConstants.FLOW_INSTANCE + flowInstanceId, FlowInstancePO.class, flowInstanceExpireSeconds, loader);
+    }
+
+    /**
+     * Invalidate the cached flow instance after its status is updated, after the current transaction commits if any.
+     */
+    public void invalidateFlowInstance(String flowInstanceId) {
+        if (flowCache == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    invalidate(RedisConstants.FLOW_INSTANCE + flowInstanceId);
+                }
+            });
+        } else {
+            invalidate(RedisConstants.FLOW_INSTANCE + flowInstanceId);
+        }
+    }
+
+    /**
+     * Hit/miss statistics of the reads through the cache, reads within a transaction are not counted.
+     */
+    public CacheStats getCacheStats() {
+        return new CacheStats(hitCount.get(), missCount.get(), 0L, 0L, 0L, 0L);
+    }
+
+    /**
+     * @return count of the entries of a local cache, -1 for others
+     */
+    public long getCacheSize() {
+        return flowCache instanceof LocalFlowCache ? ((LocalFlowCache) flowCache).size() : -1L;
+    }
+
+    private <T> T get(String key, Class<T> clazz, int expireSeconds, Supplier<T> loader) {
+        if (flowCache == null || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return loader.get();
+        }
+        boolean invalidated = false;
+        try {
+            String value = flowCache.get(key);
+            if (INVALIDATED.equals(value)) {
+                invalidated = true;
+            } else if (value != null) {
+                hitCount.incrementAndGet();
+                return JSON.parseObject(value, clazz);
+            }
+        } catch (RuntimeException e) {
+            LOGGER.warn("get from flowCache failed.||key={}", key, e);
+            engineMetrics.increment("flowCache.failure");
+        }
+        missCount.incrementAndGet();
+        T t = loader.get();
+        if (t != null && !invalidated) {
+            try {
+                flowCache.setIfAbsent(key, toJSONString(t), expireSeconds);
+            } catch (RuntimeException e) {
+                LOGGER.warn("put into flowCache failed.||key={}", key, e);
+                engineMetrics.increment("flowCache.failure");
+            }
+        }
+        return t;
+    }
+
+    private void invalidate(String key) {
+        try {
+            flowCache.set(key, INVALIDATED, flowInstanceInvalidatedSeconds);
+        } catch (RuntimeException e) {
+            LOGGER.warn("invalidate in flowCache failed.||key={}", key, e);
+            engineMetrics.increment("flowCache.failure");
+            delete(key);
+        }
+    }
+
+    private void delete(String key) {
+        try {
+            flowCache.delete(key);
+        } catch (RuntimeException e) {
+            // the stale entry stays until it expires
+            LOGGER.error("delete from flowCache failed.||key={}", key, e);
+        }
+    }
+
+    private static String toJSONString(Object object) {
+        return object instanceof FlowInstancePO ? JSON.toJSONString(object, FLOW_INSTANCE_FILTER) : JSON.toJSONString(object);
+    }
+}
@@ -0,0 +1,56 @@
+package com.didiglobal.turbo.engine.dao;
+
+import com.didiglobal.turbo.engine.dao.mapper.FlowDeployEpochMapper;
+import com.didiglobal.turbo.engine.entity.FlowDeployEpochPO;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+
+@Repository
+public class FlowDeployEpochDAO extends BaseDAO<FlowDeployEpochMapper, FlowDeployEpochPO> {
+
+    // the table holds only one row
+    private static final long EPOCH_ROW_ID = 1L;
+
+    /**
+     * SelectEpoch: query current deploy epoch, return 0 while the row is not initialized.
+     *
+     * @return epoch
+     */
+    public long selectEpoch() {
+        Long epoch = baseMapper.selectEpoch(EPOCH_ROW_ID);
+        return epoch == null ? 0L : epoch;
+    }
+
+    /**
+     * IncreaseEpoch: increase the deploy epoch by 1, the row is initialized while absent.
+     *
+     * @return updated rows, -1 while update failed
+     */
+    public int increaseEpoch() {
+        try {
+            int rows = baseMapper.increaseEpoch(EPOCH_ROW_ID, new Date());
+            if (rows == 0) {
+                initEpoch();
+                rows = baseMapper.increaseEpoch(EPOCH_ROW_ID, new Date());
+            }
+            return rows;
+        } catch (Exception e) {
+            LOGGER.error("increaseEpoch exception.", e);
+        }
+        return -1;
+    }
+
+    private void initEpoch() {
+        FlowDeployEpochPO flowDeployEpochPO = new FlowDeployEpochPO();
+        flowDeployEpochPO.setId(EPOCH_ROW_ID);
+        flowDeployEpochPO.setEpoch(0L);
+        flowDeployEpochPO.setModifyTime(new Date());
+        try {
+            baseMapper.insert(flowDeployEpochPO);
+        } catch (Exception e) {
+            // initialized by another node concurrently
+            LOGGER.warn("initEpoch failed.||flowDeployEpochPO={}", flowDeployEpochPO, e);
+        }
+    }
+}
@@ -4,9 +4,14 @@ import com.didiglobal.turbo.engine.dao.mapper.FlowDeploymentMapper;
 import com.didiglobal.turbo.engine.entity.FlowDeploymentPO;
 import org.springframework.stereotype.Repository;
 
+import javax.annotation.Resource;
+
 @Repository
 public class FlowDeploymentDAO extends BaseDAO<FlowDeploymentMapper, FlowDeploymentPO> {
 
+    @Resource
+    private FlowCacheTemplate flowCacheTemplate;
+
     /**
      * Insert: insert flowDeploymentPO, return -1 while insert failed.
      *
@@ -22,8 +27,14 @@ public class FlowDeploymentDAO extends BaseDAO<FlowDeploymentMapper, FlowDeploym
         return -1;
     }
 
+    /**
+     * SelectByDeployId: query flowDeploymentPO by flowDeployId through the flow cache, a deployment never changes.
+     *
+     * @param  flowDeployId
+     * @return flowDeploymentPO, null while not found
+     */
     public FlowDeploymentPO selectByDeployId(String flowDeployId) {
-        return baseMapper.selectByDeployId(flowDeployId);
+        return flowCacheTemplate.getFlowDeployment(flowDeployId, () -> baseMapper.selectByDeployId(flowDeployId));
     }
 
     /**
@@ -2,8 +2,12 @@ package com.didiglobal.turbo.engine.dao;
 
 import com.didiglobal.turbo.engine.dao.mapper.FlowInstanceMappingMapper;
 import com.didiglobal.turbo.engine.entity.FlowInstanceMappingPO;
+import com.google.common.collect.Lists;
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -32,6 +36,56 @@ public class FlowInstanceMappingDAO extends BaseDAO<FlowInstanceMappingMapper, F
         return baseMapper.selectFlowInstanceMappingPO(flowInstanceId, nodeInstanceId);
     }
 
+    /**
+     * Select the mappings of all the callActivity nodes of a flowInstance, order by id
+     *
+     * @param flowInstanceId
+     * @return
+     */
+    public List<FlowInstanceMappingPO> selectByFlowInstanceId(String flowInstanceId) {
+        return baseMapper.selectByFlowInstanceId(flowInstanceId);
+    }
+
+    /**
+     * Select the whole hierarchy of a root flowInstance in one query: the mappings of all its nested subFlowInstances,
+     * order by id. Mappings saved before root_flow_instance_id was added are not included.
+     *
+     * @param rootFlowInstanceId
+     * @return
+     */
+    public List<FlowInstanceMappingPO> selectByRootFlowInstanceId(String rootFlowInstanceId) {
+        return baseMapper.selectByRootFlowInstanceId(rootFlowInstanceId);
+    }
+
+    /**
+     * Select the mappings saved before root_flow_instance_id was added, of several flowInstances, in one statement
+     * per BATCH_SIZE flowInstances, order by id
+     *
+     * @param flowInstanceIds
+     * @return
+     */
+    public List<FlowInstanceMappingPO> selectLegacyByFlowInstanceIds(Collection<String> flowInstanceIds) {
+        List<FlowInstanceMappingPO> mappingList = Lists.newArrayList();
+        if (CollectionUtils.isEmpty(flowInstanceIds)) {
+            return mappingList;
+        }
+        for (List<String> partition : Lists.partition(Lists.newArrayList(flowInstanceIds), BATCH_SIZE)) {
+            mappingList.addAll(baseMapper.selectLegacyByFlowInstanceIds(partition));
+        }
+        return mappingList;
+    }
+
+    /**
+     * Select the whole hierarchy a subFlowInstance belongs to in one query, order by id,
+     * which includes the path from the root to the subFlowInstance.
+     *
+     * @param subFlowInstanceId
+     * @return empty while subFlowInstanceId is not a subFlowInstance
+     */
+    public List<FlowInstanceMappingPO> selectSameRootBySubFlowInstanceId(String subFlowInstanceId) {
+        return baseMapper.selectSameRootBySubFlowInstanceId(subFlowInstanceId);
+    }
+
     /**
      * Insert: insert flowInstanceMappingPO, return -1 while insert failed.
      *
@@ -47,6 +101,33 @@ public class FlowInstanceMappingDAO extends BaseDAO<FlowInstanceMappingMapper, F
         return -1;
     }
 
+    /**
+     * flowInstanceMappingList batch insert, in one statement per BATCH_SIZE rows.
+     * Within a fork of the {@link UnitOfWork}, it's written while the fork is merged.
+     *
+     * @param flowInstanceMappingList
+     */
+    public void insertList(List<FlowInstanceMappingPO> flowInstanceMappingList) {
+        if (CollectionUtils.isEmpty(flowInstanceMappingList)) {
+            return;
+        }
+        if (UnitOfWork.deferInFork(() -> batchInsert(flowInstanceMappingList))) {
+            return;
+        }
+        batchInsert(flowInstanceMappingList);
+    }
+
+    private void batchInsert(List<FlowInstanceMappingPO> flowInstanceMappingList) {
+        for (FlowInstanceMappingPO flowInstanceMappingPO : flowInstanceMappingList) {
+            flowInstanceMappingPO.setRootFlowInstanceId(StringUtils.defaultString(flowInstanceMappingPO.getRootFlowInstanceId()));
+            flowInstanceMappingPO.setTenant(StringUtils.defaultString(flowInstanceMappingPO.getTenant()));
+            flowInstanceMappingPO.setCaller(StringUtils.defaultString(flowInstanceMappingPO.getCaller()));
+        }
+        for (List<FlowInstanceMappingPO> partition : Lists.partition(flowInstanceMappingList, BATCH_SIZE)) {
+            baseMapper.batchInsert(partition);
+        }
+    }
+
     public void updateType(String flowInstanceId, String nodeInstanceId, int type) {
         FlowInstanceMappingPO flowInstanceMappingPO = new FlowInstanceMappingPO();
         flowInstanceMappingPO.setFlowInstanceId(flowInstanceId);
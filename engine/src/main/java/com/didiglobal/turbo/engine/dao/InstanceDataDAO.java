@@ -1,16 +1,149 @@
 package com.didiglobal.turbo.engine.dao;
 
+import com.didiglobal.turbo.engine.bo.InstanceDataSnapshot;
 import com.didiglobal.turbo.engine.dao.mapper.InstanceDataMapper;
 import com.didiglobal.turbo.engine.entity.InstanceDataPO;
+import com.didiglobal.turbo.engine.metrics.MetricsContext;
+import com.didiglobal.turbo.engine.model.InstanceData;
+import com.didiglobal.turbo.engine.util.InstanceDataCodecRegistry;
+import com.didiglobal.turbo.engine.util.InstanceDataUtil;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
+import javax.annotation.Resource;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * InstanceData is saved as a full list, or as a delta while the checkpoint interval is enabled.
+ * <p>
+ * A delta row keeps the entries changed against its checkpoint, the recent full row of the chain, so any row is
+ * rebuilt from two rows at most. A full row is written again every checkpointInterval rows, while some key is removed,
+ * or while the delta is not much smaller than the full json. All the selects return the rebuilt full instanceData, and
+ * fail while the checkpoint of a delta row is missing. The base of a new delta is taken from the
+ * {@link InstanceDataSnapshot} of the call, so a commit doesn't read or decode the chain again.
+ */
 @Repository
 public class InstanceDataDAO extends BaseDAO<InstanceDataMapper, InstanceDataPO> {
 
+    // write a full row every checkpointInterval rows of a chain, 0 or 1 means always full
+    @Value("${turbo.instanceData.checkpointInterval:0}")
+    private int checkpointInterval = 0;
+
+    @Resource
+    private InstanceDataCodecRegistry instanceDataCodecRegistry;
+
     public InstanceDataPO select(String flowInstanceId, String instanceDataId) {
+        return select(flowInstanceId, instanceDataId, null);
+    }
+
+    /**
+     * select instanceData, the row and the checkpoint it's rebuilt from are kept in the instanceDataSnapshot
+     *
+     * @param instanceDataSnapshot of the flowInstance, may be null
+     * @return
+     */
+    public InstanceDataPO select(String flowInstanceId, String instanceDataId, InstanceDataSnapshot instanceDataSnapshot) {
+        InstanceDataPO instanceDataPO = selectRaw(flowInstanceId, instanceDataId);
+        if (instanceDataPO == null) {
+            return null;
+        }
+        if (isFull(instanceDataPO)) {
+            if (instanceDataSnapshot != null) {
+                putFull(instanceDataPO, instanceDataSnapshot);
+            }
+            return instanceDataPO;
+        }
+        String checkpointInstanceDataId = instanceDataPO.getCheckpointInstanceDataId();
+        Map<String, InstanceData> checkpointMap = instanceDataSnapshot == null ? null : instanceDataSnapshot.getReadOnly(checkpointInstanceDataId);
+        if (checkpointMap == null) {
+            checkpointMap = decodeCheckpoint(instanceDataPO, selectRaw(flowInstanceId, checkpointInstanceDataId), instanceDataSnapshot);
+        }
+        merge(instanceDataPO, checkpointMap, instanceDataSnapshot);
+        return instanceDataPO;
+    }
+
+    // the row as written, a delta one is not rebuilt
+    private InstanceDataPO selectRaw(String flowInstanceId, String instanceDataId) {
+        InstanceDataPO deferredPO = UnitOfWork.findDeferredInstanceData(instanceDataId);
+        if (deferredPO != null) {
+            return deferredPO;
+        }
         return baseMapper.select(flowInstanceId, instanceDataId);
     }
 
+    /**
+     * select several instanceData in one statement per BATCH_SIZE ids, missing ones are absent in the result
+     *
+     * @param flowInstanceId
+     * @param instanceDataIds
+     * @return
+     */
+    public List<InstanceDataPO> selectByInstanceDataIds(String flowInstanceId, Collection<String> instanceDataIds) {
+        return selectByInstanceDataIds(flowInstanceId, instanceDataIds, null);
+    }
+
+    /**
+     * Same as {@link #selectByInstanceDataIds(String, Collection)}, the rows and the checkpoints they're rebuilt from
+     * are kept in the instanceDataSnapshot, checkpoints kept already are not selected again.
+     *
+     * @param instanceDataSnapshot of the flowInstance, may be null
+     */
+    public List<InstanceDataPO> selectByInstanceDataIds(String flowInstanceId, Collection<String> instanceDataIds,
+                                                        InstanceDataSnapshot instanceDataSnapshot) {
+        List<InstanceDataPO> instanceDataList = selectRawByInstanceDataIds(flowInstanceId, instanceDataIds);
+        Map<String, InstanceDataPO> checkpointPOMap = Maps.newHashMap();
+        Set<String> missingCheckpointIds = new LinkedHashSet<>();
+        for (InstanceDataPO instanceDataPO : instanceDataList) {
+            if (isFull(instanceDataPO)) {
+                checkpointPOMap.put(instanceDataPO.getInstanceDataId(), instanceDataPO);
+            } else if (instanceDataSnapshot == null || !instanceDataSnapshot.contains(instanceDataPO.getCheckpointInstanceDataId())) {
+                missingCheckpointIds.add(instanceDataPO.getCheckpointInstanceDataId());
+            }
+        }
+        missingCheckpointIds.removeAll(checkpointPOMap.keySet());
+        for (InstanceDataPO checkpointPO : selectRawByInstanceDataIds(flowInstanceId, missingCheckpointIds)) {
+            checkpointPOMap.put(checkpointPO.getInstanceDataId(), checkpointPO);
+        }
+        // instanceDataId -> decoded checkpoint, each one is decoded once
+        Map<String, Map<String, InstanceData>> checkpointMap = Maps.newHashMap();
+        for (InstanceDataPO instanceDataPO : instanceDataList) {
+            if (isFull(instanceDataPO)) {
+                if (instanceDataSnapshot != null) {
+                    putFull(instanceDataPO, instanceDataSnapshot);
+                }
+                continue;
+            }
+            String checkpointInstanceDataId = instanceDataPO.getCheckpointInstanceDataId();
+            Map<String, InstanceData> checkpointDataMap = instanceDataSnapshot == null ? checkpointMap.get(checkpointInstanceDataId)
+                : instanceDataSnapshot.getReadOnly(checkpointInstanceDataId);
+            if (checkpointDataMap == null) {
+                checkpointDataMap = decodeCheckpoint(instanceDataPO, checkpointPOMap.get(checkpointInstanceDataId), instanceDataSnapshot);
+                checkpointMap.put(checkpointInstanceDataId, checkpointDataMap);
+            }
+            merge(instanceDataPO, checkpointDataMap, instanceDataSnapshot);
+        }
+        return instanceDataList;
+    }
+
+    private List<InstanceDataPO> selectRawByInstanceDataIds(String flowInstanceId, Collection<String> instanceDataIds) {
+        if (CollectionUtils.isEmpty(instanceDataIds)) {
+            return Lists.newArrayList();
+        }
+        List<InstanceDataPO> instanceDataList = Lists.newArrayListWithCapacity(instanceDataIds.size());
+        for (List<String> partition : Lists.partition(Lists.newArrayList(instanceDataIds), BATCH_SIZE)) {
+            instanceDataList.addAll(baseMapper.selectByInstanceDataIds(flowInstanceId, partition));
+        }
+        return instanceDataList;
+    }
+
     /**
      * select recent InstanceData order by id desc
      *
@@ -18,17 +151,27 @@ public class InstanceDataDAO extends BaseDAO<InstanceDataMapper, InstanceDataPO>
      * @return
      */
     public InstanceDataPO selectRecentOne(String flowInstanceId) {
-        return baseMapper.selectRecentOne(flowInstanceId);
+        InstanceDataPO instanceDataPO = baseMapper.selectRecentOne(flowInstanceId);
+        if (instanceDataPO == null || isFull(instanceDataPO)) {
+            return instanceDataPO;
+        }
+        merge(instanceDataPO, decodeCheckpoint(instanceDataPO,
+            baseMapper.select(flowInstanceId, instanceDataPO.getCheckpointInstanceDataId()), null), null);
+        return instanceDataPO;
     }
 
     /**
-     * insert instanceDataPO
+     * insert instanceDataPO, written at the flush of the current {@link UnitOfWork} within a fork
      *
      * @param instanceDataPO
      * @return -1 while insert failed
      */
     public int insert(InstanceDataPO instanceDataPO) {
         try {
+            MetricsContext.addInstanceData(instanceDataPO.getInstanceData());
+            if (UnitOfWork.deferInstanceDataInsert(instanceDataPO)) {
+                return 1;
+            }
             return baseMapper.insert(instanceDataPO);
         } catch (Exception e) {
             // TODO: 2020/2/1 clear reentrant exception log 
@@ -36,4 +179,136 @@ public class InstanceDataDAO extends BaseDAO<InstanceDataMapper, InstanceDataPO>
         }
         return -1;
     }
+
+    /**
+     * instanceDataList batch insert as they are, in one statement per BATCH_SIZE rows
+     *
+     * @param instanceDataList
+     * @return
+     */
+    public boolean insertList(List<InstanceDataPO> instanceDataList) {
+        if (CollectionUtils.isEmpty(instanceDataList)) {
+            return true;
+        }
+        // unlike insert, null columns of a multi-row statement are not left to the defaults
+        for (InstanceDataPO instanceDataPO : instanceDataList) {
+            instanceDataPO.setInstanceDataEncode(StringUtils.defaultString(instanceDataPO.getInstanceDataEncode()));
+            instanceDataPO.setCheckpointInstanceDataId(StringUtils.defaultString(instanceDataPO.getCheckpointInstanceDataId()));
+            instanceDataPO.setDeltaSeq(instanceDataPO.getDeltaSeq() == null ? 0 : instanceDataPO.getDeltaSeq());
+            instanceDataPO.setTenant(StringUtils.defaultString(instanceDataPO.getTenant()));
+            instanceDataPO.setCaller(StringUtils.defaultString(instanceDataPO.getCaller()));
+        }
+        boolean result = true;
+        for (List<InstanceDataPO> partition : Lists.partition(instanceDataList, BATCH_SIZE)) {
+            result &= baseMapper.batchInsert(partition);
+        }
+        return result;
+    }
+
+    /**
+     * insert instanceDataPO as a delta against the checkpoint of baseInstanceDataId, or as a full row.
+     * <p>
+     * The base row and its checkpoint are taken from the instanceDataSnapshot only, a full row is written while they're
+     * not fetched in the call. The new row is kept in the instanceDataSnapshot, as the base of the following ones.
+     *
+     * @param instanceDataPO       with the full instanceData, which is kept after insert
+     * @param instanceDataMap      the full instanceData of instanceDataPO
+     * @param baseInstanceDataId   the instanceData the new one is derived from, may be blank
+     * @param instanceDataSnapshot of the flowInstance, may be null
+     * @return -1 while insert failed
+     */
+    public int insert(InstanceDataPO instanceDataPO, Map<String, InstanceData> instanceDataMap, String baseInstanceDataId,
+                      InstanceDataSnapshot instanceDataSnapshot) {
+        if (checkpointInterval <= 1 || instanceDataSnapshot == null) {
+            return insert(instanceDataPO);
+        }
+        String instanceData = instanceDataPO.getInstanceData();
+        try {
+            toDelta(instanceDataPO, instanceDataMap, baseInstanceDataId, instanceDataSnapshot);
+            int result = insert(instanceDataPO);
+            if (result >= 0) {
+                instanceDataSnapshot.put(instanceDataPO.getInstanceDataId(), instanceDataMap,
+                    instanceDataPO.getCheckpointInstanceDataId(), deltaSeqOf(instanceDataPO));
+            }
+            return result;
+        } finally {
+            instanceDataPO.setInstanceData(instanceData);
+        }
+    }
+
+    // replace the instanceData of the po by the delta, return false and keep it full while the delta doesn't pay off
+    private boolean toDelta(InstanceDataPO instanceDataPO, Map<String, InstanceData> instanceDataMap, String baseInstanceDataId,
+                            InstanceDataSnapshot instanceDataSnapshot) {
+        if (StringUtils.isBlank(baseInstanceDataId)) {
+            return false;
+        }
+        String baseCheckpointInstanceDataId = instanceDataSnapshot.getCheckpointInstanceDataId(baseInstanceDataId);
+        if (baseCheckpointInstanceDataId == null) {
+            return false;
+        }
+        boolean isBaseFull = baseCheckpointInstanceDataId.isEmpty();
+        int deltaSeq = isBaseFull ? 1 : instanceDataSnapshot.getDeltaSeq(baseInstanceDataId) + 1;
+        if (deltaSeq >= checkpointInterval) {
+            return false;
+        }
+        String checkpointInstanceDataId = isBaseFull ? baseInstanceDataId : baseCheckpointInstanceDataId;
+        Map<String, InstanceData> checkpointMap = instanceDataSnapshot.getReadOnly(checkpointInstanceDataId);
+        if (checkpointMap == null) {
+            return false;
+        }
+        Map<String, InstanceData> deltaInstanceDataMap = InstanceDataUtil.getDeltaInstanceDataMap(checkpointMap, instanceDataMap);
+        if (deltaInstanceDataMap == null) {
+            return false;
+        }
+        // the delta is encoded by the codec of the row
+        String deltaInstanceData = instanceDataCodecRegistry.get(instanceDataPO.getInstanceDataEncode())
+            .encode(deltaInstanceDataMap.values());
+        // not worth a second read on select
+        if (deltaInstanceData.length() * 2 >= StringUtils.length(instanceDataPO.getInstanceData())) {
+            return false;
+        }
+        instanceDataPO.setInstanceData(deltaInstanceData);
+        instanceDataPO.setCheckpointInstanceDataId(checkpointInstanceDataId);
+        instanceDataPO.setDeltaSeq(deltaSeq);
+        return true;
+    }
+
+    // the delta alone is not the instanceData of the row, fail rather than return it
+    private Map<String, InstanceData> decodeCheckpoint(InstanceDataPO instanceDataPO, InstanceDataPO checkpointPO,
+                                                              InstanceDataSnapshot instanceDataSnapshot) {
+        if (checkpointPO == null) {
+            LOGGER.error("decodeCheckpoint failed: checkpoint is not found.||flowInstanceId={}||instanceDataId={}||checkpointInstanceDataId={}",
+                instanceDataPO.getFlowInstanceId(), instanceDataPO.getInstanceDataId(), instanceDataPO.getCheckpointInstanceDataId());
+            throw new IllegalStateException("checkpoint of instanceData is not found: instanceDataId="
+                + instanceDataPO.getInstanceDataId() + ", checkpointInstanceDataId=" + instanceDataPO.getCheckpointInstanceDataId());
+        }
+        if (instanceDataSnapshot == null) {
+            return instanceDataCodecRegistry.getInstanceDataMap(checkpointPO);
+        }
+        putFull(checkpointPO, instanceDataSnapshot);
+        return instanceDataSnapshot.getReadOnly(checkpointPO.getInstanceDataId());
+    }
+
+    private void putFull(InstanceDataPO instanceDataPO, InstanceDataSnapshot instanceDataSnapshot) {
+        instanceDataSnapshot.put(instanceDataPO.getInstanceDataId(), instanceDataCodecRegistry.getInstanceDataMap(instanceDataPO), null, 0);
+    }
+
+    private void merge(InstanceDataPO instanceDataPO, Map<String, InstanceData> checkpointMap,
+                              InstanceDataSnapshot instanceDataSnapshot) {
+        Map<String, InstanceData> instanceDataMap = Maps.newHashMap(checkpointMap);
+        instanceDataMap.putAll(instanceDataCodecRegistry.getInstanceDataMap(instanceDataPO));
+        InstanceDataUtil.setInstanceData(instanceDataPO, instanceDataMap, instanceDataCodecRegistry.get(instanceDataPO.getInstanceDataEncode()));
+        if (instanceDataSnapshot != null) {
+            instanceDataSnapshot.put(instanceDataPO.getInstanceDataId(), instanceDataMap,
+                instanceDataPO.getCheckpointInstanceDataId(), deltaSeqOf(instanceDataPO));
+        }
+    }
+
+    private static int deltaSeqOf(InstanceDataPO instanceDataPO) {
+        return instanceDataPO.getDeltaSeq() == null ? 0 : instanceDataPO.getDeltaSeq();
+    }
+
+    private static boolean isFull(InstanceDataPO instanceDataPO) {
+        return StringUtils.isBlank(instanceDataPO.getCheckpointInstanceDataId());
+    }
 }
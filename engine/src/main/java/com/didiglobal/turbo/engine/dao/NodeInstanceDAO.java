@@ -4,11 +4,15 @@ import com.didiglobal.turbo.engine.common.NodeInstanceStatus;
 import com.didiglobal.turbo.engine.dao.mapper.NodeInstanceMapper;
 import com.didiglobal.turbo.engine.entity.NodeInstancePO;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import org.apache.commons.collections4.CollectionUtils;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Repository
 public class NodeInstanceDAO extends BaseDAO<NodeInstanceMapper, NodeInstancePO> {
@@ -30,7 +34,8 @@ public class NodeInstanceDAO extends BaseDAO<NodeInstanceMapper, NodeInstancePO>
 
     /**
      * when nodeInstancePO's id is null, batch insert.
-     * when nodeInstancePO's id is not null, update it status.
+     * when nodeInstancePO's id is not null, batch update it status, the last status of a nodeInstance wins.
+     * Written at the flush of the current {@link UnitOfWork} if any.
      *
      * @param nodeInstanceList
      * @return
@@ -41,21 +46,46 @@ public class NodeInstanceDAO extends BaseDAO<NodeInstanceMapper, NodeInstancePO>
             LOGGER.warn("insertOrUpdateList: nodeInstanceList is empty.");
             return true;
         }
+        if (UnitOfWork.deferNodeInstanceList(nodeInstanceList)) {
+            return true;
+        }
 
         List<NodeInstancePO> insertNodeInstanceList = Lists.newArrayList();
+        Map<String, NodeInstancePO> updateNodeInstanceMap = Maps.newLinkedHashMap();
         nodeInstanceList.forEach(nodeInstancePO -> {
             if (nodeInstancePO.getId() == null) {
                 insertNodeInstanceList.add(nodeInstancePO);
             } else {
-                baseMapper.updateStatus(nodeInstancePO);
+                updateNodeInstanceMap.remove(nodeInstancePO.getNodeInstanceId());
+                updateNodeInstanceMap.put(nodeInstancePO.getNodeInstanceId(), nodeInstancePO);
             }
         });
+        updateStatusList(Lists.newArrayList(updateNodeInstanceMap.values()));
 
         if (CollectionUtils.isEmpty(insertNodeInstanceList)) {
             return true;
         }
 
-        return baseMapper.batchInsert(insertNodeInstanceList.get(0).getFlowInstanceId(), insertNodeInstanceList);
+        String flowInstanceId = insertNodeInstanceList.get(0).getFlowInstanceId();
+        boolean result = true;
+        for (List<NodeInstancePO> partition : Lists.partition(insertNodeInstanceList, BATCH_SIZE)) {
+            result &= baseMapper.batchInsert(flowInstanceId, partition);
+        }
+        return result;
+    }
+
+    // one statement per BATCH_SIZE nodeInstances instead of one per nodeInstance
+    private void updateStatusList(List<NodeInstancePO> updateNodeInstanceList) {
+        if (updateNodeInstanceList.isEmpty()) {
+            return;
+        }
+        if (updateNodeInstanceList.size() == 1) {
+            baseMapper.updateStatus(updateNodeInstanceList.get(0));
+            return;
+        }
+        for (List<NodeInstancePO> partition : Lists.partition(updateNodeInstanceList, BATCH_SIZE)) {
+            baseMapper.batchUpdateStatus(partition.get(0).getFlowInstanceId(), partition);
+        }
     }
 
     public NodeInstancePO selectByNodeInstanceId(String flowInstanceId, String nodeInstanceId) {
@@ -113,6 +143,25 @@ public class NodeInstanceDAO extends BaseDAO<NodeInstanceMapper, NodeInstancePO>
         return baseMapper.selectByFlowInstanceId(flowInstanceId);
     }
 
+    /**
+     * select nodeInstancePOList of several flowInstances in batches
+     *
+     * @param flowInstanceIds
+     * @return flowInstanceId -> nodeInstancePOList order by id, flowInstances without nodeInstance are absent
+     */
+    public Map<String, List<NodeInstancePO>> selectByFlowInstanceIds(Collection<String> flowInstanceIds) {
+        Map<String, List<NodeInstancePO>> nodeInstanceMap = new LinkedHashMap<>();
+        if (CollectionUtils.isEmpty(flowInstanceIds)) {
+            return nodeInstanceMap;
+        }
+        for (List<String> partition : Lists.partition(Lists.newArrayList(flowInstanceIds), BATCH_SIZE)) {
+            for (NodeInstancePO nodeInstancePO : baseMapper.selectByFlowInstanceIds(partition)) {
+                nodeInstanceMap.computeIfAbsent(nodeInstancePO.getFlowInstanceId(), key -> Lists.newArrayList()).add(nodeInstancePO);
+            }
+        }
+        return nodeInstanceMap;
+    }
+
     /**
      * select nodeInstancePOList order by id desc
      *
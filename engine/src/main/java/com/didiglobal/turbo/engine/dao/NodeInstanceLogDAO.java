@@ -2,6 +2,8 @@ package com.didiglobal.turbo.engine.dao;
 
 import com.didiglobal.turbo.engine.dao.mapper.NodeInstanceLogMapper;
 import com.didiglobal.turbo.engine.entity.NodeInstanceLogPO;
+import com.google.common.collect.Lists;
+import org.apache.commons.collections4.CollectionUtils;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -25,12 +27,25 @@ public class NodeInstanceLogDAO extends BaseDAO<NodeInstanceLogMapper, NodeInsta
     }
 
     /**
-     * nodeInstanceLogList batch insert
+     * nodeInstanceLogList batch insert, written at the flush of the current {@link UnitOfWork} if any.
      *
      * @param nodeInstanceLogList
      * @return
      */
     public boolean insertList(List<NodeInstanceLogPO> nodeInstanceLogList) {
-        return baseMapper.batchInsert(nodeInstanceLogList.get(0).getFlowInstanceId(), nodeInstanceLogList);
+        if (CollectionUtils.isEmpty(nodeInstanceLogList)) {
+            LOGGER.warn("insertList: nodeInstanceLogList is empty.");
+            return true;
+        }
+        if (UnitOfWork.deferNodeInstanceLogList(nodeInstanceLogList)) {
+            return true;
+        }
+
+        String flowInstanceId = nodeInstanceLogList.get(0).getFlowInstanceId();
+        boolean result = true;
+        for (List<NodeInstanceLogPO> partition : Lists.partition(nodeInstanceLogList, BATCH_SIZE)) {
+            result &= baseMapper.batchInsert(flowInstanceId, partition);
+        }
+        return result;
     }
 }
@@ -2,24 +2,65 @@ package com.didiglobal.turbo.engine.dao;
 
 import com.didiglobal.turbo.engine.dao.mapper.ProcessInstanceMapper;
 import com.didiglobal.turbo.engine.entity.FlowInstancePO;
+import com.google.common.collect.Lists;
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Repository;
 
+import javax.annotation.Resource;
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 
 @Repository
 public class ProcessInstanceDAO extends BaseDAO<ProcessInstanceMapper, FlowInstancePO> {
 
+    @Resource
+    private FlowCacheTemplate flowCacheTemplate;
+
     public FlowInstancePO selectByFlowInstanceId(String flowInstanceId) {
         return baseMapper.selectByFlowInstanceId(flowInstanceId);
     }
 
     /**
-     * insert flowInstancePO
+     * select several flowInstances in one statement per BATCH_SIZE ids, missing ones are absent in the result
+     *
+     * @param flowInstanceIds
+     * @return
+     */
+    public List<FlowInstancePO> selectByFlowInstanceIds(Collection<String> flowInstanceIds) {
+        if (CollectionUtils.isEmpty(flowInstanceIds)) {
+            return Lists.newArrayList();
+        }
+        List<FlowInstancePO> flowInstanceList = Lists.newArrayListWithCapacity(flowInstanceIds.size());
+        for (List<String> partition : Lists.partition(Lists.newArrayList(flowInstanceIds), BATCH_SIZE)) {
+            flowInstanceList.addAll(baseMapper.selectByFlowInstanceIds(partition));
+        }
+        return flowInstanceList;
+    }
+
+    /**
+     * select through the flow cache, for lookups of the status and the columns which never change.
+     * The version and modifyTime are absent while it's read from the cache, select by {@link #selectByFlowInstanceId}
+     * for the version to compare and set.
+     *
+     * @param flowInstanceId
+     * @return null while not found
+     */
+    public FlowInstancePO selectCachedByFlowInstanceId(String flowInstanceId) {
+        return flowCacheTemplate.getFlowInstance(flowInstanceId, () -> baseMapper.selectByFlowInstanceId(flowInstanceId));
+    }
+
+    /**
+     * insert flowInstancePO, written at the flush of the current {@link UnitOfWork} within a fork
      *
      * @param flowInstancePO
      * @return -1 while insert failed
      */
     public int insert(FlowInstancePO flowInstancePO) {
+        if (UnitOfWork.deferFlowInstanceInsert(flowInstancePO)) {
+            return 1;
+        }
         try {
             return baseMapper.insert(flowInstancePO);
         } catch (Exception e) {
@@ -29,14 +70,101 @@ public class ProcessInstanceDAO extends BaseDAO<ProcessInstanceMapper, FlowInsta
         return -1;
     }
 
+    /**
+     * flowInstanceList batch insert, in one statement per BATCH_SIZE rows
+     *
+     * @param flowInstanceList
+     * @return
+     */
+    public boolean insertList(List<FlowInstancePO> flowInstanceList) {
+        if (CollectionUtils.isEmpty(flowInstanceList)) {
+            return true;
+        }
+        // unlike insert, null columns of a multi-row statement are not left to the defaults
+        for (FlowInstancePO flowInstancePO : flowInstanceList) {
+            flowInstancePO.setParentFlowInstanceId(StringUtils.defaultString(flowInstancePO.getParentFlowInstanceId()));
+            flowInstancePO.setTenant(StringUtils.defaultString(flowInstancePO.getTenant()));
+            flowInstancePO.setCaller(StringUtils.defaultString(flowInstancePO.getCaller()));
+        }
+        boolean result = true;
+        for (List<FlowInstancePO> partition : Lists.partition(flowInstanceList, BATCH_SIZE)) {
+            result &= baseMapper.batchInsert(partition);
+        }
+        return result;
+    }
+
+    /**
+     * update status by flowInstanceId, without selecting the flowInstancePO
+     *
+     * @param flowInstanceId
+     * @param status
+     */
     public void updateStatus(String flowInstanceId, int status) {
-        FlowInstancePO flowInstancePO = selectByFlowInstanceId(flowInstanceId);
+        FlowInstancePO flowInstancePO = new FlowInstancePO();
+        flowInstancePO.setFlowInstanceId(flowInstanceId);
         updateStatus(flowInstancePO, status);
     }
 
+    /**
+     * update status by flowInstanceId, written at the flush of the current {@link UnitOfWork} if any
+     *
+     * @param flowInstancePO
+     * @param status
+     */
     public void updateStatus(FlowInstancePO flowInstancePO, int status) {
         flowInstancePO.setStatus(status);
         flowInstancePO.setModifyTime(new Date());
+        if (UnitOfWork.deferFlowInstanceStatus(flowInstancePO)) {
+            return;
+        }
         baseMapper.updateStatus(flowInstancePO);
+        flowCacheTemplate.invalidateFlowInstance(flowInstancePO.getFlowInstanceId());
+    }
+
+    /**
+     * update status while the version is not changed since flowInstancePO was selected, written at once
+     *
+     * @param flowInstancePO with the selected version, updated to the new status and version on success
+     * @param status
+     * @return false while the flowInstance has been modified by others
+     */
+    public boolean compareAndSetStatus(FlowInstancePO flowInstancePO, int status) {
+        FlowInstancePO updatePO = new FlowInstancePO();
+        updatePO.setFlowInstanceId(flowInstancePO.getFlowInstanceId());
+        updatePO.setVersion(flowInstancePO.getVersion());
+        updatePO.setStatus(status);
+        updatePO.setModifyTime(new Date());
+        if (baseMapper.compareAndSetStatus(updatePO) != 1) {
+            LOGGER.warn("compareAndSetStatus: version conflict.||flowInstanceId={}||version={}||status={}",
+                flowInstancePO.getFlowInstanceId(), flowInstancePO.getVersion(), status);
+            return false;
+        }
+        flowCacheTemplate.invalidateFlowInstance(flowInstancePO.getFlowInstanceId());
+        flowInstancePO.setStatus(status);
+        flowInstancePO.setVersion(flowInstancePO.getVersion() + 1);
+        flowInstancePO.setModifyTime(updatePO.getModifyTime());
+        return true;
+    }
+
+    /**
+     * increase the version while it's not changed since selected, written at once.
+     * Within a transaction, the row stays locked by the update until commit, so a concurrent caller with the same
+     * version waits and then fails instead of both going on.
+     *
+     * @param flowInstanceId
+     * @param version the selected version
+     * @return false while the flowInstance has been modified by others
+     */
+    public boolean compareAndIncreaseVersion(String flowInstanceId, int version) {
+        FlowInstancePO updatePO = new FlowInstancePO();
+        updatePO.setFlowInstanceId(flowInstanceId);
+        updatePO.setVersion(version);
+        updatePO.setModifyTime(new Date());
+        if (baseMapper.compareAndIncreaseVersion(updatePO) != 1) {
+            LOGGER.warn("compareAndIncreaseVersion: version conflict.||flowInstanceId={}||version={}",
+                flowInstanceId, version);
+            return false;
+        }
+        return true;
     }
 }
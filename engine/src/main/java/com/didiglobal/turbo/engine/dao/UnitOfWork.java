@@ -0,0 +1,434 @@
+package com.didiglobal.turbo.engine.dao;
+
+import com.baomidou.dynamic.datasource.toolkit.DynamicDataSourceContextHolder;
+import com.didiglobal.turbo.engine.entity.FlowInstancePO;
+import com.didiglobal.turbo.engine.entity.InstanceDataPO;
+import com.didiglobal.turbo.engine.entity.NodeInstanceLogPO;
+import com.didiglobal.turbo.engine.entity.NodeInstancePO;
+import com.didiglobal.turbo.engine.metrics.EngineMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Unit of work of a runtime call.
+ * <p>
+ * All the statements of one runtime call, nested calls of callActivity included, run in one transaction on the
+ * engine datasource. Node instances, node instance logs and flow instance status are kept in memory while they're
+ * written, and flushed grouped by flowInstanceId: before the next query on the engine tables, so the call always
+ * reads its own writes, and at the end of the outermost call.
+ * <p>
+ * A call returning a failed result is committed as well, since failed node instances are saved on purpose.
+ * The transaction is rolled back while an exception is thrown out of the call or a flush fails. The runtime calls flush
+ * before they return, see {@link #flushPending}, so a failed flush is answered with a failed result.
+ * <p>
+ * Hooks, e.g. of exclusive gateways, are invoked within the transaction as well, unlike before the unit of work: a slow
+ * hook holds the connection and the row lock of the claimed flowInstance until it returns or times out. Keep the hook
+ * timeouts short, or disable the unit of work with turbo.unitOfWork.enabled=false to invoke them out of a transaction.
+ * <p>
+ * A call may {@link #fork} works running concurrently, e.g. new subFlowInstances of a multi-instance callActivity.
+ * The forks run outside the transaction, so they keep all their writes in memory, inserts included, and the writes
+ * are merged into the unit of work on the calling thread and flushed with multi-row statements.
+ */
+@Component
+public class UnitOfWork {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UnitOfWork.class);
+
+    // the datasource of BaseDAO
+    private static final String DATASOURCE = "engine";
+
+    private static final ThreadLocal<PendingWrites> CURRENT = new ThreadLocal<>();
+
+    @Resource
+    private DataSource dataSource;
+
+    @Resource
+    private NodeInstanceDAO nodeInstanceDAO;
+
+    @Resource
+    private NodeInstanceLogDAO nodeInstanceLogDAO;
+
+    @Resource
+    private ProcessInstanceDAO processInstanceDAO;
+
+    @Resource
+    private InstanceDataDAO instanceDataDAO;
+
+    @Resource
+    private EngineMetrics engineMetrics;
+
+    @Value("${turbo.unitOfWork.enabled:true}")
+    private boolean enabled = true;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        init(new DataSourceTransactionManager(dataSource));
+    }
+
+    void init(PlatformTransactionManager transactionManager) {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Run the work in a unit of work, or join the current one of the thread.
+     */
+    public <T> T execute(Supplier<T> work) {
+        if (!enabled || CURRENT.get() != null) {
+            return work.get();
+        }
+        PendingWrites pendingWrites = new PendingWrites(this);
+        DynamicDataSourceContextHolder.push(DATASOURCE);
+        CURRENT.set(pendingWrites);
+        try {
+            return transactionTemplate.execute(transactionStatus -> {
+                pendingWrites.transactionStatus = transactionStatus;
+                T result = work.get();
+                flush(pendingWrites);
+                return result;
+            });
+        } finally {
+            CURRENT.remove();
+            DynamicDataSourceContextHolder.poll();
+        }
+    }
+
+    /**
+     * Run the works concurrently on the executor, each in a fork of the current unit of work, and wait for all.
+     * <p>
+     * The works should only write rows of their own new flowInstances. A fork never flushes, and only its instanceData
+     * is read back, see {@link #findDeferredInstanceData}. Once all the works complete, their writes are merged into the current unit of work in the order of the
+     * works. While any work fails, the first exception is thrown and the writes of all the forks are dropped.
+     * Without a unit of work, or within a fork, which shouldn't wait for the same executor, the works run one by one
+     * on the calling thread.
+     *
+     * @return the results in the order of the works
+     */
+    public <T> List<T> fork(List<Supplier<T>> works, Executor executor) {
+        return fork(works, executor, null);
+    }
+
+    /**
+     * Same as {@link #fork(List, Executor)}, except that a failed work doesn't fail the others: its writes are dropped,
+     * and onFailure gives its result instead. Without a unit of work, or within a fork, the writes of a failed work
+     * can't be told apart, and are left as they are.
+     *
+     * @param onFailure result of a failed work, null to throw the first exception
+     * @return the results in the order of the works
+     */
+    public <T> List<T> fork(List<Supplier<T>> works, Executor executor, Function<RuntimeException, T> onFailure) {
+        PendingWrites current = CURRENT.get();
+        List<T> results = new ArrayList<>(works.size());
+        if (current == null || current.forked) {
+            for (Supplier<T> work : works) {
+                results.add(runOrFail(work, onFailure));
+            }
+            return results;
+        }
+        long startNanos = System.nanoTime();
+        List<PendingWrites> forks = new ArrayList<>(works.size());
+        List<CompletableFuture<T>> futures = new ArrayList<>(works.size());
+        for (Supplier<T> work : works) {
+            PendingWrites fork = new PendingWrites(this);
+            fork.forked = true;
+            forks.add(fork);
+            futures.add(CompletableFuture.supplyAsync(() -> runInFork(fork, work), executor));
+        }
+        RuntimeException failure = null;
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                results.add(futures.get(i).join());
+            } catch (CompletionException e) {
+                RuntimeException cause = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+                if (onFailure != null) {
+                    forks.set(i, null);
+                    results.add(onFailure.apply(cause));
+                } else if (failure == null) {
+                    failure = cause;
+                }
+            }
+        }
+        engineMetrics.recordTime("unitOfWork.fork", startNanos);
+        if (failure != null) {
+            throw failure;
+        }
+        for (PendingWrites fork : forks) {
+            if (fork != null) {
+                current.merge(fork);
+            }
+        }
+        return results;
+    }
+
+    private static <T> T runOrFail(Supplier<T> work, Function<RuntimeException, T> onFailure) {
+        if (onFailure == null) {
+            return work.get();
+        }
+        try {
+            return work.get();
+        } catch (RuntimeException e) {
+            return onFailure.apply(e);
+        }
+    }
+
+    // the executor may run the work on the calling thread, e.g. with CallerRunsPolicy
+    private static <T> T runInFork(PendingWrites fork, Supplier<T> work) {
+        PendingWrites previous = CURRENT.get();
+        CURRENT.set(fork);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Flush the pending writes of the current unit of work, if any. A fork is flushed by the unit of work it's
+     * merged into.
+     */
+    public static void flushPending() {
+        PendingWrites pendingWrites = CURRENT.get();
+        if (pendingWrites != null && !pendingWrites.forked) {
+            pendingWrites.unitOfWork.flush(pendingWrites);
+        }
+    }
+
+    /**
+     * Whether the current unit of work is to be rolled back, e.g. after a failed flush of a nested call.
+     */
+    public static boolean isRollbackOnly() {
+        PendingWrites pendingWrites = CURRENT.get();
+        return pendingWrites != null && pendingWrites.transactionStatus != null
+            && pendingWrites.transactionStatus.isRollbackOnly();
+    }
+
+    /**
+     * Keep the node instances until flush.
+     *
+     * @return false while there's no unit of work, the caller should write them at once
+     */
+    static boolean deferNodeInstanceList(List<NodeInstancePO> nodeInstanceList) {
+        PendingWrites pendingWrites = getDeferrable();
+        if (pendingWrites == null) {
+            return false;
+        }
+        for (NodeInstancePO nodeInstancePO : nodeInstanceList) {
+            pendingWrites.nodeInstanceMap
+                .computeIfAbsent(nodeInstancePO.getFlowInstanceId(), flowInstanceId -> new ArrayList<>())
+                .add(nodeInstancePO);
+        }
+        return true;
+    }
+
+    /**
+     * Keep the node instance logs until flush.
+     *
+     * @return false while there's no unit of work, the caller should write them at once
+     */
+    static boolean deferNodeInstanceLogList(List<NodeInstanceLogPO> nodeInstanceLogList) {
+        PendingWrites pendingWrites = getDeferrable();
+        if (pendingWrites == null) {
+            return false;
+        }
+        for (NodeInstanceLogPO nodeInstanceLogPO : nodeInstanceLogList) {
+            pendingWrites.nodeInstanceLogMap
+                .computeIfAbsent(nodeInstanceLogPO.getFlowInstanceId(), flowInstanceId -> new ArrayList<>())
+                .add(nodeInstanceLogPO);
+        }
+        return true;
+    }
+
+    /**
+     * Keep the flow instance status until flush, the last status of a flowInstanceId wins.
+     *
+     * @return false while there's no unit of work, the caller should write it at once
+     */
+    static boolean deferFlowInstanceStatus(FlowInstancePO flowInstancePO) {
+        PendingWrites pendingWrites = getDeferrable();
+        if (pendingWrites == null) {
+            return false;
+        }
+        pendingWrites.flowInstanceMap.remove(flowInstancePO.getFlowInstanceId());
+        pendingWrites.flowInstanceMap.put(flowInstancePO.getFlowInstanceId(), flowInstancePO);
+        return true;
+    }
+
+    /**
+     * Keep the insert of a new flowInstance until flush, within a fork only.
+     *
+     * @return false out of a fork, the caller should insert it at once
+     */
+    static boolean deferFlowInstanceInsert(FlowInstancePO flowInstancePO) {
+        PendingWrites pendingWrites = getDeferrable();
+        if (pendingWrites == null || !pendingWrites.forked) {
+            return false;
+        }
+        pendingWrites.flowInstanceInsertList.add(flowInstancePO);
+        return true;
+    }
+
+    /**
+     * Keep the insert of instanceData until flush, within a fork only. A copy is kept, since callers may change the
+     * po after insert.
+     *
+     * @return false out of a fork, the caller should insert it at once
+     */
+    static boolean deferInstanceDataInsert(InstanceDataPO instanceDataPO) {
+        PendingWrites pendingWrites = getDeferrable();
+        if (pendingWrites == null || !pendingWrites.forked) {
+            return false;
+        }
+        InstanceDataPO copyPO = new InstanceDataPO();
+        BeanUtils.copyProperties(instanceDataPO, copyPO);
+        pendingWrites.instanceDataInsertList.add(copyPO);
+        return true;
+    }
+
+    /**
+     * Keep any other write of a fork, to run in the transaction on the calling thread while the fork is merged.
+     *
+     * @return false out of a fork, the caller should write at once
+     */
+    static boolean deferInFork(Runnable write) {
+        PendingWrites pendingWrites = getDeferrable();
+        if (pendingWrites == null || !pendingWrites.forked) {
+            return false;
+        }
+        pendingWrites.forkWriteList.add(write);
+        return true;
+    }
+
+    /**
+     * Find the instanceData inserted by the current fork, which is not written yet.
+     *
+     * @return a copy, null while not found or out of a fork
+     */
+    static InstanceDataPO findDeferredInstanceData(String instanceDataId) {
+        PendingWrites pendingWrites = CURRENT.get();
+        if (pendingWrites == null || !pendingWrites.forked) {
+            return null;
+        }
+        for (InstanceDataPO instanceDataPO : pendingWrites.instanceDataInsertList) {
+            if (instanceDataPO.getInstanceDataId().equals(instanceDataId)) {
+                InstanceDataPO copyPO = new InstanceDataPO();
+                BeanUtils.copyProperties(instanceDataPO, copyPO);
+                return copyPO;
+            }
+        }
+        return null;
+    }
+
+    // null while writes can't be deferred: no unit of work, or the writes come from the flush itself
+    private static PendingWrites getDeferrable() {
+        PendingWrites pendingWrites = CURRENT.get();
+        return pendingWrites == null || pendingWrites.flushing ? null : pendingWrites;
+    }
+
+    private void flush(PendingWrites pendingWrites) {
+        if (pendingWrites.flushing || pendingWrites.isEmpty()) {
+            return;
+        }
+        long startNanos = System.nanoTime();
+        pendingWrites.flushing = true;
+        try {
+            // new rows first, the updates below may refer to them
+            processInstanceDAO.insertList(pendingWrites.flowInstanceInsertList);
+            instanceDataDAO.insertList(pendingWrites.instanceDataInsertList);
+            // one call per flowInstance, the batch mappers take the flowInstanceId of all their rows
+            for (List<NodeInstancePO> nodeInstanceList : pendingWrites.nodeInstanceMap.values()) {
+                nodeInstanceDAO.insertOrUpdateList(nodeInstanceList);
+            }
+            for (List<NodeInstanceLogPO> nodeInstanceLogList : pendingWrites.nodeInstanceLogMap.values()) {
+                nodeInstanceLogDAO.insertList(nodeInstanceLogList);
+            }
+            for (FlowInstancePO flowInstancePO : pendingWrites.flowInstanceMap.values()) {
+                processInstanceDAO.updateStatus(flowInstancePO, flowInstancePO.getStatus());
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("flush exception: rollback the unit of work.||flowInstanceIds={}",
+                pendingWrites.nodeInstanceMap.keySet(), e);
+            if (pendingWrites.transactionStatus != null) {
+                pendingWrites.transactionStatus.setRollbackOnly();
+            }
+            throw e;
+        } finally {
+            pendingWrites.clear();
+            pendingWrites.flushing = false;
+            engineMetrics.recordTime("unitOfWork.flush", startNanos);
+        }
+    }
+
+    private static final class PendingWrites {
+        private final UnitOfWork unitOfWork;
+        // flowInstanceId -> writes in order
+        private final Map<String, List<NodeInstancePO>> nodeInstanceMap = new LinkedHashMap<>();
+        private final Map<String, List<NodeInstanceLogPO>> nodeInstanceLogMap = new LinkedHashMap<>();
+        private final Map<String, FlowInstancePO> flowInstanceMap = new LinkedHashMap<>();
+        // inserts of new rows, kept by forks only
+        private final List<FlowInstancePO> flowInstanceInsertList = new ArrayList<>();
+        private final List<InstanceDataPO> instanceDataInsertList = new ArrayList<>();
+        private final List<Runnable> forkWriteList = new ArrayList<>();
+        private TransactionStatus transactionStatus;
+        private boolean flushing;
+        private boolean forked;
+
+        private PendingWrites(UnitOfWork unitOfWork) {
+            this.unitOfWork = unitOfWork;
+        }
+
+        private boolean isEmpty() {
+            return nodeInstanceMap.isEmpty() && nodeInstanceLogMap.isEmpty() && flowInstanceMap.isEmpty()
+                && flowInstanceInsertList.isEmpty() && instanceDataInsertList.isEmpty();
+        }
+
+        private void clear() {
+            nodeInstanceMap.clear();
+            nodeInstanceLogMap.clear();
+            flowInstanceMap.clear();
+            flowInstanceInsertList.clear();
+            instanceDataInsertList.clear();
+        }
+
+        // the other writes of the fork run at once, they're out of the tables kept in memory
+        private void merge(PendingWrites fork) {
+            flowInstanceInsertList.addAll(fork.flowInstanceInsertList);
+            instanceDataInsertList.addAll(fork.instanceDataInsertList);
+            fork.nodeInstanceMap.forEach((flowInstanceId, nodeInstanceList) -> nodeInstanceMap
+                .computeIfAbsent(flowInstanceId, key -> new ArrayList<>()).addAll(nodeInstanceList));
+            fork.nodeInstanceLogMap.forEach((flowInstanceId, nodeInstanceLogList) -> nodeInstanceLogMap
+                .computeIfAbsent(flowInstanceId, key -> new ArrayList<>()).addAll(nodeInstanceLogList));
+            fork.flowInstanceMap.forEach((flowInstanceId, flowInstancePO) -> {
+                flowInstanceMap.remove(flowInstanceId);
+                flowInstanceMap.put(flowInstanceId, flowInstancePO);
+            });
+            for (Runnable write : fork.forkWriteList) {
+                write.run();
+            }
+        }
+    }
+}
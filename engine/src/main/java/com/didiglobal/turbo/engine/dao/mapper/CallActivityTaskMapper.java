@@ -0,0 +1,51 @@
+package com.didiglobal.turbo.engine.dao.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.didiglobal.turbo.engine.common.CallActivityTaskStatus;
+import com.didiglobal.turbo.engine.entity.CallActivityTaskPO;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.Date;
+import java.util.List;
+
+public interface CallActivityTaskMapper extends BaseMapper<CallActivityTaskPO> {
+
+    @Select("SELECT * FROM ei_call_activity_task WHERE flow_instance_id= #{flowInstanceId} AND node_instance_id= #{nodeInstanceId}")
+    CallActivityTaskPO selectByNodeInstanceId(@Param("flowInstanceId") String flowInstanceId, @Param("nodeInstanceId") String nodeInstanceId);
+
+    @Select("SELECT * FROM ei_call_activity_task WHERE status IN (" + CallActivityTaskStatus.PENDING + ", " + CallActivityTaskStatus.RUNNING + ")"
+        + " AND next_run_time <= #{now} ORDER BY next_run_time LIMIT #{limit}")
+    List<CallActivityTaskPO> selectDueList(@Param("now") Date now, @Param("limit") int limit);
+
+    @Select("SELECT COUNT(*) FROM ei_call_activity_task WHERE status= #{status}")
+    long countByStatus(@Param("status") int status);
+
+    @Update("UPDATE ei_call_activity_task SET status= " + CallActivityTaskStatus.RUNNING + ", version= version + 1,"
+        + " next_run_time= #{leaseTime}, modify_time= #{modifyTime} WHERE id= #{id} AND version= #{version}"
+        + " AND status IN (" + CallActivityTaskStatus.PENDING + ", " + CallActivityTaskStatus.RUNNING + ")")
+    int claim(@Param("id") long id, @Param("version") int version, @Param("leaseTime") Date leaseTime,
+              @Param("modifyTime") Date modifyTime);
+
+    @Update("UPDATE ei_call_activity_task SET status= #{status}, version= version + 1, err_msg= #{errMsg}, modify_time= #{modifyTime}"
+        + " WHERE id= #{id} AND version= #{version} AND status= " + CallActivityTaskStatus.RUNNING)
+    int finish(@Param("id") long id, @Param("version") int version, @Param("status") int status,
+               @Param("errMsg") String errMsg, @Param("modifyTime") Date modifyTime);
+
+    @Update("UPDATE ei_call_activity_task SET status= " + CallActivityTaskStatus.PENDING + ", version= version + 1,"
+        + " retry_count= retry_count + 1, next_run_time= #{nextRunTime}, err_msg= #{errMsg}, modify_time= #{modifyTime}"
+        + " WHERE id= #{id} AND version= #{version} AND status= " + CallActivityTaskStatus.RUNNING)
+    int retryLater(@Param("id") long id, @Param("version") int version, @Param("nextRunTime") Date nextRunTime,
+                   @Param("errMsg") String errMsg, @Param("modifyTime") Date modifyTime);
+
+    @Update("UPDATE ei_call_activity_task SET status= " + CallActivityTaskStatus.CANCELED + ", version= version + 1,"
+        + " modify_time= #{modifyTime} WHERE id= #{id} AND status= " + CallActivityTaskStatus.PENDING)
+    int cancel(@Param("id") long id, @Param("modifyTime") Date modifyTime);
+
+    @Update("UPDATE ei_call_activity_task SET status= " + CallActivityTaskStatus.PENDING + ", version= version + 1,"
+        + " sub_flow_module_id= #{subFlowModuleId}, variables= #{variables}, retry_count= 0, next_run_time= #{modifyTime},"
+        + " err_msg= '', modify_time= #{modifyTime} WHERE id= #{id} AND status= " + CallActivityTaskStatus.FAILED)
+    int resubmit(@Param("id") long id, @Param("subFlowModuleId") String subFlowModuleId, @Param("variables") String variables,
+                 @Param("modifyTime") Date modifyTime);
+}
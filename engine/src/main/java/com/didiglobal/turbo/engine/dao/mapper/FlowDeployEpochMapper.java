@@ -0,0 +1,18 @@
+package com.didiglobal.turbo.engine.dao.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.didiglobal.turbo.engine.entity.FlowDeployEpochPO;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.Date;
+
+public interface FlowDeployEpochMapper extends BaseMapper<FlowDeployEpochPO> {
+
+    @Select("SELECT epoch FROM em_flow_deploy_epoch WHERE id=#{id}")
+    Long selectEpoch(@Param("id") long id);
+
+    @Update("UPDATE em_flow_deploy_epoch SET epoch=epoch+1, modify_time=#{modifyTime} WHERE id=#{id}")
+    int increaseEpoch(@Param("id") long id, @Param("modifyTime") Date modifyTime);
+}
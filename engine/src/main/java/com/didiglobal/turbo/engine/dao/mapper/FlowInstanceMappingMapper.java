@@ -1,21 +1,40 @@
 package com.didiglobal.turbo.engine.dao.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.didiglobal.turbo.engine.dao.provider.FlowInstanceMappingProvider;
 import com.didiglobal.turbo.engine.entity.FlowInstanceMappingPO;
+import org.apache.ibatis.annotations.InsertProvider;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.SelectProvider;
 import org.apache.ibatis.annotations.Update;
 
 import java.util.List;
 
 public interface FlowInstanceMappingMapper extends BaseMapper<FlowInstanceMappingPO> {
 
-    @Select("SELECT * FROM ei_flow_instance_mapping WHERE flow_instance_id= #{flowInstanceId} and node_instance_id = #{nodeInstanceId}")
+    @Select("SELECT * FROM ei_flow_instance_mapping WHERE flow_instance_id= #{flowInstanceId} and node_instance_id = #{nodeInstanceId} ORDER BY id")
     List<FlowInstanceMappingPO> selectFlowInstanceMappingPOList(@Param("flowInstanceId") String flowInstanceId, @Param("nodeInstanceId") String nodeInstanceId);
 
     @Select("SELECT * FROM ei_flow_instance_mapping WHERE flow_instance_id= #{flowInstanceId} and node_instance_id = #{nodeInstanceId}")
     FlowInstanceMappingPO selectFlowInstanceMappingPO(@Param("flowInstanceId") String flowInstanceId, @Param("nodeInstanceId") String nodeInstanceId);
 
+    @Select("SELECT * FROM ei_flow_instance_mapping WHERE flow_instance_id= #{flowInstanceId} ORDER BY id")
+    List<FlowInstanceMappingPO> selectByFlowInstanceId(@Param("flowInstanceId") String flowInstanceId);
+
+    @Select("SELECT * FROM ei_flow_instance_mapping WHERE root_flow_instance_id= #{rootFlowInstanceId} ORDER BY id")
+    List<FlowInstanceMappingPO> selectByRootFlowInstanceId(@Param("rootFlowInstanceId") String rootFlowInstanceId);
+
+    @SelectProvider(type = FlowInstanceMappingProvider.class, method = "selectLegacyByFlowInstanceIds")
+    List<FlowInstanceMappingPO> selectLegacyByFlowInstanceIds(@Param("flowInstanceIdList") List<String> flowInstanceIdList);
+
+    @Select("SELECT * FROM ei_flow_instance_mapping WHERE root_flow_instance_id= (SELECT root_flow_instance_id FROM ei_flow_instance_mapping"
+        + " WHERE sub_flow_instance_id= #{subFlowInstanceId} AND root_flow_instance_id != '' LIMIT 1) ORDER BY id")
+    List<FlowInstanceMappingPO> selectSameRootBySubFlowInstanceId(@Param("subFlowInstanceId") String subFlowInstanceId);
+
     @Update("UPDATE ei_flow_instance_mapping SET type= #{type}, modify_time= #{modifyTime} WHERE flow_instance_id= #{flowInstanceId} and node_instance_id = #{nodeInstanceId}")
     void updateType(FlowInstanceMappingPO entity);
+
+    @InsertProvider(type = FlowInstanceMappingProvider.class, method = "batchInsert")
+    boolean batchInsert(@Param("flowInstanceMappingList") List<FlowInstanceMappingPO> flowInstanceMappingList);
 }
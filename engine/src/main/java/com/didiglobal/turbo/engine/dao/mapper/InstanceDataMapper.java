@@ -1,10 +1,14 @@
 package com.didiglobal.turbo.engine.dao.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.didiglobal.turbo.engine.dao.provider.InstanceDataProvider;
 import com.didiglobal.turbo.engine.entity.InstanceDataPO;
+import org.apache.ibatis.annotations.InsertProvider;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.SelectProvider;
 
+import java.util.List;
 
 public interface InstanceDataMapper extends BaseMapper<InstanceDataPO> {
 
@@ -14,4 +18,11 @@ public interface InstanceDataMapper extends BaseMapper<InstanceDataPO> {
 
     @Select("SELECT * FROM ei_instance_data WHERE flow_instance_id=#{flowInstanceId} ORDER BY id DESC LIMIT 1")
     InstanceDataPO selectRecentOne(@Param("flowInstanceId") String flowInstanceId);
+
+    @SelectProvider(type = InstanceDataProvider.class, method = "selectByInstanceDataIds")
+    List<InstanceDataPO> selectByInstanceDataIds(@Param("flowInstanceId") String flowInstanceId,
+                                                 @Param("instanceDataIdList") List<String> instanceDataIdList);
+
+    @InsertProvider(type = InstanceDataProvider.class, method = "batchInsert")
+    boolean batchInsert(@Param("instanceDataList") List<InstanceDataPO> instanceDataList);
 }
@@ -6,7 +6,9 @@ import com.didiglobal.turbo.engine.entity.NodeInstancePO;
 import org.apache.ibatis.annotations.InsertProvider;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.SelectProvider;
 import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.annotations.UpdateProvider;
 
 import java.util.List;
 
@@ -22,6 +24,9 @@ public interface NodeInstanceMapper extends BaseMapper<NodeInstancePO> {
     @Select("SELECT * FROM ei_node_instance WHERE flow_instance_id=#{flowInstanceId} ORDER BY id")
     List<NodeInstancePO> selectByFlowInstanceId(@Param("flowInstanceId") String flowInstanceId);
 
+    @SelectProvider(type = NodeInstanceProvider.class, method = "selectByFlowInstanceIds")
+    List<NodeInstancePO> selectByFlowInstanceIds(@Param("flowInstanceIdList") List<String> flowInstanceIdList);
+
     @Select("SELECT * FROM ei_node_instance WHERE flow_instance_id=#{flowInstanceId} ORDER BY id DESC")
     List<NodeInstancePO> selectDescByFlowInstanceId(@Param("flowInstanceId") String flowInstanceId);
 
@@ -44,4 +49,8 @@ public interface NodeInstanceMapper extends BaseMapper<NodeInstancePO> {
     boolean batchInsert(@Param("flowInstanceId") String flowInstanceId,
                         @Param("nodeInstanceList") List<NodeInstancePO> nodeInstanceList);
 
+    @UpdateProvider(type = NodeInstanceProvider.class, method = "batchUpdateStatus")
+    int batchUpdateStatus(@Param("flowInstanceId") String flowInstanceId,
+                          @Param("nodeInstanceList") List<NodeInstancePO> nodeInstanceList);
+
 }
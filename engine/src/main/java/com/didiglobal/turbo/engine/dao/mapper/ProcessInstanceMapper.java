@@ -1,17 +1,36 @@
 package com.didiglobal.turbo.engine.dao.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.didiglobal.turbo.engine.dao.provider.ProcessInstanceProvider;
 import com.didiglobal.turbo.engine.entity.FlowInstancePO;
+import org.apache.ibatis.annotations.InsertProvider;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.SelectProvider;
 import org.apache.ibatis.annotations.Update;
 
+import java.util.List;
+
 public interface ProcessInstanceMapper extends BaseMapper<FlowInstancePO> {
 
     @Select("SELECT * FROM ei_flow_instance WHERE flow_instance_id=#{flowInstanceId}")
     FlowInstancePO selectByFlowInstanceId(@Param("flowInstanceId") String flowInstanceId);
 
-    @Update("UPDATE ei_flow_instance SET status=#{status}, modify_time=#{modifyTime} " +
+    @SelectProvider(type = ProcessInstanceProvider.class, method = "selectByFlowInstanceIds")
+    List<FlowInstancePO> selectByFlowInstanceIds(@Param("flowInstanceIdList") List<String> flowInstanceIdList);
+
+    @InsertProvider(type = ProcessInstanceProvider.class, method = "batchInsert")
+    boolean batchInsert(@Param("flowInstanceList") List<FlowInstancePO> flowInstanceList);
+
+    @Update("UPDATE ei_flow_instance SET status=#{status}, version=version+1, modify_time=#{modifyTime} " +
         "WHERE flow_instance_id=#{flowInstanceId}")
     void updateStatus(FlowInstancePO entity);
+
+    @Update("UPDATE ei_flow_instance SET status=#{status}, version=version+1, modify_time=#{modifyTime} " +
+        "WHERE flow_instance_id=#{flowInstanceId} AND version=#{version}")
+    int compareAndSetStatus(FlowInstancePO entity);
+
+    @Update("UPDATE ei_flow_instance SET version=version+1, modify_time=#{modifyTime} " +
+        "WHERE flow_instance_id=#{flowInstanceId} AND version=#{version}")
+    int compareAndIncreaseVersion(FlowInstancePO entity);
 }
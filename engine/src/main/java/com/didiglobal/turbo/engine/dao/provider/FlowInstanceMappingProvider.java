@@ -0,0 +1,62 @@
+package com.didiglobal.turbo.engine.dao.provider;
+
+import com.didiglobal.turbo.engine.entity.FlowInstanceMappingPO;
+
+import java.text.MessageFormat;
+import java.util.List;
+import java.util.Map;
+
+public class FlowInstanceMappingProvider {
+    private static final String TABLE_NAME = "ei_flow_instance_mapping";
+    private static final String COLUMN_ARRAY = "(flow_instance_id, node_instance_id, node_key, sub_flow_instance_id, " +
+            "root_flow_instance_id, type, create_time, modify_time, archive, tenant, caller)";
+
+    public String batchInsert(Map map) {
+
+        StringBuilder stringBuilder = new StringBuilder()
+                .append("INSERT INTO ").append(TABLE_NAME).append(COLUMN_ARRAY).append(" VALUES ");
+
+        MessageFormat mf = new MessageFormat("(" +
+                "#'{'flowInstanceMappingList[{0}].flowInstanceId}, " +
+                "#'{'flowInstanceMappingList[{0}].nodeInstanceId}, " +
+                "#'{'flowInstanceMappingList[{0}].nodeKey}, " +
+                "#'{'flowInstanceMappingList[{0}].subFlowInstanceId}, " +
+                "#'{'flowInstanceMappingList[{0}].rootFlowInstanceId}, " +
+                "#'{'flowInstanceMappingList[{0}].type}, " +
+                "#'{'flowInstanceMappingList[{0}].createTime}, " +
+                "#'{'flowInstanceMappingList[{0}].modifyTime}, " +
+                "#'{'flowInstanceMappingList[{0}].archive}, " +
+                "#'{'flowInstanceMappingList[{0}].tenant}, " +
+                "#'{'flowInstanceMappingList[{0}].caller}" +
+                ")");
+
+        List<FlowInstanceMappingPO> flowInstanceMappingList = (List<FlowInstanceMappingPO>) map.get("flowInstanceMappingList");
+        for (int i = 0; i < flowInstanceMappingList.size(); i++) {
+            stringBuilder.append(mf.format(new Object[]{i}));
+            if (i < flowInstanceMappingList.size() - 1) {
+                stringBuilder.append(",");
+            }
+        }
+
+        return stringBuilder.toString();
+    }
+
+    /**
+     * Select the mappings saved before root_flow_instance_id was added, of several flowInstances in one statement:
+     * SELECT ... WHERE flow_instance_id IN (...) AND root_flow_instance_id = '' ORDER BY id
+     */
+    public String selectLegacyByFlowInstanceIds(Map parameters) {
+        List<String> flowInstanceIdList = (List<String>) parameters.get("flowInstanceIdList");
+
+        MessageFormat mf = new MessageFormat("#'{'flowInstanceIdList[{0}]}");
+        StringBuilder stringBuilder = new StringBuilder()
+                .append("SELECT * FROM ").append(TABLE_NAME).append(" WHERE flow_instance_id IN (");
+        for (int i = 0; i < flowInstanceIdList.size(); i++) {
+            if (i > 0) {
+                stringBuilder.append(", ");
+            }
+            stringBuilder.append(mf.format(new Object[]{i}));
+        }
+        return stringBuilder.append(") AND root_flow_instance_id = '' ORDER BY id").toString();
+    }
+}
@@ -0,0 +1,86 @@
+package com.didiglobal.turbo.engine.dao.provider;
+
+import com.didiglobal.turbo.engine.entity.InstanceDataPO;
+import org.apache.commons.lang3.StringUtils;
+
+import java.text.MessageFormat;
+import java.util.List;
+import java.util.Map;
+
+public class InstanceDataProvider {
+
+    private static final String TABLE_NAME = "ei_instance_data";
+
+    /**
+     * Select several instanceData in one statement: SELECT ... WHERE instance_data_id IN (...)
+     */
+    public String selectByInstanceDataIds(Map parameters) {
+        List<String> instanceDataIdList = (List<String>) parameters.get("instanceDataIdList");
+
+        MessageFormat mf = new MessageFormat("#'{'instanceDataIdList[{0}]}");
+        StringBuilder stringBuilder = new StringBuilder()
+                .append("SELECT * FROM ").append(TABLE_NAME).append(" WHERE instance_data_id IN (");
+        for (int i = 0; i < instanceDataIdList.size(); i++) {
+            if (i > 0) {
+                stringBuilder.append(", ");
+            }
+            stringBuilder.append(mf.format(new Object[]{i}));
+        }
+        return stringBuilder.append(")").toString();
+    }
+
+    /**
+     * Insert several instanceData in one statement. Columns {@code instance_data_encode}, {@code checkpoint_instance_data_id}
+     * and {@code delta_seq} are written only while a row holds a value other than the default, as the single-row insert
+     * leaves null ones out, so tables without them still work with the json codec and without checkpoints.
+     */
+    public String batchInsert(Map parameters) {
+        List<InstanceDataPO> instanceDataList = (List<InstanceDataPO>) parameters.get("instanceDataList");
+        boolean withEncode = false;
+        boolean withCheckpoint = false;
+        for (InstanceDataPO instanceDataPO : instanceDataList) {
+            withEncode |= StringUtils.isNotEmpty(instanceDataPO.getInstanceDataEncode());
+            withCheckpoint |= StringUtils.isNotEmpty(instanceDataPO.getCheckpointInstanceDataId())
+                    || (instanceDataPO.getDeltaSeq() != null && instanceDataPO.getDeltaSeq() != 0);
+        }
+
+        StringBuilder columns = new StringBuilder("(node_instance_id, flow_instance_id, instance_data_id, flow_deploy_id, " +
+                "flow_module_id, node_key, instance_data, ");
+        StringBuilder values = new StringBuilder("(" +
+                "#'{'instanceDataList[{0}].nodeInstanceId}, " +
+                "#'{'instanceDataList[{0}].flowInstanceId}, " +
+                "#'{'instanceDataList[{0}].instanceDataId}, " +
+                "#'{'instanceDataList[{0}].flowDeployId}, " +
+                "#'{'instanceDataList[{0}].flowModuleId}, " +
+                "#'{'instanceDataList[{0}].nodeKey}, " +
+                "#'{'instanceDataList[{0}].instanceData}, ");
+        if (withEncode) {
+            columns.append("instance_data_encode, ");
+            values.append("#'{'instanceDataList[{0}].instanceDataEncode}, ");
+        }
+        if (withCheckpoint) {
+            columns.append("checkpoint_instance_data_id, delta_seq, ");
+            values.append("#'{'instanceDataList[{0}].checkpointInstanceDataId}, " +
+                    "#'{'instanceDataList[{0}].deltaSeq}, ");
+        }
+        columns.append("type, create_time, archive, tenant, caller)");
+        values.append("#'{'instanceDataList[{0}].type}, " +
+                "#'{'instanceDataList[{0}].createTime}, " +
+                "#'{'instanceDataList[{0}].archive}, " +
+                "#'{'instanceDataList[{0}].tenant}, " +
+                "#'{'instanceDataList[{0}].caller}" +
+                ")");
+
+        StringBuilder stringBuilder = new StringBuilder()
+                .append("INSERT INTO ").append(TABLE_NAME).append(columns).append(" VALUES ");
+        MessageFormat mf = new MessageFormat(values.toString());
+        for (int i = 0; i < instanceDataList.size(); i++) {
+            stringBuilder.append(mf.format(new Object[]{i}));
+            if (i < instanceDataList.size() - 1) {
+                stringBuilder.append(",");
+            }
+        }
+
+        return stringBuilder.toString();
+    }
+}
@@ -44,4 +44,55 @@ public class NodeInstanceProvider {
 
         return stringBuilder.toString();
     }
+
+    /**
+     * Update status and modify_time of several nodeInstances in one statement:
+     * UPDATE ... SET status = CASE node_instance_id WHEN ... END, modify_time = CASE ... END WHERE node_instance_id IN (...)
+     */
+    public String batchUpdateStatus(Map parameters) {
+        List<NodeInstancePO> nodeInstanceList = (List<NodeInstancePO>) parameters.get("nodeInstanceList");
+
+        MessageFormat statusFormat = new MessageFormat(" WHEN #'{'nodeInstanceList[{0}].nodeInstanceId} " +
+                "THEN #'{'nodeInstanceList[{0}].status}");
+        MessageFormat modifyTimeFormat = new MessageFormat(" WHEN #'{'nodeInstanceList[{0}].nodeInstanceId} " +
+                "THEN #'{'nodeInstanceList[{0}].modifyTime}");
+        MessageFormat idFormat = new MessageFormat("#'{'nodeInstanceList[{0}].nodeInstanceId}");
+
+        StringBuilder statusBuilder = new StringBuilder("status = CASE node_instance_id");
+        StringBuilder modifyTimeBuilder = new StringBuilder("modify_time = CASE node_instance_id");
+        StringBuilder idBuilder = new StringBuilder();
+        for (int i = 0; i < nodeInstanceList.size(); i++) {
+            Object[] index = new Object[]{i};
+            statusBuilder.append(statusFormat.format(index));
+            modifyTimeBuilder.append(modifyTimeFormat.format(index));
+            if (i > 0) {
+                idBuilder.append(", ");
+            }
+            idBuilder.append(idFormat.format(index));
+        }
+
+        return new StringBuilder()
+                .append("UPDATE ").append(TABLE_NAME)
+                .append(" SET ").append(statusBuilder).append(" END, ").append(modifyTimeBuilder).append(" END")
+                .append(" WHERE node_instance_id IN (").append(idBuilder).append(")")
+                .toString();
+    }
+
+    /**
+     * Select the nodeInstances of several flowInstances in one statement: SELECT ... WHERE flow_instance_id IN (...) ORDER BY id
+     */
+    public String selectByFlowInstanceIds(Map parameters) {
+        List<String> flowInstanceIdList = (List<String>) parameters.get("flowInstanceIdList");
+
+        MessageFormat mf = new MessageFormat("#'{'flowInstanceIdList[{0}]}");
+        StringBuilder stringBuilder = new StringBuilder()
+                .append("SELECT * FROM ").append(TABLE_NAME).append(" WHERE flow_instance_id IN (");
+        for (int i = 0; i < flowInstanceIdList.size(); i++) {
+            if (i > 0) {
+                stringBuilder.append(", ");
+            }
+            stringBuilder.append(mf.format(new Object[]{i}));
+        }
+        return stringBuilder.append(") ORDER BY id").toString();
+    }
 }
@@ -0,0 +1,61 @@
+package com.didiglobal.turbo.engine.dao.provider;
+
+import com.didiglobal.turbo.engine.entity.FlowInstancePO;
+
+import java.text.MessageFormat;
+import java.util.List;
+import java.util.Map;
+
+public class ProcessInstanceProvider {
+    private static final String TABLE_NAME = "ei_flow_instance";
+    private static final String COLUMN_ARRAY = "(flow_instance_id, parent_flow_instance_id, flow_deploy_id, " +
+            "flow_module_id, status, version, create_time, modify_time, archive, tenant, caller)";
+
+    public String batchInsert(Map map) {
+
+        StringBuilder stringBuilder = new StringBuilder()
+                .append("INSERT INTO ").append(TABLE_NAME).append(COLUMN_ARRAY).append(" VALUES ");
+
+        MessageFormat mf = new MessageFormat("(" +
+                "#'{'flowInstanceList[{0}].flowInstanceId}, " +
+                "#'{'flowInstanceList[{0}].parentFlowInstanceId}, " +
+                "#'{'flowInstanceList[{0}].flowDeployId}, " +
+                "#'{'flowInstanceList[{0}].flowModuleId}, " +
+                "#'{'flowInstanceList[{0}].status}, " +
+                "#'{'flowInstanceList[{0}].version}, " +
+                "#'{'flowInstanceList[{0}].createTime}, " +
+                "#'{'flowInstanceList[{0}].modifyTime}, " +
+                "#'{'flowInstanceList[{0}].archive}, " +
+                "#'{'flowInstanceList[{0}].tenant}, " +
+                "#'{'flowInstanceList[{0}].caller}" +
+                ")");
+
+        List<FlowInstancePO> flowInstanceList = (List<FlowInstancePO>) map.get("flowInstanceList");
+        for (int i = 0; i < flowInstanceList.size(); i++) {
+            stringBuilder.append(mf.format(new Object[]{i}));
+            if (i < flowInstanceList.size() - 1) {
+                stringBuilder.append(",");
+            }
+        }
+
+        return stringBuilder.toString();
+    }
+
+    /**
+     * Select several flowInstances in one statement: SELECT ... WHERE flow_instance_id IN (...)
+     */
+    public String selectByFlowInstanceIds(Map parameters) {
+        List<String> flowInstanceIdList = (List<String>) parameters.get("flowInstanceIdList");
+
+        MessageFormat mf = new MessageFormat("#'{'flowInstanceIdList[{0}]}");
+        StringBuilder stringBuilder = new StringBuilder()
+                .append("SELECT * FROM ").append(TABLE_NAME).append(" WHERE flow_instance_id IN (");
+        for (int i = 0; i < flowInstanceIdList.size(); i++) {
+            if (i > 0) {
+                stringBuilder.append(", ");
+            }
+            stringBuilder.append(mf.format(new Object[]{i}));
+        }
+        return stringBuilder.append(")").toString();
+    }
+}
@@ -8,6 +8,8 @@ import com.didiglobal.turbo.engine.model.*;
 import com.didiglobal.turbo.engine.param.*;
 import com.didiglobal.turbo.engine.result.*;
 
+import java.util.List;
+
 /**
  * The entrance of Turbo
  * <p>
@@ -76,6 +78,18 @@ public interface ProcessEngine {
      */
     StartProcessResult startProcess(StartProcessParam startProcessParam);
 
+    /**
+     * Start process in batch
+     * <p>
+     * Similar to {@link #startProcess(StartProcessParam)} for each param, while the flow of each distinct
+     * flowDeployId / flowModuleId is got once, and the rows of all the new flow instances are saved together with
+     * multi-row inserts in one transaction.
+     *
+     * @param startProcessParamList the params of the flow instances to start
+     * @return {@link StartProcessResult} of each param in the same order, a failed one doesn't fail the others
+     */
+    List<StartProcessResult> startProcessBatch(List<StartProcessParam> startProcessParamList);
+
     /**
      * Commit suspended userTask of the flow instance previously created specified by flowInstanceId and continue to process.
      *
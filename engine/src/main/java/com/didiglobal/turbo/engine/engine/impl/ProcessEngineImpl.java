@@ -1,6 +1,7 @@
 package com.didiglobal.turbo.engine.engine.impl;
 
 import com.didiglobal.turbo.engine.engine.ProcessEngine;
+import com.didiglobal.turbo.engine.metrics.EngineMetrics;
 import com.didiglobal.turbo.engine.param.*;
 import com.didiglobal.turbo.engine.processor.DefinitionProcessor;
 import com.didiglobal.turbo.engine.processor.RuntimeProcessor;
@@ -8,6 +9,7 @@ import com.didiglobal.turbo.engine.result.*;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
+import java.util.List;
 
 @Service
 public class ProcessEngineImpl implements ProcessEngine {
@@ -18,107 +20,123 @@ public class ProcessEngineImpl implements ProcessEngine {
     @Resource
     private RuntimeProcessor runtimeProcessor;
 
+    @Resource
+    private EngineMetrics engineMetrics;
+
     @Override
     public CreateFlowResult createFlow(CreateFlowParam createFlowParam) {
-        return definitionProcessor.create(createFlowParam);
+        return engineMetrics.recordEngine("createFlow", createFlowParam, () -> definitionProcessor.create(createFlowParam));
     }
 
     @Override
     public UpdateFlowResult updateFlow(UpdateFlowParam updateFlowParam) {
-        return definitionProcessor.update(updateFlowParam);
+        return engineMetrics.recordEngine("updateFlow", updateFlowParam, () -> definitionProcessor.update(updateFlowParam));
     }
 
     @Override
     public DeployFlowResult deployFlow(DeployFlowParam deployFlowParam) {
-        return definitionProcessor.deploy(deployFlowParam);
+        return engineMetrics.recordEngine("deployFlow", deployFlowParam, () -> definitionProcessor.deploy(deployFlowParam));
     }
 
     @Override
     public FlowModuleResult getFlowModule(GetFlowModuleParam getFlowModuleParam) {
-        return definitionProcessor.getFlowModule(getFlowModuleParam);
+        return engineMetrics.recordEngine("getFlowModule", () -> definitionProcessor.getFlowModule(getFlowModuleParam));
     }
 
     @Override
     public StartProcessResult startProcess(StartProcessParam startProcessParam) {
-        return runtimeProcessor.startProcess(startProcessParam);
+        return engineMetrics.recordEngine("startProcess", () -> runtimeProcessor.startProcess(startProcessParam));
+    }
+
+    @Override
+    public List<StartProcessResult> startProcessBatch(List<StartProcessParam> startProcessParamList) {
+        return engineMetrics.recordEngineBatch("startProcessBatch", () -> runtimeProcessor.startProcessBatch(startProcessParamList));
     }
 
     @Override
     public CommitTaskResult commitTask(CommitTaskParam commitTaskParam) {
-        runtimeProcessor.checkIsSubFlowInstance(commitTaskParam.getFlowInstanceId());
-        return runtimeProcessor.commit(commitTaskParam);
+        return engineMetrics.recordEngine("commitTask", () -> {
+            runtimeProcessor.checkIsSubFlowInstance(commitTaskParam.getFlowInstanceId());
+            return runtimeProcessor.commit(commitTaskParam);
+        });
     }
 
     @Override
     public RollbackTaskResult rollbackTask(RollbackTaskParam rollbackTaskParam) {
-        runtimeProcessor.checkIsSubFlowInstance(rollbackTaskParam.getFlowInstanceId());
-        return runtimeProcessor.rollback(rollbackTaskParam);
+        return engineMetrics.recordEngine("rollbackTask", () -> {
+            runtimeProcessor.checkIsSubFlowInstance(rollbackTaskParam.getFlowInstanceId());
+            return runtimeProcessor.rollback(rollbackTaskParam);
+        });
     }
 
     @Override
     public TerminateResult terminateProcess(String flowInstanceId) {
-        runtimeProcessor.checkIsSubFlowInstance(flowInstanceId);
-        return runtimeProcessor.terminateProcess(flowInstanceId, true);
+        return engineMetrics.recordEngine("terminateProcess", () -> {
+            runtimeProcessor.checkIsSubFlowInstance(flowInstanceId);
+            return runtimeProcessor.terminateProcess(flowInstanceId, true);
+        });
     }
 
     @Override
     public TerminateResult terminateProcess(String flowInstanceId, boolean effectiveForSubFlowInstance) {
-        runtimeProcessor.checkIsSubFlowInstance(flowInstanceId);
-        return runtimeProcessor.terminateProcess(flowInstanceId, effectiveForSubFlowInstance);
+        return engineMetrics.recordEngine("terminateProcess", () -> {
+            runtimeProcessor.checkIsSubFlowInstance(flowInstanceId);
+            return runtimeProcessor.terminateProcess(flowInstanceId, effectiveForSubFlowInstance);
+        });
     }
 
     @Override
     public NodeInstanceListResult getHistoryUserTaskList(String flowInstanceId) {
-        return runtimeProcessor.getHistoryUserTaskList(flowInstanceId, true);
+        return engineMetrics.recordEngine("getHistoryUserTaskList", () -> runtimeProcessor.getHistoryUserTaskList(flowInstanceId, true));
     }
 
     @Override
     public NodeInstanceListResult getHistoryUserTaskList(String flowInstanceId, boolean effectiveForSubFlowInstance) {
-        return runtimeProcessor.getHistoryUserTaskList(flowInstanceId, effectiveForSubFlowInstance);
+        return engineMetrics.recordEngine("getHistoryUserTaskList", () -> runtimeProcessor.getHistoryUserTaskList(flowInstanceId, effectiveForSubFlowInstance));
     }
 
     @Override
     public ElementInstanceListResult getHistoryElementList(String flowInstanceId) {
-        return runtimeProcessor.getHistoryElementList(flowInstanceId, true);
+        return engineMetrics.recordEngine("getHistoryElementList", () -> runtimeProcessor.getHistoryElementList(flowInstanceId, true));
     }
 
     @Override
     public ElementInstanceListResult getHistoryElementList(String flowInstanceId, boolean effectiveForSubFlowInstance) {
-        return runtimeProcessor.getHistoryElementList(flowInstanceId, effectiveForSubFlowInstance);
+        return engineMetrics.recordEngine("getHistoryElementList", () -> runtimeProcessor.getHistoryElementList(flowInstanceId, effectiveForSubFlowInstance));
     }
 
     @Override
     public InstanceDataListResult getInstanceData(String flowInstanceId) {
-        return runtimeProcessor.getInstanceData(flowInstanceId, true);
+        return engineMetrics.recordEngine("getInstanceData", () -> runtimeProcessor.getInstanceData(flowInstanceId, true));
     }
 
     @Override
     public InstanceDataListResult getInstanceData(String flowInstanceId, boolean effectiveForSubFlowInstance) {
-        return runtimeProcessor.getInstanceData(flowInstanceId, effectiveForSubFlowInstance);
+        return engineMetrics.recordEngine("getInstanceData", () -> runtimeProcessor.getInstanceData(flowInstanceId, effectiveForSubFlowInstance));
     }
 
     @Override
     public NodeInstanceResult getNodeInstance(String flowInstanceId, String nodeInstanceId) {
-        return runtimeProcessor.getNodeInstance(flowInstanceId, nodeInstanceId, true);
+        return engineMetrics.recordEngine("getNodeInstance", () -> runtimeProcessor.getNodeInstance(flowInstanceId, nodeInstanceId, true));
     }
 
     @Override
     public NodeInstanceResult getNodeInstance(String flowInstanceId, String nodeInstanceId, boolean effectiveForSubFlowInstance) {
-        return runtimeProcessor.getNodeInstance(flowInstanceId, nodeInstanceId, effectiveForSubFlowInstance);
+        return engineMetrics.recordEngine("getNodeInstance", () -> runtimeProcessor.getNodeInstance(flowInstanceId, nodeInstanceId, effectiveForSubFlowInstance));
     }
 
     @Override
     public FlowInstanceResult getFlowInstance(String flowInstanceId) {
-        return runtimeProcessor.getFlowInstance(flowInstanceId);
+        return engineMetrics.recordEngine("getFlowInstance", () -> runtimeProcessor.getFlowInstance(flowInstanceId));
     }
 
     @Override
     public InstanceDataListResult getInstanceData(String flowInstanceId, String instanceDataId) {
-        return runtimeProcessor.getInstanceData(flowInstanceId, instanceDataId, true);
+        return engineMetrics.recordEngine("getInstanceData", () -> runtimeProcessor.getInstanceData(flowInstanceId, instanceDataId, true));
     }
 
     @Override
     public InstanceDataListResult getInstanceData(String flowInstanceId, String instanceDataId, boolean effectiveForSubFlowInstance) {
-        return runtimeProcessor.getInstanceData(flowInstanceId, instanceDataId, effectiveForSubFlowInstance);
+        return engineMetrics.recordEngine("getInstanceData", () -> runtimeProcessor.getInstanceData(flowInstanceId, instanceDataId, effectiveForSubFlowInstance));
     }
 }
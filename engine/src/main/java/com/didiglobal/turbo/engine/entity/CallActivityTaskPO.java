@@ -0,0 +1,109 @@
+package com.didiglobal.turbo.engine.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+
+import java.util.Date;
+
+@TableName("ei_call_activity_task")
+public class CallActivityTaskPO extends CommonPO {
+
+    private String flowInstanceId;
+    private String nodeInstanceId;
+    private String nodeKey;
+    private String subFlowModuleId;
+    private String variables;
+    private Integer status;
+    private Integer retryCount;
+    private Date nextRunTime;
+    private Integer version;
+    private String errMsg;
+    private Date modifyTime;
+
+    public String getFlowInstanceId() {
+        return flowInstanceId;
+    }
+
+    public void setFlowInstanceId(String flowInstanceId) {
+        this.flowInstanceId = flowInstanceId;
+    }
+
+    public String getNodeInstanceId() {
+        return nodeInstanceId;
+    }
+
+    public void setNodeInstanceId(String nodeInstanceId) {
+        this.nodeInstanceId = nodeInstanceId;
+    }
+
+    public String getNodeKey() {
+        return nodeKey;
+    }
+
+    public void setNodeKey(String nodeKey) {
+        this.nodeKey = nodeKey;
+    }
+
+    public String getSubFlowModuleId() {
+        return subFlowModuleId;
+    }
+
+    public void setSubFlowModuleId(String subFlowModuleId) {
+        this.subFlowModuleId = subFlowModuleId;
+    }
+
+    public String getVariables() {
+        return variables;
+    }
+
+    public void setVariables(String variables) {
+        this.variables = variables;
+    }
+
+    public Integer getStatus() {
+        return status;
+    }
+
+    public void setStatus(Integer status) {
+        this.status = status;
+    }
+
+    public Integer getRetryCount() {
+        return retryCount;
+    }
+
+    public void setRetryCount(Integer retryCount) {
+        this.retryCount = retryCount;
+    }
+
+    public Date getNextRunTime() {
+        return nextRunTime;
+    }
+
+    public void setNextRunTime(Date nextRunTime) {
+        this.nextRunTime = nextRunTime;
+    }
+
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
+    public String getErrMsg() {
+        return errMsg;
+    }
+
+    public void setErrMsg(String errMsg) {
+        this.errMsg = errMsg;
+    }
+
+    public Date getModifyTime() {
+        return modifyTime;
+    }
+
+    public void setModifyTime(Date modifyTime) {
+        this.modifyTime = modifyTime;
+    }
+}
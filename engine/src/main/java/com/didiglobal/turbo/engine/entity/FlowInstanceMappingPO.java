@@ -11,6 +11,7 @@ public class FlowInstanceMappingPO extends CommonPO {
     private String nodeInstanceId;
     private String nodeKey;
     private String subFlowInstanceId;
+    private String rootFlowInstanceId;
     private Integer type;
     private Date modifyTime;
 
@@ -47,6 +48,14 @@ public class FlowInstanceMappingPO extends CommonPO {
         this.subFlowInstanceId = subFlowInstanceId;
     }
 
+    public String getRootFlowInstanceId() {
+        return rootFlowInstanceId;
+    }
+
+    public void setRootFlowInstanceId(String rootFlowInstanceId) {
+        this.rootFlowInstanceId = rootFlowInstanceId;
+    }
+
     public Integer getType() {
         return type;
     }
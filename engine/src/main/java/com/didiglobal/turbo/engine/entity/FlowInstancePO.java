@@ -11,6 +11,7 @@ public class FlowInstancePO extends CommonPO {
     private String flowModuleId;
     private String parentFlowInstanceId;
     private Integer status;
+    private Integer version;
     private Date modifyTime;
 
     public String getFlowInstanceId() {
@@ -53,6 +54,14 @@ public class FlowInstancePO extends CommonPO {
         this.status = status;
     }
 
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
     public Date getModifyTime() {
         return modifyTime;
     }
@@ -12,6 +12,9 @@ public class InstanceDataPO extends CommonPO {
     private String nodeKey;
     private String instanceData;
     private String instanceDataEncode;
+    // the full instanceData the delta is based on, blank for full instanceData
+    private String checkpointInstanceDataId;
+    private Integer deltaSeq;
     private Integer type;
 
     public String getFlowInstanceId() {
@@ -78,6 +81,22 @@ public class InstanceDataPO extends CommonPO {
         this.instanceDataEncode = instanceDataEncode;
     }
 
+    public String getCheckpointInstanceDataId() {
+        return checkpointInstanceDataId;
+    }
+
+    public void setCheckpointInstanceDataId(String checkpointInstanceDataId) {
+        this.checkpointInstanceDataId = checkpointInstanceDataId;
+    }
+
+    public Integer getDeltaSeq() {
+        return deltaSeq;
+    }
+
+    public void setDeltaSeq(Integer deltaSeq) {
+        this.deltaSeq = deltaSeq;
+    }
+
     public Integer getType() {
         return type;
     }
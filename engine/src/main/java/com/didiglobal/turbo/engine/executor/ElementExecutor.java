@@ -1,27 +1,27 @@
 package com.didiglobal.turbo.engine.executor;
 
+import com.didiglobal.turbo.engine.bo.FlowGraph;
 import com.didiglobal.turbo.engine.bo.NodeInstanceBO;
+import com.didiglobal.turbo.engine.bo.VariableStore;
 import com.didiglobal.turbo.engine.common.ErrorEnum;
-import com.didiglobal.turbo.engine.common.FlowElementType;
 import com.didiglobal.turbo.engine.common.NodeInstanceStatus;
 import com.didiglobal.turbo.engine.common.RuntimeContext;
-import com.didiglobal.turbo.engine.entity.InstanceDataPO;
 import com.didiglobal.turbo.engine.entity.NodeInstancePO;
 import com.didiglobal.turbo.engine.exception.ProcessException;
 import com.didiglobal.turbo.engine.exception.ReentrantException;
 import com.didiglobal.turbo.engine.exception.SuspendException;
+import com.didiglobal.turbo.engine.metrics.EngineMetrics;
 import com.didiglobal.turbo.engine.model.FlowElement;
 import com.didiglobal.turbo.engine.model.InstanceData;
 import com.didiglobal.turbo.engine.util.ExpressionCalculator;
 import com.didiglobal.turbo.engine.util.FlowModelUtil;
-import com.didiglobal.turbo.engine.util.InstanceDataUtil;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeanUtils;
 
 import javax.annotation.Resource;
-import java.util.List;
+import java.util.Collections;
 import java.util.Map;
 
 public abstract class ElementExecutor extends RuntimeExecutor {
@@ -31,18 +31,27 @@ public abstract class ElementExecutor extends RuntimeExecutor {
     @Resource
     protected ExpressionCalculator expressionCalculator;
 
+    @Resource
+    protected EngineMetrics engineMetrics;
+
+    // e.g. executor.UserTaskExecutor
+    private final String metricName = "executor." + getClass().getSimpleName();
+
     @Override
     public void execute(RuntimeContext runtimeContext) throws ProcessException {
+        long startNanos = System.nanoTime();
         try {
             preExecute(runtimeContext);
             doExecute(runtimeContext);
         } catch (ReentrantException re) {
             LOGGER.warn("execute ReentrantException: reentrant execute.||runtimeContext={},", runtimeContext, re);
+            engineMetrics.increment("executor.reentrant");
         } catch (SuspendException se) {
             LOGGER.info("execute suspend.||runtimeContext={}", runtimeContext);
             throw se;
         } finally {
             postExecute(runtimeContext);
+            engineMetrics.recordTime(metricName + ".execute", startNanos);
         }
     }
 
@@ -63,15 +72,17 @@ public abstract class ElementExecutor extends RuntimeExecutor {
         String sourceNodeKey = StringUtils.EMPTY;
         NodeInstanceBO sourceNodeInstance = runtimeContext.getCurrentNodeInstance();
         if (sourceNodeInstance != null) {
-            // TODO: 2019/12/30 cache
-            NodeInstancePO nodeInstancePO = nodeInstanceDAO.selectBySourceInstanceId(flowInstanceId,
-                    sourceNodeInstance.getNodeInstanceId(), nodeKey);
-            //reentrant check
-            if (nodeInstancePO != null) {
-                BeanUtils.copyProperties(nodeInstancePO, currentNodeInstance);
-                runtimeContext.setCurrentNodeInstance(currentNodeInstance);
-                LOGGER.warn("preExecute reentrant.||nodeInstancePO={}", nodeInstancePO);
-                return;
+            //reentrant check: only a sourceNodeInstance saved before this call may have been executed from,
+            //the ones created in this call are new, and the flowInstance is claimed by this call
+            if (sourceNodeInstance.getId() != null) {
+                NodeInstancePO nodeInstancePO = getNodeInstanceSnapshot(runtimeContext).getBySource(
+                        sourceNodeInstance.getNodeInstanceId(), nodeKey);
+                if (nodeInstancePO != null) {
+                    BeanUtils.copyProperties(nodeInstancePO, currentNodeInstance);
+                    runtimeContext.setCurrentNodeInstance(currentNodeInstance);
+                    LOGGER.warn("preExecute reentrant.||nodeInstancePO={}", nodeInstancePO);
+                    return;
+                }
             }
             sourceNodeInstanceId = sourceNodeInstance.getNodeInstanceId();
             sourceNodeKey = sourceNodeInstance.getNodeKey();
@@ -96,14 +107,14 @@ public abstract class ElementExecutor extends RuntimeExecutor {
 
     @Override
     protected RuntimeExecutor getExecuteExecutor(RuntimeContext runtimeContext) throws ProcessException {
-        Map<String, FlowElement> flowElementMap = runtimeContext.getFlowElementMap();
-        FlowElement flowElement = getUniqueNextNode(runtimeContext.getCurrentNodeModel(), flowElementMap);
+        FlowElement flowElement = getUniqueNextNode(runtimeContext.getCurrentNodeModel(), getFlowGraph(runtimeContext));
         runtimeContext.setCurrentNodeModel(flowElement);
         return executorFactory.getElementExecutor(flowElement);
     }
 
     @Override
     public void commit(RuntimeContext runtimeContext) throws ProcessException {
+        long startNanos = System.nanoTime();
         preCommit(runtimeContext);
 
         try {
@@ -113,6 +124,7 @@ public abstract class ElementExecutor extends RuntimeExecutor {
             throw se;
         } finally {
             postCommit(runtimeContext);
+            engineMetrics.recordTime(metricName + ".commit", startNanos);
         }
     }
 
@@ -131,6 +143,7 @@ public abstract class ElementExecutor extends RuntimeExecutor {
 
     @Override
     public void rollback(RuntimeContext runtimeContext) throws ProcessException {
+        long startNanos = System.nanoTime();
         try {
             preRollback(runtimeContext);
             doRollback(runtimeContext);
@@ -139,8 +152,10 @@ public abstract class ElementExecutor extends RuntimeExecutor {
             throw se;
         } catch (ReentrantException re) {
             LOGGER.warn("ReentrantException: reentrant rollback.");
+            engineMetrics.increment("executor.reentrant");
         } finally {
             postRollback(runtimeContext);
+            engineMetrics.recordTime(metricName + ".rollback", startNanos);
         }
     }
 
@@ -167,7 +182,7 @@ public abstract class ElementExecutor extends RuntimeExecutor {
         } else {
             //case2
             nodeInstanceId = runtimeContext.getCurrentNodeInstance().getSourceNodeInstanceId();
-            NodeInstancePO currentNodeInstancePO = nodeInstanceDAO.selectByNodeInstanceId(flowInstanceId, nodeInstanceId);
+            NodeInstancePO currentNodeInstancePO = getNodeInstanceSnapshot(runtimeContext).get(nodeInstanceId);
             if (currentNodeInstancePO == null) {
                 LOGGER.warn("preRollback failed: cannot find currentNodeInstancePO from db."
                         + "||flowInstanceId={}||nodeInstanceId={}", flowInstanceId, nodeInstanceId);
@@ -178,9 +193,7 @@ public abstract class ElementExecutor extends RuntimeExecutor {
 
             String currentInstanceDataId = currentNodeInstance.getInstanceDataId();
             runtimeContext.setInstanceDataId(currentInstanceDataId);
-            InstanceDataPO instanceDataPO = instanceDataDAO.select(flowInstanceId, currentInstanceDataId);
-            Map<String, InstanceData> currentInstanceDataMap = InstanceDataUtil.getInstanceDataMap(instanceDataPO.getInstanceData());
-            runtimeContext.setInstanceDataMap(currentInstanceDataMap);
+            runtimeContext.setInstanceDataMap(getInstanceDataMap(runtimeContext, currentInstanceDataId));
         }
         runtimeContext.setCurrentNodeInstance(currentNodeInstance);
 
@@ -232,8 +245,7 @@ public abstract class ElementExecutor extends RuntimeExecutor {
             return null;
         }
 
-        // TODO: 2019/12/13 get from cache
-        NodeInstancePO sourceNodeInstancePO = nodeInstanceDAO.selectByNodeInstanceId(flowInstanceId, sourceNodeInstanceId);
+        NodeInstancePO sourceNodeInstancePO = getNodeInstanceSnapshot(runtimeContext).get(sourceNodeInstanceId);
         if (sourceNodeInstancePO == null) {
             LOGGER.warn("getRollbackExecutor failed: cannot find sourceNodeInstance from db."
                     + "||flowInstanceId={}||sourceNodeInstanceId={}", flowInstanceId, sourceNodeInstanceId);
@@ -270,56 +282,48 @@ public abstract class ElementExecutor extends RuntimeExecutor {
         return false;
     }
 
-    protected FlowElement getUniqueNextNode(FlowElement currentFlowElement, Map<String, FlowElement> flowElementMap) {
-        List<String> outgoingKeyList = currentFlowElement.getOutgoing();
-        String nextElementKey = outgoingKeyList.get(0);
-        FlowElement nextFlowElement = FlowModelUtil.getFlowElement(flowElementMap, nextElementKey);
-        while (nextFlowElement.getType() == FlowElementType.SEQUENCE_FLOW) {
-            nextFlowElement = getUniqueNextNode(nextFlowElement, flowElementMap);
-        }
-        return nextFlowElement;
+    protected FlowElement getUniqueNextNode(FlowElement currentFlowElement, FlowGraph flowGraph) {
+        return flowGraph.getUniqueNextNode(currentFlowElement.getKey());
     }
 
-    protected FlowElement calculateNextNode(FlowElement currentFlowElement, Map<String, FlowElement> flowElementMap,
+    protected FlowElement calculateNextNode(FlowElement currentFlowElement, FlowGraph flowGraph,
                                             Map<String, InstanceData> instanceDataMap) throws ProcessException {
-        FlowElement nextFlowElement = calculateOutgoing(currentFlowElement, flowElementMap, instanceDataMap);
+        int index = flowGraph.getIndex(currentFlowElement.getKey());
+        int[] outgoingFlows = flowGraph.getOutgoingFlows(index);
+        int[] successors = flowGraph.getSuccessors(index);
+        int defaultIndex = FlowGraph.NONE;
 
-        while (nextFlowElement.getType() == FlowElementType.SEQUENCE_FLOW) {
-            nextFlowElement = getUniqueNextNode(nextFlowElement, flowElementMap);
-        }
-        return nextFlowElement;
-    }
-
-    private FlowElement calculateOutgoing(FlowElement flowElement, Map<String, FlowElement> flowElementMap,
-                                          Map<String, InstanceData> instanceDataMap) throws ProcessException {
-        FlowElement defaultElement = null;
-
-        List<String> outgoingList = flowElement.getOutgoing();
-        for (String outgoingKey : outgoingList) {
-            FlowElement outgoingSequenceFlow = FlowModelUtil.getFlowElement(flowElementMap, outgoingKey);
+        for (int i = 0; i < outgoingFlows.length; i++) {
+            FlowElement outgoingSequenceFlow = flowGraph.getElement(outgoingFlows[i]);
 
             //case1 condition is true, hit the outgoing
             String condition = FlowModelUtil.getConditionFromSequenceFlow(outgoingSequenceFlow);
             if (StringUtils.isNotBlank(condition) && processCondition(condition, instanceDataMap)) {
-                return outgoingSequenceFlow;
+                return flowGraph.getElement(successors[i]);
             }
 
             if (FlowModelUtil.isDefaultCondition(outgoingSequenceFlow)) {
-                defaultElement = outgoingSequenceFlow;
+                defaultIndex = successors[i];
             }
         }
         //case2 return default while it has is configured
-        if (defaultElement != null) {
-            LOGGER.info("calculateOutgoing: return defaultElement.||nodeKey={}", flowElement.getKey());
-            return defaultElement;
+        if (defaultIndex != FlowGraph.NONE) {
+            LOGGER.info("calculateOutgoing: return defaultElement.||nodeKey={}", currentFlowElement.getKey());
+            return flowGraph.getElement(defaultIndex);
         }
 
-        LOGGER.warn("calculateOutgoing failed.||nodeKey={}", flowElement.getKey());
+        LOGGER.warn("calculateOutgoing failed.||nodeKey={}", currentFlowElement.getKey());
         throw new ProcessException(ErrorEnum.GET_OUTGOING_FAILED);
     }
 
     protected boolean processCondition(String expression, Map<String, InstanceData> instanceDataMap) throws ProcessException {
-        Map<String, Object> dataMap = InstanceDataUtil.parseInstanceDataMap(instanceDataMap);
-        return expressionCalculator.calculate(expression, dataMap);
+        // a view on the variables of runtimeContext, which are converted once while they're put
+        Map<String, Object> dataMap = instanceDataMap == null ? Collections.<String, Object>emptyMap() : VariableStore.of(instanceDataMap).asDataMap();
+        long startNanos = System.nanoTime();
+        try {
+            return expressionCalculator.calculate(expression, dataMap);
+        } finally {
+            engineMetrics.recordTime("expression.calculate", startNanos);
+        }
     }
 }
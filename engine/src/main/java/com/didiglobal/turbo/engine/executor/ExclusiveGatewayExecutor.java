@@ -8,40 +8,31 @@ import com.didiglobal.turbo.engine.entity.InstanceDataPO;
 import com.didiglobal.turbo.engine.exception.ProcessException;
 import com.didiglobal.turbo.engine.model.FlowElement;
 import com.didiglobal.turbo.engine.model.InstanceData;
-import com.didiglobal.turbo.engine.spi.HookService;
+import com.didiglobal.turbo.engine.service.HookInvokeService;
 import com.didiglobal.turbo.engine.util.FlowModelUtil;
-import com.didiglobal.turbo.engine.util.InstanceDataUtil;
-import com.google.common.collect.Lists;
-import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.MapUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeanUtils;
-import org.springframework.beans.factory.InitializingBean;
-import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
 
-import java.util.ArrayList;
 import java.util.Date;
-import java.util.List;
 import java.util.Map;
 
 @Service
-public class ExclusiveGatewayExecutor extends ElementExecutor implements InitializingBean {
+public class ExclusiveGatewayExecutor extends ElementExecutor {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ExclusiveGatewayExecutor.class);
 
     @Resource
-    private ApplicationContext applicationContext;
-
-    private List<HookService> hookServices;
+    private HookInvokeService hookInvokeService;
 
     /**
      * Update data map: invoke hook service to update data map
-     * You can implement HookService and all implementations of 'HookService' will be executed.
+     * You can implement HookService and all implementations of 'HookService' will be executed concurrently, see {@link HookInvokeService}.
      * Param: one of flowElement's properties
      */
     @Override
@@ -56,7 +47,8 @@ public class ExclusiveGatewayExecutor extends ElementExecutor implements Initial
         }
 
         // 3.invoke hook and get data result
-        Map<String, InstanceData> hookInfoValueMap = getHookInfoValueMap(runtimeContext.getFlowInstanceId(), hookInfoParam, runtimeContext.getCurrentNodeInstance().getNodeKey(), runtimeContext.getCurrentNodeInstance().getNodeInstanceId());
+        Map<String, InstanceData> hookInfoValueMap = hookInvokeService.invoke(runtimeContext.getFlowInstanceId(), hookInfoParam, runtimeContext.getCurrentNodeInstance().getNodeKey(), runtimeContext.getCurrentNodeInstance().getNodeInstanceId(),
+            runtimeContext.getInstanceDataMap());
         LOGGER.info("doExecute getHookInfoValueMap.||hookInfoValueMap={}", hookInfoValueMap);
         if (MapUtils.isEmpty(hookInfoValueMap)) {
             LOGGER.warn("doExecute: hookInfoValueMap is empty.||flowInstanceId={}||hookInfoParam={}||nodeKey={}",
@@ -75,28 +67,10 @@ public class ExclusiveGatewayExecutor extends ElementExecutor implements Initial
         }
     }
 
-    private Map<String, InstanceData> getHookInfoValueMap(String flowInstanceId, String hookInfoParam, String nodeKey, String nodeInstanceId) {
-        List<InstanceData> dataList = Lists.newArrayList();
-        for (HookService service : hookServices) {
-            try {
-                List<InstanceData> list = service.invoke(flowInstanceId, hookInfoParam, nodeKey, nodeInstanceId);
-                if (CollectionUtils.isEmpty(list)) {
-                    LOGGER.warn("hook service invoke result is empty, serviceName={}, flowInstanceId={}, hookInfoParam={}",
-                        service.getClass().getName(), flowInstanceId, hookInfoParam);
-                }
-                dataList.addAll(list);
-            } catch (Exception e) {
-                LOGGER.warn("hook service invoke fail, serviceName={}, flowInstanceId={}, hookInfoParam={}",
-                    service.getClass().getName(), flowInstanceId, hookInfoParam);
-            }
-        }
-        return InstanceDataUtil.getInstanceDataMap(dataList);
-    }
-
     private String saveInstanceDataPO(RuntimeContext runtimeContext) {
         String instanceDataId = genId();
         InstanceDataPO instanceDataPO = buildHookInstanceData(instanceDataId, runtimeContext);
-        instanceDataDAO.insert(instanceDataPO);
+        insertInstanceData(runtimeContext, instanceDataPO, runtimeContext.getInstanceDataMap(), runtimeContext.getInstanceDataId());
         return instanceDataId;
     }
 
@@ -104,7 +78,7 @@ public class ExclusiveGatewayExecutor extends ElementExecutor implements Initial
         InstanceDataPO instanceDataPO = new InstanceDataPO();
         BeanUtils.copyProperties(runtimeContext, instanceDataPO);
         instanceDataPO.setInstanceDataId(instanceDataId);
-        instanceDataPO.setInstanceData(InstanceDataUtil.getInstanceDataListStr(runtimeContext.getInstanceDataMap()));
+        instanceDataCodecRegistry.setInstanceData(instanceDataPO, runtimeContext.getInstanceDataMap());
         instanceDataPO.setNodeInstanceId(runtimeContext.getCurrentNodeInstance().getNodeInstanceId());
         instanceDataPO.setNodeKey(runtimeContext.getCurrentNodeModel().getKey());
         instanceDataPO.setType(InstanceDataType.HOOK);
@@ -131,35 +105,9 @@ public class ExclusiveGatewayExecutor extends ElementExecutor implements Initial
     @Override
     protected RuntimeExecutor getExecuteExecutor(RuntimeContext runtimeContext) throws ProcessException {
         FlowElement nextNode = calculateNextNode(runtimeContext.getCurrentNodeModel(),
-            runtimeContext.getFlowElementMap(), runtimeContext.getInstanceDataMap());
+            getFlowGraph(runtimeContext), runtimeContext.getInstanceDataMap());
 
         runtimeContext.setCurrentNodeModel(nextNode);
         return executorFactory.getElementExecutor(nextNode);
     }
-
-    @Override
-    public void afterPropertiesSet() throws Exception {
-        ensureHookService();
-    }
-
-    private void ensureHookService() {
-        if (hookServices != null) {
-            return;
-        }
-
-        // init hook services by Spring application context
-        synchronized (ExclusiveGatewayExecutor.class) {
-            if (hookServices != null) {
-                return;
-            }
-            hookServices = new ArrayList<>();
-            String[] names = applicationContext.getBeanNamesForType(HookService.class);
-            for (String name : names) {
-                Object bean = applicationContext.getBean(name);
-                if (bean != null) {
-                    hookServices.add((HookService) bean);
-                }
-            }
-        }
-    }
 }
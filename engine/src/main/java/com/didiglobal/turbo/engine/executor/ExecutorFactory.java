@@ -4,6 +4,8 @@ import com.didiglobal.turbo.engine.common.Constants;
 import com.didiglobal.turbo.engine.common.ErrorEnum;
 import com.didiglobal.turbo.engine.common.FlowElementType;
 import com.didiglobal.turbo.engine.exception.ProcessException;
+import com.didiglobal.turbo.engine.executor.callactivity.AsyncSingleCallActivityExecutor;
+import com.didiglobal.turbo.engine.executor.callactivity.SyncMultipleCallActivityExecutor;
 import com.didiglobal.turbo.engine.executor.callactivity.SyncSingleCallActivityExecutor;
 import com.didiglobal.turbo.engine.model.FlowElement;
 import com.didiglobal.turbo.engine.util.FlowModelUtil;
@@ -36,9 +38,18 @@ public class ExecutorFactory {
     @Resource
     private ExclusiveGatewayExecutor exclusiveGatewayExecutor;
 
+    @Resource
+    private ParallelGatewayExecutor parallelGatewayExecutor;
+
     @Resource
     private SyncSingleCallActivityExecutor syncSingleCallActivityExecutor;
 
+    @Resource
+    private AsyncSingleCallActivityExecutor asyncSingleCallActivityExecutor;
+
+    @Resource
+    private SyncMultipleCallActivityExecutor syncMultipleCallActivityExecutor;
+
     public ElementExecutor getElementExecutor(FlowElement flowElement) throws ProcessException {
         ElementExecutor elementExecutor = getElementExecutorInternal(flowElement);
 
@@ -65,6 +76,8 @@ public class ExecutorFactory {
                 return userTaskExecutor;
             case FlowElementType.EXCLUSIVE_GATEWAY:
                 return exclusiveGatewayExecutor;
+            case FlowElementType.PARALLEL_GATEWAY:
+                return parallelGatewayExecutor;
             case FlowElementType.CALL_ACTIVITY:
                 return getCallActivityExecutor(flowElement);
             default:
@@ -90,6 +103,12 @@ public class ExecutorFactory {
         if (callActivityExecuteType.equals(Constants.CALL_ACTIVITY_EXECUTE_TYPE.SYNC)
             && callActivityInstanceType.equals(Constants.CALL_ACTIVITY_INSTANCE_TYPE.SINGLE)) {
             return syncSingleCallActivityExecutor;
+        } else if (callActivityExecuteType.equals(Constants.CALL_ACTIVITY_EXECUTE_TYPE.ASYNC)
+            && callActivityInstanceType.equals(Constants.CALL_ACTIVITY_INSTANCE_TYPE.SINGLE)) {
+            return asyncSingleCallActivityExecutor;
+        } else if (callActivityExecuteType.equals(Constants.CALL_ACTIVITY_EXECUTE_TYPE.SYNC)
+            && callActivityInstanceType.equals(Constants.CALL_ACTIVITY_INSTANCE_TYPE.MULTIPLE)) {
+            return syncMultipleCallActivityExecutor;
         } else {
             return null;
         }
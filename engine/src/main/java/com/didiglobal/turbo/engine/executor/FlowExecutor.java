@@ -1,6 +1,7 @@
 package com.didiglobal.turbo.engine.executor;
 
 import com.didiglobal.turbo.engine.bo.NodeInstanceBO;
+import com.didiglobal.turbo.engine.bo.NodeInstanceSnapshot;
 import com.didiglobal.turbo.engine.common.*;
 import com.didiglobal.turbo.engine.dao.ProcessInstanceDAO;
 import com.didiglobal.turbo.engine.entity.FlowInstancePO;
@@ -13,9 +14,9 @@ import com.didiglobal.turbo.engine.model.FlowElement;
 import com.didiglobal.turbo.engine.model.InstanceData;
 import com.didiglobal.turbo.engine.service.FlowInstanceService;
 import com.didiglobal.turbo.engine.util.FlowModelUtil;
-import com.didiglobal.turbo.engine.util.InstanceDataUtil;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.MapUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -97,6 +98,7 @@ public class FlowExecutor extends RuntimeExecutor {
             flowInstancePO.setParentFlowInstanceId(parentRuntimeContext.getFlowInstanceId());
         }
         flowInstancePO.setStatus(FlowInstanceStatus.RUNNING);
+        flowInstancePO.setVersion(0);
         Date currentTime = new Date();
         flowInstancePO.setCreateTime(currentTime);
         flowInstancePO.setModifyTime(currentTime);
@@ -125,7 +127,7 @@ public class FlowExecutor extends RuntimeExecutor {
 
         // generate instanceDataId
         instanceDataPO.setInstanceDataId(genId());
-        instanceDataPO.setInstanceData(InstanceDataUtil.getInstanceDataListStr(instanceDataMap));
+        instanceDataCodecRegistry.setInstanceData(instanceDataPO, instanceDataMap);
 
         instanceDataPO.setNodeInstanceId(StringUtils.EMPTY);
         instanceDataPO.setNodeKey(StringUtils.EMPTY);
@@ -143,8 +145,7 @@ public class FlowExecutor extends RuntimeExecutor {
         runtimeContext.setNodeInstanceList(Lists.newArrayList());
 
         //set startEvent into suspendNodeInstance as the first node to process
-        Map<String, FlowElement> flowElementMap = runtimeContext.getFlowElementMap();
-        FlowElement startEvent = FlowModelUtil.getStartEvent(flowElementMap);
+        FlowElement startEvent = getFlowGraph(runtimeContext).getStartEvent();
         if (startEvent == null) {
             LOGGER.warn("fillExecuteContext failed: cannot get startEvent.||flowInstance={}||flowDeployId={}",
                     runtimeContext.getFlowInstanceId(), runtimeContext.getFlowDeployId());
@@ -230,7 +231,7 @@ public class FlowExecutor extends RuntimeExecutor {
         String nodeInstanceId = suspendNodeInstance.getNodeInstanceId();
 
         //1.get instanceData from db
-        NodeInstancePO nodeInstancePO = nodeInstanceDAO.selectByNodeInstanceId(flowInstanceId, nodeInstanceId);
+        NodeInstancePO nodeInstancePO = getNodeInstanceSnapshot(runtimeContext).get(nodeInstanceId);
         if (nodeInstancePO == null) {
             LOGGER.warn("preCommit failed: cannot find nodeInstancePO from db.||flowInstanceId={}||nodeInstanceId={}",
                     flowInstanceId, nodeInstanceId);
@@ -249,19 +250,8 @@ public class FlowExecutor extends RuntimeExecutor {
             suspendNodeInstance.setStatus(nodeInstancePO.getStatus());
             throw new ReentrantException(ErrorEnum.REENTRANT_WARNING);
         }
-        Map<String, InstanceData> instanceDataMap;
         String instanceDataId = nodeInstancePO.getInstanceDataId();
-        if (StringUtils.isBlank(instanceDataId)) {
-            instanceDataMap = Maps.newHashMap();
-        } else {
-            InstanceDataPO instanceDataPO = instanceDataDAO.select(flowInstanceId, instanceDataId);
-            if (instanceDataPO == null) {
-                LOGGER.warn("preCommit failed: cannot find instanceDataPO from db." +
-                    "||flowInstanceId={}||instanceDataId={}", flowInstanceId, instanceDataId);
-                throw new ProcessException(ErrorEnum.GET_INSTANCE_DATA_FAILED);
-            }
-            instanceDataMap = InstanceDataUtil.getInstanceDataMap(instanceDataPO.getInstanceData());
-        }
+        Map<String, InstanceData> instanceDataMap = getInstanceDataMap(runtimeContext, instanceDataId);
 
         //2.merge data while commitDataMap is not empty
         Map<String, InstanceData> commitDataMap = runtimeContext.getInstanceDataMap();
@@ -270,12 +260,13 @@ public class FlowExecutor extends RuntimeExecutor {
             // commit callActivity not allow merge data
             instanceDataMap = commitDataMap;
         } else if (MapUtils.isNotEmpty(commitDataMap)) {
+            String baseInstanceDataId = instanceDataId;
             instanceDataId = genId();
             instanceDataMap.putAll(commitDataMap);
 
             InstanceDataPO commitInstanceDataPO = buildCommitInstanceData(runtimeContext, nodeInstanceId,
                 nodeInstancePO.getNodeKey(), instanceDataId, instanceDataMap);
-            instanceDataDAO.insert(commitInstanceDataPO);
+            insertInstanceData(runtimeContext, commitInstanceDataPO, instanceDataMap, baseInstanceDataId);
         }
 
         //3.update runtimeContext
@@ -293,7 +284,7 @@ public class FlowExecutor extends RuntimeExecutor {
         instanceDataPO.setCreateTime(new Date());
 
         instanceDataPO.setInstanceDataId(newInstanceDataId);
-        instanceDataPO.setInstanceData(InstanceDataUtil.getInstanceDataListStr(instanceDataMap));
+        instanceDataCodecRegistry.setInstanceData(instanceDataPO, instanceDataMap);
 
         return instanceDataPO;
     }
@@ -368,8 +359,8 @@ public class FlowExecutor extends RuntimeExecutor {
 
         //1.check node: only the latest enabled(ACTIVE or COMPLETED) nodeInstance can be rollbacked.
         String suspendNodeInstanceId = runtimeContext.getSuspendNodeInstance().getNodeInstanceId();
-        NodeInstancePO rollbackNodeInstancePO = getActiveNodeForRollback(flowInstanceId, suspendNodeInstanceId,
-            runtimeContext.getFlowElementMap());
+        NodeInstancePO rollbackNodeInstancePO = getActiveNodeForRollback(getNodeInstanceSnapshot(runtimeContext),
+            suspendNodeInstanceId, runtimeContext.getFlowElementMap());
         if (rollbackNodeInstancePO == null) {
             LOGGER.warn("preRollback failed: cannot rollback.||runtimeContext={}", runtimeContext);
             throw new ProcessException(ErrorEnum.ROLLBACK_FAILED);
@@ -386,29 +377,55 @@ public class FlowExecutor extends RuntimeExecutor {
             throw new ProcessException(ErrorEnum.ROLLBACK_FAILED);
         }
 
-        //3.get instanceData
-        String instanceDataId = rollbackNodeInstancePO.getInstanceDataId();
-        Map<String, InstanceData> instanceDataMap;
-        if (StringUtils.isBlank(instanceDataId)) {
-            instanceDataMap = Maps.newHashMap();
-        } else {
-            InstanceDataPO instanceDataPO = instanceDataDAO.select(flowInstanceId, instanceDataId);
-            if (instanceDataPO == null) {
-                LOGGER.warn("preRollback failed: cannot find instanceDataPO from db."
-                    + "||flowInstanceId={}||instanceDataId={}", flowInstanceId, instanceDataId);
-                throw new ProcessException(ErrorEnum.GET_INSTANCE_DATA_FAILED);
-            }
-            instanceDataMap = InstanceDataUtil.getInstanceDataMap(instanceDataPO.getInstanceData());
-        }
+        //3.get instanceData of all the nodes to roll back over at once
+        prefetchInstanceData(runtimeContext, getRollbackInstanceDataIds(getNodeInstanceSnapshot(runtimeContext),
+            rollbackNodeInstancePO, runtimeContext.getFlowElementMap()));
+        Map<String, InstanceData> instanceDataMap = getInstanceDataMap(runtimeContext, rollbackNodeInstancePO.getInstanceDataId());
 
         //4.update runtimeContext
         fillRollbackContext(runtimeContext, rollbackNodeInstancePO, instanceDataMap);
+
+        //5.a completed node may have arrived at a parallel join, which is not to wait for it any more
+        if (rollbackNodeInstancePO.getStatus() == NodeInstanceStatus.COMPLETED) {
+            disableJoinArrivals(runtimeContext, rollbackNodeInstancePO);
+        }
+    }
+
+    // ACTIVE nodeInstances of parallelGateways are arrivals waiting at a join, disable the ones reached from the rollback
+    // node, i.e. without another userTask or callActivity between them
+    private void disableJoinArrivals(RuntimeContext runtimeContext, NodeInstancePO rollbackNodeInstancePO) {
+        NodeInstanceSnapshot nodeInstanceSnapshot = getNodeInstanceSnapshot(runtimeContext);
+        Map<String, FlowElement> flowElementMap = runtimeContext.getFlowElementMap();
+        for (NodeInstancePO nodeInstancePO : nodeInstanceSnapshot.getDescList()) {
+            if (nodeInstancePO.getStatus() != NodeInstanceStatus.ACTIVE
+                || !FlowModelUtil.isElementType(nodeInstancePO.getNodeKey(), flowElementMap, FlowElementType.PARALLEL_GATEWAY)) {
+                continue;
+            }
+            NodeInstancePO sourceNodeInstancePO = nodeInstanceSnapshot.get(nodeInstancePO.getSourceNodeInstanceId());
+            for (int step = 0; sourceNodeInstancePO != null && step < nodeInstanceSnapshot.size(); step++) {
+                if (sourceNodeInstancePO.getNodeInstanceId().equals(rollbackNodeInstancePO.getNodeInstanceId())) {
+                    NodeInstanceBO arrivalNodeInstance = new NodeInstanceBO();
+                    BeanUtils.copyProperties(nodeInstancePO, arrivalNodeInstance);
+                    arrivalNodeInstance.setStatus(NodeInstanceStatus.DISABLED);
+                    runtimeContext.getNodeInstanceList().add(arrivalNodeInstance);
+                    LOGGER.info("preRollback: disable the arrival at parallel join.||flowInstanceId={}||nodeInstanceId={}",
+                        runtimeContext.getFlowInstanceId(), nodeInstancePO.getNodeInstanceId());
+                    break;
+                }
+                int elementType = FlowModelUtil.getElementType(sourceNodeInstancePO.getNodeKey(), flowElementMap);
+                if (elementType == FlowElementType.USER_TASK || elementType == FlowElementType.CALL_ACTIVITY) {
+                    break;
+                }
+                sourceNodeInstancePO = nodeInstanceSnapshot.get(sourceNodeInstancePO.getSourceNodeInstanceId());
+            }
+        }
     }
 
     // if(canRollback): only the active Node or the lasted completed Node can be rollback
-    private NodeInstancePO getActiveNodeForRollback(String flowInstanceId, String suspendNodeInstanceId,
+    private NodeInstancePO getActiveNodeForRollback(NodeInstanceSnapshot nodeInstanceSnapshot, String suspendNodeInstanceId,
                                                     Map<String, FlowElement> flowElementMap) {
-        List<NodeInstancePO> nodeInstancePOList = nodeInstanceDAO.selectDescByFlowInstanceId(flowInstanceId);
+        String flowInstanceId = nodeInstanceSnapshot.getFlowInstanceId();
+        List<NodeInstancePO> nodeInstancePOList = nodeInstanceSnapshot.getDescList();
         if (CollectionUtils.isEmpty(nodeInstancePOList)) {
             LOGGER.warn("getActiveNodeForRollback: nodeInstancePOList is empty."
                 + "||flowInstanceId={}||suspendNodeInstanceId={}", flowInstanceId, suspendNodeInstanceId);
@@ -452,6 +469,24 @@ public class FlowExecutor extends RuntimeExecutor {
         return null;
     }
 
+    // instanceDataIds of the nodes a rollback walks back over: from the rollback node along sourceNodeInstances
+    // until the previous userTask or callActivity, where the rollback suspends, or the startEvent
+    private Set<String> getRollbackInstanceDataIds(NodeInstanceSnapshot nodeInstanceSnapshot, NodeInstancePO rollbackNodeInstancePO,
+                                                   Map<String, FlowElement> flowElementMap) {
+        Set<String> instanceDataIds = Sets.newLinkedHashSet();
+        instanceDataIds.add(rollbackNodeInstancePO.getInstanceDataId());
+        NodeInstancePO nodeInstancePO = nodeInstanceSnapshot.get(rollbackNodeInstancePO.getSourceNodeInstanceId());
+        for (int step = 0; nodeInstancePO != null && step < nodeInstanceSnapshot.size(); step++) {
+            instanceDataIds.add(nodeInstancePO.getInstanceDataId());
+            int elementType = FlowModelUtil.getElementType(nodeInstancePO.getNodeKey(), flowElementMap);
+            if (elementType == FlowElementType.USER_TASK || elementType == FlowElementType.CALL_ACTIVITY) {
+                break;
+            }
+            nodeInstancePO = nodeInstanceSnapshot.get(nodeInstancePO.getSourceNodeInstanceId());
+        }
+        return instanceDataIds;
+    }
+
     private void doRollback(RuntimeContext runtimeContext) throws ProcessException {
         RuntimeExecutor runtimeExecutor = getRollbackExecutor(runtimeContext);
         while (runtimeExecutor != null) {
@@ -591,6 +626,12 @@ public class FlowExecutor extends RuntimeExecutor {
         });
         nodeInstanceDAO.insertOrUpdateList(nodeInstancePOList);
         nodeInstanceLogDAO.insertList(nodeInstanceLogPOList);
+
+        //keep the snapshot up with the saved nodeInstances, while it has been selected in this call
+        NodeInstanceSnapshot nodeInstanceSnapshot = runtimeContext.getNodeInstanceSnapshot();
+        if (nodeInstanceSnapshot != null && nodeInstanceSnapshot.getFlowInstanceId().equals(runtimeContext.getFlowInstanceId())) {
+            nodeInstancePOList.forEach(nodeInstanceSnapshot::put);
+        }
     }
 
     private NodeInstancePO buildNodeInstancePO(RuntimeContext runtimeContext, NodeInstanceBO nodeInstanceBO) {
@@ -0,0 +1,501 @@
+package com.didiglobal.turbo.engine.executor;
+
+import com.alibaba.fastjson.JSON;
+import com.didiglobal.turbo.engine.bo.NodeInstanceBO;
+import com.didiglobal.turbo.engine.bo.NodeInstanceSnapshot;
+import com.didiglobal.turbo.engine.bo.VariableStore;
+import com.didiglobal.turbo.engine.common.Constants;
+import com.didiglobal.turbo.engine.common.ErrorEnum;
+import com.didiglobal.turbo.engine.common.FlowElementType;
+import com.didiglobal.turbo.engine.common.InstanceDataType;
+import com.didiglobal.turbo.engine.common.NodeInstanceStatus;
+import com.didiglobal.turbo.engine.common.RuntimeContext;
+import com.didiglobal.turbo.engine.dao.UnitOfWork;
+import com.didiglobal.turbo.engine.entity.InstanceDataPO;
+import com.didiglobal.turbo.engine.entity.NodeInstancePO;
+import com.didiglobal.turbo.engine.exception.ProcessException;
+import com.didiglobal.turbo.engine.exception.SuspendException;
+import com.didiglobal.turbo.engine.model.FlowElement;
+import com.didiglobal.turbo.engine.model.InstanceData;
+import com.didiglobal.turbo.engine.util.FlowModelUtil;
+import com.google.common.collect.Lists;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * ParallelGateway: a fork takes all of its outgoings, a join waits for all of its incomings.
+ * <p>
+ * feature e.g.
+ * 1.The branches of a fork run concurrently on a bounded pool, each in a fork of the {@link UnitOfWork} with its own
+ * runtimeContext, until they suspend on a userTask or callActivity, or reach a join
+ * 2.An arrival at a join is saved as an ACTIVE nodeInstance of the join, which waits for the other incomings across
+ * calls. Once all of them arrive, the arrivals are COMPLETED, the changes of each branch against the data at the fork
+ * are merged in the order they arrived, the last one winning a key changed by several, and the flowInstance goes on
+ * from the last arrival
+ * 3.While any branch suspends, the call suspends on the first one, the tasks of the other branches stay ACTIVE and are
+ * committed by their own taskInstanceId
+ * 4.Rolling back over a join makes the other arrivals wait again, rolling back over a fork is rejected
+ */
+@Service
+public class ParallelGatewayExecutor extends ElementExecutor implements InitializingBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelGatewayExecutor.class);
+
+    @Resource
+    private UnitOfWork unitOfWork;
+
+    @Value("${turbo.parallelGateway.threads:16}")
+    private int threads = 16;
+
+    @Value("${turbo.parallelGateway.queueSize:1024}")
+    private int queueSize = 1024;
+
+    private ThreadPoolExecutor branchExecutor;
+
+    @Override
+    public void afterPropertiesSet() {
+        AtomicInteger threadCounter = new AtomicInteger();
+        branchExecutor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueSize),
+            runnable -> {
+                Thread thread = new Thread(runnable, "turbo-parallel-branch-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy());
+        branchExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (branchExecutor != null) {
+            branchExecutor.shutdownNow();
+        }
+    }
+
+    @Override
+    protected void doExecute(RuntimeContext runtimeContext) throws ProcessException {
+        NodeInstanceBO currentNodeInstance = runtimeContext.getCurrentNodeInstance();
+        FlowElement flowElement = runtimeContext.getCurrentNodeModel();
+        if (currentNodeInstance.getStatus() == NodeInstanceStatus.COMPLETED) {
+            // reentrant: the branches have been taken, the flowInstance waits on their tasks
+            LOGGER.warn("doExecute reentrant: parallelGateway is completed.||flowInstanceId={}||nodeInstanceId={}",
+                runtimeContext.getFlowInstanceId(), currentNodeInstance.getNodeInstanceId());
+            suspendWithActiveTask(runtimeContext);
+        }
+
+        if (FlowModelUtil.isParallelJoin(flowElement)) {
+            Arrival arrival = new Arrival(currentNodeInstance, runtimeContext.getInstanceDataMap());
+            if (!join(runtimeContext, flowElement, Collections.singletonList(arrival))) {
+                suspendWithActiveTask(runtimeContext);
+            }
+        } else {
+            currentNodeInstance.setStatus(NodeInstanceStatus.COMPLETED);
+            runtimeContext.getNodeInstanceList().add(currentNodeInstance);
+        }
+
+        // a join which is a fork as well takes its outgoings once all the incomings arrive
+        while (FlowModelUtil.isParallelFork(runtimeContext.getCurrentNodeModel())) {
+            fork(runtimeContext);
+        }
+    }
+
+    /**
+     * Run the branches of the fork in runtimeContext, and go on from the join they meet.
+     * runtimeContext is updated to the join, or suspended on the first suspended branch.
+     */
+    private void fork(RuntimeContext runtimeContext) throws ProcessException {
+        FlowElement forkElement = runtimeContext.getCurrentNodeModel();
+        // the branches only read the snapshot, select it on the calling thread within the transaction
+        getNodeInstanceSnapshot(runtimeContext);
+
+        List<Supplier<Branch>> works = new ArrayList<>(forkElement.getOutgoing().size());
+        for (String outgoingKey : forkElement.getOutgoing()) {
+            Branch branch = new Branch(buildBranchContext(runtimeContext, outgoingKey));
+            works.add(() -> runBranch(branch));
+        }
+        long startNanos = System.nanoTime();
+        List<Branch> branchList = unitOfWork.fork(works, branchExecutor);
+        engineMetrics.recordTime("parallelGateway.fork", startNanos);
+
+        Branch suspendedBranch = null;
+        ProcessException failure = null;
+        Map<String, List<Arrival>> arrivalMap = new LinkedHashMap<>();
+        for (Branch branch : branchList) {
+            RuntimeContext branchContext = branch.runtimeContext;
+            runtimeContext.getNodeInstanceList().addAll(branchContext.getNodeInstanceList());
+            if (branch.exception instanceof SuspendException) {
+                suspendedBranch = suspendedBranch == null ? branch : suspendedBranch;
+            } else if (branch.exception != null) {
+                failure = failure == null ? branch.exception : failure;
+            } else if (branch.joinElement != null) {
+                arrivalMap.computeIfAbsent(branch.joinElement.getKey(), key -> new ArrayList<>())
+                    .add(new Arrival(buildArrivalNodeInstance(branchContext), branchContext.getInstanceDataMap()));
+            }
+        }
+        LOGGER.info("fork branches.||flowInstanceId={}||nodeKey={}||branchCount={}||suspended={}||failed={}",
+            runtimeContext.getFlowInstanceId(), forkElement.getKey(), branchList.size(), suspendedBranch != null, failure != null);
+        if (failure != null) {
+            throw failure;
+        }
+
+        int joinedCount = 0;
+        for (Map.Entry<String, List<Arrival>> entry : arrivalMap.entrySet()) {
+            FlowElement joinElement = FlowModelUtil.getFlowElement(runtimeContext.getFlowElementMap(), entry.getKey());
+            if (join(runtimeContext, joinElement, entry.getValue())) {
+                joinedCount++;
+            }
+        }
+        // only one token goes on from the call: the branches of a fork have to meet at one join
+        if (joinedCount > 1 || (joinedCount == 1 && suspendedBranch != null)) {
+            LOGGER.warn("fork failed: branches go on from more than one node.||flowInstanceId={}||nodeKey={}",
+                runtimeContext.getFlowInstanceId(), forkElement.getKey());
+            throw new ProcessException(ErrorEnum.PARALLEL_JOIN_FAILED, MessageFormat.format(Constants.NODE_INFO_FORMAT,
+                forkElement.getKey(), FlowModelUtil.getElementName(forkElement), forkElement.getType()));
+        }
+        if (suspendedBranch != null) {
+            RuntimeContext branchContext = suspendedBranch.runtimeContext;
+            runtimeContext.setCurrentNodeInstance(branchContext.getCurrentNodeInstance());
+            runtimeContext.setInstanceDataId(branchContext.getInstanceDataId());
+            runtimeContext.setInstanceDataMap(branchContext.getInstanceDataMap());
+            runtimeContext.setCallActivityRuntimeResultList(branchContext.getCallActivityRuntimeResultList());
+            throw suspendedBranch.exception;
+        }
+        if (joinedCount == 0) {
+            suspendWithActiveTask(runtimeContext);
+        }
+    }
+
+    private RuntimeContext buildBranchContext(RuntimeContext runtimeContext, String outgoingKey) {
+        RuntimeContext branchContext = new RuntimeContext();
+        BeanUtils.copyProperties(runtimeContext, branchContext);
+        branchContext.setNodeInstanceList(Lists.newArrayList());
+        branchContext.setCurrentNodeModel(FlowModelUtil.getFlowElement(runtimeContext.getFlowElementMap(), outgoingKey));
+        VariableStore variableStore = VariableStore.of(runtimeContext.getInstanceDataMap());
+        branchContext.setInstanceDataMap(variableStore == null ? new VariableStore() : variableStore.copy());
+        // parsed instance data is cached per call, each branch keeps its own
+        branchContext.setInstanceDataSnapshot(null);
+        branchContext.setCallActivityRuntimeResultList(null);
+        return branchContext;
+    }
+
+    // run the branch until it suspends, fails or reaches a join, which is joined by the fork
+    private Branch runBranch(Branch branch) {
+        RuntimeContext branchContext = branch.runtimeContext;
+        try {
+            RuntimeExecutor runtimeExecutor = executorFactory.getElementExecutor(branchContext.getCurrentNodeModel());
+            while (runtimeExecutor != null) {
+                runtimeExecutor.execute(branchContext);
+                runtimeExecutor = runtimeExecutor.getExecuteExecutor(branchContext);
+                if (runtimeExecutor != null && FlowModelUtil.isParallelJoin(branchContext.getCurrentNodeModel())) {
+                    branch.joinElement = branchContext.getCurrentNodeModel();
+                    return branch;
+                }
+            }
+        } catch (ProcessException pe) {
+            branch.exception = pe;
+        }
+        return branch;
+    }
+
+    private NodeInstanceBO buildArrivalNodeInstance(RuntimeContext branchContext) {
+        NodeInstanceBO sourceNodeInstance = branchContext.getCurrentNodeInstance();
+        NodeInstanceBO arrivalNodeInstance = new NodeInstanceBO();
+        arrivalNodeInstance.setNodeInstanceId(genId());
+        arrivalNodeInstance.setNodeKey(branchContext.getCurrentNodeModel().getKey());
+        arrivalNodeInstance.setSourceNodeInstanceId(sourceNodeInstance.getNodeInstanceId());
+        arrivalNodeInstance.setSourceNodeKey(sourceNodeInstance.getNodeKey());
+        arrivalNodeInstance.setInstanceDataId(StringUtils.defaultString(branchContext.getInstanceDataId(), StringUtils.EMPTY));
+        arrivalNodeInstance.setStatus(NodeInstanceStatus.ACTIVE);
+        return arrivalNodeInstance;
+    }
+
+    /**
+     * Save the arrivals at the join, and complete the join while all the incomings have arrived.
+     *
+     * @param arrivals new arrivals, the earlier ones are ACTIVE nodeInstances of the join
+     * @return false while the join is still waiting, otherwise runtimeContext is updated to the last arrival
+     */
+    private boolean join(RuntimeContext runtimeContext, FlowElement joinElement, List<Arrival> arrivals) throws ProcessException {
+        String joinKey = joinElement.getKey();
+        Set<String> arrivalIds = arrivals.stream().map(arrival -> arrival.nodeInstance.getNodeInstanceId()).collect(Collectors.toSet());
+        List<NodeInstanceBO> waitingList = getLatestNodeInstances(runtimeContext, joinKey::equals).stream()
+            .filter(nodeInstance -> nodeInstance.getStatus() == NodeInstanceStatus.ACTIVE)
+            .filter(nodeInstance -> !arrivalIds.contains(nodeInstance.getNodeInstanceId()))
+            .collect(Collectors.toList());
+        List<NodeInstanceBO> nodeInstanceList = runtimeContext.getNodeInstanceList();
+        int arrivedCount = waitingList.size() + arrivals.size();
+        int incomingCount = joinElement.getIncoming().size();
+        if (arrivedCount < incomingCount) {
+            for (Arrival arrival : arrivals) {
+                arrival.nodeInstance.setStatus(NodeInstanceStatus.ACTIVE);
+                nodeInstanceList.add(arrival.nodeInstance);
+            }
+            LOGGER.info("join waiting.||flowInstanceId={}||nodeKey={}||arrivedCount={}||incomingCount={}",
+                runtimeContext.getFlowInstanceId(), joinKey, arrivedCount, incomingCount);
+            return false;
+        }
+
+        // merge data of the branches in the order they arrived, each by its changes against the data at the fork
+        NodeInstanceBO firstArrivalNodeInstance = waitingList.isEmpty() ? arrivals.get(0).nodeInstance : waitingList.get(0);
+        String forkInstanceDataId = getForkInstanceDataId(runtimeContext, firstArrivalNodeInstance);
+        List<String> prefetchIdList = waitingList.stream().map(NodeInstanceBO::getInstanceDataId).collect(Collectors.toList());
+        prefetchIdList.add(forkInstanceDataId);
+        prefetchInstanceData(runtimeContext, prefetchIdList);
+        List<Map<String, InstanceData>> arrivalDataList = new ArrayList<>(arrivedCount);
+        Set<String> instanceDataIds = new LinkedHashSet<>();
+        for (NodeInstanceBO waitingNodeInstance : waitingList) {
+            arrivalDataList.add(getInstanceDataMap(runtimeContext, waitingNodeInstance.getInstanceDataId()));
+            instanceDataIds.add(waitingNodeInstance.getInstanceDataId());
+            waitingNodeInstance.setStatus(NodeInstanceStatus.COMPLETED);
+            nodeInstanceList.add(waitingNodeInstance);
+        }
+        for (Arrival arrival : arrivals) {
+            arrivalDataList.add(arrival.instanceDataMap);
+            instanceDataIds.add(arrival.nodeInstance.getInstanceDataId());
+            arrival.nodeInstance.setStatus(NodeInstanceStatus.COMPLETED);
+            nodeInstanceList.add(arrival.nodeInstance);
+        }
+        Set<String> conflictKeys = new LinkedHashSet<>();
+        Map<String, InstanceData> joinDataMap = mergeArrivalData(getInstanceDataMap(runtimeContext, forkInstanceDataId),
+            arrivalDataList, conflictKeys);
+        if (!conflictKeys.isEmpty()) {
+            LOGGER.warn("join conflict: branches write different values of the same keys, the last arrival wins."
+                + "||flowInstanceId={}||nodeKey={}||conflictKeys={}", runtimeContext.getFlowInstanceId(), joinKey, conflictKeys);
+        }
+
+        NodeInstanceBO joinNodeInstance = arrivals.get(arrivals.size() - 1).nodeInstance;
+        runtimeContext.setCurrentNodeModel(joinElement);
+        runtimeContext.setCurrentNodeInstance(joinNodeInstance);
+        runtimeContext.setInstanceDataMap(joinDataMap);
+        runtimeContext.setInstanceDataId(joinNodeInstance.getInstanceDataId());
+        if (instanceDataIds.size() > 1) {
+            String instanceDataId = genId();
+            insertInstanceData(runtimeContext, buildJoinInstanceData(instanceDataId, runtimeContext), joinDataMap,
+                joinNodeInstance.getInstanceDataId());
+            joinNodeInstance.setInstanceDataId(instanceDataId);
+            runtimeContext.setInstanceDataId(instanceDataId);
+        }
+        LOGGER.info("join completed.||flowInstanceId={}||nodeKey={}||nodeInstanceId={}",
+            runtimeContext.getFlowInstanceId(), joinKey, joinNodeInstance.getNodeInstanceId());
+        return true;
+    }
+
+    /**
+     * Merge the data of the arrivals at a join. Each arrival applies the keys it added, changed or removed against the
+     * data at the fork, in the order they arrived, so a key left untouched by a branch keeps the value of the others.
+     * A key written by several arrivals with different values takes the value of the last one, and is a conflict.
+     *
+     * @param forkDataMap     the data at the fork, empty while it's unknown
+     * @param arrivalDataList the data of each arrival in the order they arrived
+     * @param conflictKeys    collects the keys of conflicts
+     */
+    static Map<String, InstanceData> mergeArrivalData(Map<String, InstanceData> forkDataMap,
+                                                      List<Map<String, InstanceData>> arrivalDataList, Set<String> conflictKeys) {
+        Map<String, InstanceData> joinDataMap = new VariableStore(forkDataMap);
+        // key -> json of the value written by an earlier arrival, null for removed
+        Map<String, String> writtenMap = new HashMap<>();
+        for (Map<String, InstanceData> arrivalDataMap : arrivalDataList) {
+            Map<String, InstanceData> changeMap = new LinkedHashMap<>();
+            arrivalDataMap.forEach((key, instanceData) -> {
+                InstanceData forkData = forkDataMap.get(key);
+                if (forkData == null || !JSON.toJSONString(forkData).equals(JSON.toJSONString(instanceData))) {
+                    changeMap.put(key, instanceData);
+                }
+            });
+            for (String key : forkDataMap.keySet()) {
+                if (!arrivalDataMap.containsKey(key)) {
+                    changeMap.put(key, null);
+                }
+            }
+            changeMap.forEach((key, instanceData) -> {
+                String json = instanceData == null ? null : JSON.toJSONString(instanceData);
+                if (writtenMap.containsKey(key) && !Objects.equals(writtenMap.get(key), json)) {
+                    conflictKeys.add(key);
+                }
+                writtenMap.put(key, json);
+                if (instanceData == null) {
+                    joinDataMap.remove(key);
+                } else {
+                    joinDataMap.put(key, instanceData);
+                }
+            });
+        }
+        return joinDataMap;
+    }
+
+    // the instanceDataId at the fork which the branch of the arrival is taken from, walking back over nested gateways
+    private String getForkInstanceDataId(RuntimeContext runtimeContext, NodeInstanceBO arrivalNodeInstance) {
+        Map<String, NodeInstanceBO> callNodeInstanceMap = new HashMap<>();
+        for (NodeInstanceBO nodeInstanceBO : runtimeContext.getNodeInstanceList()) {
+            callNodeInstanceMap.put(nodeInstanceBO.getNodeInstanceId(), nodeInstanceBO);
+        }
+        NodeInstanceSnapshot nodeInstanceSnapshot = getNodeInstanceSnapshot(runtimeContext);
+        Set<String> visitedIds = new HashSet<>();
+        int depth = 0;
+        String nodeInstanceId = arrivalNodeInstance.getSourceNodeInstanceId();
+        while (StringUtils.isNotBlank(nodeInstanceId) && visitedIds.add(nodeInstanceId)) {
+            NodeInstanceBO nodeInstance = callNodeInstanceMap.get(nodeInstanceId);
+            if (nodeInstance == null) {
+                NodeInstancePO nodeInstancePO = nodeInstanceSnapshot.get(nodeInstanceId);
+                if (nodeInstancePO == null) {
+                    break;
+                }
+                nodeInstance = new NodeInstanceBO();
+                BeanUtils.copyProperties(nodeInstancePO, nodeInstance);
+            }
+            FlowElement flowElement = runtimeContext.getFlowElementMap().get(nodeInstance.getNodeKey());
+            if (FlowModelUtil.isParallelFork(flowElement)) {
+                if (depth == 0) {
+                    return nodeInstance.getInstanceDataId();
+                }
+                depth--;
+            }
+            // walking back over a nested join enters the branches of its fork
+            if (FlowModelUtil.isParallelJoin(flowElement)) {
+                depth++;
+            }
+            nodeInstanceId = nodeInstance.getSourceNodeInstanceId();
+        }
+        LOGGER.warn("join: cannot find the fork of the branches, merge without the data at the fork."
+            + "||flowInstanceId={}||nodeInstanceId={}", runtimeContext.getFlowInstanceId(), arrivalNodeInstance.getNodeInstanceId());
+        return null;
+    }
+
+    private InstanceDataPO buildJoinInstanceData(String instanceDataId, RuntimeContext runtimeContext) {
+        InstanceDataPO instanceDataPO = new InstanceDataPO();
+        BeanUtils.copyProperties(runtimeContext, instanceDataPO);
+        instanceDataPO.setInstanceDataId(instanceDataId);
+        instanceDataCodecRegistry.setInstanceData(instanceDataPO, runtimeContext.getInstanceDataMap());
+        instanceDataPO.setNodeInstanceId(runtimeContext.getCurrentNodeInstance().getNodeInstanceId());
+        instanceDataPO.setNodeKey(runtimeContext.getCurrentNodeModel().getKey());
+        instanceDataPO.setType(InstanceDataType.EXECUTE);
+        instanceDataPO.setCreateTime(new Date());
+        return instanceDataPO;
+    }
+
+    // the call goes on from no branch: suspend on a task left ACTIVE by the other branches
+    private void suspendWithActiveTask(RuntimeContext runtimeContext) throws ProcessException {
+        Map<String, FlowElement> flowElementMap = runtimeContext.getFlowElementMap();
+        Predicate<String> isTask = nodeKey -> {
+            int elementType = FlowModelUtil.getElementType(nodeKey, flowElementMap);
+            return elementType == FlowElementType.USER_TASK || elementType == FlowElementType.CALL_ACTIVITY;
+        };
+        for (NodeInstanceBO nodeInstance : getLatestNodeInstances(runtimeContext, isTask)) {
+            if (nodeInstance.getStatus() == NodeInstanceStatus.ACTIVE) {
+                runtimeContext.setCurrentNodeInstance(nodeInstance);
+                FlowElement flowElement = FlowModelUtil.getFlowElement(flowElementMap, nodeInstance.getNodeKey());
+                throw new SuspendException(ErrorEnum.COMMIT_SUSPEND, MessageFormat.format(Constants.NODE_INSTANCE_FORMAT,
+                    flowElement.getKey(), FlowModelUtil.getElementName(flowElement), nodeInstance.getNodeInstanceId()));
+            }
+        }
+        FlowElement flowElement = runtimeContext.getCurrentNodeModel();
+        LOGGER.warn("suspend failed: no active task of the other branches.||flowInstanceId={}||nodeKey={}",
+            runtimeContext.getFlowInstanceId(), flowElement.getKey());
+        throw new ProcessException(ErrorEnum.PARALLEL_JOIN_FAILED, MessageFormat.format(Constants.NODE_INFO_FORMAT,
+            flowElement.getKey(), FlowModelUtil.getElementName(flowElement), flowElement.getType()));
+    }
+
+    // nodeInstances of the nodeKeys, saved ones updated by the ones processed in the call, in the order they're created
+    private List<NodeInstanceBO> getLatestNodeInstances(RuntimeContext runtimeContext, Predicate<String> nodeKeyFilter) {
+        Map<String, NodeInstanceBO> nodeInstanceMap = new LinkedHashMap<>();
+        for (NodeInstancePO nodeInstancePO : Lists.reverse(getNodeInstanceSnapshot(runtimeContext).getDescList())) {
+            if (nodeKeyFilter.test(nodeInstancePO.getNodeKey())) {
+                NodeInstanceBO nodeInstanceBO = new NodeInstanceBO();
+                BeanUtils.copyProperties(nodeInstancePO, nodeInstanceBO);
+                nodeInstanceMap.put(nodeInstanceBO.getNodeInstanceId(), nodeInstanceBO);
+            }
+        }
+        for (NodeInstanceBO nodeInstanceBO : runtimeContext.getNodeInstanceList()) {
+            if (nodeKeyFilter.test(nodeInstanceBO.getNodeKey())) {
+                nodeInstanceMap.put(nodeInstanceBO.getNodeInstanceId(), nodeInstanceBO);
+            }
+        }
+        return new ArrayList<>(nodeInstanceMap.values());
+    }
+
+    @Override
+    protected void doRollback(RuntimeContext runtimeContext) throws ProcessException {
+        FlowElement flowElement = runtimeContext.getCurrentNodeModel();
+        if (FlowModelUtil.isParallelFork(flowElement)) {
+            // the other branches may be running or joined, they're not rolled back with this one
+            LOGGER.warn("doRollback: cannot roll back over parallelGateway fork.||flowInstanceId={}||nodeKey={}",
+                runtimeContext.getFlowInstanceId(), flowElement.getKey());
+            throw new ProcessException(ErrorEnum.ROLLBACK_FAILED, MessageFormat.format(Constants.NODE_INFO_FORMAT,
+                flowElement.getKey(), FlowModelUtil.getElementName(flowElement), flowElement.getType()));
+        }
+        if (FlowModelUtil.isParallelJoin(flowElement)) {
+            rewaitOtherArrivals(runtimeContext, flowElement);
+        }
+    }
+
+    // the arrivals completed with the current one are the latest completed ones before it, they wait again
+    private void rewaitOtherArrivals(RuntimeContext runtimeContext, FlowElement joinElement) {
+        String currentNodeInstanceId = runtimeContext.getCurrentNodeInstance().getNodeInstanceId();
+        int otherCount = joinElement.getIncoming().size() - 1;
+        boolean found = false;
+        for (NodeInstancePO nodeInstancePO : getNodeInstanceSnapshot(runtimeContext).getDescList()) {
+            if (otherCount == 0) {
+                break;
+            }
+            if (!found) {
+                found = nodeInstancePO.getNodeInstanceId().equals(currentNodeInstanceId);
+                continue;
+            }
+            if (joinElement.getKey().equals(nodeInstancePO.getNodeKey()) && nodeInstancePO.getStatus() == NodeInstanceStatus.COMPLETED) {
+                NodeInstanceBO arrivalNodeInstance = new NodeInstanceBO();
+                BeanUtils.copyProperties(nodeInstancePO, arrivalNodeInstance);
+                arrivalNodeInstance.setStatus(NodeInstanceStatus.ACTIVE);
+                runtimeContext.getNodeInstanceList().add(arrivalNodeInstance);
+                otherCount--;
+            }
+        }
+    }
+
+    private static class Branch {
+        private final RuntimeContext runtimeContext;
+        private FlowElement joinElement;
+        private ProcessException exception;
+
+        private Branch(RuntimeContext runtimeContext) {
+            this.runtimeContext = runtimeContext;
+        }
+    }
+
+    private static class Arrival {
+        private final NodeInstanceBO nodeInstance;
+        private final Map<String, InstanceData> instanceDataMap;
+
+        private Arrival(NodeInstanceBO nodeInstance, Map<String, InstanceData> instanceDataMap) {
+            this.nodeInstance = nodeInstance;
+            this.instanceDataMap = instanceDataMap;
+        }
+    }
+}
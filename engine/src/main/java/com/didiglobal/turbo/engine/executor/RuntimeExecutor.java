@@ -1,19 +1,33 @@
 package com.didiglobal.turbo.engine.executor;
 
 
+import com.didiglobal.turbo.engine.bo.FlowGraph;
+import com.didiglobal.turbo.engine.bo.InstanceDataSnapshot;
+import com.didiglobal.turbo.engine.bo.NodeInstanceSnapshot;
+import com.didiglobal.turbo.engine.bo.VariableStore;
+import com.didiglobal.turbo.engine.common.ErrorEnum;
 import com.didiglobal.turbo.engine.common.RuntimeContext;
 import com.didiglobal.turbo.engine.dao.FlowInstanceMappingDAO;
 import com.didiglobal.turbo.engine.dao.InstanceDataDAO;
 import com.didiglobal.turbo.engine.dao.NodeInstanceDAO;
 import com.didiglobal.turbo.engine.dao.NodeInstanceLogDAO;
 import com.didiglobal.turbo.engine.dao.ProcessInstanceDAO;
+import com.didiglobal.turbo.engine.entity.InstanceDataPO;
 import com.didiglobal.turbo.engine.exception.ProcessException;
+import com.didiglobal.turbo.engine.model.InstanceData;
 import com.didiglobal.turbo.engine.util.IdGenerator;
+import com.didiglobal.turbo.engine.util.InstanceDataCodecRegistry;
 import com.didiglobal.turbo.engine.util.StrongUuidGenerator;
+import com.google.common.collect.Maps;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Resource;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 public abstract class RuntimeExecutor {
 
@@ -34,6 +48,9 @@ public abstract class RuntimeExecutor {
     @Resource
     protected NodeInstanceLogDAO nodeInstanceLogDAO;
 
+    @Resource
+    protected InstanceDataCodecRegistry instanceDataCodecRegistry;
+
     private static final IdGenerator ID_GENERATOR = new StrongUuidGenerator();
     @Resource
     protected FlowInstanceMappingDAO flowInstanceMappingDAO;
@@ -57,6 +74,88 @@ public abstract class RuntimeExecutor {
         return runtimeContext.getParentRuntimeContext() != null;
     }
 
+    protected FlowGraph getFlowGraph(RuntimeContext runtimeContext) {
+        FlowGraph flowGraph = runtimeContext.getFlowGraph();
+        if (flowGraph == null) {
+            // runtimeContext is not built from a cached deployment, compile it once
+            flowGraph = FlowGraph.compile(runtimeContext.getFlowElementMap());
+            runtimeContext.setFlowGraph(flowGraph);
+        }
+        return flowGraph;
+    }
+
+    /**
+     * Node instances of the flowInstance of runtimeContext, selected at the first lookup of the call.
+     */
+    protected NodeInstanceSnapshot getNodeInstanceSnapshot(RuntimeContext runtimeContext) {
+        String flowInstanceId = runtimeContext.getFlowInstanceId();
+        NodeInstanceSnapshot nodeInstanceSnapshot = runtimeContext.getNodeInstanceSnapshot();
+        if (nodeInstanceSnapshot == null || !nodeInstanceSnapshot.getFlowInstanceId().equals(flowInstanceId)) {
+            nodeInstanceSnapshot = new NodeInstanceSnapshot(flowInstanceId, nodeInstanceDAO.selectByFlowInstanceId(flowInstanceId));
+            runtimeContext.setNodeInstanceSnapshot(nodeInstanceSnapshot);
+        }
+        return nodeInstanceSnapshot;
+    }
+
+    /**
+     * Fetch the instance data not fetched yet in the call with one query, so that the following
+     * {@link #getInstanceDataMap} of them are answered from memory.
+     */
+    protected void prefetchInstanceData(RuntimeContext runtimeContext, Collection<String> instanceDataIds) {
+        InstanceDataSnapshot instanceDataSnapshot = getInstanceDataSnapshot(runtimeContext);
+        List<String> missingIdList = instanceDataIds.stream()
+            .filter(instanceDataId -> StringUtils.isNotBlank(instanceDataId) && !instanceDataSnapshot.contains(instanceDataId))
+            .distinct()
+            .collect(Collectors.toList());
+        if (missingIdList.isEmpty()) {
+            return;
+        }
+        instanceDataDAO.selectByInstanceDataIds(runtimeContext.getFlowInstanceId(), missingIdList, instanceDataSnapshot);
+    }
+
+    /**
+     * Get the parsed instance data of instanceDataId, fetched and parsed at most once in the call.
+     *
+     * @return a modifiable copy, empty while instanceDataId is blank
+     * @throws ProcessException GET_INSTANCE_DATA_FAILED while the instance data is not found
+     */
+    protected Map<String, InstanceData> getInstanceDataMap(RuntimeContext runtimeContext, String instanceDataId) throws ProcessException {
+        if (StringUtils.isBlank(instanceDataId)) {
+            return new VariableStore();
+        }
+        InstanceDataSnapshot instanceDataSnapshot = getInstanceDataSnapshot(runtimeContext);
+        if (!instanceDataSnapshot.contains(instanceDataId)) {
+            InstanceDataPO instanceDataPO = instanceDataDAO.select(runtimeContext.getFlowInstanceId(), instanceDataId, instanceDataSnapshot);
+            if (instanceDataPO == null) {
+                LOGGER.warn("getInstanceDataMap failed: cannot find instanceDataPO from db."
+                    + "||flowInstanceId={}||instanceDataId={}", runtimeContext.getFlowInstanceId(), instanceDataId);
+                throw new ProcessException(ErrorEnum.GET_INSTANCE_DATA_FAILED);
+            }
+        }
+        return instanceDataSnapshot.get(instanceDataId);
+    }
+
+    /**
+     * Insert the instance data derived from baseInstanceDataId, as a delta against the rows in the snapshot of the call
+     * while the checkpoint interval is enabled, see {@link InstanceDataDAO#insert(InstanceDataPO, Map, String, InstanceDataSnapshot)}.
+     *
+     * @return -1 while insert failed
+     */
+    protected int insertInstanceData(RuntimeContext runtimeContext, InstanceDataPO instanceDataPO,
+                                     Map<String, InstanceData> instanceDataMap, String baseInstanceDataId) {
+        return instanceDataDAO.insert(instanceDataPO, instanceDataMap, baseInstanceDataId, getInstanceDataSnapshot(runtimeContext));
+    }
+
+    private InstanceDataSnapshot getInstanceDataSnapshot(RuntimeContext runtimeContext) {
+        String flowInstanceId = runtimeContext.getFlowInstanceId();
+        InstanceDataSnapshot instanceDataSnapshot = runtimeContext.getInstanceDataSnapshot();
+        if (instanceDataSnapshot == null || !instanceDataSnapshot.getFlowInstanceId().equals(flowInstanceId)) {
+            instanceDataSnapshot = new InstanceDataSnapshot(flowInstanceId);
+            runtimeContext.setInstanceDataSnapshot(instanceDataSnapshot);
+        }
+        return instanceDataSnapshot;
+    }
+
     protected abstract RuntimeExecutor getExecuteExecutor(RuntimeContext runtimeContext) throws ProcessException;
 
     protected abstract RuntimeExecutor getRollbackExecutor(RuntimeContext runtimeContext) throws ProcessException;
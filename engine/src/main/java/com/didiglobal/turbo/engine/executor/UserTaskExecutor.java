@@ -1,5 +1,6 @@
 package com.didiglobal.turbo.engine.executor;
 
+import com.didiglobal.turbo.engine.bo.FlowGraph;
 import com.didiglobal.turbo.engine.bo.NodeInstanceBO;
 import com.didiglobal.turbo.engine.common.Constants;
 import com.didiglobal.turbo.engine.common.ErrorEnum;
@@ -15,7 +16,6 @@ import org.springframework.beans.BeanUtils;
 import org.springframework.stereotype.Service;
 
 import java.text.MessageFormat;
-import java.util.Map;
 
 @Service
 public class UserTaskExecutor extends ElementExecutor {
@@ -140,15 +140,15 @@ public class UserTaskExecutor extends ElementExecutor {
     @Override
     protected RuntimeExecutor getExecuteExecutor(RuntimeContext runtimeContext) throws ProcessException {
         FlowElement currentFlowElement = runtimeContext.getCurrentNodeModel();
-        Map<String, FlowElement> flowElementMap = runtimeContext.getFlowElementMap();
+        FlowGraph flowGraph = getFlowGraph(runtimeContext);
 
         FlowElement nextNode;
         if (currentFlowElement.getOutgoing().size() == 1) {
             //case1. unique outgoing
-            nextNode = getUniqueNextNode(currentFlowElement, flowElementMap);
+            nextNode = getUniqueNextNode(currentFlowElement, flowGraph);
         } else {
             //case2. multiple outgoings and calculate the next node with instanceDataMap
-            nextNode = calculateNextNode(currentFlowElement, flowElementMap, runtimeContext.getInstanceDataMap());
+            nextNode = calculateNextNode(currentFlowElement, flowGraph, runtimeContext.getInstanceDataMap());
         }
         LOGGER.info("getExecuteExecutor.||nextNode={}||runtimeContext={}", nextNode, runtimeContext);
 
@@ -7,13 +7,13 @@ import com.didiglobal.turbo.engine.common.ErrorEnum;
 import com.didiglobal.turbo.engine.common.InstanceDataType;
 import com.didiglobal.turbo.engine.common.RuntimeContext;
 import com.didiglobal.turbo.engine.config.BusinessConfig;
-import com.didiglobal.turbo.engine.dao.FlowDeploymentDAO;
 import com.didiglobal.turbo.engine.entity.InstanceDataPO;
 import com.didiglobal.turbo.engine.exception.ProcessException;
 import com.didiglobal.turbo.engine.executor.ElementExecutor;
 import com.didiglobal.turbo.engine.model.FlowElement;
 import com.didiglobal.turbo.engine.model.InstanceData;
 import com.didiglobal.turbo.engine.processor.RuntimeProcessor;
+import com.didiglobal.turbo.engine.service.FlowDeploymentService;
 import com.didiglobal.turbo.engine.service.NodeInstanceService;
 import com.didiglobal.turbo.engine.util.InstanceDataUtil;
 import com.google.common.collect.Lists;
@@ -37,7 +37,7 @@ public abstract class AbstractCallActivityExecutor extends ElementExecutor {
     protected RuntimeProcessor runtimeProcessor;
 
     @Resource
-    protected FlowDeploymentDAO flowDeploymentDAO;
+    protected FlowDeploymentService flowDeploymentService;
 
     @Resource
     protected NodeInstanceService nodeInstanceService;
@@ -63,7 +63,7 @@ public abstract class AbstractCallActivityExecutor extends ElementExecutor {
         FlowElement currentNodeModel = runtimeContext.getCurrentNodeModel();
 
         InstanceDataPO instanceDataPO = instanceDataDAO.select(runtimeContext.getFlowInstanceId(), runtimeContext.getInstanceDataId());
-        Map<String, InstanceData> mainInstanceDataMap = InstanceDataUtil.getInstanceDataMap(instanceDataPO.getInstanceData());
+        Map<String, InstanceData> mainInstanceDataMap = instanceDataCodecRegistry.getInstanceDataMap(instanceDataPO);
 
         return calculateCallActivityDataTransfer(currentNodeModel, mainInstanceDataMap,
             Constants.ELEMENT_PROPERTIES.CALL_ACTIVITY_IN_PARAM_TYPE,
@@ -113,7 +113,7 @@ public abstract class AbstractCallActivityExecutor extends ElementExecutor {
         InstanceDataPO instanceDataPO = new InstanceDataPO();
         BeanUtils.copyProperties(runtimeContext, instanceDataPO);
         instanceDataPO.setInstanceDataId(instanceDataId);
-        instanceDataPO.setInstanceData(InstanceDataUtil.getInstanceDataListStr(runtimeContext.getInstanceDataMap()));
+        instanceDataCodecRegistry.setInstanceData(instanceDataPO, runtimeContext.getInstanceDataMap());
         instanceDataPO.setNodeInstanceId(runtimeContext.getCurrentNodeInstance().getNodeInstanceId());
         instanceDataPO.setNodeKey(runtimeContext.getCurrentNodeModel().getKey());
         instanceDataPO.setType(InstanceDataType.UPDATE);
@@ -0,0 +1,278 @@
+package com.didiglobal.turbo.engine.executor.callactivity;
+
+import com.alibaba.fastjson.JSON;
+import com.didiglobal.turbo.engine.bo.NodeInstanceBO;
+import com.didiglobal.turbo.engine.common.CallActivityTaskStatus;
+import com.didiglobal.turbo.engine.common.Constants;
+import com.didiglobal.turbo.engine.common.ErrorEnum;
+import com.didiglobal.turbo.engine.common.FlowInstanceStatus;
+import com.didiglobal.turbo.engine.common.NodeInstanceStatus;
+import com.didiglobal.turbo.engine.common.RuntimeContext;
+import com.didiglobal.turbo.engine.dao.CallActivityTaskDAO;
+import com.didiglobal.turbo.engine.entity.CallActivityTaskPO;
+import com.didiglobal.turbo.engine.entity.FlowInstanceMappingPO;
+import com.didiglobal.turbo.engine.entity.FlowInstancePO;
+import com.didiglobal.turbo.engine.entity.InstanceDataPO;
+import com.didiglobal.turbo.engine.entity.NodeInstancePO;
+import com.didiglobal.turbo.engine.exception.ProcessException;
+import com.didiglobal.turbo.engine.exception.SuspendException;
+import com.didiglobal.turbo.engine.model.FlowElement;
+import com.didiglobal.turbo.engine.model.InstanceData;
+import com.didiglobal.turbo.engine.param.CommitTaskParam;
+import com.didiglobal.turbo.engine.param.StartProcessParam;
+import com.didiglobal.turbo.engine.result.CommitTaskResult;
+import com.didiglobal.turbo.engine.result.RuntimeResult;
+import com.didiglobal.turbo.engine.result.StartProcessResult;
+import com.didiglobal.turbo.engine.util.FlowModelUtil;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Resource;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * CallActivityExecutor base on async and single instance mode
+ * <p>
+ * feature e.g.
+ * 1.Automatically suspend when executing to CallActivity node, as the sync mode
+ * 2.Committing the CallActivity node saves a task of the subFlowInstance to start, and suspends at once,
+ * so the latency of the commit doesn't depend on the subFlow
+ * 3.{@link CallActivityTaskWorker} starts the subFlowInstance in the background, and commits the CallActivity node
+ * again while the subFlowInstance reaches END, which transfers data from the subFlow and continues the MainFlow
+ * 4.Once the subFlowInstance is started, its tasks are committed and rolled back through the root flowInstance
+ * as the sync mode
+ */
+@Service
+public class AsyncSingleCallActivityExecutor extends SyncSingleCallActivityExecutor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncSingleCallActivityExecutor.class);
+
+    @Resource
+    private CallActivityTaskDAO callActivityTaskDAO;
+
+    @Resource
+    private CallActivityTaskWorker callActivityTaskWorker;
+
+    @Override
+    protected void startProcessCallActivity(RuntimeContext runtimeContext) throws ProcessException {
+        NodeInstanceBO currentNodeInstance = runtimeContext.getCurrentNodeInstance();
+        // 1.the subFlowInstance has been started: resume while it's END
+        FlowInstanceMappingPO flowInstanceMappingPO = flowInstanceMappingDAO.selectFlowInstanceMappingPO(runtimeContext.getFlowInstanceId(), currentNodeInstance.getNodeInstanceId());
+        if (flowInstanceMappingPO != null) {
+            resumeCallActivity(runtimeContext, flowInstanceMappingPO);
+            return;
+        }
+        // 2.check reentrant submit, a failed task is submitted again
+        CallActivityTaskPO callActivityTaskPO = callActivityTaskDAO.selectByNodeInstanceId(runtimeContext.getFlowInstanceId(), currentNodeInstance.getNodeInstanceId());
+        if (callActivityTaskPO != null && callActivityTaskPO.getStatus() != CallActivityTaskStatus.FAILED) {
+            LOGGER.info("callActivity task has been submitted.||flowInstanceId={}||nodeInstanceId={}||status={}",
+                runtimeContext.getFlowInstanceId(), currentNodeInstance.getNodeInstanceId(), callActivityTaskPO.getStatus());
+            throw new SuspendException(ErrorEnum.COMMIT_SUSPEND);
+        }
+        // 3.check CallActivity nested level
+        preCheckCallActivityNestedLevel(runtimeContext);
+
+        // 4.get flowModuleId
+        String callActivityFlowModuleId = runtimeContext.getCallActivityFlowModuleId();
+        runtimeContext.setCallActivityFlowModuleId(null); // avoid misuse
+        if (StringUtils.isBlank(callActivityFlowModuleId)) {
+            throw new ProcessException(ErrorEnum.PARAM_INVALID, "callActivityFlowModuleId is blank");
+        }
+        // 5.calculate variables and submit the task, which is started after the MainFlow commits
+        List<InstanceData> callActivityVariables = getCallActivityVariables(runtimeContext);
+        submitTask(runtimeContext, callActivityTaskPO, callActivityFlowModuleId, callActivityVariables);
+        callActivityTaskWorker.wakeUpAfterCommit();
+
+        FlowElement flowElement = runtimeContext.getCurrentNodeModel();
+        throw new SuspendException(ErrorEnum.COMMIT_SUSPEND, MessageFormat.format(Constants.NODE_INSTANCE_FORMAT,
+            flowElement.getKey(), FlowModelUtil.getElementName(flowElement), currentNodeInstance.getNodeInstanceId()));
+    }
+
+    @Override
+    protected void doRollback(RuntimeContext runtimeContext) throws ProcessException {
+        NodeInstanceBO currentNodeInstance = runtimeContext.getCurrentNodeInstance();
+        FlowInstanceMappingPO flowInstanceMappingPO = flowInstanceMappingDAO.selectFlowInstanceMappingPO(runtimeContext.getFlowInstanceId(), currentNodeInstance.getNodeInstanceId());
+        if (flowInstanceMappingPO != null) {
+            super.doRollback(runtimeContext);
+            return;
+        }
+        // the subFlowInstance is not started: cancel the task, unless it's being started
+        CallActivityTaskPO callActivityTaskPO = callActivityTaskDAO.selectByNodeInstanceId(runtimeContext.getFlowInstanceId(), currentNodeInstance.getNodeInstanceId());
+        if (callActivityTaskPO != null && callActivityTaskPO.getStatus() != CallActivityTaskStatus.FAILED
+            && !callActivityTaskDAO.cancel(callActivityTaskPO)) {
+            LOGGER.warn("callActivity rollback failed: the task is running.||flowInstanceId={}||nodeInstanceId={}",
+                runtimeContext.getFlowInstanceId(), currentNodeInstance.getNodeInstanceId());
+            throw new ProcessException(ErrorEnum.FLOW_INSTANCE_CONFLICT);
+        }
+        currentNodeInstance.setStatus(NodeInstanceStatus.DISABLED);
+    }
+
+    /**
+     * Run a claimed task in the current unit of work: start the subFlowInstance under the MainFlow,
+     * and resume the MainFlow while the subFlowInstance is END at once.
+     *
+     * @return the final status of the task
+     */
+    public int runTask(CallActivityTaskPO callActivityTaskPO) throws ProcessException {
+        String flowInstanceId = callActivityTaskPO.getFlowInstanceId();
+        String nodeInstanceId = callActivityTaskPO.getNodeInstanceId();
+        NodeInstancePO nodeInstancePO = nodeInstanceDAO.selectByNodeInstanceId(flowInstanceId, nodeInstanceId);
+        if (nodeInstancePO == null || nodeInstancePO.getStatus() != NodeInstanceStatus.ACTIVE) {
+            LOGGER.warn("runTask: callActivity node is not active.||flowInstanceId={}||nodeInstanceId={}", flowInstanceId, nodeInstanceId);
+            return CallActivityTaskStatus.CANCELED;
+        }
+        RuntimeContext runtimeContext = buildTaskRuntimeContext(callActivityTaskPO, nodeInstancePO);
+        if (runtimeContext == null) {
+            return CallActivityTaskStatus.CANCELED;
+        }
+
+        FlowInstanceMappingPO flowInstanceMappingPO = flowInstanceMappingDAO.selectFlowInstanceMappingPO(flowInstanceId, nodeInstanceId);
+        int subFlowInstanceStatus;
+        if (flowInstanceMappingPO == null) {
+            StartProcessParam startProcessParam = new StartProcessParam();
+            startProcessParam.setRuntimeContext(runtimeContext);
+            startProcessParam.setFlowModuleId(callActivityTaskPO.getSubFlowModuleId());
+            startProcessParam.setVariables(JSON.parseArray(callActivityTaskPO.getVariables(), InstanceData.class));
+            StartProcessResult startProcessResult = runtimeProcessor.startProcess(startProcessParam);
+            LOGGER.info("async callActivity startProcess.||startProcessParam={}||startProcessResult={}", startProcessParam, startProcessResult);
+            checkRuntimeResult(startProcessResult);
+            saveFlowInstanceMapping(runtimeContext, startProcessResult.getFlowInstanceId());
+            subFlowInstanceStatus = startProcessResult.getStatus();
+        } else {
+            // started by a former run which failed to finish the task
+            FlowInstancePO subFlowInstancePO = selectSubFlowInstance(flowInstanceMappingPO);
+            subFlowInstanceStatus = subFlowInstancePO.getStatus();
+        }
+
+        if (subFlowInstanceStatus == FlowInstanceStatus.END) {
+            // commit the CallActivity node through the root flowInstance
+            RuntimeContext rootRuntimeContext = runtimeContext;
+            while (rootRuntimeContext.getParentRuntimeContext() != null) {
+                rootRuntimeContext = rootRuntimeContext.getParentRuntimeContext();
+            }
+            CommitTaskParam commitTaskParam = new CommitTaskParam();
+            commitTaskParam.setFlowInstanceId(rootRuntimeContext.getFlowInstanceId());
+            commitTaskParam.setTaskInstanceId(nodeInstanceId);
+            CommitTaskResult commitTaskResult = runtimeProcessor.commit(commitTaskParam);
+            LOGGER.info("async callActivity resume.||commitTaskParam={}||commitTaskResult={}", commitTaskParam, commitTaskResult);
+            checkRuntimeResult(commitTaskResult);
+        }
+        return CallActivityTaskStatus.SUCCESS;
+    }
+
+    private void submitTask(RuntimeContext runtimeContext, CallActivityTaskPO failedTaskPO, String callActivityFlowModuleId,
+                            List<InstanceData> callActivityVariables) throws ProcessException {
+        if (failedTaskPO != null) {
+            failedTaskPO.setSubFlowModuleId(callActivityFlowModuleId);
+            failedTaskPO.setVariables(JSON.toJSONString(callActivityVariables));
+            if (!callActivityTaskDAO.resubmit(failedTaskPO)) {
+                throw new ProcessException(ErrorEnum.FLOW_INSTANCE_CONFLICT);
+            }
+            return;
+        }
+        NodeInstanceBO currentNodeInstance = runtimeContext.getCurrentNodeInstance();
+        CallActivityTaskPO callActivityTaskPO = new CallActivityTaskPO();
+        callActivityTaskPO.setFlowInstanceId(runtimeContext.getFlowInstanceId());
+        callActivityTaskPO.setNodeInstanceId(currentNodeInstance.getNodeInstanceId());
+        callActivityTaskPO.setNodeKey(currentNodeInstance.getNodeKey());
+        callActivityTaskPO.setSubFlowModuleId(callActivityFlowModuleId);
+        callActivityTaskPO.setVariables(JSON.toJSONString(callActivityVariables));
+        callActivityTaskPO.setStatus(CallActivityTaskStatus.PENDING);
+        callActivityTaskPO.setRetryCount(0);
+        callActivityTaskPO.setVersion(0);
+        callActivityTaskPO.setTenant(runtimeContext.getTenant());
+        callActivityTaskPO.setCaller(runtimeContext.getCaller());
+        Date now = new Date();
+        callActivityTaskPO.setNextRunTime(now);
+        callActivityTaskPO.setCreateTime(now);
+        callActivityTaskPO.setModifyTime(now);
+        if (callActivityTaskDAO.insert(callActivityTaskPO) != 1) {
+            throw new ProcessException(ErrorEnum.COMMIT_FAILED, "save callActivity task failed");
+        }
+    }
+
+    private void resumeCallActivity(RuntimeContext runtimeContext, FlowInstanceMappingPO flowInstanceMappingPO) throws ProcessException {
+        String subFlowInstanceId = flowInstanceMappingPO.getSubFlowInstanceId();
+        FlowInstancePO subFlowInstancePO = selectSubFlowInstance(flowInstanceMappingPO);
+        if (subFlowInstancePO.getStatus() != FlowInstanceStatus.END) {
+            handleReentrantSubFlowInstance(runtimeContext, flowInstanceMappingPO);
+            throw new SuspendException(ErrorEnum.COMMIT_SUSPEND);
+        }
+        // the commit of a CallActivity node carries no data of the MainFlow, which the data from the subFlow merges into
+        Map<String, InstanceData> instanceDataMap = getInstanceDataMap(runtimeContext, runtimeContext.getInstanceDataId());
+        instanceDataMap.putAll(runtimeContext.getInstanceDataMap());
+        runtimeContext.setInstanceDataMap(instanceDataMap);
+
+        InstanceDataPO subInstanceDataPO = instanceDataDAO.selectRecentOne(subFlowInstanceId);
+        RuntimeResult runtimeResult = new RuntimeResult(ErrorEnum.SUCCESS);
+        runtimeResult.setFlowInstanceId(subFlowInstanceId);
+        runtimeResult.setStatus(FlowInstanceStatus.END);
+        runtimeResult.setVariables(subInstanceDataPO == null ? new ArrayList<>() : instanceDataCodecRegistry.getInstanceDataList(subInstanceDataPO));
+        handleCallActivityResult(runtimeContext, runtimeResult);
+    }
+
+    // the mapping is saved with the subFlowInstance, so a missing one is a broken hierarchy, which is retried until FAILED
+    private FlowInstancePO selectSubFlowInstance(FlowInstanceMappingPO flowInstanceMappingPO) throws ProcessException {
+        FlowInstancePO subFlowInstancePO = processInstanceDAO.selectByFlowInstanceId(flowInstanceMappingPO.getSubFlowInstanceId());
+        if (subFlowInstancePO == null) {
+            LOGGER.warn("async callActivity: cannot find subFlowInstancePO from db.||flowInstanceId={}||nodeInstanceId={}||subFlowInstanceId={}",
+                flowInstanceMappingPO.getFlowInstanceId(), flowInstanceMappingPO.getNodeInstanceId(), flowInstanceMappingPO.getSubFlowInstanceId());
+            throw new ProcessException(ErrorEnum.GET_FLOW_INSTANCE_FAILED);
+        }
+        return subFlowInstancePO;
+    }
+
+    // the runtimeContext chain from the MainFlow up to the root flowInstance, null while any of them is terminated
+    private RuntimeContext buildTaskRuntimeContext(CallActivityTaskPO callActivityTaskPO, NodeInstancePO nodeInstancePO) throws ProcessException {
+        List<FlowInstancePO> flowInstancePOList = new ArrayList<>();
+        Set<String> flowInstanceIdSet = new HashSet<>();
+        String flowInstanceId = callActivityTaskPO.getFlowInstanceId();
+        while (StringUtils.isNotBlank(flowInstanceId) && flowInstanceIdSet.add(flowInstanceId)) {
+            FlowInstancePO flowInstancePO = processInstanceDAO.selectByFlowInstanceId(flowInstanceId);
+            if (flowInstancePO == null) {
+                LOGGER.warn("runTask failed: cannot find flowInstancePO from db.||flowInstanceId={}", flowInstanceId);
+                throw new ProcessException(ErrorEnum.GET_FLOW_INSTANCE_FAILED);
+            }
+            if (flowInstancePO.getStatus() == FlowInstanceStatus.TERMINATED) {
+                LOGGER.warn("runTask: flowInstance is terminated.||flowInstanceId={}", flowInstanceId);
+                return null;
+            }
+            flowInstancePOList.add(flowInstancePO);
+            flowInstanceId = flowInstancePO.getParentFlowInstanceId();
+        }
+
+        RuntimeContext runtimeContext = null;
+        for (int i = flowInstancePOList.size() - 1; i >= 0; i--) {
+            FlowInstancePO flowInstancePO = flowInstancePOList.get(i);
+            RuntimeContext tmpRuntimeContext = new RuntimeContext();
+            tmpRuntimeContext.setFlowInstanceId(flowInstancePO.getFlowInstanceId());
+            tmpRuntimeContext.setFlowDeployId(flowInstancePO.getFlowDeployId());
+            tmpRuntimeContext.setFlowModuleId(flowInstancePO.getFlowModuleId());
+            tmpRuntimeContext.setFlowInstanceStatus(flowInstancePO.getStatus());
+            tmpRuntimeContext.setTenant(flowInstancePO.getTenant());
+            tmpRuntimeContext.setCaller(flowInstancePO.getCaller());
+            tmpRuntimeContext.setParentRuntimeContext(runtimeContext);
+            runtimeContext = tmpRuntimeContext;
+        }
+        NodeInstanceBO currentNodeInstance = new NodeInstanceBO();
+        BeanUtils.copyProperties(nodeInstancePO, currentNodeInstance);
+        runtimeContext.setCurrentNodeInstance(currentNodeInstance);
+        return runtimeContext;
+    }
+
+    private void checkRuntimeResult(RuntimeResult runtimeResult) throws ProcessException {
+        int errCode = runtimeResult.getErrCode();
+        if (errCode != ErrorEnum.SUCCESS.getErrNo() && errCode != ErrorEnum.COMMIT_SUSPEND.getErrNo()) {
+            throw new ProcessException(errCode, runtimeResult.getErrMsg());
+        }
+    }
+}
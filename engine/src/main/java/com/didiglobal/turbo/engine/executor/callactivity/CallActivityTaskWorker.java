@@ -0,0 +1,242 @@
+package com.didiglobal.turbo.engine.executor.callactivity;
+
+import com.didiglobal.turbo.engine.common.CallActivityTaskStatus;
+import com.didiglobal.turbo.engine.dao.CallActivityTaskDAO;
+import com.didiglobal.turbo.engine.dao.UnitOfWork;
+import com.didiglobal.turbo.engine.entity.CallActivityTaskPO;
+import com.didiglobal.turbo.engine.exception.ProcessException;
+import com.didiglobal.turbo.engine.metrics.EngineMetrics;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Run the tasks of async callActivity nodes saved by {@link AsyncSingleCallActivityExecutor}.
+ * <p>
+ * One poller thread claims due tasks up to the free threads of the pool, every pollIntervalMillis and at once after a
+ * task is submitted on this node. Each task runs in one unit of work with the update of its status, so a task which
+ * fails leaves nothing behind, and is retried after retryIntervalMillis doubled per retry, until maxRetries.
+ * A claimed task is leased for leaseMillis, after which it is taken over by any engine node, e.g. while this one is down.
+ */
+@Component
+public class CallActivityTaskWorker implements InitializingBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CallActivityTaskWorker.class);
+
+    @Resource
+    private CallActivityTaskDAO callActivityTaskDAO;
+
+    @Resource
+    private AsyncSingleCallActivityExecutor asyncSingleCallActivityExecutor;
+
+    @Resource
+    private UnitOfWork unitOfWork;
+
+    @Resource
+    private EngineMetrics engineMetrics;
+
+    // tasks are still submitted while disabled, and run by the other nodes
+    @Value("${turbo.callActivity.async.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${turbo.callActivity.async.threads:8}")
+    private int threads = 8;
+
+    @Value("${turbo.callActivity.async.pollIntervalMillis:1000}")
+    private long pollIntervalMillis = 1000L;
+
+    @Value("${turbo.callActivity.async.leaseMillis:300000}")
+    private long leaseMillis = 300000L;
+
+    @Value("${turbo.callActivity.async.maxRetries:10}")
+    private int maxRetries = 10;
+
+    @Value("${turbo.callActivity.async.retryIntervalMillis:1000}")
+    private long retryIntervalMillis = 1000L;
+
+    private final AtomicInteger runningCount = new AtomicInteger();
+
+    private ScheduledExecutorService poller;
+
+    private ThreadPoolExecutor taskExecutor;
+
+    void init(CallActivityTaskDAO callActivityTaskDAO, AsyncSingleCallActivityExecutor asyncSingleCallActivityExecutor,
+              UnitOfWork unitOfWork, EngineMetrics engineMetrics) {
+        this.callActivityTaskDAO = callActivityTaskDAO;
+        this.asyncSingleCallActivityExecutor = asyncSingleCallActivityExecutor;
+        this.unitOfWork = unitOfWork;
+        this.engineMetrics = engineMetrics;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!enabled) {
+            LOGGER.info("callActivity task worker is disabled.");
+            return;
+        }
+        poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "turbo-call-activity-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger threadCounter = new AtomicInteger();
+        taskExecutor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+            runnable -> {
+                Thread thread = new Thread(runnable, "turbo-call-activity-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        taskExecutor.allowCoreThreadTimeOut(true);
+        poller.scheduleWithFixedDelay(this::pollSafely, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (poller != null) {
+            poller.shutdownNow();
+        }
+        if (taskExecutor != null) {
+            taskExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Poll at once after the current transaction commits, so a submitted task doesn't wait for the next poll.
+     */
+    public void wakeUpAfterCommit() {
+        if (poller == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    wakeUp();
+                }
+            });
+        } else {
+            wakeUp();
+        }
+    }
+
+    private void wakeUp() {
+        try {
+            poller.execute(this::pollSafely);
+        } catch (RejectedExecutionException e) {
+            // shut down
+        }
+    }
+
+    private void pollSafely() {
+        try {
+            poll();
+        } catch (RuntimeException e) {
+            LOGGER.error("poll callActivity tasks failed.", e);
+        }
+    }
+
+    private void poll() {
+        int freeThreads = threads - runningCount.get();
+        if (freeThreads <= 0) {
+            return;
+        }
+        Date now = new Date();
+        List<CallActivityTaskPO> callActivityTaskPOList = callActivityTaskDAO.selectDueList(now, freeThreads);
+        for (CallActivityTaskPO callActivityTaskPO : callActivityTaskPOList) {
+            if (!callActivityTaskDAO.claim(callActivityTaskPO, new Date(now.getTime() + leaseMillis))) {
+                continue;
+            }
+            runningCount.incrementAndGet();
+            try {
+                taskExecutor.execute(() -> {
+                    try {
+                        run(callActivityTaskPO);
+                    } finally {
+                        runningCount.decrementAndGet();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // shut down, the lease expires and the task is taken over
+                runningCount.decrementAndGet();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Run a claimed task, and finish it or release it to retry.
+     */
+    void run(CallActivityTaskPO callActivityTaskPO) {
+        long startNanos = System.nanoTime();
+        try {
+            int status = unitOfWork.execute(() -> {
+                int taskStatus = runTask(callActivityTaskPO);
+                if (!callActivityTaskDAO.finish(callActivityTaskPO, taskStatus, StringUtils.EMPTY)) {
+                    throw new IllegalStateException("the lease of the task has been taken over");
+                }
+                return taskStatus;
+            });
+            LOGGER.info("run callActivity task.||flowInstanceId={}||nodeInstanceId={}||status={}",
+                callActivityTaskPO.getFlowInstanceId(), callActivityTaskPO.getNodeInstanceId(), status);
+        } catch (RuntimeException e) {
+            LOGGER.warn("run callActivity task failed.||flowInstanceId={}||nodeInstanceId={}||retryCount={}",
+                callActivityTaskPO.getFlowInstanceId(), callActivityTaskPO.getNodeInstanceId(), callActivityTaskPO.getRetryCount(), e);
+            engineMetrics.increment("callActivityTask.failure");
+            retryOrFail(callActivityTaskPO, e);
+        } finally {
+            engineMetrics.recordTime("callActivityTask.run", startNanos);
+        }
+    }
+
+    private int runTask(CallActivityTaskPO callActivityTaskPO) {
+        try {
+            return asyncSingleCallActivityExecutor.runTask(callActivityTaskPO);
+        } catch (ProcessException e) {
+            throw new IllegalStateException(e.getErrNo() + ": " + e.getErrMsg(), e);
+        }
+    }
+
+    private void retryOrFail(CallActivityTaskPO callActivityTaskPO, RuntimeException cause) {
+        int retryCount = callActivityTaskPO.getRetryCount() == null ? 0 : callActivityTaskPO.getRetryCount();
+        String errMsg = cause.getMessage();
+        try {
+            boolean updated;
+            if (retryCount >= maxRetries) {
+                LOGGER.error("callActivity task failed: too many retries.||flowInstanceId={}||nodeInstanceId={}||errMsg={}",
+                    callActivityTaskPO.getFlowInstanceId(), callActivityTaskPO.getNodeInstanceId(), errMsg);
+                updated = callActivityTaskDAO.finish(callActivityTaskPO, CallActivityTaskStatus.FAILED, errMsg);
+                if (updated) {
+                    engineMetrics.increment("callActivityTask.failed");
+                }
+            } else {
+                long delayMillis = Math.min(retryIntervalMillis << Math.min(retryCount, 20), leaseMillis);
+                updated = callActivityTaskDAO.retryLater(callActivityTaskPO, new Date(System.currentTimeMillis() + delayMillis), errMsg);
+            }
+            if (!updated) {
+                LOGGER.warn("release callActivity task failed: the lease has been taken over.||flowInstanceId={}||nodeInstanceId={}",
+                    callActivityTaskPO.getFlowInstanceId(), callActivityTaskPO.getNodeInstanceId());
+            }
+        } catch (RuntimeException e) {
+            // the task is retried while the lease expires
+            LOGGER.error("release callActivity task failed.||flowInstanceId={}||nodeInstanceId={}",
+                callActivityTaskPO.getFlowInstanceId(), callActivityTaskPO.getNodeInstanceId(), e);
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package com.didiglobal.turbo.engine.executor.callactivity;
+
+import com.alibaba.fastjson.JSON;
+import com.didiglobal.turbo.engine.bo.NodeInstanceBO;
+import com.didiglobal.turbo.engine.common.Constants;
+import com.didiglobal.turbo.engine.common.ErrorEnum;
+import com.didiglobal.turbo.engine.common.FlowInstanceMappingType;
+import com.didiglobal.turbo.engine.common.FlowInstanceStatus;
+import com.didiglobal.turbo.engine.common.NodeInstanceStatus;
+import com.didiglobal.turbo.engine.common.RuntimeContext;
+import com.didiglobal.turbo.engine.dao.UnitOfWork;
+import com.didiglobal.turbo.engine.entity.FlowInstanceMappingPO;
+import com.didiglobal.turbo.engine.entity.FlowInstancePO;
+import com.didiglobal.turbo.engine.entity.InstanceDataPO;
+import com.didiglobal.turbo.engine.entity.NodeInstancePO;
+import com.didiglobal.turbo.engine.exception.ProcessException;
+import com.didiglobal.turbo.engine.exception.SuspendException;
+import com.didiglobal.turbo.engine.model.FlowElement;
+import com.didiglobal.turbo.engine.model.InstanceData;
+import com.didiglobal.turbo.engine.param.CommitTaskParam;
+import com.didiglobal.turbo.engine.param.RollbackTaskParam;
+import com.didiglobal.turbo.engine.param.StartProcessParam;
+import com.didiglobal.turbo.engine.result.CommitTaskResult;
+import com.didiglobal.turbo.engine.result.RollbackTaskResult;
+import com.didiglobal.turbo.engine.result.RuntimeResult;
+import com.didiglobal.turbo.engine.result.StartProcessResult;
+import com.didiglobal.turbo.engine.util.InstanceDataUtil;
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * CallActivityExecutor base on sync and multiple instance mode
+ * <p>
+ * feature e.g.
+ * 1.Committing the CallActivity node starts one subFlowInstance per element of the list in the main data named by
+ * callActivityMultiInstanceCollection, with the element as the variable named by callActivityMultiInstanceElement
+ * 2.The subFlowInstances run their straight-through part concurrently on a bounded pool, in forks of the
+ * {@link UnitOfWork}, so their rows and the mappings are written with multi-row statements in the transaction of the call
+ * 3.The CallActivity node completes once callActivityMultiInstanceCompletionCount subFlowInstances reach END, all of
+ * them by default: the others are terminated, and each out param becomes a list of the values of the END
+ * subFlowInstances, in the order of the collection
+ * 4.Tasks of the subFlowInstances are committed through the MainFlow as the single instance mode, and the
+ * subFlowInstance of a task is found by the nodeInstanceId
+ * 5.Rolling back a subFlowInstance past its StartNode, or the MainFlow past the CallActivity node, terminates all the
+ * subFlowInstances of the node
+ */
+@Service
+public class SyncMultipleCallActivityExecutor extends SyncSingleCallActivityExecutor implements InitializingBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SyncMultipleCallActivityExecutor.class);
+
+    @Resource
+    private UnitOfWork unitOfWork;
+
+    @Value("${turbo.callActivity.multiInstance.threads:16}")
+    private int threads = 16;
+
+    @Value("${turbo.callActivity.multiInstance.queueSize:1024}")
+    private int queueSize = 1024;
+
+    private ThreadPoolExecutor subFlowExecutor;
+
+    @Override
+    public void afterPropertiesSet() {
+        AtomicInteger threadCounter = new AtomicInteger();
+        subFlowExecutor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueSize),
+            runnable -> {
+                Thread thread = new Thread(runnable, "turbo-multi-instance-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy());
+        subFlowExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (subFlowExecutor != null) {
+            subFlowExecutor.shutdownNow();
+        }
+    }
+
+    @Override
+    protected void startProcessCallActivity(RuntimeContext runtimeContext) throws ProcessException {
+        NodeInstanceBO currentNodeInstance = runtimeContext.getCurrentNodeInstance();
+        // 1.check reentrant execute
+        List<FlowInstanceMappingPO> flowInstanceMappingList = selectExecuteMappingList(runtimeContext);
+        if (!flowInstanceMappingList.isEmpty()) {
+            List<String> subFlowInstanceIds = getSubFlowInstanceIds(flowInstanceMappingList);
+            if (!joinSubFlowInstances(runtimeContext, subFlowInstanceIds, new LinkedHashMap<>())) {
+                suspendWithFirstUserTasks(runtimeContext, subFlowInstanceIds);
+            }
+            return;
+        }
+        // 2.check CallActivity nested level
+        preCheckCallActivityNestedLevel(runtimeContext);
+
+        // 3.get flowModuleId
+        String callActivityFlowModuleId = runtimeContext.getCallActivityFlowModuleId();
+        runtimeContext.setCallActivityFlowModuleId(null); // avoid misuse
+        // 4.calculate variables per element of the collection
+        List<Object> collection = getCollection(runtimeContext);
+        String elementKey = (String) runtimeContext.getCurrentNodeModel().getProperties().getOrDefault(
+            Constants.ELEMENT_PROPERTIES.CALL_ACTIVITY_MULTI_INSTANCE_ELEMENT, Constants.CALL_ACTIVITY_INSTANCE_TYPE.DEFAULT_ELEMENT);
+        List<InstanceData> callActivityVariables = getCallActivityVariables(runtimeContext);
+
+        // 5.start the subFlowInstances concurrently
+        List<Supplier<StartProcessResult>> works = new ArrayList<>(collection.size());
+        for (Object element : collection) {
+            List<InstanceData> variables = new ArrayList<>(callActivityVariables);
+            variables.removeIf(instanceData -> elementKey.equals(instanceData.getKey()));
+            variables.add(new InstanceData(elementKey, element));
+
+            StartProcessParam startProcessParam = new StartProcessParam();
+            startProcessParam.setRuntimeContext(runtimeContext);
+            startProcessParam.setFlowModuleId(callActivityFlowModuleId);
+            startProcessParam.setVariables(variables);
+            works.add(() -> runtimeProcessor.startProcess(startProcessParam));
+        }
+        long startNanos = System.nanoTime();
+        List<StartProcessResult> startProcessResultList = unitOfWork.fork(works, subFlowExecutor);
+        engineMetrics.recordTime("callActivity.multiInstance.start", startNanos);
+        LOGGER.info("callActivity startProcess multiple.||flowInstanceId={}||nodeInstanceId={}||count={}",
+            runtimeContext.getFlowInstanceId(), currentNodeInstance.getNodeInstanceId(), startProcessResultList.size());
+
+        // 6.save flowInstance mappings
+        List<FlowInstanceMappingPO> newFlowInstanceMappingList = new ArrayList<>(startProcessResultList.size());
+        Map<String, RuntimeResult> runtimeResultMap = new LinkedHashMap<>();
+        for (StartProcessResult startProcessResult : startProcessResultList) {
+            newFlowInstanceMappingList.add(buildFlowInstanceMappingPO(runtimeContext, startProcessResult.getFlowInstanceId()));
+            runtimeResultMap.put(startProcessResult.getFlowInstanceId(), startProcessResult);
+        }
+        flowInstanceMappingDAO.insertList(newFlowInstanceMappingList);
+        for (StartProcessResult startProcessResult : startProcessResultList) {
+            checkSubFlowResult(startProcessResult);
+        }
+        if (!joinSubFlowInstances(runtimeContext, new ArrayList<>(runtimeResultMap.keySet()), runtimeResultMap)) {
+            suspend(runtimeContext, runtimeResultMap.values().stream()
+                .filter(runtimeResult -> runtimeResult.getErrCode() != ErrorEnum.SUCCESS.getErrNo())
+                .collect(Collectors.toList()));
+        }
+    }
+
+    @Override
+    protected void commitCallActivity(RuntimeContext runtimeContext) throws ProcessException {
+        List<FlowInstanceMappingPO> flowInstanceMappingList = selectExecuteMappingList(runtimeContext);
+        String taskInstanceId = runtimeContext.getSuspendNodeInstanceStack().pop();
+        String subFlowInstanceId = getSubFlowInstanceId(flowInstanceMappingList, taskInstanceId);
+
+        CommitTaskParam commitTaskParam = new CommitTaskParam();
+        commitTaskParam.setRuntimeContext(runtimeContext);
+        commitTaskParam.setFlowInstanceId(subFlowInstanceId);
+        commitTaskParam.setTaskInstanceId(taskInstanceId);
+        commitTaskParam.setVariables(InstanceDataUtil.getInstanceDataList(runtimeContext.getInstanceDataMap()));
+        // transparent transmission callActivity param
+        commitTaskParam.setCallActivityFlowModuleId(runtimeContext.getCallActivityFlowModuleId());
+        runtimeContext.setCallActivityFlowModuleId(null); // avoid misuse
+
+        CommitTaskResult commitTaskResult = runtimeProcessor.commit(commitTaskParam);
+        LOGGER.info("callActivity commit.||commitTaskParam={}||commitTaskResult={}", commitTaskParam, commitTaskResult);
+        checkSubFlowResult(commitTaskResult);
+
+        Map<String, RuntimeResult> runtimeResultMap = new LinkedHashMap<>();
+        runtimeResultMap.put(subFlowInstanceId, commitTaskResult);
+        if (!joinSubFlowInstances(runtimeContext, getSubFlowInstanceIds(flowInstanceMappingList), runtimeResultMap)) {
+            // the other subFlowInstances are suspended as they were
+            suspend(runtimeContext, Collections.singletonList(commitTaskResult));
+        }
+    }
+
+    @Override
+    protected void doRollback(RuntimeContext runtimeContext) throws ProcessException {
+        NodeInstanceBO currentNodeInstance = runtimeContext.getCurrentNodeInstance();
+        List<FlowInstanceMappingPO> flowInstanceMappingList = selectExecuteMappingList(runtimeContext);
+        if (CollectionUtils.isEmpty(runtimeContext.getSuspendNodeInstanceStack())) {
+            // rollback the MainFlow past the CallActivity node
+            terminateSubFlowInstances(runtimeContext, flowInstanceMappingList);
+            return;
+        }
+        String taskInstanceId = runtimeContext.getSuspendNodeInstanceStack().pop();
+        RollbackTaskParam rollbackTaskParam = new RollbackTaskParam();
+        rollbackTaskParam.setRuntimeContext(runtimeContext);
+        rollbackTaskParam.setFlowInstanceId(getSubFlowInstanceId(flowInstanceMappingList, taskInstanceId));
+        rollbackTaskParam.setTaskInstanceId(taskInstanceId);
+        RollbackTaskResult rollbackTaskResult = runtimeProcessor.rollback(rollbackTaskParam);
+        LOGGER.info("callActivity rollback.||rollbackTaskParam={}||rollbackTaskResult={}", rollbackTaskParam, rollbackTaskResult);
+        checkSubFlowResult(rollbackTaskResult);
+        if (rollbackTaskResult.getErrCode() == ErrorEnum.SUCCESS.getErrNo()) {
+            if (rollbackTaskResult.getStatus() == FlowInstanceStatus.TERMINATED) {
+                // The subFlow rollback from the StartNode to the MainFlow
+                terminateSubFlowInstances(runtimeContext, flowInstanceMappingList);
+            }
+            return;
+        }
+        currentNodeInstance.setStatus(NodeInstanceStatus.ACTIVE);
+        runtimeContext.setCallActivityRuntimeResultList(Collections.singletonList(rollbackTaskResult));
+        throw new SuspendException(ErrorEnum.getErrorEnum(rollbackTaskResult.getErrCode()));
+    }
+
+    private List<FlowInstanceMappingPO> selectExecuteMappingList(RuntimeContext runtimeContext) {
+        List<FlowInstanceMappingPO> flowInstanceMappingList = flowInstanceMappingDAO.selectFlowInstanceMappingPOList(
+            runtimeContext.getFlowInstanceId(), runtimeContext.getCurrentNodeInstance().getNodeInstanceId());
+        return flowInstanceMappingList.stream()
+            .filter(flowInstanceMappingPO -> flowInstanceMappingPO.getType() == FlowInstanceMappingType.EXECUTE)
+            .collect(Collectors.toList());
+    }
+
+    private static List<String> getSubFlowInstanceIds(List<FlowInstanceMappingPO> flowInstanceMappingList) {
+        return flowInstanceMappingList.stream()
+            .map(FlowInstanceMappingPO::getSubFlowInstanceId)
+            .collect(Collectors.toList());
+    }
+
+    // node_instance_id is unique, the flowInstanceId of the nodeInstance tells which subFlowInstance it belongs to
+    private String getSubFlowInstanceId(List<FlowInstanceMappingPO> flowInstanceMappingList, String nodeInstanceId) throws ProcessException {
+        NodeInstancePO nodeInstancePO = nodeInstanceDAO.selectByNodeInstanceId(null, nodeInstanceId);
+        if (nodeInstancePO != null) {
+            for (FlowInstanceMappingPO flowInstanceMappingPO : flowInstanceMappingList) {
+                if (flowInstanceMappingPO.getSubFlowInstanceId().equals(nodeInstancePO.getFlowInstanceId())) {
+                    return flowInstanceMappingPO.getSubFlowInstanceId();
+                }
+            }
+        }
+        LOGGER.warn("callActivity did not find the subFlowInstance of the nodeInstance.||nodeInstanceId={}", nodeInstanceId);
+        throw new ProcessException(ErrorEnum.GET_NODE_INSTANCE_FAILED);
+    }
+
+    private List<Object> getCollection(RuntimeContext runtimeContext) throws ProcessException {
+        String collectionKey = (String) runtimeContext.getCurrentNodeModel().getProperties()
+            .get(Constants.ELEMENT_PROPERTIES.CALL_ACTIVITY_MULTI_INSTANCE_COLLECTION);
+        InstanceData instanceData = runtimeContext.getInstanceDataMap().get(collectionKey);
+        Object value = instanceData == null ? null : instanceData.getValue();
+        if (value instanceof Collection) {
+            return new ArrayList<>((Collection<?>) value);
+        }
+        if (value instanceof String && StringUtils.startsWith(StringUtils.trim((String) value), "[")) {
+            return JSON.parseArray((String) value);
+        }
+        LOGGER.warn("callActivity collection is not a list.||flowInstanceId={}||collectionKey={}||value={}",
+            runtimeContext.getFlowInstanceId(), collectionKey, value);
+        throw new ProcessException(ErrorEnum.MISSING_DATA, collectionKey + " is not a list");
+    }
+
+    private static void checkSubFlowResult(RuntimeResult runtimeResult) throws ProcessException {
+        ErrorEnum errorEnum = ErrorEnum.getErrorEnum(runtimeResult.getErrCode());
+        if (errorEnum != ErrorEnum.SUCCESS && errorEnum != ErrorEnum.COMMIT_SUSPEND && errorEnum != ErrorEnum.ROLLBACK_SUSPEND) {
+            throw new ProcessException(errorEnum);
+        }
+    }
+
+    /**
+     * Complete the CallActivity node while enough subFlowInstances are END.
+     *
+     * @param subFlowInstanceIds all the subFlowInstances, in the order of the collection
+     * @param runtimeResultMap   results of the subFlowInstances run by this call, the others are selected
+     * @return false while the node is still waiting
+     */
+    private boolean joinSubFlowInstances(RuntimeContext runtimeContext, List<String> subFlowInstanceIds,
+                                         Map<String, RuntimeResult> runtimeResultMap) throws ProcessException {
+        Map<String, Integer> statusMap = new LinkedHashMap<>();
+        if (runtimeResultMap.size() < subFlowInstanceIds.size()) {
+            for (FlowInstancePO flowInstancePO : processInstanceDAO.selectByFlowInstanceIds(subFlowInstanceIds)) {
+                statusMap.put(flowInstancePO.getFlowInstanceId(), flowInstancePO.getStatus());
+            }
+        }
+        runtimeResultMap.forEach((subFlowInstanceId, runtimeResult) -> statusMap.put(subFlowInstanceId, runtimeResult.getStatus()));
+
+        List<String> endSubFlowInstanceIds = subFlowInstanceIds.stream()
+            .filter(subFlowInstanceId -> Integer.valueOf(FlowInstanceStatus.END).equals(statusMap.get(subFlowInstanceId)))
+            .collect(Collectors.toList());
+        int completionCount = getCompletionCount(runtimeContext, subFlowInstanceIds.size());
+        if (endSubFlowInstanceIds.size() < completionCount) {
+            return false;
+        }
+        // the quorum is reached: the others won't be waited for
+        for (String subFlowInstanceId : subFlowInstanceIds) {
+            Integer status = statusMap.get(subFlowInstanceId);
+            if (status != null && status == FlowInstanceStatus.RUNNING) {
+                runtimeProcessor.terminateProcess(subFlowInstanceId, true);
+            }
+        }
+        saveMultiInstanceEndInstanceData(runtimeContext, endSubFlowInstanceIds, runtimeResultMap);
+        runtimeContext.getCurrentNodeInstance().setStatus(NodeInstanceStatus.COMPLETED);
+        return true;
+    }
+
+    private static int getCompletionCount(RuntimeContext runtimeContext, int instanceCount) {
+        Object completionCount = runtimeContext.getCurrentNodeModel().getProperties()
+            .get(Constants.ELEMENT_PROPERTIES.CALL_ACTIVITY_MULTI_INSTANCE_COMPLETION_COUNT);
+        if (completionCount == null) {
+            return instanceCount;
+        }
+        return Math.min(NumberUtils.toInt(completionCount.toString(), instanceCount), instanceCount);
+    }
+
+    // each out param of the MainFlow is the list of the values of the END subFlowInstances
+    private void saveMultiInstanceEndInstanceData(RuntimeContext runtimeContext, List<String> endSubFlowInstanceIds,
+                                                  Map<String, RuntimeResult> runtimeResultMap) throws ProcessException {
+        Map<String, List<Object>> outParamMap = new LinkedHashMap<>();
+        for (String subFlowInstanceId : endSubFlowInstanceIds) {
+            List<InstanceData> subFlowVariables;
+            if (runtimeResultMap.containsKey(subFlowInstanceId)) {
+                subFlowVariables = runtimeResultMap.get(subFlowInstanceId).getVariables();
+            } else {
+                InstanceDataPO subInstanceDataPO = instanceDataDAO.selectRecentOne(subFlowInstanceId);
+                subFlowVariables = instanceDataCodecRegistry.getInstanceDataList(subInstanceDataPO);
+            }
+            for (InstanceData instanceData : calculateCallActivityOutParamFromSubFlow(runtimeContext, subFlowVariables)) {
+                outParamMap.computeIfAbsent(instanceData.getKey(), key -> new ArrayList<>()).add(instanceData.getValue());
+            }
+        }
+        Map<String, InstanceData> currentInstanceDataMap = runtimeContext.getInstanceDataMap();
+        outParamMap.forEach((key, values) -> currentInstanceDataMap.put(key, new InstanceData(key, values)));
+
+        String instanceDataId = genId();
+        InstanceDataPO instanceDataPO = buildCallActivityEndInstanceData(instanceDataId, runtimeContext);
+        insertInstanceData(runtimeContext, instanceDataPO, runtimeContext.getInstanceDataMap(), runtimeContext.getInstanceDataId());
+        runtimeContext.setInstanceDataId(instanceDataId);
+        runtimeContext.getCurrentNodeInstance().setInstanceDataId(instanceDataId);
+    }
+
+    private void suspendWithFirstUserTasks(RuntimeContext runtimeContext, List<String> subFlowInstanceIds) throws ProcessException {
+        List<RuntimeResult> runtimeResultList = new ArrayList<>();
+        for (String subFlowInstanceId : subFlowInstanceIds) {
+            RuntimeResult runtimeResult = getSubFlowInstanceFirstUserTask(subFlowInstanceId);
+            if (runtimeResult != null) {
+                runtimeResultList.add(runtimeResult);
+            }
+        }
+        suspend(runtimeContext, runtimeResultList);
+    }
+
+    private void suspend(RuntimeContext runtimeContext, List<RuntimeResult> runtimeResultList) throws ProcessException {
+        runtimeContext.getCurrentNodeInstance().setStatus(NodeInstanceStatus.ACTIVE);
+        runtimeContext.setCallActivityRuntimeResultList(runtimeResultList);
+        FlowElement flowElement = runtimeContext.getCurrentNodeModel();
+        LOGGER.info("callActivity suspend: waiting for subFlowInstances.||flowInstanceId={}||nodeInstanceId={}||nodeKey={}",
+            runtimeContext.getFlowInstanceId(), runtimeContext.getCurrentNodeInstance().getNodeInstanceId(), flowElement.getKey());
+        throw new SuspendException(ErrorEnum.COMMIT_SUSPEND);
+    }
+
+    private void terminateSubFlowInstances(RuntimeContext runtimeContext, List<FlowInstanceMappingPO> flowInstanceMappingList) {
+        NodeInstanceBO currentNodeInstance = runtimeContext.getCurrentNodeInstance();
+        for (FlowInstanceMappingPO flowInstanceMappingPO : flowInstanceMappingList) {
+            runtimeProcessor.terminateProcess(flowInstanceMappingPO.getSubFlowInstanceId(), true);
+        }
+        flowInstanceMappingDAO.updateType(runtimeContext.getFlowInstanceId(), currentNodeInstance.getNodeInstanceId(), FlowInstanceMappingType.TERMINATED);
+        currentNodeInstance.setStatus(NodeInstanceStatus.DISABLED);
+    }
+}
@@ -9,7 +9,6 @@ import com.didiglobal.turbo.engine.common.FlowInstanceMappingType;
 import com.didiglobal.turbo.engine.common.FlowInstanceStatus;
 import com.didiglobal.turbo.engine.common.NodeInstanceStatus;
 import com.didiglobal.turbo.engine.common.RuntimeContext;
-import com.didiglobal.turbo.engine.entity.FlowDeploymentPO;
 import com.didiglobal.turbo.engine.entity.FlowInstanceMappingPO;
 import com.didiglobal.turbo.engine.entity.FlowInstancePO;
 import com.didiglobal.turbo.engine.entity.InstanceDataPO;
@@ -37,6 +36,7 @@ import org.springframework.stereotype.Service;
 
 import java.text.MessageFormat;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -160,7 +160,7 @@ public class SyncSingleCallActivityExecutor extends AbstractCallActivityExecutor
         handleCallActivityResult(runtimeContext, startProcessResult);
     }
 
-    private void preCheckCallActivityNestedLevel(RuntimeContext runtimeContext) throws ProcessException {
+    protected void preCheckCallActivityNestedLevel(RuntimeContext runtimeContext) throws ProcessException {
         int maxCallActivityNestedLevel = businessConfig.getCallActivityNestedLevel(runtimeContext.getCaller());
         int currentCallActivityNestedLevel = 0;
         RuntimeContext tmpRuntimeContext = runtimeContext;
@@ -173,22 +173,32 @@ public class SyncSingleCallActivityExecutor extends AbstractCallActivityExecutor
         }
     }
 
-    private void saveFlowInstanceMapping(RuntimeContext runtimeContext, String subFlowInstanceId) {
+    protected void saveFlowInstanceMapping(RuntimeContext runtimeContext, String subFlowInstanceId) {
+        flowInstanceMappingDAO.insertList(Collections.singletonList(buildFlowInstanceMappingPO(runtimeContext, subFlowInstanceId)));
+    }
+
+    protected FlowInstanceMappingPO buildFlowInstanceMappingPO(RuntimeContext runtimeContext, String subFlowInstanceId) {
         FlowInstanceMappingPO flowInstanceMappingPO = new FlowInstanceMappingPO();
         flowInstanceMappingPO.setFlowInstanceId(runtimeContext.getFlowInstanceId());
         NodeInstanceBO currentNodeInstance = runtimeContext.getCurrentNodeInstance();
         flowInstanceMappingPO.setNodeKey(currentNodeInstance.getNodeKey());
         flowInstanceMappingPO.setNodeInstanceId(currentNodeInstance.getNodeInstanceId());
         flowInstanceMappingPO.setSubFlowInstanceId(subFlowInstanceId);
+        // the outermost runtimeContext is always the root flowInstance, subFlowInstances don't receive calls
+        RuntimeContext rootRuntimeContext = runtimeContext;
+        while (rootRuntimeContext.getParentRuntimeContext() != null) {
+            rootRuntimeContext = rootRuntimeContext.getParentRuntimeContext();
+        }
+        flowInstanceMappingPO.setRootFlowInstanceId(rootRuntimeContext.getFlowInstanceId());
         flowInstanceMappingPO.setType(FlowInstanceMappingType.EXECUTE);
         flowInstanceMappingPO.setTenant(runtimeContext.getTenant());
         flowInstanceMappingPO.setCaller(runtimeContext.getCaller());
         flowInstanceMappingPO.setCreateTime(new Date());
         flowInstanceMappingPO.setModifyTime(new Date());
-        flowInstanceMappingDAO.save(flowInstanceMappingPO);
+        return flowInstanceMappingPO;
     }
 
-    private void handleReentrantSubFlowInstance(RuntimeContext runtimeContext, FlowInstanceMappingPO flowInstanceMappingPO) throws ProcessException {
+    protected void handleReentrantSubFlowInstance(RuntimeContext runtimeContext, FlowInstanceMappingPO flowInstanceMappingPO) throws ProcessException {
         String subFlowInstanceId = flowInstanceMappingPO.getSubFlowInstanceId();
         RuntimeResult subFlowInstanceFirstUserTask = getSubFlowInstanceFirstUserTask(subFlowInstanceId);
         if (subFlowInstanceFirstUserTask != null) {
@@ -198,10 +208,9 @@ public class SyncSingleCallActivityExecutor extends AbstractCallActivityExecutor
         LOGGER.info("callActivity did not find userTask.||subFlowInstanceId={}", subFlowInstanceId);
     }
 
-    private RuntimeResult getSubFlowInstanceFirstUserTask(String subFlowInstanceId) {
+    protected RuntimeResult getSubFlowInstanceFirstUserTask(String subFlowInstanceId) {
         FlowInstancePO subFlowInstancePO = processInstanceDAO.selectByFlowInstanceId(subFlowInstanceId);
-        FlowDeploymentPO subFlowDeploymentPO = flowDeploymentDAO.selectByDeployId(subFlowInstancePO.getFlowDeployId());
-        Map<String, FlowElement> subFlowElementMap = FlowModelUtil.getFlowElementMap(subFlowDeploymentPO.getFlowModel());
+        Map<String, FlowElement> subFlowElementMap = flowDeploymentService.getFlowElementMap(subFlowInstancePO.getFlowDeployId());
 
         List<NodeInstancePO> nodeInstancePOList = nodeInstanceDAO.selectByFlowInstanceId(subFlowInstanceId);
         for (NodeInstancePO nodeInstancePO : nodeInstancePOList) {
@@ -209,14 +218,17 @@ public class SyncSingleCallActivityExecutor extends AbstractCallActivityExecutor
             if (elementType == FlowElementType.USER_TASK) {
                 return buildCallActivityFirstUserTaskRuntimeResult(subFlowInstancePO, subFlowElementMap, nodeInstancePO);
             } else if (elementType == FlowElementType.CALL_ACTIVITY) {
-                FlowInstanceMappingPO flowInstanceMappingPO = flowInstanceMappingDAO.selectFlowInstanceMappingPO(subFlowInstanceId, nodeInstancePO.getNodeInstanceId());
-                if (flowInstanceMappingPO == null) {
+                // a multiple instance callActivity maps one subFlowInstance per element
+                List<FlowInstanceMappingPO> flowInstanceMappingPOList = flowInstanceMappingDAO.selectFlowInstanceMappingPOList(subFlowInstanceId, nodeInstancePO.getNodeInstanceId());
+                if (flowInstanceMappingPOList.isEmpty()) {
                     LOGGER.warn("callActivity did not find instanceMapping.||subFlowInstanceId={}", subFlowInstanceId);
                     break;
                 }
-                RuntimeResult runtimeResult = getSubFlowInstanceFirstUserTask(flowInstanceMappingPO.getSubFlowInstanceId());
-                if (runtimeResult != null) {
-                    return runtimeResult;
+                for (FlowInstanceMappingPO flowInstanceMappingPO : flowInstanceMappingPOList) {
+                    RuntimeResult runtimeResult = getSubFlowInstanceFirstUserTask(flowInstanceMappingPO.getSubFlowInstanceId());
+                    if (runtimeResult != null) {
+                        return runtimeResult;
+                    }
                 }
             }
         }
@@ -237,12 +249,11 @@ public class SyncSingleCallActivityExecutor extends AbstractCallActivityExecutor
         nodeInstance.setModelKey(nodeInstancePO.getNodeKey());
         FlowElement flowElement = subFlowElementMap.get(nodeInstancePO.getNodeKey());
         nodeInstance.setModelName(FlowModelUtil.getElementName(flowElement));
-        nodeInstance.setProperties(flowElement.getProperties());
+        nodeInstance.setProperties(FlowModelUtil.copyProperties(flowElement.getProperties()));
 
         runtimeResult.setActiveTaskInstance(nodeInstance);
         InstanceDataPO instanceDataPO = instanceDataDAO.select(subFlowInstancePO.getFlowInstanceId(), nodeInstancePO.getInstanceDataId());
-        Map<String, InstanceData> instanceDataMap = InstanceDataUtil.getInstanceDataMap(instanceDataPO.getInstanceData());
-        runtimeResult.setVariables(InstanceDataUtil.getInstanceDataList(instanceDataMap));
+        runtimeResult.setVariables(instanceDataCodecRegistry.getInstanceDataList(instanceDataPO));
         return runtimeResult;
     }
 
@@ -339,7 +350,7 @@ public class SyncSingleCallActivityExecutor extends AbstractCallActivityExecutor
         // 2.save data
         String instanceDataId = genId();
         InstanceDataPO instanceDataPO = buildCallActivityEndInstanceData(instanceDataId, runtimeContext);
-        instanceDataDAO.insert(instanceDataPO);
+        insertInstanceData(runtimeContext, instanceDataPO, runtimeContext.getInstanceDataMap(), runtimeContext.getInstanceDataId());
         runtimeContext.setInstanceDataId(instanceDataId);
         // 3.set currentNode completed
         currentNodeInstance.setInstanceDataId(runtimeContext.getInstanceDataId());
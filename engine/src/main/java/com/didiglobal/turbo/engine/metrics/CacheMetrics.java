@@ -0,0 +1,55 @@
+package com.didiglobal.turbo.engine.metrics;
+
+import com.didiglobal.turbo.engine.dao.FlowCacheTemplate;
+import com.didiglobal.turbo.engine.service.FlowDeploymentService;
+import com.didiglobal.turbo.engine.service.HookInvokeService;
+import com.didiglobal.turbo.engine.util.GroovyUtil;
+import com.google.common.cache.CacheStats;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Expose statistics of the engine caches on the actuator metrics endpoint.
+ */
+@Component
+public class CacheMetrics implements PublicMetrics {
+
+    @Resource
+    private FlowDeploymentService flowDeploymentService;
+
+    @Resource
+    private HookInvokeService hookInvokeService;
+
+    @Resource
+    private FlowCacheTemplate flowCacheTemplate;
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        addCacheStats(metrics, "flowDeployment", flowDeploymentService.getCacheStats(), flowDeploymentService.getCacheSize());
+        addCacheStats(metrics, "recentFlowDeployment", flowDeploymentService.getRecentCacheStats(),
+            flowDeploymentService.getRecentCacheSize());
+        addCacheStats(metrics, "groovyScript", GroovyUtil.getCacheStats(), GroovyUtil.getCacheSize());
+        addCacheStats(metrics, "hookResult", hookInvokeService.getCacheStats(), hookInvokeService.getCacheSize());
+        if (flowCacheTemplate.isEnabled()) {
+            addCacheStats(metrics, "flowCache", flowCacheTemplate.getCacheStats(), flowCacheTemplate.getCacheSize());
+        }
+        return metrics;
+    }
+
+    private void addCacheStats(List<Metric<?>> metrics, String cacheName, CacheStats cacheStats, long size) {
+        String prefix = EngineMetrics.PREFIX + "cache." + cacheName + ".";
+        metrics.add(new Metric<>(prefix + "hit", cacheStats.hitCount()));
+        metrics.add(new Metric<>(prefix + "miss", cacheStats.missCount()));
+        metrics.add(new Metric<>(prefix + "hitRate", cacheStats.hitRate()));
+        metrics.add(new Metric<>(prefix + "eviction", cacheStats.evictionCount()));
+        metrics.add(new Metric<>(prefix + "loadAverageMillis", cacheStats.averageLoadPenalty() / 1000000));
+        metrics.add(new Metric<>(prefix + "size", size));
+    }
+}
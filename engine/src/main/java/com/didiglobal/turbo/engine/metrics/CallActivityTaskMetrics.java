@@ -0,0 +1,39 @@
+package com.didiglobal.turbo.engine.metrics;
+
+import com.didiglobal.turbo.engine.common.CallActivityTaskStatus;
+import com.didiglobal.turbo.engine.dao.CallActivityTaskDAO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Expose the number of FAILED async callActivity tasks on the actuator metrics endpoint. Each of them leaves its
+ * MainFlow suspended at the callActivity node until the node is committed again, so the gauge is expected to be 0.
+ */
+@Component
+public class CallActivityTaskMetrics implements PublicMetrics {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CallActivityTaskMetrics.class);
+
+    @Resource
+    private CallActivityTaskDAO callActivityTaskDAO;
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        try {
+            metrics.add(new Metric<>(EngineMetrics.PREFIX + "callActivityTask.failed.count",
+                callActivityTaskDAO.countByStatus(CallActivityTaskStatus.FAILED)));
+        } catch (RuntimeException e) {
+            LOGGER.warn("count failed callActivity tasks failed.", e);
+        }
+        return metrics;
+    }
+}
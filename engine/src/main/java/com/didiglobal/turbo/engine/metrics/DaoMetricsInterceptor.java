@@ -0,0 +1,77 @@
+package com.didiglobal.turbo.engine.metrics;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Time every statement of the engine mappers and count db round trips of the current request.
+ * <p>
+ * Each DAO method runs one mapper statement, so the statement id, e.g. {@code dao.NodeInstanceMapper.selectOne},
+ * tells which query is slow.
+ */
+@Intercepts({
+    @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}),
+    @Signature(type = Executor.class, method = "query",
+        args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+    @Signature(type = Executor.class, method = "query",
+        args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class})
+})
+@Component
+public class DaoMetricsInterceptor implements Interceptor {
+
+    private static final String MAPPER_PACKAGE = "com.didiglobal.turbo.engine.dao.";
+
+    @Resource
+    private EngineMetrics engineMetrics;
+
+    // mapped statement id -> metric name
+    private final Map<String, String> metricNameMap = new ConcurrentHashMap<>();
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        MappedStatement mappedStatement = (MappedStatement) invocation.getArgs()[0];
+        if (!mappedStatement.getId().startsWith(MAPPER_PACKAGE)) {
+            return invocation.proceed();
+        }
+        long startNanos = System.nanoTime();
+        try {
+            return invocation.proceed();
+        } finally {
+            MetricsContext.addDbRoundTrip();
+            engineMetrics.recordTime(getMetricName(mappedStatement.getId()), startNanos);
+        }
+    }
+
+    @Override
+    public Object plugin(Object target) {
+        return Plugin.wrap(target, this);
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+
+    private String getMetricName(String mappedStatementId) {
+        return metricNameMap.computeIfAbsent(mappedStatementId, id -> {
+            // com.didiglobal.turbo.engine.dao.mapper.NodeInstanceMapper.selectOne -> dao.NodeInstanceMapper.selectOne
+            int methodIndex = id.lastIndexOf('.');
+            int mapperIndex = methodIndex > 0 ? id.lastIndexOf('.', methodIndex - 1) : -1;
+            return "dao." + id.substring(mapperIndex + 1);
+        });
+    }
+}
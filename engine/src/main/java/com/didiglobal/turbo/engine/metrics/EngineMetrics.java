@@ -0,0 +1,152 @@
+package com.didiglobal.turbo.engine.metrics;
+
+import com.didiglobal.turbo.engine.common.ErrorEnum;
+import com.didiglobal.turbo.engine.param.CommonParam;
+import com.didiglobal.turbo.engine.result.CommonResult;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Publish engine metrics through the actuator {@link CounterService} and {@link GaugeService}.
+ * <p>
+ * Names follow the actuator conventions: {@code timer.*} for latencies in milliseconds, {@code histogram.*}
+ * for per-request values and plain names for counters, so they become timers and histograms with a dropwizard
+ * registry. Tenant and caller are part of the name, e.g. {@code timer.turbo.engine.commitTask.tenant.caller}.
+ * Nothing is published while the actuator metric services are absent or {@code turbo.metrics.enabled=false}.
+ */
+@Component
+public class EngineMetrics {
+
+    public static final String PREFIX = "turbo.";
+
+    @Autowired(required = false)
+    private CounterService counterService;
+
+    @Autowired(required = false)
+    private GaugeService gaugeService;
+
+    @Value("${turbo.metrics.enabled:true}")
+    private boolean enabled = true;
+
+    /**
+     * Record a ProcessEngine call: latency, result and the per-request db round trips and instance data bytes.
+     */
+    public <T extends CommonResult> T recordEngine(String method, CommonParam commonParam, Supplier<T> call) {
+        return record(method, commonParam, call, result -> Collections.singletonList(getOutcome(result)));
+    }
+
+    public <T extends CommonResult> T recordEngine(String method, Supplier<T> call) {
+        return recordEngine(method, null, call);
+    }
+
+    /**
+     * Same as {@link #recordEngine(String, Supplier)} for a call of many requests: the result of each request is
+     * counted by its outcome, and the latency and db round trips are the ones of the whole call.
+     */
+    public <T extends CommonResult> List<T> recordEngineBatch(String method, Supplier<List<T>> call) {
+        return record(method, null, call, resultList -> resultList == null
+            ? Collections.singletonList(getOutcome(null))
+            : resultList.stream().map(EngineMetrics::getOutcome).collect(Collectors.toList()));
+    }
+
+    private <R> R record(String method, CommonParam commonParam, Supplier<R> call, Function<R, List<String>> getOutcomeList) {
+        if (!isEnabled()) {
+            return call.get();
+        }
+        MetricsContext metricsContext = MetricsContext.open();
+        if (metricsContext == null) {
+            // nested call, recorded by the outer one
+            return call.get();
+        }
+        if (commonParam != null) {
+            MetricsContext.tag(commonParam.getTenant(), commonParam.getCaller());
+        }
+        long startNanos = System.nanoTime();
+        String name = PREFIX + "engine." + method;
+        R result = null;
+        try {
+            result = call.get();
+            return result;
+        } finally {
+            metricsContext.close();
+            long costMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            String taggedName = name + "." + sanitize(metricsContext.getTenant()) + "." + sanitize(metricsContext.getCaller());
+            gaugeService.submit("timer." + name, costMillis);
+            gaugeService.submit("timer." + taggedName, costMillis);
+            gaugeService.submit("histogram." + name + ".dbRoundTrips", metricsContext.getDbRoundTrips());
+            gaugeService.submit("histogram." + name + ".instanceDataBytes", metricsContext.getInstanceDataBytes());
+            for (String outcome : getOutcomeList.apply(result)) {
+                counterService.increment(name + "." + outcome);
+                counterService.increment(taggedName + "." + outcome);
+            }
+        }
+    }
+
+    /**
+     * Submit the latency since startNanos, which is got by {@link System#nanoTime()}.
+     *
+     * @param name metric name without prefix, e.g. executor.UserTaskExecutor.commit
+     */
+    public void recordTime(String name, long startNanos) {
+        if (isEnabled()) {
+            gaugeService.submit("timer." + PREFIX + name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        }
+    }
+
+    /**
+     * @param name metric name without prefix, e.g. executor.reentrant
+     */
+    public void increment(String name) {
+        if (isEnabled()) {
+            counterService.increment(PREFIX + name);
+        }
+    }
+
+    private boolean isEnabled() {
+        return enabled && counterService != null && gaugeService != null;
+    }
+
+    private static String getOutcome(CommonResult result) {
+        if (result == null) {
+            return "exception";
+        }
+        int errCode = result.getErrCode();
+        if (errCode == ErrorEnum.SUCCESS.getErrNo()) {
+            return "success";
+        }
+        if (errCode == ErrorEnum.COMMIT_SUSPEND.getErrNo() || errCode == ErrorEnum.ROLLBACK_SUSPEND.getErrNo()) {
+            return "suspend";
+        }
+        if (errCode == ErrorEnum.REENTRANT_WARNING.getErrNo()) {
+            return "reentrant";
+        }
+        if (errCode == ErrorEnum.FLOW_INSTANCE_CONFLICT.getErrNo()) {
+            return "conflict";
+        }
+        return "failure";
+    }
+
+    // one segment of a dotted metric name
+    static String sanitize(String tag) {
+        if (StringUtils.isBlank(tag)) {
+            return "unknown";
+        }
+        StringBuilder segment = new StringBuilder(tag.length());
+        for (int i = 0; i < tag.length(); i++) {
+            char c = tag.charAt(i);
+            segment.append(Character.isLetterOrDigit(c) || c == '-' || c == '_' ? c : '_');
+        }
+        return segment.toString();
+    }
+}
@@ -0,0 +1,131 @@
+package com.didiglobal.turbo.engine.metrics;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-request metrics collected while a {@link com.didiglobal.turbo.engine.engine.ProcessEngine} call is running
+ * on the current thread. Calls out of a request are ignored. A task of the request run on another thread is counted
+ * as well while it's wrapped by {@link #wrap(Callable)}.
+ */
+public final class MetricsContext {
+
+    private static final ThreadLocal<MetricsContext> CURRENT = new ThreadLocal<>();
+
+    private String tenant;
+    private String caller;
+    private final AtomicInteger dbRoundTrips = new AtomicInteger();
+    private final AtomicLong instanceDataBytes = new AtomicLong();
+
+    private MetricsContext() {
+    }
+
+    /**
+     * Open a context for the current thread, return null while one is opened already.
+     */
+    static MetricsContext open() {
+        if (CURRENT.get() != null) {
+            return null;
+        }
+        MetricsContext metricsContext = new MetricsContext();
+        CURRENT.set(metricsContext);
+        return metricsContext;
+    }
+
+    void close() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Tag the current request with the tenant and caller of the flow, the first flow tagged wins.
+     */
+    public static void tag(String tenant, String caller) {
+        MetricsContext metricsContext = CURRENT.get();
+        if (metricsContext == null) {
+            return;
+        }
+        synchronized (metricsContext) {
+            if (metricsContext.tenant == null && metricsContext.caller == null) {
+                metricsContext.tenant = tenant;
+                metricsContext.caller = caller;
+            }
+        }
+    }
+
+    /**
+     * Run the task with the context of the current thread, on whichever thread it's called. The context of that thread
+     * is restored afterwards.
+     */
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        MetricsContext metricsContext = CURRENT.get();
+        if (metricsContext == null) {
+            return task;
+        }
+        return () -> {
+            MetricsContext previous = CURRENT.get();
+            CURRENT.set(metricsContext);
+            try {
+                return task.call();
+            } finally {
+                if (previous == null) {
+                    CURRENT.remove();
+                } else {
+                    CURRENT.set(previous);
+                }
+            }
+        };
+    }
+
+    public static void addDbRoundTrip() {
+        MetricsContext metricsContext = CURRENT.get();
+        if (metricsContext != null) {
+            metricsContext.dbRoundTrips.incrementAndGet();
+        }
+    }
+
+    /**
+     * Count the UTF-8 bytes of serialized instance data written by the current request.
+     */
+    public static void addInstanceData(String instanceData) {
+        MetricsContext metricsContext = CURRENT.get();
+        if (metricsContext != null && instanceData != null) {
+            metricsContext.instanceDataBytes.addAndGet(utf8Length(instanceData));
+        }
+    }
+
+    synchronized String getTenant() {
+        return tenant;
+    }
+
+    synchronized String getCaller() {
+        return caller;
+    }
+
+    int getDbRoundTrips() {
+        return dbRoundTrips.get();
+    }
+
+    long getInstanceDataBytes() {
+        return instanceDataBytes.get();
+    }
+
+    static long utf8Length(String value) {
+        long length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
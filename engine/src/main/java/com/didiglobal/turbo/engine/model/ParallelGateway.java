@@ -0,0 +1,4 @@
+package com.didiglobal.turbo.engine.model;
+
+public class ParallelGateway extends GatewayNode {
+}
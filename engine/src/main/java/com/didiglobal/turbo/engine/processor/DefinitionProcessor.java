@@ -1,9 +1,11 @@
 package com.didiglobal.turbo.engine.processor;
 
 import com.alibaba.fastjson.JSON;
+import com.didiglobal.turbo.engine.bo.CompiledFlowInfo;
 import com.didiglobal.turbo.engine.common.ErrorEnum;
 import com.didiglobal.turbo.engine.common.FlowDefinitionStatus;
 import com.didiglobal.turbo.engine.common.FlowDeploymentStatus;
+import com.didiglobal.turbo.engine.common.FlowElementType;
 import com.didiglobal.turbo.engine.common.FlowModuleEnum;
 import com.didiglobal.turbo.engine.dao.FlowDefinitionDAO;
 import com.didiglobal.turbo.engine.dao.FlowDeploymentDAO;
@@ -11,16 +13,22 @@ import com.didiglobal.turbo.engine.entity.FlowDefinitionPO;
 import com.didiglobal.turbo.engine.entity.FlowDeploymentPO;
 import com.didiglobal.turbo.engine.exception.DefinitionException;
 import com.didiglobal.turbo.engine.exception.ParamException;
+import com.didiglobal.turbo.engine.exception.ProcessException;
 import com.didiglobal.turbo.engine.exception.TurboException;
+import com.didiglobal.turbo.engine.model.FlowElement;
 import com.didiglobal.turbo.engine.param.CreateFlowParam;
 import com.didiglobal.turbo.engine.param.DeployFlowParam;
 import com.didiglobal.turbo.engine.param.GetFlowModuleParam;
 import com.didiglobal.turbo.engine.param.UpdateFlowParam;
 import com.didiglobal.turbo.engine.result.*;
+import com.didiglobal.turbo.engine.service.FlowDeploymentService;
+import com.didiglobal.turbo.engine.util.ExpressionCalculator;
+import com.didiglobal.turbo.engine.util.FlowModelUtil;
 import com.didiglobal.turbo.engine.util.IdGenerator;
 import com.didiglobal.turbo.engine.util.StrongUuidGenerator;
 import com.didiglobal.turbo.engine.validator.ModelValidator;
 import com.didiglobal.turbo.engine.validator.ParamValidator;
+import com.google.common.collect.Lists;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,6 +37,7 @@ import org.springframework.stereotype.Component;
 
 import javax.annotation.Resource;
 import java.util.Date;
+import java.util.List;
 
 @Component
 public class DefinitionProcessor {
@@ -46,6 +55,12 @@ public class DefinitionProcessor {
     @Resource
     private FlowDeploymentDAO flowDeploymentDAO;
 
+    @Resource
+    private FlowDeploymentService flowDeploymentService;
+
+    @Resource
+    private ExpressionCalculator expressionCalculator;
+
     public CreateFlowResult create(CreateFlowParam createFlowParam) {
         CreateFlowResult createFlowResult = new CreateFlowResult();
         List<FlowElement> flowElementList = Lists.newArrayList();
@@ -129,6 +144,8 @@ public class DefinitionProcessor {
                 LOGGER.warn("deploy flow failed: insert to db failed.||deployFlowParam={}", deployFlowParam);
                 throw new DefinitionException(ErrorEnum.DEFINITION_INSERT_INVALID);
             }
+            flowDeploymentService.onDeployed(flowDeploymentPO);
+            precompileConditions(flowDeploymentPO);
 
             BeanUtils.copyProperties(flowDeploymentPO, deployFlowResult);
             fillCommonResult(deployFlowResult, ErrorEnum.SUCCESS);
@@ -138,6 +155,27 @@ public class DefinitionProcessor {
         return deployFlowResult;
     }
 
+    // compile conditions of the new deployment in advance, so the first request won't pay for it
+    private void precompileConditions(FlowDeploymentPO flowDeploymentPO) {
+        CompiledFlowInfo compiledFlowInfo = flowDeploymentService.getByFlowDeploymentPO(flowDeploymentPO);
+        for (FlowElement flowElement : compiledFlowInfo.getFlowElementMap().values()) {
+            if (flowElement.getType() != FlowElementType.SEQUENCE_FLOW || flowElement.getProperties() == null) {
+                continue;
+            }
+            String condition = FlowModelUtil.getConditionFromSequenceFlow(flowElement);
+            if (StringUtils.isBlank(condition)) {
+                continue;
+            }
+            try {
+                expressionCalculator.precompile(condition);
+            } catch (ProcessException pe) {
+                // not blocking the deployment, the condition fails in the same way while calculating
+                LOGGER.warn("precompile condition failed.||flowDeployId={}||sequenceFlowKey={}||condition={}",
+                    flowDeploymentPO.getFlowDeployId(), flowElement.getKey(), condition);
+            }
+        }
+    }
+
     public FlowModuleResult getFlowModule(GetFlowModuleParam getFlowModuleParam) {
         FlowModuleResult flowModuleResult = new FlowModuleResult();
         try {
@@ -1,10 +1,10 @@
 package com.didiglobal.turbo.engine.processor;
 
-import com.alibaba.fastjson.JSONObject;
-import com.alibaba.fastjson.TypeReference;
+import com.didiglobal.turbo.engine.bo.CompiledFlowInfo;
 import com.didiglobal.turbo.engine.bo.ElementInstance;
-import com.didiglobal.turbo.engine.bo.FlowInfo;
+import com.didiglobal.turbo.engine.bo.FlowGraph;
 import com.didiglobal.turbo.engine.bo.FlowInstanceBO;
+import com.didiglobal.turbo.engine.bo.FlowInstanceHistory;
 import com.didiglobal.turbo.engine.bo.NodeInstance;
 import com.didiglobal.turbo.engine.bo.NodeInstanceBO;
 import com.didiglobal.turbo.engine.common.ErrorEnum;
@@ -14,11 +14,10 @@ import com.didiglobal.turbo.engine.common.FlowInstanceStatus;
 import com.didiglobal.turbo.engine.common.NodeInstanceStatus;
 import com.didiglobal.turbo.engine.common.ProcessStatus;
 import com.didiglobal.turbo.engine.common.RuntimeContext;
-import com.didiglobal.turbo.engine.dao.FlowDeploymentDAO;
 import com.didiglobal.turbo.engine.dao.FlowInstanceMappingDAO;
 import com.didiglobal.turbo.engine.dao.NodeInstanceDAO;
 import com.didiglobal.turbo.engine.dao.ProcessInstanceDAO;
-import com.didiglobal.turbo.engine.entity.FlowDeploymentPO;
+import com.didiglobal.turbo.engine.dao.UnitOfWork;
 import com.didiglobal.turbo.engine.entity.FlowInstanceMappingPO;
 import com.didiglobal.turbo.engine.entity.FlowInstancePO;
 import com.didiglobal.turbo.engine.entity.InstanceDataPO;
@@ -27,12 +26,14 @@ import com.didiglobal.turbo.engine.exception.ProcessException;
 import com.didiglobal.turbo.engine.exception.ReentrantException;
 import com.didiglobal.turbo.engine.exception.TurboException;
 import com.didiglobal.turbo.engine.executor.FlowExecutor;
+import com.didiglobal.turbo.engine.metrics.MetricsContext;
 import com.didiglobal.turbo.engine.model.FlowElement;
 import com.didiglobal.turbo.engine.model.InstanceData;
 import com.didiglobal.turbo.engine.param.CommitTaskParam;
 import com.didiglobal.turbo.engine.param.RollbackTaskParam;
 import com.didiglobal.turbo.engine.param.StartProcessParam;
 import com.didiglobal.turbo.engine.result.CommitTaskResult;
+import com.didiglobal.turbo.engine.result.CommonResult;
 import com.didiglobal.turbo.engine.result.ElementInstanceListResult;
 import com.didiglobal.turbo.engine.result.FlowInstanceResult;
 import com.didiglobal.turbo.engine.result.InstanceDataListResult;
@@ -42,14 +43,17 @@ import com.didiglobal.turbo.engine.result.RollbackTaskResult;
 import com.didiglobal.turbo.engine.result.RuntimeResult;
 import com.didiglobal.turbo.engine.result.StartProcessResult;
 import com.didiglobal.turbo.engine.result.TerminateResult;
+import com.didiglobal.turbo.engine.service.FlowDeploymentService;
 import com.didiglobal.turbo.engine.service.FlowInstanceService;
 import com.didiglobal.turbo.engine.service.InstanceDataService;
 import com.didiglobal.turbo.engine.service.NodeInstanceService;
 import com.didiglobal.turbo.engine.util.FlowModelUtil;
+import com.didiglobal.turbo.engine.util.InstanceDataCodecRegistry;
 import com.didiglobal.turbo.engine.util.InstanceDataUtil;
 import com.didiglobal.turbo.engine.validator.ParamValidator;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.MapUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -63,8 +67,10 @@ import javax.annotation.Resource;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.Stack;
+import java.util.function.Supplier;
 
 @Component
 public class RuntimeProcessor {
@@ -72,7 +78,7 @@ public class RuntimeProcessor {
     private static final Logger LOGGER = LoggerFactory.getLogger(RuntimeProcessor.class);
 
     @Resource
-    private FlowDeploymentDAO flowDeploymentDAO;
+    private FlowDeploymentService flowDeploymentService;
 
     @Resource
     private ProcessInstanceDAO processInstanceDAO;
@@ -95,16 +101,64 @@ public class RuntimeProcessor {
     @Resource
     private NodeInstanceService nodeInstanceService;
 
+    @Resource
+    private InstanceDataCodecRegistry instanceDataCodecRegistry;
+
+    @Resource
+    private UnitOfWork unitOfWork;
+
     ////////////////////////////////////////startProcess////////////////////////////////////////
 
     public StartProcessResult startProcess(StartProcessParam startProcessParam) {
+        return unitOfWork.execute(() -> flushWrites(doStartProcess(startProcessParam), StartProcessResult::new));
+    }
+
+    /**
+     * Start a batch of flowInstances in one unit of work: the flow of each distinct flowDeployId / flowModuleId is
+     * resolved once, the flowInstances are processed in memory one by one, and their rows are inserted together with
+     * multi-row statements at the end.
+     * <p>
+     * Each param gets its own result in the same order, a failed one doesn't fail the others. While an unexpected
+     * exception is thrown, the writes of that flowInstance are dropped and its result is SYSTEM_ERROR.
+     */
+    public List<StartProcessResult> startProcessBatch(List<StartProcessParam> startProcessParamList) {
+        if (CollectionUtils.isEmpty(startProcessParamList)) {
+            return Lists.newArrayList();
+        }
+        return unitOfWork.execute(() -> {
+            Map<String, Optional<CompiledFlowInfo>> flowInfoMap = resolveFlowInfoMap(startProcessParamList);
+            List<Supplier<StartProcessResult>> works = new ArrayList<>(startProcessParamList.size());
+            for (StartProcessParam startProcessParam : startProcessParamList) {
+                works.add(() -> doStartProcess(startProcessParam, flowInfoMap));
+            }
+            List<StartProcessResult> startProcessResultList = unitOfWork.fork(works, MoreExecutors.directExecutor(), e -> {
+                LOGGER.error("startProcessBatch exception.||batchSize={}", startProcessParamList.size(), e);
+                return buildFailedResult(new StartProcessResult());
+            });
+            if (!isFlushed()) {
+                // nothing of the batch is saved
+                startProcessResultList.replaceAll(startProcessResult -> buildFailedResult(new StartProcessResult()));
+            }
+            return startProcessResultList;
+        });
+    }
+
+    private StartProcessResult doStartProcess(StartProcessParam startProcessParam) {
+        return doStartProcess(startProcessParam, null);
+    }
+
+    /**
+     * @param flowInfoMap flows resolved by {@link #resolveFlowInfoMap}, null to resolve the flow of the param itself
+     */
+    private StartProcessResult doStartProcess(StartProcessParam startProcessParam, Map<String, Optional<CompiledFlowInfo>> flowInfoMap) {
         RuntimeContext runtimeContext = null;
         try {
             //1.param validate
             ParamValidator.validate(startProcessParam);
 
             //2.getFlowInfo
-            FlowInfo flowInfo = getFlowInfo(startProcessParam);
+            CompiledFlowInfo flowInfo = flowInfoMap == null ? getFlowInfo(startProcessParam)
+                : getResolvedFlowInfo(startProcessParam, flowInfoMap);
 
             //3.init context for runtime
             runtimeContext = buildStartProcessContext(flowInfo, startProcessParam.getVariables(), startProcessParam.getRuntimeContext());
@@ -123,7 +177,7 @@ public class RuntimeProcessor {
         }
     }
 
-    private FlowInfo getFlowInfo(StartProcessParam startProcessParam) throws ProcessException {
+    private CompiledFlowInfo getFlowInfo(StartProcessParam startProcessParam) throws ProcessException {
         if (StringUtils.isNotBlank(startProcessParam.getFlowDeployId())) {
             return getFlowInfoByFlowDeployId(startProcessParam.getFlowDeployId());
         } else {
@@ -131,12 +185,50 @@ public class RuntimeProcessor {
         }
     }
 
+    // flowDeployId / flowModuleId -> flow, empty while it's not found
+    private Map<String, Optional<CompiledFlowInfo>> resolveFlowInfoMap(List<StartProcessParam> startProcessParamList) {
+        Map<String, Optional<CompiledFlowInfo>> flowInfoMap = Maps.newHashMap();
+        for (StartProcessParam startProcessParam : startProcessParamList) {
+            if (startProcessParam == null || (StringUtils.isBlank(startProcessParam.getFlowDeployId())
+                && StringUtils.isBlank(startProcessParam.getFlowModuleId()))) {
+                // left to the param validation of its own
+                continue;
+            }
+            String flowInfoKey = getFlowInfoKey(startProcessParam);
+            if (flowInfoMap.containsKey(flowInfoKey)) {
+                continue;
+            }
+            try {
+                flowInfoMap.put(flowInfoKey, Optional.of(getFlowInfo(startProcessParam)));
+            } catch (ProcessException e) {
+                flowInfoMap.put(flowInfoKey, Optional.empty());
+            }
+        }
+        return flowInfoMap;
+    }
+
+    private CompiledFlowInfo getResolvedFlowInfo(StartProcessParam startProcessParam,
+                                                 Map<String, Optional<CompiledFlowInfo>> flowInfoMap) throws ProcessException {
+        Optional<CompiledFlowInfo> flowInfo = flowInfoMap.get(getFlowInfoKey(startProcessParam));
+        if (flowInfo == null || !flowInfo.isPresent()) {
+            throw new ProcessException(ErrorEnum.GET_FLOW_DEPLOYMENT_FAILED);
+        }
+        return flowInfo.get();
+    }
+
+    private static String getFlowInfoKey(StartProcessParam startProcessParam) {
+        if (StringUtils.isNotBlank(startProcessParam.getFlowDeployId())) {
+            return "flowDeployId:" + startProcessParam.getFlowDeployId();
+        }
+        return "flowModuleId:" + startProcessParam.getFlowModuleId();
+    }
+
     /**
      * Init runtimeContext for startProcess:
      * 1.flowInfo: flowDeployId, flowModuleId, tenantId, flowModel(FlowElementList)
      * 2.variables: inputDataList fr. param
      */
-    private RuntimeContext buildStartProcessContext(FlowInfo flowInfo, List<InstanceData> variables, RuntimeContext parentRuntimeContext) {
+    private RuntimeContext buildStartProcessContext(CompiledFlowInfo flowInfo, List<InstanceData> variables, RuntimeContext parentRuntimeContext) {
         return buildRuntimeContext(flowInfo, variables, parentRuntimeContext);
     }
 
@@ -148,13 +240,20 @@ public class RuntimeProcessor {
 
     private StartProcessResult buildStartProcessResult(RuntimeContext runtimeContext, TurboException e) {
         StartProcessResult startProcessResult = new StartProcessResult();
-        BeanUtils.copyProperties(runtimeContext, startProcessResult);
+        // null while the param is invalid or the flow is not found
+        if (runtimeContext != null) {
+            BeanUtils.copyProperties(runtimeContext, startProcessResult);
+        }
         return (StartProcessResult) fillRuntimeResult(startProcessResult, runtimeContext, e);
     }
 
     ////////////////////////////////////////commit////////////////////////////////////////
 
     public CommitTaskResult commit(CommitTaskParam commitTaskParam) {
+        return unitOfWork.execute(() -> flushWrites(doCommit(commitTaskParam), CommitTaskResult::new));
+    }
+
+    private CommitTaskResult doCommit(CommitTaskParam commitTaskParam) {
         RuntimeContext runtimeContext = null;
         try {
             //1.param validate
@@ -172,10 +271,11 @@ public class RuntimeProcessor {
                 LOGGER.warn("commit: reentrant process.||commitTaskParam={}", commitTaskParam);
                 throw new ReentrantException(ErrorEnum.REENTRANT_WARNING);
             }
+            claimFlowInstance(flowInstanceBO);
             String flowDeployId = flowInstanceBO.getFlowDeployId();
 
             //4.getFlowInfo
-            FlowInfo flowInfo = getFlowInfoByFlowDeployId(flowDeployId);
+            CompiledFlowInfo flowInfo = getFlowInfoByFlowDeployId(flowDeployId);
 
             //5.init runtimeContext
             runtimeContext = buildCommitContext(commitTaskParam, flowInfo, flowInstanceBO.getStatus());
@@ -193,7 +293,7 @@ public class RuntimeProcessor {
         }
     }
 
-    private RuntimeContext buildCommitContext(CommitTaskParam commitTaskParam, FlowInfo flowInfo, int flowInstanceStatus) {
+    private RuntimeContext buildCommitContext(CommitTaskParam commitTaskParam, CompiledFlowInfo flowInfo, int flowInstanceStatus) {
         //1. set flow info
         RuntimeContext runtimeContext = buildRuntimeContext(flowInfo, commitTaskParam.getVariables(), commitTaskParam.getRuntimeContext());
 
@@ -244,6 +344,10 @@ public class RuntimeProcessor {
      * @throws Exception
      */
     public RollbackTaskResult rollback(RollbackTaskParam rollbackTaskParam) {
+        return unitOfWork.execute(() -> flushWrites(doRollback(rollbackTaskParam), RollbackTaskResult::new));
+    }
+
+    private RollbackTaskResult doRollback(RollbackTaskParam rollbackTaskParam) {
         RuntimeContext runtimeContext = null;
         try {
             //1.param validate
@@ -258,10 +362,11 @@ public class RuntimeProcessor {
                     rollbackTaskParam, flowInstanceBO.getStatus());
                 throw new ProcessException(ErrorEnum.ROLLBACK_REJECTRD);
             }
+            claimFlowInstance(flowInstanceBO);
             String flowDeployId = flowInstanceBO.getFlowDeployId();
 
             //4.getFlowInfo
-            FlowInfo flowInfo = getFlowInfoByFlowDeployId(flowDeployId);
+            CompiledFlowInfo flowInfo = getFlowInfoByFlowDeployId(flowDeployId);
 
             //5.init runtimeContext
             runtimeContext = buildRollbackContext(rollbackTaskParam, flowInfo, flowInstanceBO.getStatus());
@@ -279,7 +384,7 @@ public class RuntimeProcessor {
         }
     }
 
-    private RuntimeContext buildRollbackContext(RollbackTaskParam rollbackTaskParam, FlowInfo flowInfo, int flowInstanceStatus) {
+    private RuntimeContext buildRollbackContext(RollbackTaskParam rollbackTaskParam, CompiledFlowInfo flowInfo, int flowInstanceStatus) {
         //1. set flow info
         RuntimeContext runtimeContext = buildRuntimeContext(flowInfo);
 
@@ -321,6 +426,13 @@ public class RuntimeProcessor {
     ////////////////////////////////////////terminate////////////////////////////////////////
 
     public TerminateResult terminateProcess(String flowInstanceId, boolean effectiveForSubFlowInstance) {
+        return unitOfWork.execute(() -> {
+            TerminateResult terminateResult = doTerminateProcess(flowInstanceId, effectiveForSubFlowInstance);
+            return flushWrites(terminateResult, () -> new TerminateResult(ErrorEnum.SYSTEM_ERROR));
+        });
+    }
+
+    private TerminateResult doTerminateProcess(String flowInstanceId, boolean effectiveForSubFlowInstance) {
         TerminateResult terminateResult;
         try {
             int flowInstanceStatus;
@@ -334,9 +446,13 @@ public class RuntimeProcessor {
             if (flowInstancePO.getStatus() == FlowInstanceStatus.COMPLETED) {
                 LOGGER.warn("terminateProcess: flowInstance is completed.||flowInstanceId={}", flowInstanceId);
                 flowInstanceStatus = FlowInstanceStatus.COMPLETED;
-            } else {
-                processInstanceDAO.updateStatus(flowInstancePO, FlowInstanceStatus.TERMINATED);
+            } else if (processInstanceDAO.compareAndSetStatus(flowInstancePO, FlowInstanceStatus.TERMINATED)) {
                 flowInstanceStatus = FlowInstanceStatus.TERMINATED;
+            } else {
+                LOGGER.warn("terminateProcess failed: flowInstance is modified concurrently.||flowInstanceId={}", flowInstanceId);
+                terminateResult = new TerminateResult(ErrorEnum.FLOW_INSTANCE_CONFLICT);
+                terminateResult.setFlowInstanceId(flowInstanceId);
+                return terminateResult;
             }
 
             if (effectiveForSubFlowInstance) {
@@ -364,9 +480,15 @@ public class RuntimeProcessor {
     ////////////////////////////////////////getHistoryUserTaskList////////////////////////////////////////
 
     public NodeInstanceListResult getHistoryUserTaskList(String flowInstanceId, boolean effectiveForSubFlowInstance) {
+        FlowInstanceHistory flowInstanceHistory = flowInstanceService.getFlowInstanceHistory(flowInstanceId, effectiveForSubFlowInstance);
+        return getHistoryUserTaskList(flowInstanceHistory, flowInstanceId, effectiveForSubFlowInstance);
+    }
+
+    private NodeInstanceListResult getHistoryUserTaskList(FlowInstanceHistory flowInstanceHistory, String flowInstanceId,
+                                                          boolean effectiveForSubFlowInstance) {
 
         //1.get nodeInstanceList by flowInstanceId order by id desc
-        List<NodeInstancePO> historyNodeInstanceList = getDescHistoryNodeInstanceList(flowInstanceId);
+        List<NodeInstancePO> historyNodeInstanceList = flowInstanceHistory.getDescNodeInstanceList(flowInstanceId);
 
         //2.init result
         NodeInstanceListResult historyListResult = new NodeInstanceListResult(ErrorEnum.SUCCESS);
@@ -381,7 +503,8 @@ public class RuntimeProcessor {
 
             //3.get flow info
             String flowDeployId = historyNodeInstanceList.get(0).getFlowDeployId();
-            Map<String, FlowElement> flowElementMap = getFlowElementMap(flowDeployId);
+            CompiledFlowInfo flowInfo = getFlowInfoByFlowDeployId(flowDeployId);
+            Map<String, FlowElement> flowElementMap = flowInfo.getFlowElementMap();
 
             //4.pick out userTask and build result
             List<NodeInstance> userTaskList = historyListResult.getNodeInstanceList();//empty list
@@ -394,9 +517,9 @@ public class RuntimeProcessor {
 
                 if (effectiveForSubFlowInstance && isCallActivity(nodeInstancePO.getNodeKey(), flowElementMap)) {
                     //handle subFlowInstance
-                    String subFlowInstanceId = getExecuteSubFlowInstanceId(flowInstanceId, nodeInstancePO.getNodeInstanceId());
+                    String subFlowInstanceId = getExecuteSubFlowInstanceId(flowInstanceHistory.getMappingList(flowInstanceId, nodeInstancePO.getNodeInstanceId()));
                     if (StringUtils.isNotBlank(subFlowInstanceId)) {
-                        NodeInstanceListResult historyUserTaskList = getHistoryUserTaskList(subFlowInstanceId, true);
+                        NodeInstanceListResult historyUserTaskList = getHistoryUserTaskList(flowInstanceHistory, subFlowInstanceId, true);
                         userTaskList.addAll(historyUserTaskList.getNodeInstanceList());
                     }
                     continue;
@@ -417,7 +540,7 @@ public class RuntimeProcessor {
                 nodeInstance.setModelKey(flowElement.getKey());
                 nodeInstance.setModelName(FlowModelUtil.getElementName(flowElement));
                 if (MapUtils.isNotEmpty(flowElement.getProperties())) {
-                    nodeInstance.setProperties(flowElement.getProperties());
+                    nodeInstance.setProperties(FlowModelUtil.copyProperties(flowElement.getProperties()));
                 } else {
                     nodeInstance.setProperties(Maps.newHashMap());
                 }
@@ -431,9 +554,7 @@ public class RuntimeProcessor {
     }
 
     private Map<String, FlowElement> getFlowElementMap(String flowDeployId) throws ProcessException {
-        FlowInfo flowInfo = getFlowInfoByFlowDeployId(flowDeployId);
-        String flowModel = flowInfo.getFlowModel();
-        return FlowModelUtil.getFlowElementMap(flowModel);
+        return getFlowInfoByFlowDeployId(flowDeployId).getFlowElementMap();
     }
 
     private boolean isEffectiveNodeInstance(int status) {
@@ -463,8 +584,14 @@ public class RuntimeProcessor {
     ////////////////////////////////////////getHistoryElementList////////////////////////////////////////
 
     public ElementInstanceListResult getHistoryElementList(String flowInstanceId, boolean effectiveForSubFlowInstance) {
+        FlowInstanceHistory flowInstanceHistory = flowInstanceService.getFlowInstanceHistory(flowInstanceId, effectiveForSubFlowInstance);
+        return getHistoryElementList(flowInstanceHistory, flowInstanceId, effectiveForSubFlowInstance);
+    }
+
+    private ElementInstanceListResult getHistoryElementList(FlowInstanceHistory flowInstanceHistory, String flowInstanceId,
+                                                            boolean effectiveForSubFlowInstance) {
         //1.getHistoryNodeList
-        List<NodeInstancePO> historyNodeInstanceList = getHistoryNodeInstanceList(flowInstanceId);
+        List<NodeInstancePO> historyNodeInstanceList = flowInstanceHistory.getNodeInstanceList(flowInstanceId);
 
         //2.init
         ElementInstanceListResult elementInstanceListResult = new ElementInstanceListResult(ErrorEnum.SUCCESS);
@@ -478,7 +605,9 @@ public class RuntimeProcessor {
 
             //3.get flow info
             String flowDeployId = historyNodeInstanceList.get(0).getFlowDeployId();
-            Map<String, FlowElement> flowElementMap = getFlowElementMap(flowDeployId);
+            CompiledFlowInfo flowInfo = getFlowInfoByFlowDeployId(flowDeployId);
+            Map<String, FlowElement> flowElementMap = flowInfo.getFlowElementMap();
+            FlowGraph flowGraph = flowInfo.getFlowGraph();
 
             //4.calculate elementInstanceMap: key=elementKey, value(lasted)=ElementInstance(elementKey, status)
             List<ElementInstance> elementInstanceList = elementInstanceListResult.getElementInstanceList();
@@ -490,7 +619,7 @@ public class RuntimeProcessor {
                 String instanceDataId = nodeInstancePO.getInstanceDataId();
                 //4.1 build the source sequenceFlow instance
                 if (StringUtils.isNotBlank(sourceNodeKey)) {
-                    FlowElement sourceFlowElement = FlowModelUtil.getSequenceFlow(flowElementMap, sourceNodeKey, nodeKey);
+                    FlowElement sourceFlowElement = flowGraph.getSequenceFlow(sourceNodeKey, nodeKey);
                     if (sourceFlowElement == null) {
                         LOGGER.error("getHistoryElementList failed: sourceFlowElement is null."
                             + "||nodeKey={}||sourceNodeKey={}||flowElementMap={}", nodeKey, sourceNodeKey, flowElementMap);
@@ -517,11 +646,11 @@ public class RuntimeProcessor {
                 if (!effectiveForSubFlowInstance) {
                     continue;
                 }
-                List<FlowInstanceMappingPO> flowInstanceMappingPOS = flowInstanceMappingDAO.selectFlowInstanceMappingPOList(flowInstanceId, nodeInstanceId);
+                List<FlowInstanceMappingPO> flowInstanceMappingPOS = flowInstanceHistory.getMappingList(flowInstanceId, nodeInstanceId);
                 List<ElementInstance> subElementInstanceList = new ArrayList<>();
                 nodeInstance.setSubElementInstanceList(subElementInstanceList);
                 for (FlowInstanceMappingPO flowInstanceMappingPO : flowInstanceMappingPOS) {
-                    ElementInstanceListResult subElementInstanceListResult = getHistoryElementList(flowInstanceMappingPO.getSubFlowInstanceId(), effectiveForSubFlowInstance);
+                    ElementInstanceListResult subElementInstanceListResult = getHistoryElementList(flowInstanceHistory, flowInstanceMappingPO.getSubFlowInstanceId(), effectiveForSubFlowInstance);
                     subElementInstanceList.addAll(subElementInstanceListResult.getElementInstanceList());
                 }
             }
@@ -532,8 +661,7 @@ public class RuntimeProcessor {
         return elementInstanceListResult;
     }
 
-    private String getExecuteSubFlowInstanceId(String flowInstanceId, String nodeInstanceId) {
-        List<FlowInstanceMappingPO> flowInstanceMappingPOList = flowInstanceMappingDAO.selectFlowInstanceMappingPOList(flowInstanceId, nodeInstanceId);
+    private String getExecuteSubFlowInstanceId(List<FlowInstanceMappingPO> flowInstanceMappingPOList) {
         if (CollectionUtils.isEmpty(flowInstanceMappingPOList)) {
             return null;
         }
@@ -545,14 +673,6 @@ public class RuntimeProcessor {
         return flowInstanceMappingPOList.get(0).getSubFlowInstanceId();
     }
 
-    private List<NodeInstancePO> getHistoryNodeInstanceList(String flowInstanceId) {
-        return nodeInstanceDAO.selectByFlowInstanceId(flowInstanceId);
-    }
-
-    private List<NodeInstancePO> getDescHistoryNodeInstanceList(String flowInstanceId) {
-        return nodeInstanceDAO.selectDescByFlowInstanceId(flowInstanceId);
-    }
-
     public NodeInstanceResult getNodeInstance(String flowInstanceId, String nodeInstanceId, boolean effectiveForSubFlowInstance) {
         NodeInstanceResult nodeInstanceResult = new NodeInstanceResult();
         try {
@@ -573,7 +693,7 @@ public class RuntimeProcessor {
             nodeInstance.setModelKey(flowElement.getKey());
             nodeInstance.setModelName(FlowModelUtil.getElementName(flowElement));
             if (MapUtils.isNotEmpty(flowElement.getProperties())) {
-                nodeInstance.setProperties(flowElement.getProperties());
+                nodeInstance.setProperties(FlowModelUtil.copyProperties(flowElement.getProperties()));
             } else {
                 nodeInstance.setProperties(Maps.newHashMap());
             }
@@ -599,12 +719,7 @@ public class RuntimeProcessor {
     }
 
     public InstanceDataListResult packageInstanceDataResult(InstanceDataPO instanceDataPO) {
-        TypeReference<List<InstanceData>> typeReference = new TypeReference<List<InstanceData>>() {
-        };
-        List<InstanceData> instanceDataList = JSONObject.parseObject(instanceDataPO.getInstanceData(), typeReference);
-        if (CollectionUtils.isEmpty(instanceDataList)) {
-            instanceDataList = Lists.newArrayList();
-        }
+        List<InstanceData> instanceDataList = instanceDataCodecRegistry.getInstanceDataList(instanceDataPO);
 
         InstanceDataListResult instanceDataListResult = new InstanceDataListResult(ErrorEnum.SUCCESS);
         instanceDataListResult.setVariables(instanceDataList);
@@ -615,7 +730,9 @@ public class RuntimeProcessor {
     public FlowInstanceResult getFlowInstance(String flowInstanceId) {
         FlowInstanceResult flowInstanceResult = new FlowInstanceResult();
         try {
-            FlowInstanceBO flowInstanceBO = getFlowInstanceBO(flowInstanceId);
+            // a query reads the status through the flow cache
+            FlowInstanceBO flowInstanceBO = getFlowInstanceBO(flowInstanceId,
+                processInstanceDAO.selectCachedByFlowInstanceId(flowInstanceId));
             flowInstanceResult.setFlowInstanceBO(flowInstanceBO);
         } catch (ProcessException e) {
             flowInstanceResult.setErrCode(e.getErrNo());
@@ -627,36 +744,60 @@ public class RuntimeProcessor {
 
     ////////////////////////////////////////common////////////////////////////////////////
 
-    private FlowInfo getFlowInfoByFlowDeployId(String flowDeployId) throws ProcessException {
+    /**
+     * Flush the writes of the call before its result is returned, so a failed flush is answered with a failed result
+     * like any other failure, instead of an exception thrown out of the engine. The unit of work is rolled back then,
+     * and the failed result keeps no flowInstance info, since nothing of the call is saved.
+     */
+    private <T extends CommonResult> T flushWrites(T result, Supplier<T> failedResultSupplier) {
+        return isFlushed() ? result : buildFailedResult(failedResultSupplier.get());
+    }
 
-        FlowDeploymentPO flowDeploymentPO = flowDeploymentDAO.selectByDeployId(flowDeployId);
-        if (flowDeploymentPO == null) {
+    // false while the flush fails, or a nested call has failed to flush before, the unit of work is rolled back
+    private boolean isFlushed() {
+        try {
+            UnitOfWork.flushPending();
+        } catch (RuntimeException e) {
+            // logged by the flush
+            return false;
+        }
+        return !UnitOfWork.isRollbackOnly();
+    }
+
+    private static <T extends CommonResult> T buildFailedResult(T result) {
+        result.setErrCode(ErrorEnum.SYSTEM_ERROR.getErrNo());
+        result.setErrMsg(ErrorEnum.SYSTEM_ERROR.getErrMsg());
+        return result;
+    }
+
+
+    private CompiledFlowInfo getFlowInfoByFlowDeployId(String flowDeployId) throws ProcessException {
+
+        //get from cache, load from db while missed
+        CompiledFlowInfo flowInfo = flowDeploymentService.getByFlowDeployId(flowDeployId);
+        if (flowInfo == null) {
             LOGGER.warn("getFlowInfoByFlowDeployId failed.||flowDeployId={}", flowDeployId);
             throw new ProcessException(ErrorEnum.GET_FLOW_DEPLOYMENT_FAILED);
         }
-        FlowInfo flowInfo = new FlowInfo();
-        BeanUtils.copyProperties(flowDeploymentPO, flowInfo);
-
         return flowInfo;
     }
 
-    private FlowInfo getFlowInfoByFlowModuleId(String flowModuleId) throws ProcessException {
-        //get from db directly
-        FlowDeploymentPO flowDeploymentPO = flowDeploymentDAO.selectRecentByFlowModuleId(flowModuleId);
-        if (flowDeploymentPO == null) {
+    private CompiledFlowInfo getFlowInfoByFlowModuleId(String flowModuleId) throws ProcessException {
+        //get from cache, which is invalidated on deploy
+        CompiledFlowInfo flowInfo = flowDeploymentService.getRecentByFlowModuleId(flowModuleId);
+        if (flowInfo == null) {
             LOGGER.warn("getFlowInfoByFlowModuleId failed.||flowModuleId={}", flowModuleId);
             throw new ProcessException(ErrorEnum.GET_FLOW_DEPLOYMENT_FAILED);
         }
-
-        FlowInfo flowInfo = new FlowInfo();
-        BeanUtils.copyProperties(flowDeploymentPO, flowInfo);
-
         return flowInfo;
     }
 
     private FlowInstanceBO getFlowInstanceBO(String flowInstanceId) throws ProcessException {
         //get from db
-        FlowInstancePO flowInstancePO = processInstanceDAO.selectByFlowInstanceId(flowInstanceId);
+        return getFlowInstanceBO(flowInstanceId, processInstanceDAO.selectByFlowInstanceId(flowInstanceId));
+    }
+
+    private FlowInstanceBO getFlowInstanceBO(String flowInstanceId, FlowInstancePO flowInstancePO) throws ProcessException {
         if (flowInstancePO == null) {
             LOGGER.warn("getFlowInstancePO failed: cannot find flowInstancePO from db.||flowInstanceId={}", flowInstanceId);
             throw new ProcessException(ErrorEnum.GET_FLOW_INSTANCE_FAILED);
@@ -667,14 +808,32 @@ public class RuntimeProcessor {
         return flowInstanceBO;
     }
 
-    private RuntimeContext buildRuntimeContext(FlowInfo flowInfo) {
+    /**
+     * Claim the flowInstance for this call by increasing its version, before anything is written.
+     * The update holds the row lock until the unit of work commits, so concurrent commit or rollback calls on the same
+     * flowInstance are serialized, and the ones which read the old version fail with FLOW_INSTANCE_CONFLICT to retry.
+     */
+    private void claimFlowInstance(FlowInstanceBO flowInstanceBO) throws ProcessException {
+        int version = flowInstanceBO.getVersion() == null ? 0 : flowInstanceBO.getVersion();
+        if (!processInstanceDAO.compareAndIncreaseVersion(flowInstanceBO.getFlowInstanceId(), version)) {
+            throw new ProcessException(ErrorEnum.FLOW_INSTANCE_CONFLICT);
+        }
+        flowInstanceBO.setVersion(version + 1);
+    }
+
+    private RuntimeContext buildRuntimeContext(CompiledFlowInfo flowInfo) {
         RuntimeContext runtimeContext = new RuntimeContext();
-        BeanUtils.copyProperties(flowInfo, runtimeContext);
-        runtimeContext.setFlowElementMap(FlowModelUtil.getFlowElementMap(flowInfo.getFlowModel()));
+        runtimeContext.setFlowDeployId(flowInfo.getFlowDeployId());
+        runtimeContext.setFlowModuleId(flowInfo.getFlowModuleId());
+        runtimeContext.setTenant(flowInfo.getTenant());
+        runtimeContext.setCaller(flowInfo.getCaller());
+        runtimeContext.setFlowElementMap(flowInfo.getFlowElementMap());
+        runtimeContext.setFlowGraph(flowInfo.getFlowGraph());
+        MetricsContext.tag(flowInfo.getTenant(), flowInfo.getCaller());
         return runtimeContext;
     }
 
-    private RuntimeContext buildRuntimeContext(FlowInfo flowInfo, List<InstanceData> variables, RuntimeContext parentRuntimeContext) {
+    private RuntimeContext buildRuntimeContext(CompiledFlowInfo flowInfo, List<InstanceData> variables, RuntimeContext parentRuntimeContext) {
         RuntimeContext runtimeContext = buildRuntimeContext(flowInfo);
         Map<String, InstanceData> instanceDataMap = InstanceDataUtil.getInstanceDataMap(variables);
         runtimeContext.setInstanceDataMap(instanceDataMap);
@@ -716,7 +875,7 @@ public class RuntimeProcessor {
         activeNodeInstance.setModelKey(nodeInstanceBO.getNodeKey());
         FlowElement flowElement = runtimeContext.getFlowElementMap().get(nodeInstanceBO.getNodeKey());
         activeNodeInstance.setModelName(FlowModelUtil.getElementName(flowElement));
-        activeNodeInstance.setProperties(flowElement.getProperties());
+        activeNodeInstance.setProperties(FlowModelUtil.copyProperties(flowElement.getProperties()));
         activeNodeInstance.setFlowElementType(flowElement.getType());
         activeNodeInstance.setSubNodeResultList(runtimeContext.getCallActivityRuntimeResultList());
 
@@ -725,7 +884,7 @@ public class RuntimeProcessor {
     }
 
     public void checkIsSubFlowInstance(String flowInstanceId) {
-        FlowInstancePO flowInstancePO = processInstanceDAO.selectByFlowInstanceId(flowInstanceId);
+        FlowInstancePO flowInstancePO = processInstanceDAO.selectCachedByFlowInstanceId(flowInstanceId);
         if (flowInstancePO == null) {
             LOGGER.warn("checkIsSubFlowInstance failed: cannot find flowInstancePO from db.||flowInstanceId={}", flowInstanceId);
             throw new RuntimeException(ErrorEnum.GET_FLOW_INSTANCE_FAILED.getErrMsg());
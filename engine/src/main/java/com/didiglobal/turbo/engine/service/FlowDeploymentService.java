@@ -0,0 +1,291 @@
+package com.didiglobal.turbo.engine.service;
+
+import com.didiglobal.turbo.engine.bo.CompiledFlowInfo;
+import com.didiglobal.turbo.engine.bo.FlowGraph;
+import com.didiglobal.turbo.engine.dao.FlowDeployEpochDAO;
+import com.didiglobal.turbo.engine.dao.FlowDeploymentDAO;
+import com.didiglobal.turbo.engine.entity.FlowDeploymentPO;
+import com.didiglobal.turbo.engine.model.FlowElement;
+import com.didiglobal.turbo.engine.util.FlowModelUtil;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolve flow deployments through a bounded in-process cache.
+ * <p>
+ * A flowDeployId row never changes after deploy, so the parsed model is cached by flowDeployId without expiration.
+ * The cache is bounded by the total length of cached flowModel, concurrent misses of the same flowDeployId
+ * are collapsed into one load.
+ * <p>
+ * The recent deployment of a flowModuleId changes on deploy. It's invalidated locally by {@link #onDeployed},
+ * and other nodes find out by polling the deploy epoch, so a new deployment is visible to the whole cluster
+ * within one poll interval.
+ */
+@Service
+public class FlowDeploymentService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FlowDeploymentService.class);
+
+    @Resource
+    private FlowDeploymentDAO flowDeploymentDAO;
+
+    @Resource
+    private FlowDeployEpochDAO flowDeployEpochDAO;
+
+    // max total length of cached flowModel
+    @Value("${flowDeployment.cache.maxWeight:33554432}")
+    private long maxWeight = 32 * 1024 * 1024;
+
+    @Value("${flowDeployment.recentCache.maxSize:10000}")
+    private long recentMaxSize = 10000;
+
+    // upper bound of staleness while the epoch can not be polled
+    @Value("${flowDeployment.recentCache.expireSeconds:600}")
+    private long recentExpireSeconds = 600;
+
+    // 0 means not polling
+    @Value("${flowDeployment.epoch.pollIntervalMillis:3000}")
+    private long epochPollIntervalMillis;
+
+    private LoadingCache<String, CompiledFlowInfo> compiledFlowInfoCache;
+
+    // flowModuleId -> recent flowDeployId
+    private LoadingCache<String, RecentDeployment> recentFlowDeployIdCache;
+
+    private volatile long deployEpoch;
+
+    private ScheduledExecutorService epochPollExecutor;
+
+    @PostConstruct
+    public void init() {
+        compiledFlowInfoCache = CacheBuilder.newBuilder()
+            .maximumWeight(maxWeight)
+            .weigher((String flowDeployId, CompiledFlowInfo compiledFlowInfo) -> getWeight(compiledFlowInfo))
+            .recordStats()
+            .build(new CacheLoader<String, CompiledFlowInfo>() {
+                @Override
+                public CompiledFlowInfo load(String flowDeployId) {
+                    // return null while not found: nothing is cached and InvalidCacheLoadException is thrown
+                    FlowDeploymentPO flowDeploymentPO = flowDeploymentDAO.selectByDeployId(flowDeployId);
+                    return flowDeploymentPO == null ? null : compile(flowDeploymentPO);
+                }
+            });
+        recentFlowDeployIdCache = CacheBuilder.newBuilder()
+            .maximumSize(recentMaxSize)
+            .expireAfterWrite(recentExpireSeconds, TimeUnit.SECONDS)
+            .recordStats()
+            .build(new CacheLoader<String, RecentDeployment>() {
+                @Override
+                public RecentDeployment load(String flowModuleId) {
+                    // read epoch before db: a deploy during the load makes the value outdated at once
+                    long epoch = deployEpoch;
+                    FlowDeploymentPO flowDeploymentPO = flowDeploymentDAO.selectRecentByFlowModuleId(flowModuleId);
+                    if (flowDeploymentPO == null) {
+                        return null;
+                    }
+                    // the model is parsed by the way, the following getByFlowDeployId will hit
+                    getByFlowDeploymentPO(flowDeploymentPO);
+                    return new RecentDeployment(flowDeploymentPO.getFlowDeployId(), epoch);
+                }
+            });
+
+        if (epochPollIntervalMillis > 0) {
+            deployEpoch = pollEpoch();
+            epochPollExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "turbo-deploy-epoch-poller");
+                thread.setDaemon(true);
+                return thread;
+            });
+            epochPollExecutor.scheduleWithFixedDelay(this::refreshEpoch,
+                epochPollIntervalMillis, epochPollIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (epochPollExecutor != null) {
+            epochPollExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Get the parsed deployment by flowDeployId, return null while the deployment is not exist.
+     *
+     * @param flowDeployId
+     * @return compiledFlowInfo, shared and read-only
+     */
+    public CompiledFlowInfo getByFlowDeployId(String flowDeployId) {
+        if (StringUtils.isBlank(flowDeployId)) {
+            return null;
+        }
+        try {
+            return compiledFlowInfoCache.getUnchecked(flowDeployId);
+        } catch (CacheLoader.InvalidCacheLoadException e) {
+            return null;
+        } catch (UncheckedExecutionException e) {
+            LOGGER.error("getByFlowDeployId exception.||flowDeployId={}", flowDeployId, e.getCause());
+            return null;
+        }
+    }
+
+    /**
+     * Get the parsed deployment of a flowDeploymentPO which has been queried already, it's parsed only while missed.
+     */
+    public CompiledFlowInfo getByFlowDeploymentPO(FlowDeploymentPO flowDeploymentPO) {
+        try {
+            return compiledFlowInfoCache.get(flowDeploymentPO.getFlowDeployId(), () -> compile(flowDeploymentPO));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            LOGGER.error("getByFlowDeploymentPO exception.||flowDeployId={}", flowDeploymentPO.getFlowDeployId(), e.getCause());
+            return compile(flowDeploymentPO);
+        }
+    }
+
+    /**
+     * Get the parsed recent deployment of the flowModuleId, return null while the flow is not deployed.
+     *
+     * @param flowModuleId
+     * @return compiledFlowInfo, shared and read-only
+     */
+    public CompiledFlowInfo getRecentByFlowModuleId(String flowModuleId) {
+        if (StringUtils.isBlank(flowModuleId)) {
+            return null;
+        }
+        RecentDeployment recentDeployment;
+        try {
+            recentDeployment = recentFlowDeployIdCache.getUnchecked(flowModuleId);
+            if (recentDeployment.epoch != deployEpoch) {
+                recentFlowDeployIdCache.invalidate(flowModuleId);
+                recentDeployment = recentFlowDeployIdCache.getUnchecked(flowModuleId);
+            }
+        } catch (CacheLoader.InvalidCacheLoadException e) {
+            return null;
+        } catch (UncheckedExecutionException e) {
+            LOGGER.error("getRecentByFlowModuleId exception.||flowModuleId={}", flowModuleId, e.getCause());
+            return null;
+        }
+        return getByFlowDeployId(recentDeployment.flowDeployId);
+    }
+
+    /**
+     * Called after a new deployment is inserted: invalidate the local recent deployment of the flowModuleId
+     * and increase the deploy epoch to notify other nodes.
+     */
+    public void onDeployed(FlowDeploymentPO flowDeploymentPO) {
+        recentFlowDeployIdCache.invalidate(flowDeploymentPO.getFlowModuleId());
+        if (flowDeployEpochDAO.increaseEpoch() != 1) {
+            LOGGER.warn("onDeployed: increase deploy epoch failed.||flowDeployId={}||flowModuleId={}",
+                flowDeploymentPO.getFlowDeployId(), flowDeploymentPO.getFlowModuleId());
+            return;
+        }
+        if (epochPollIntervalMillis > 0) {
+            refreshEpoch();
+        }
+    }
+
+    /**
+     * Poll the deploy epoch, drop all the recent deployments while it's changed by any node.
+     */
+    void refreshEpoch() {
+        long epoch = pollEpoch();
+        if (epoch < 0 || epoch == deployEpoch) {
+            return;
+        }
+        LOGGER.info("refreshEpoch: deploy epoch changed.||oldEpoch={}||newEpoch={}", deployEpoch, epoch);
+        recentFlowDeployIdCache.invalidateAll();
+        deployEpoch = epoch;
+    }
+
+    private long pollEpoch() {
+        try {
+            return flowDeployEpochDAO.selectEpoch();
+        } catch (Exception e) {
+            LOGGER.warn("pollEpoch failed.", e);
+            return -1L;
+        }
+    }
+
+    /**
+     * Get the parsed flowElementMap by flowDeployId, return null while the deployment is not exist.
+     */
+    public Map<String, FlowElement> getFlowElementMap(String flowDeployId) {
+        CompiledFlowInfo compiledFlowInfo = getByFlowDeployId(flowDeployId);
+        return compiledFlowInfo == null ? null : compiledFlowInfo.getFlowElementMap();
+    }
+
+    /**
+     * Hit/miss/load/eviction statistics of the deployment cache.
+     */
+    public CacheStats getCacheStats() {
+        return compiledFlowInfoCache.stats();
+    }
+
+    public long getCacheSize() {
+        return compiledFlowInfoCache.size();
+    }
+
+    /**
+     * Hit/miss/load/eviction statistics of the flowModuleId to recent flowDeployId cache.
+     */
+    public CacheStats getRecentCacheStats() {
+        return recentFlowDeployIdCache.stats();
+    }
+
+    public long getRecentCacheSize() {
+        return recentFlowDeployIdCache.size();
+    }
+
+    private CompiledFlowInfo compile(FlowDeploymentPO flowDeploymentPO) {
+        Map<String, FlowElement> flowElementMap = FlowModelUtil.getFlowElementMap(flowDeploymentPO.getFlowModel());
+        for (FlowElement flowElement : flowElementMap.values()) {
+            freeze(flowElement);
+        }
+        return new CompiledFlowInfo(flowDeploymentPO.getFlowDeployId(), flowDeploymentPO.getFlowModuleId(),
+            flowDeploymentPO.getTenant(), flowDeploymentPO.getCaller(), flowDeploymentPO.getFlowModel(),
+            Collections.unmodifiableMap(flowElementMap), FlowGraph.compile(flowElementMap));
+    }
+
+    private void freeze(FlowElement flowElement) {
+        if (flowElement.getIncoming() != null) {
+            flowElement.setIncoming(Collections.unmodifiableList(flowElement.getIncoming()));
+        }
+        if (flowElement.getOutgoing() != null) {
+            flowElement.setOutgoing(Collections.unmodifiableList(flowElement.getOutgoing()));
+        }
+        if (flowElement.getProperties() != null) {
+            flowElement.setProperties(FlowModelUtil.freezeProperties(flowElement.getProperties()));
+        }
+    }
+
+    private static final class RecentDeployment {
+        private final String flowDeployId;
+        private final long epoch;
+
+        private RecentDeployment(String flowDeployId, long epoch) {
+            this.flowDeployId = flowDeployId;
+            this.epoch = epoch;
+        }
+    }
+
+    private static int getWeight(CompiledFlowInfo compiledFlowInfo) {
+        String flowModel = compiledFlowInfo.getFlowModel();
+        return flowModel == null ? 1 : Math.max(1, flowModel.length());
+    }
+}
@@ -1,30 +1,31 @@
 package com.didiglobal.turbo.engine.service;
 
-import com.didiglobal.turbo.engine.common.FlowElementType;
-import com.didiglobal.turbo.engine.dao.FlowDeploymentDAO;
+import com.didiglobal.turbo.engine.bo.FlowInstanceHierarchy;
+import com.didiglobal.turbo.engine.bo.FlowInstanceHistory;
 import com.didiglobal.turbo.engine.dao.FlowInstanceMappingDAO;
 import com.didiglobal.turbo.engine.dao.NodeInstanceDAO;
-import com.didiglobal.turbo.engine.dao.ProcessInstanceDAO;
-import com.didiglobal.turbo.engine.entity.FlowDeploymentPO;
 import com.didiglobal.turbo.engine.entity.FlowInstanceMappingPO;
-import com.didiglobal.turbo.engine.entity.FlowInstancePO;
 import com.didiglobal.turbo.engine.entity.NodeInstancePO;
-import com.didiglobal.turbo.engine.model.FlowElement;
-import com.didiglobal.turbo.engine.util.FlowModelUtil;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
-import java.util.TreeSet;
 
 @Service
 public class FlowInstanceService {
@@ -37,11 +38,9 @@ public class FlowInstanceService {
     @Resource
     private FlowInstanceMappingDAO flowInstanceMappingDAO;
 
-    @Resource
-    private ProcessInstanceDAO processInstanceDAO;
-
-    @Resource
-    private FlowDeploymentDAO flowDeploymentDAO;
+    // read the mappings saved before root_flow_instance_id was added, false once they're backfilled
+    @Value("${turbo.flowInstanceMapping.legacyEnabled:true}")
+    private boolean legacyMappingEnabled = true;
 
     /**
      * According to rootFlowInstanceId and commitNodeInstanceId, build and return NodeInstance stack.
@@ -64,8 +63,7 @@ public class FlowInstanceService {
             LOGGER.info("getNodeInstanceId2RootStack result is empty.||rootFlowInstanceId={}||commitNodeInstanceId={}", rootFlowInstanceId, commitNodeInstanceId);
             return new Stack<>();
         }
-        FlowInstanceTreeResult flowInstanceTreeResult = buildFlowInstanceTree(rootFlowInstanceId,
-            nodeInstancePO -> nodeInstancePO.getNodeInstanceId().equals(commitNodeInstanceId));
+        FlowInstanceTreeResult flowInstanceTreeResult = findNodeInstance(rootFlowInstanceId, commitNodeInstanceId);
         NodeInstancePOJO rightNodeInstance = flowInstanceTreeResult.getInterruptNodeInstancePOJO();
         Stack<String> stack = new Stack<>();
         while (rightNodeInstance != null) {
@@ -83,32 +81,119 @@ public class FlowInstanceService {
      * @return
      */
     public Set<String> getAllSubFlowInstanceIds(String rootFlowInstanceId) {
-        FlowInstanceTreeResult flowInstanceTreeResult = buildFlowInstanceTree(rootFlowInstanceId, null);
-        FlowInstancePOJO flowInstancePOJO = flowInstanceTreeResult.getRootFlowInstancePOJO();
-        Set<String> result = getAllSubFlowInstanceIdsInternal(flowInstancePOJO);
-        result.remove(rootFlowInstanceId);
+        Set<String> result = getFlowInstanceHierarchy(rootFlowInstanceId).getSubFlowInstanceIds(rootFlowInstanceId);
         LOGGER.info("getAllSubFlowInstanceIds result.||rootFlowInstanceId={}||result={}", rootFlowInstanceId, result);
         return result;
     }
 
-    private Set<String> getAllSubFlowInstanceIdsInternal(FlowInstancePOJO flowInstancePOJO) {
-        Set<String> result = new TreeSet<>();
-        if (flowInstancePOJO == null) {
-            return result;
+    /**
+     * According to rootFlowInstanceId, get the callActivity hierarchy from db in one query.
+     * Mappings saved before root_flow_instance_id was added are merged in, see {@link #mergeLegacyMappingList}.
+     *
+     * @param rootFlowInstanceId
+     * @return
+     */
+    public FlowInstanceHierarchy getFlowInstanceHierarchy(String rootFlowInstanceId) {
+        List<FlowInstanceMappingPO> mappingList = flowInstanceMappingDAO.selectByRootFlowInstanceId(rootFlowInstanceId);
+        if (legacyMappingEnabled) {
+            mappingList = mergeLegacyMappingList(rootFlowInstanceId, mappingList);
+        }
+        return new FlowInstanceHierarchy(rootFlowInstanceId, mappingList);
+    }
+
+    /**
+     * According to flowInstanceId, load the nodeInstances for building history. With subFlowInstances, the
+     * subFlowInstances mapped by the callActivity nodeInstances of a level are loaded in one query per level.
+     *
+     * @param flowInstanceId
+     * @param withSubFlowInstances
+     * @return
+     */
+    public FlowInstanceHistory getFlowInstanceHistory(String flowInstanceId, boolean withSubFlowInstances) {
+        Map<String, List<NodeInstancePO>> nodeInstanceMap = new LinkedHashMap<>();
+        if (!withSubFlowInstances) {
+            nodeInstanceMap.put(flowInstanceId, nodeInstanceDAO.selectByFlowInstanceId(flowInstanceId));
+            return new FlowInstanceHistory(new FlowInstanceHierarchy(flowInstanceId, Collections.emptyList()), nodeInstanceMap);
         }
-        result.add(flowInstancePOJO.getId());
-        List<NodeInstancePOJO> nodeInstanceList = flowInstancePOJO.getNodeInstanceList();
-        for (NodeInstancePOJO nodeInstancePOJO : nodeInstanceList) {
-            if (CollectionUtils.isEmpty(nodeInstancePOJO.getSubFlowInstanceList())) {
-                continue;
+        FlowInstanceHierarchy hierarchy = getFlowInstanceHierarchy(flowInstanceId);
+        Set<String> levelFlowInstanceIds = Collections.singleton(flowInstanceId);
+        while (!levelFlowInstanceIds.isEmpty()) {
+            Map<String, List<NodeInstancePO>> levelNodeInstanceMap;
+            if (levelFlowInstanceIds.size() == 1) {
+                String levelFlowInstanceId = levelFlowInstanceIds.iterator().next();
+                levelNodeInstanceMap = Collections.singletonMap(levelFlowInstanceId, nodeInstanceDAO.selectByFlowInstanceId(levelFlowInstanceId));
+            } else {
+                levelNodeInstanceMap = nodeInstanceDAO.selectByFlowInstanceIds(levelFlowInstanceIds);
+            }
+            Set<String> nextFlowInstanceIds = new LinkedHashSet<>();
+            for (String levelFlowInstanceId : levelFlowInstanceIds) {
+                List<NodeInstancePO> nodeInstanceList = levelNodeInstanceMap.getOrDefault(levelFlowInstanceId, new ArrayList<>());
+                nodeInstanceMap.put(levelFlowInstanceId, nodeInstanceList);
+                for (NodeInstancePO nodeInstancePO : nodeInstanceList) {
+                    for (FlowInstanceMappingPO mappingPO : hierarchy.getMappingList(levelFlowInstanceId, nodeInstancePO.getNodeInstanceId())) {
+                        if (!nodeInstanceMap.containsKey(mappingPO.getSubFlowInstanceId())) {
+                            nextFlowInstanceIds.add(mappingPO.getSubFlowInstanceId());
+                        }
+                    }
+                }
             }
-            FlowInstancePOJO subFlowInstancePOJO = nodeInstancePOJO.getSubFlowInstanceList().get(0);
-            Set<String> subFlowInstanceResult = getAllSubFlowInstanceIdsInternal(subFlowInstancePOJO);
-            result.addAll(subFlowInstanceResult);
+            levelFlowInstanceIds = nextFlowInstanceIds;
         }
-        return result;
+        return new FlowInstanceHistory(hierarchy, nodeInstanceMap);
     }
 
+    /**
+     * Mappings saved before root_flow_instance_id was added have it blank, and may be anywhere in the hierarchy of a
+     * flowInstance in flight across the upgrade, under new mappings as well. They're read level by level from the root,
+     * in one query per level, and merged with the others in the order of id.
+     */
+    private List<FlowInstanceMappingPO> mergeLegacyMappingList(String rootFlowInstanceId, List<FlowInstanceMappingPO> mappingList) {
+        Map<String, List<String>> subFlowInstanceIdMap = new HashMap<>();
+        for (FlowInstanceMappingPO mappingPO : mappingList) {
+            subFlowInstanceIdMap.computeIfAbsent(mappingPO.getFlowInstanceId(), key -> new ArrayList<>()).add(mappingPO.getSubFlowInstanceId());
+        }
+        List<FlowInstanceMappingPO> legacyMappingList = new ArrayList<>();
+        Set<String> visitedIds = new HashSet<>();
+        Set<String> levelFlowInstanceIds = Collections.singleton(rootFlowInstanceId);
+        visitedIds.add(rootFlowInstanceId);
+        while (!levelFlowInstanceIds.isEmpty()) {
+            Set<String> nextFlowInstanceIds = new LinkedHashSet<>();
+            for (FlowInstanceMappingPO mappingPO : flowInstanceMappingDAO.selectLegacyByFlowInstanceIds(levelFlowInstanceIds)) {
+                legacyMappingList.add(mappingPO);
+                nextFlowInstanceIds.add(mappingPO.getSubFlowInstanceId());
+            }
+            for (String levelFlowInstanceId : levelFlowInstanceIds) {
+                nextFlowInstanceIds.addAll(subFlowInstanceIdMap.getOrDefault(levelFlowInstanceId, Collections.emptyList()));
+            }
+            // a ring of mappings is read once
+            nextFlowInstanceIds.removeAll(visitedIds);
+            visitedIds.addAll(nextFlowInstanceIds);
+            levelFlowInstanceIds = nextFlowInstanceIds;
+        }
+        if (legacyMappingList.isEmpty()) {
+            return mappingList;
+        }
+        LOGGER.info("getFlowInstanceHierarchy: merge legacy mappings.||rootFlowInstanceId={}||size={}", rootFlowInstanceId, legacyMappingList.size());
+        List<FlowInstanceMappingPO> mergedMappingList = new ArrayList<>(mappingList);
+        mergedMappingList.addAll(legacyMappingList);
+        mergedMappingList.sort(Comparator.comparing(FlowInstanceMappingPO::getId));
+        return mergedMappingList;
+    }
+
+    /**
+     * According to subFlowInstanceId, get the mappings from the root flowInstance down to the subFlowInstance in one query.
+     *
+     * @param subFlowInstanceId
+     * @return empty while it's a root flowInstance
+     */
+    public List<FlowInstanceMappingPO> getAncestorMappingList(String subFlowInstanceId) {
+        List<FlowInstanceMappingPO> mappingList = flowInstanceMappingDAO.selectSameRootBySubFlowInstanceId(subFlowInstanceId);
+        if (CollectionUtils.isEmpty(mappingList)) {
+            return new ArrayList<>();
+        }
+        FlowInstanceHierarchy hierarchy = new FlowInstanceHierarchy(mappingList.get(0).getRootFlowInstanceId(), mappingList);
+        return hierarchy.getAncestorPath(subFlowInstanceId);
+    }
 
     /**
      * According to rootFlowInstanceId and nodeInstanceId,
@@ -122,8 +207,7 @@ public class FlowInstanceService {
         if (StringUtils.isBlank(nodeInstanceId)) {
             return StringUtils.EMPTY;
         }
-        FlowInstanceTreeResult flowInstanceTreeResult = buildFlowInstanceTree(rootFlowInstanceId,
-            nodeInstancePO -> nodeInstancePO.getNodeInstanceId().equals(nodeInstanceId));
+        FlowInstanceTreeResult flowInstanceTreeResult = findNodeInstance(rootFlowInstanceId, nodeInstanceId);
         NodeInstancePOJO rightNodeInstance = flowInstanceTreeResult.getInterruptNodeInstancePOJO();
         if (rightNodeInstance == null) {
             return StringUtils.EMPTY;
@@ -152,18 +236,64 @@ public class FlowInstanceService {
         return rightNodeInstance.getFlowInstance().getId();
     }
 
-    // common : build a flowInstanceAndNodeInstance tree
-    private FlowInstanceTreeResult buildFlowInstanceTree(String rootFlowInstanceId, InterruptCondition interruptCondition) {
+    // common : find the nodeInstance and the callActivity nodeInstances above it in the tree of rootFlowInstanceId
+    private FlowInstanceTreeResult findNodeInstance(String rootFlowInstanceId, String nodeInstanceId) {
+        FlowInstanceTreeResult flowInstanceTreeResult = resolveNodeInstance(rootFlowInstanceId, nodeInstanceId);
+        if (flowInstanceTreeResult != null) {
+            return flowInstanceTreeResult;
+        }
+        return buildFlowInstanceTree(rootFlowInstanceId, nodeInstancePO -> nodeInstancePO.getNodeInstanceId().equals(nodeInstanceId));
+    }
+
+    /**
+     * Resolve the path of a nodeInstance without walking the tree: the nodeInstance is selected by its unique
+     * nodeInstanceId, and the mappings above its flowInstance in one more query while it's in a subFlowInstance.
+     * Return null while the path can't be resolved so, e.g. the mappings are saved without rootFlowInstanceId.
+     */
+    private FlowInstanceTreeResult resolveNodeInstance(String rootFlowInstanceId, String nodeInstanceId) {
         FlowInstanceTreeResult flowInstanceTreeResult = new FlowInstanceTreeResult();
+        NodeInstancePO nodeInstancePO = nodeInstanceDAO.selectByNodeInstanceId(rootFlowInstanceId, nodeInstanceId);
+        if (nodeInstancePO == null) {
+            return flowInstanceTreeResult;
+        }
+        String ownerFlowInstanceId = nodeInstancePO.getFlowInstanceId();
+        List<FlowInstanceMappingPO> ancestorMappingList = new ArrayList<>();
+        if (!rootFlowInstanceId.equals(ownerFlowInstanceId)) {
+            ancestorMappingList = getAncestorMappingList(ownerFlowInstanceId);
+            if (ancestorMappingList.isEmpty() || !rootFlowInstanceId.equals(ancestorMappingList.get(0).getFlowInstanceId())) {
+                return null;
+            }
+        }
         FlowInstancePOJO flowInstance = new FlowInstancePOJO();
         flowInstance.setId(rootFlowInstanceId);
         flowInstanceTreeResult.setRootFlowInstancePOJO(flowInstance);
+        for (FlowInstanceMappingPO flowInstanceMappingPO : ancestorMappingList) {
+            NodeInstancePOJO callActivityNodeInstance = new NodeInstancePOJO();
+            callActivityNodeInstance.setId(flowInstanceMappingPO.getNodeInstanceId());
+            callActivityNodeInstance.setFlowInstance(flowInstance);
+            flowInstance = new FlowInstancePOJO();
+            flowInstance.setId(flowInstanceMappingPO.getSubFlowInstanceId());
+            flowInstance.setBelongNodeInstance(callActivityNodeInstance);
+        }
+        NodeInstancePOJO nodeInstance = new NodeInstancePOJO();
+        nodeInstance.setId(nodeInstanceId);
+        nodeInstance.setFlowInstance(flowInstance);
+        flowInstanceTreeResult.setInterruptNodeInstancePOJO(nodeInstance);
+        return flowInstanceTreeResult;
+    }
 
-        FlowInstancePO rootFlowInstancePO = processInstanceDAO.selectByFlowInstanceId(rootFlowInstanceId);
-        FlowDeploymentPO rootFlowDeploymentPO = flowDeploymentDAO.selectByDeployId(rootFlowInstancePO.getFlowDeployId());
-        Map<String, FlowElement> rootFlowElementMap = FlowModelUtil.getFlowElementMap(rootFlowDeploymentPO.getFlowModel());
+    // common : build a flowInstanceAndNodeInstance tree
+    private FlowInstanceTreeResult buildFlowInstanceTree(String rootFlowInstanceId, InterruptCondition interruptCondition) {
+        return buildFlowInstanceTree(getFlowInstanceHierarchy(rootFlowInstanceId), rootFlowInstanceId, interruptCondition);
+    }
+
+    private FlowInstanceTreeResult buildFlowInstanceTree(FlowInstanceHierarchy hierarchy, String flowInstanceId, InterruptCondition interruptCondition) {
+        FlowInstanceTreeResult flowInstanceTreeResult = new FlowInstanceTreeResult();
+        FlowInstancePOJO flowInstance = new FlowInstancePOJO();
+        flowInstance.setId(flowInstanceId);
+        flowInstanceTreeResult.setRootFlowInstancePOJO(flowInstance);
 
-        List<NodeInstancePO> nodeInstancePOList = nodeInstanceDAO.selectDescByFlowInstanceId(rootFlowInstanceId);
+        List<NodeInstancePO> nodeInstancePOList = nodeInstanceDAO.selectDescByFlowInstanceId(flowInstanceId);
         for (NodeInstancePO nodeInstancePO : nodeInstancePOList) {
             NodeInstancePOJO nodeInstance = new NodeInstancePOJO();
             nodeInstance.setId(nodeInstancePO.getNodeInstanceId());
@@ -175,13 +305,10 @@ public class FlowInstanceService {
                 return flowInstanceTreeResult;
             }
 
-            int elementType = FlowModelUtil.getElementType(nodeInstancePO.getNodeKey(), rootFlowElementMap);
-            if (elementType != FlowElementType.CALL_ACTIVITY) {
-                continue;
-            }
-            List<FlowInstanceMappingPO> flowInstanceMappingPOS = flowInstanceMappingDAO.selectFlowInstanceMappingPOList(nodeInstancePO.getFlowInstanceId(), nodeInstancePO.getNodeInstanceId());
+            // only callActivity nodeInstances have mappings
+            List<FlowInstanceMappingPO> flowInstanceMappingPOS = hierarchy.getMappingList(flowInstanceId, nodeInstancePO.getNodeInstanceId());
             for (FlowInstanceMappingPO flowInstanceMappingPO : flowInstanceMappingPOS) {
-                FlowInstanceTreeResult subFlowInstanceTreeResult = buildFlowInstanceTree(flowInstanceMappingPO.getSubFlowInstanceId(), interruptCondition);
+                FlowInstanceTreeResult subFlowInstanceTreeResult = buildFlowInstanceTree(hierarchy, flowInstanceMappingPO.getSubFlowInstanceId(), interruptCondition);
                 FlowInstancePOJO subFlowInstance = subFlowInstanceTreeResult.getRootFlowInstancePOJO();
                 subFlowInstance.setBelongNodeInstance(nodeInstance);
                 nodeInstance.getSubFlowInstanceList().add(subFlowInstance);
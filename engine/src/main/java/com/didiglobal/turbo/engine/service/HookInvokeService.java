@@ -0,0 +1,316 @@
+package com.didiglobal.turbo.engine.service;
+
+import com.alibaba.fastjson.JSON;
+import com.didiglobal.turbo.engine.common.Constants;
+import com.didiglobal.turbo.engine.metrics.EngineMetrics;
+import com.didiglobal.turbo.engine.metrics.MetricsContext;
+import com.didiglobal.turbo.engine.model.InstanceData;
+import com.didiglobal.turbo.engine.spi.HookService;
+import com.didiglobal.turbo.engine.util.InstanceDataUtil;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.Lists;
+import org.apache.commons.collections4.CollectionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Invoke all the {@link HookService} beans of a gateway concurrently on a bounded pool.
+ * <p>
+ * Each hook is waited for at most timeoutMillis since it's submitted, and all of them together at most
+ * totalTimeoutMillis. A hook runs with the MDC, e.g. the traceid, and the {@link MetricsContext} of the calling thread.
+ * A hook which fails or times out is skipped, the others are still merged: in the order of hookServices whatever order they
+ * complete in, so a later hook overrides the keys of an earlier one as while they ran one by one.
+ * <p>
+ * While the pool is saturated the hook runs on the calling thread, without a timeout.
+ * <p>
+ * With turbo.hook.cache.enabled, results of the hooks declaring a cache ttl are kept in a cache bounded by the total
+ * length of keys and results, see {@link HookService#getCacheTtlMillis()}. A hit is served on the calling thread.
+ */
+@Service
+public class HookInvokeService implements InitializingBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HookInvokeService.class);
+
+    private static final char KEY_SEPARATOR = '\u0001';
+
+    @Resource
+    private ApplicationContext applicationContext;
+
+    @Resource
+    private EngineMetrics engineMetrics;
+
+    @Value("${turbo.hook.threads:16}")
+    private int threads = 16;
+
+    @Value("${turbo.hook.queueSize:1024}")
+    private int queueSize = 1024;
+
+    // deadline of each hook
+    @Value("${turbo.hook.timeoutMillis:" + Constants.DEFAULT_TIMEOUT + "}")
+    private long timeoutMillis = Constants.DEFAULT_TIMEOUT;
+
+    // deadline of all the hooks of a gateway
+    @Value("${turbo.hook.totalTimeoutMillis:" + Constants.DEFAULT_TIMEOUT + "}")
+    private long totalTimeoutMillis = Constants.DEFAULT_TIMEOUT;
+
+    @Value("${turbo.hook.cache.enabled:false}")
+    private boolean cacheEnabled = false;
+
+    // max total length of cached keys and results
+    @Value("${turbo.hook.cache.maxWeight:16777216}")
+    private long cacheMaxWeight = 16 * 1024 * 1024;
+
+    private volatile List<HookService> hookServices;
+
+    private Cache<String, CachedResult> resultCache;
+
+    // hits of expired results, which are misses indeed
+    private final AtomicLong expiredHitCount = new AtomicLong();
+
+    private ThreadPoolExecutor hookExecutor;
+
+    @Override
+    public void afterPropertiesSet() {
+        AtomicInteger threadCounter = new AtomicInteger();
+        hookExecutor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueSize),
+            runnable -> {
+                Thread thread = new Thread(runnable, "turbo-hook-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy());
+        hookExecutor.allowCoreThreadTimeOut(true);
+        resultCache = CacheBuilder.newBuilder()
+            .maximumWeight(cacheMaxWeight)
+            .weigher((String key, CachedResult cachedResult) -> key.length() + cachedResult.weight)
+            .recordStats()
+            .build();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (hookExecutor != null) {
+            hookExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * @param instanceDataMap instance data of the flow instance, read for the cache keys
+     * @return merged results of the hooks which complete in time, empty while there's no hook
+     */
+    public Map<String, InstanceData> invoke(String flowInstanceId, String hookInfoParam, String nodeKey, String nodeInstanceId,
+                                            Map<String, InstanceData> instanceDataMap) {
+        List<HookService> services = getHookServices();
+        long totalDeadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(totalTimeoutMillis);
+        List<Future<List<InstanceData>>> futureList = new ArrayList<>(services.size());
+        long[] deadlineNanos = new long[services.size()];
+        for (int i = 0; i < services.size(); i++) {
+            HookService service = services.get(i);
+            String cacheKey = getCacheKey(service, flowInstanceId, hookInfoParam, instanceDataMap);
+            List<InstanceData> cachedList = getCachedResult(cacheKey);
+            if (cachedList != null) {
+                futureList.add(CompletableFuture.completedFuture(cachedList));
+                continue;
+            }
+            deadlineNanos[i] = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            futureList.add(hookExecutor.submit(withCallerContext(() -> {
+                List<InstanceData> list = invoke(service, flowInstanceId, hookInfoParam, nodeKey, nodeInstanceId);
+                putCachedResult(cacheKey, service, list);
+                return list;
+            })));
+        }
+
+        List<InstanceData> dataList = Lists.newArrayList();
+        for (int i = 0; i < services.size(); i++) {
+            HookService service = services.get(i);
+            Future<List<InstanceData>> future = futureList.get(i);
+            long waitNanos = Math.min(deadlineNanos[i], totalDeadlineNanos) - System.nanoTime();
+            try {
+                List<InstanceData> list = future.get(Math.max(0L, waitNanos), TimeUnit.NANOSECONDS);
+                if (list != null) {
+                    dataList.addAll(list);
+                }
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                LOGGER.warn("hook service invoke timeout, serviceName={}, flowInstanceId={}, hookInfoParam={}",
+                    service.getClass().getName(), flowInstanceId, hookInfoParam);
+                engineMetrics.increment(getMetricName(service) + ".timeout");
+            } catch (ExecutionException e) {
+                // logged by the task
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelAll(futureList);
+                LOGGER.warn("hook service invoke interrupted, flowInstanceId={}, hookInfoParam={}", flowInstanceId, hookInfoParam);
+                break;
+            }
+        }
+        return InstanceDataUtil.getInstanceDataMap(dataList);
+    }
+
+    private List<InstanceData> invoke(HookService service, String flowInstanceId, String hookInfoParam,
+                                      String nodeKey, String nodeInstanceId) throws Exception {
+        long startNanos = System.nanoTime();
+        try {
+            List<InstanceData> list = service.invoke(flowInstanceId, hookInfoParam, nodeKey, nodeInstanceId);
+            if (CollectionUtils.isEmpty(list)) {
+                LOGGER.warn("hook service invoke result is empty, serviceName={}, flowInstanceId={}, hookInfoParam={}",
+                    service.getClass().getName(), flowInstanceId, hookInfoParam);
+            }
+            return list;
+        } catch (Exception e) {
+            LOGGER.warn("hook service invoke fail, serviceName={}, flowInstanceId={}, hookInfoParam={}",
+                service.getClass().getName(), flowInstanceId, hookInfoParam, e);
+            engineMetrics.increment(getMetricName(service) + ".failure");
+            throw e;
+        } finally {
+            engineMetrics.recordTime(getMetricName(service), startNanos);
+        }
+    }
+
+    // run on a pool thread with the MDC and the MetricsContext of the calling thread
+    private static <T> Callable<T> withCallerContext(Callable<T> task) {
+        Map<String, String> mdcContext = MDC.getCopyOfContextMap();
+        return MetricsContext.wrap(() -> {
+            Map<String, String> previousMdcContext = MDC.getCopyOfContextMap();
+            setMdcContext(mdcContext);
+            try {
+                return task.call();
+            } finally {
+                setMdcContext(previousMdcContext);
+            }
+        });
+    }
+
+    private static void setMdcContext(Map<String, String> mdcContext) {
+        if (mdcContext == null) {
+            MDC.clear();
+        } else {
+            MDC.setContextMap(mdcContext);
+        }
+    }
+
+    // null while the result of the hook is not cacheable
+    private String getCacheKey(HookService service, String flowInstanceId, String hookInfoParam,
+                               Map<String, InstanceData> instanceDataMap) {
+        if (!cacheEnabled || service.getCacheTtlMillis() <= 0) {
+            return null;
+        }
+        StringBuilder cacheKey = new StringBuilder(service.getClass().getName())
+            .append(KEY_SEPARATOR).append(flowInstanceId)
+            .append(KEY_SEPARATOR).append(hookInfoParam);
+        for (String variable : service.getCacheKeyVariables()) {
+            InstanceData instanceData = instanceDataMap == null ? null : instanceDataMap.get(variable);
+            cacheKey.append(KEY_SEPARATOR).append(variable)
+                .append('=').append(instanceData == null ? "" : JSON.toJSONString(instanceData));
+        }
+        return cacheKey.toString();
+    }
+
+    private List<InstanceData> getCachedResult(String cacheKey) {
+        if (cacheKey == null) {
+            return null;
+        }
+        CachedResult cachedResult = resultCache.getIfPresent(cacheKey);
+        if (cachedResult == null) {
+            return null;
+        }
+        if (cachedResult.expireNanos - System.nanoTime() <= 0) {
+            expiredHitCount.incrementAndGet();
+            resultCache.invalidate(cacheKey);
+            return null;
+        }
+        return new ArrayList<>(cachedResult.instanceDataList);
+    }
+
+    private void putCachedResult(String cacheKey, HookService service, List<InstanceData> list) {
+        if (cacheKey == null || list == null) {
+            return;
+        }
+        long expireNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(service.getCacheTtlMillis());
+        resultCache.put(cacheKey, new CachedResult(new ArrayList<>(list), expireNanos));
+    }
+
+    /**
+     * Hit/miss/eviction statistics of the hook result cache, an expired result is counted as a miss.
+     */
+    public CacheStats getCacheStats() {
+        CacheStats cacheStats = resultCache.stats();
+        long expiredHits = Math.min(expiredHitCount.get(), cacheStats.hitCount());
+        return new CacheStats(cacheStats.hitCount() - expiredHits, cacheStats.missCount() + expiredHits,
+            cacheStats.loadSuccessCount(), cacheStats.loadExceptionCount(), cacheStats.totalLoadTime(),
+            cacheStats.evictionCount());
+    }
+
+    public long getCacheSize() {
+        return resultCache.size();
+    }
+
+    private static void cancelAll(List<Future<List<InstanceData>>> futureList) {
+        for (Future<List<InstanceData>> future : futureList) {
+            future.cancel(true);
+        }
+    }
+
+    // e.g. hook.OrderHookService
+    private static String getMetricName(HookService service) {
+        return "hook." + service.getClass().getSimpleName();
+    }
+
+    private static final class CachedResult {
+        private final List<InstanceData> instanceDataList;
+        private final long expireNanos;
+        private final int weight;
+
+        private CachedResult(List<InstanceData> instanceDataList, long expireNanos) {
+            this.instanceDataList = Collections.unmodifiableList(instanceDataList);
+            this.expireNanos = expireNanos;
+            this.weight = JSON.toJSONString(instanceDataList).length();
+        }
+    }
+
+    private List<HookService> getHookServices() {
+        if (hookServices != null) {
+            return hookServices;
+        }
+        // init hook services by Spring application context
+        synchronized (this) {
+            if (hookServices == null) {
+                List<HookService> services = new ArrayList<>();
+                String[] names = applicationContext.getBeanNamesForType(HookService.class);
+                for (String name : names) {
+                    Object bean = applicationContext.getBean(name);
+                    if (bean != null) {
+                        services.add((HookService) bean);
+                    }
+                }
+                hookServices = Collections.unmodifiableList(services);
+            }
+            return hookServices;
+        }
+    }
+}
@@ -1,12 +1,10 @@
 package com.didiglobal.turbo.engine.service;
 
 import com.didiglobal.turbo.engine.common.FlowElementType;
-import com.didiglobal.turbo.engine.dao.FlowDeploymentDAO;
 import com.didiglobal.turbo.engine.dao.FlowInstanceMappingDAO;
 import com.didiglobal.turbo.engine.dao.InstanceDataDAO;
 import com.didiglobal.turbo.engine.dao.NodeInstanceDAO;
 import com.didiglobal.turbo.engine.dao.ProcessInstanceDAO;
-import com.didiglobal.turbo.engine.entity.FlowDeploymentPO;
 import com.didiglobal.turbo.engine.entity.FlowInstanceMappingPO;
 import com.didiglobal.turbo.engine.entity.FlowInstancePO;
 import com.didiglobal.turbo.engine.entity.InstanceDataPO;
@@ -17,6 +15,7 @@ import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
 
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -29,7 +28,7 @@ public class InstanceDataService {
     private ProcessInstanceDAO processInstanceDAO;
 
     @Resource
-    private FlowDeploymentDAO flowDeploymentDAO;
+    private FlowDeploymentService flowDeploymentService;
 
     @Resource
     private NodeInstanceDAO nodeInstanceDAO;
@@ -57,16 +56,20 @@ public class InstanceDataService {
         if (!effectiveForSubFlowInstance) {
             return instanceDataPO;
         }
-        FlowInstancePO flowInstancePO = processInstanceDAO.selectByFlowInstanceId(flowInstanceId);
-        FlowDeploymentPO flowDeploymentPO = flowDeploymentDAO.selectByDeployId(flowInstancePO.getFlowDeployId());
-        Map<String, FlowElement> flowElementMap = FlowModelUtil.getFlowElementMap(flowDeploymentPO.getFlowModel());
+        FlowInstancePO flowInstancePO = processInstanceDAO.selectCachedByFlowInstanceId(flowInstanceId);
+        Map<String, FlowElement> flowElementMap = flowDeploymentService.getFlowElementMap(flowInstancePO.getFlowDeployId());
 
         NodeInstancePO nodeInstancePO = nodeInstanceDAO.selectRecentOne(flowInstanceId);
         int elementType = FlowModelUtil.getElementType(nodeInstancePO.getNodeKey(), flowElementMap);
         if (elementType != FlowElementType.CALL_ACTIVITY) {
             return instanceDataDAO.selectRecentOne(flowInstanceId);
         } else {
-            FlowInstanceMappingPO flowInstanceMappingPO = flowInstanceMappingDAO.selectFlowInstanceMappingPO(flowInstanceId, nodeInstancePO.getNodeInstanceId());
+            // a multiple instance callActivity maps one subFlowInstance per element, take the recently started one
+            List<FlowInstanceMappingPO> flowInstanceMappingPOList = flowInstanceMappingDAO.selectFlowInstanceMappingPOList(flowInstanceId, nodeInstancePO.getNodeInstanceId());
+            if (flowInstanceMappingPOList.isEmpty()) {
+                return instanceDataPO;
+            }
+            FlowInstanceMappingPO flowInstanceMappingPO = flowInstanceMappingPOList.get(flowInstanceMappingPOList.size() - 1);
             return select(flowInstanceMappingPO.getSubFlowInstanceId(), true);
         }
     }
@@ -1,10 +1,8 @@
 package com.didiglobal.turbo.engine.service;
 
 import com.didiglobal.turbo.engine.common.FlowElementType;
-import com.didiglobal.turbo.engine.dao.FlowDeploymentDAO;
 import com.didiglobal.turbo.engine.dao.NodeInstanceDAO;
 import com.didiglobal.turbo.engine.dao.ProcessInstanceDAO;
-import com.didiglobal.turbo.engine.entity.FlowDeploymentPO;
 import com.didiglobal.turbo.engine.entity.FlowInstancePO;
 import com.didiglobal.turbo.engine.entity.NodeInstancePO;
 import com.didiglobal.turbo.engine.model.FlowElement;
@@ -26,7 +24,7 @@ public class NodeInstanceService {
     private ProcessInstanceDAO processInstanceDAO;
 
     @Resource
-    private FlowDeploymentDAO flowDeploymentDAO;
+    private FlowDeploymentService flowDeploymentService;
 
     @Resource
     private FlowInstanceService flowInstanceService;
@@ -44,9 +42,8 @@ public class NodeInstanceService {
     }
 
     public NodeInstancePO selectRecentEndNode(String flowInstanceId) {
-        FlowInstancePO rootFlowInstancePO = processInstanceDAO.selectByFlowInstanceId(flowInstanceId);
-        FlowDeploymentPO rootFlowDeploymentPO = flowDeploymentDAO.selectByDeployId(rootFlowInstancePO.getFlowDeployId());
-        Map<String, FlowElement> rootFlowElementMap = FlowModelUtil.getFlowElementMap(rootFlowDeploymentPO.getFlowModel());
+        FlowInstancePO rootFlowInstancePO = processInstanceDAO.selectCachedByFlowInstanceId(flowInstanceId);
+        Map<String, FlowElement> rootFlowElementMap = flowDeploymentService.getFlowElementMap(rootFlowInstancePO.getFlowDeployId());
 
         List<NodeInstancePO> nodeInstancePOList = nodeInstanceDAO.selectDescByFlowInstanceId(flowInstanceId);
         for (NodeInstancePO nodeInstancePO : nodeInstancePOList) {
@@ -0,0 +1,26 @@
+package com.didiglobal.turbo.engine.spi;
+
+/**
+ * Second level cache shared by the engine nodes, in front of the deployments and the flow instance status, keyed by
+ * {@link com.didiglobal.turbo.engine.common.RedisConstants}.
+ * <p>
+ * Usage: set turbo.cache.type to local for the shipped in-process implementation, to redis for the shipped one on jedis,
+ * or give an implementation to Spring for management. Failures are logged by the engine and the db is read instead,
+ * an implementation may throw.
+ */
+public interface FlowCache {
+
+    /**
+     * @return the value, null while absent or expired
+     */
+    String get(String key);
+
+    void set(String key, String value, int expireSeconds);
+
+    /**
+     * @return false while the key is present, the value is not set
+     */
+    boolean setIfAbsent(String key, String value, int expireSeconds);
+
+    void delete(String key);
+}
@@ -2,6 +2,7 @@ package com.didiglobal.turbo.engine.spi;
 
 import com.didiglobal.turbo.engine.model.InstanceData;
 
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -24,4 +25,22 @@ public interface HookService {
      * @return new infos
      */
     List<InstanceData> invoke(String flowInstanceId, String nodeInstanceId, String nodeKey, String hookInfoParam);
+
+    /**
+     * Time to live of cached results, results of the hook are cached only while it's positive and the hook cache is
+     * enabled by turbo.hook.cache.enabled. The cache key is the hook, flowInstanceId, hookInfoParam and the values of
+     * {@link #getCacheKeyVariables()}, so gateways of a flow instance with the same hookInfoParam share the results.
+     *
+     * @return 0 by default, not cacheable
+     */
+    default long getCacheTtlMillis() {
+        return 0L;
+    }
+
+    /**
+     * Keys of the instance data the result depends on, a change of any of them misses the cache.
+     */
+    default List<String> getCacheKeyVariables() {
+        return Collections.emptyList();
+    }
 }
@@ -0,0 +1,77 @@
+package com.didiglobal.turbo.engine.spi.impl;
+
+import com.didiglobal.turbo.engine.spi.FlowCache;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process {@link FlowCache} bounded by the count of entries, for a single engine node or for tests.
+ */
+public class LocalFlowCache implements FlowCache {
+
+    private final Cache<String, Entry> cache;
+
+    public LocalFlowCache(long maxSize) {
+        this.cache = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+    }
+
+    @Override
+    public String get(String key) {
+        Entry entry = cache.getIfPresent(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired()) {
+            cache.asMap().remove(key, entry);
+            return null;
+        }
+        return entry.value;
+    }
+
+    @Override
+    public void set(String key, String value, int expireSeconds) {
+        cache.put(key, new Entry(value, expireSeconds));
+    }
+
+    @Override
+    public boolean setIfAbsent(String key, String value, int expireSeconds) {
+        Entry entry = new Entry(value, expireSeconds);
+        while (true) {
+            Entry present = cache.asMap().putIfAbsent(key, entry);
+            if (present == null) {
+                return true;
+            }
+            if (!present.isExpired()) {
+                return false;
+            }
+            if (cache.asMap().replace(key, present, entry)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public void delete(String key) {
+        cache.invalidate(key);
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    private static final class Entry {
+        private final String value;
+        private final long expireNanos;
+
+        private Entry(String value, int expireSeconds) {
+            this.value = value;
+            this.expireNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(expireSeconds);
+        }
+
+        private boolean isExpired() {
+            return expireNanos - System.nanoTime() <= 0;
+        }
+    }
+}
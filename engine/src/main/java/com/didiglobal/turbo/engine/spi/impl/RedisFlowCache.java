@@ -0,0 +1,65 @@
+package com.didiglobal.turbo.engine.spi.impl;
+
+import com.didiglobal.turbo.engine.spi.FlowCache;
+import org.apache.commons.lang3.StringUtils;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+
+import java.io.Closeable;
+
+/**
+ * {@link FlowCache} on a redis server shared by the engine nodes, through a pool of jedis connections.
+ * <p>
+ * Jedis is an optional dependency of the engine, add redis.clients:jedis to the application to use it.
+ * A failed command is thrown to the caller, and its connection is dropped by the pool.
+ */
+public class RedisFlowCache implements FlowCache, Closeable {
+
+    private final JedisPool jedisPool;
+
+    /**
+     * @param password blank while the server requires no auth
+     */
+    public RedisFlowCache(String host, int port, String password, int database, int timeoutMillis, int maxTotal) {
+        JedisPoolConfig poolConfig = new JedisPoolConfig();
+        poolConfig.setMaxTotal(maxTotal);
+        poolConfig.setMaxIdle(maxTotal);
+        // a busy pool is waited for no longer than a command
+        poolConfig.setMaxWaitMillis(timeoutMillis);
+        this.jedisPool = new JedisPool(poolConfig, host, port, timeoutMillis, StringUtils.defaultIfBlank(password, null), database);
+    }
+
+    @Override
+    public String get(String key) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            return jedis.get(key);
+        }
+    }
+
+    @Override
+    public void set(String key, String value, int expireSeconds) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            jedis.setex(key, expireSeconds, value);
+        }
+    }
+
+    @Override
+    public boolean setIfAbsent(String key, String value, int expireSeconds) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            return "OK".equals(jedis.set(key, value, "NX", "EX", expireSeconds));
+        }
+    }
+
+    @Override
+    public void delete(String key) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            jedis.del(key);
+        }
+    }
+
+    @Override
+    public void close() {
+        jedisPool.close();
+    }
+}
@@ -15,4 +15,13 @@ public interface ExpressionCalculator {
      * @throws ProcessException
      */
     Boolean calculate(String expression, Map<String, Object> dataMap) throws ProcessException;
+
+    /**
+     * Prepare the conditional expression ahead of its first calculation, e.g. compile it while deploying
+     *
+     * @param expression conditional expression
+     * @throws ProcessException while the expression is invalid
+     */
+    default void precompile(String expression) throws ProcessException {
+    }
 }
@@ -12,6 +12,9 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -131,6 +134,74 @@ public class FlowModelUtil {
         return sourceElementType == targetElementType;
     }
 
+    /**
+     * A parallelGateway with multiple incomings, which waits for all of them
+     */
+    public static boolean isParallelJoin(FlowElement flowElement) {
+        return flowElement != null && flowElement.getType() == FlowElementType.PARALLEL_GATEWAY
+            && CollectionUtils.size(flowElement.getIncoming()) > 1;
+    }
+
+    /**
+     * A parallelGateway with multiple outgoings, which takes all of them
+     */
+    public static boolean isParallelFork(FlowElement flowElement) {
+        return flowElement != null && flowElement.getType() == FlowElementType.PARALLEL_GATEWAY
+            && CollectionUtils.size(flowElement.getOutgoing()) > 1;
+    }
+
+    /**
+     * Read-only copy of properties, nested maps and lists included, for a flowElement shared by the deployment cache
+     */
+    public static Map<String, Object> freezeProperties(Map<String, Object> properties) {
+        if (properties == null) {
+            return null;
+        }
+        Map<String, Object> frozenProperties = new LinkedHashMap<>(properties.size());
+        properties.forEach((key, value) -> frozenProperties.put(key, freezeValue(value)));
+        return Collections.unmodifiableMap(frozenProperties);
+    }
+
+    /**
+     * Modifiable copy of properties, nested maps and lists included, for results handed out to the caller
+     */
+    public static Map<String, Object> copyProperties(Map<String, Object> properties) {
+        if (properties == null) {
+            return null;
+        }
+        Map<String, Object> copiedProperties = new LinkedHashMap<>(properties.size());
+        properties.forEach((key, value) -> copiedProperties.put(key, copyValue(value)));
+        return copiedProperties;
+    }
+
+    private static Object freezeValue(Object value) {
+        if (value instanceof Map) {
+            Map<Object, Object> frozenMap = new LinkedHashMap<>();
+            ((Map<?, ?>) value).forEach((key, item) -> frozenMap.put(key, freezeValue(item)));
+            return Collections.unmodifiableMap(frozenMap);
+        }
+        if (value instanceof List) {
+            List<Object> frozenList = new ArrayList<>();
+            ((List<?>) value).forEach(item -> frozenList.add(freezeValue(item)));
+            return Collections.unmodifiableList(frozenList);
+        }
+        return value;
+    }
+
+    private static Object copyValue(Object value) {
+        if (value instanceof Map) {
+            Map<Object, Object> copiedMap = new LinkedHashMap<>();
+            ((Map<?, ?>) value).forEach((key, item) -> copiedMap.put(key, copyValue(item)));
+            return copiedMap;
+        }
+        if (value instanceof List) {
+            List<Object> copiedList = new ArrayList<>();
+            ((List<?>) value).forEach(item -> copiedList.add(copyValue(item)));
+            return copiedList;
+        }
+        return value;
+    }
+
     public static String getElementName(FlowElement flowElement) {
         if (flowElement == null) {
             return StringUtils.EMPTY;
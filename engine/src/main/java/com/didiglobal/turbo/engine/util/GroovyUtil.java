@@ -2,23 +2,51 @@ package com.didiglobal.turbo.engine.util;
 
 import com.didiglobal.turbo.engine.common.ErrorEnum;
 import com.didiglobal.turbo.engine.exception.ProcessException;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import groovy.lang.Binding;
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.GroovyCodeSource;
 import groovy.lang.GroovyShell;
 import groovy.lang.MissingPropertyException;
 import groovy.lang.Script;
 import org.apache.commons.lang3.StringUtils;
+import org.codehaus.groovy.control.CompilerConfiguration;
 import org.codehaus.groovy.runtime.InvokerHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Execute groovy expressions with compiled script classes cached.
+ * <p>
+ * An expression is compiled once even under concurrent misses. Each script class is defined by its own
+ * {@link GroovyClassLoader} on top of a shared {@link CompilerConfiguration}, so an evicted class can be
+ * unloaded together with its loader instead of piling up in metaspace.
+ */
 public class GroovyUtil {
 
     protected static final Logger LOGGER = LoggerFactory.getLogger(GroovyUtil.class);
 
-    private static final Map<String, Class> SCRIPT_CLASS_CACHE = new ConcurrentHashMap<String, Class>();
+    private static final int SCRIPT_CLASS_CACHE_MAX_SIZE = 10000;
+
+    private static final CompilerConfiguration COMPILER_CONFIGURATION = new CompilerConfiguration();
+
+    private static final ClassLoader PARENT_CLASS_LOADER = GroovyUtil.class.getClassLoader();
+
+    private static final AtomicLong SCRIPT_COUNTER = new AtomicLong();
+
+    private static final Cache<String, Class<?>> SCRIPT_CLASS_CACHE = CacheBuilder.newBuilder()
+        .maximumSize(SCRIPT_CLASS_CACHE_MAX_SIZE)
+        .recordStats()
+        // drop the metaClass which refers to the class, or the class and its loader are never collected
+        .<String, Class<?>>removalListener(notification -> InvokerHelper.removeClass(notification.getValue()))
+        .build();
 
     private GroovyUtil() {
     }
@@ -40,16 +68,52 @@ public class GroovyUtil {
         }
     }
 
-    private static Script createScript(String groovyExpression, Binding binding) {
-        Script script;
-        if (SCRIPT_CLASS_CACHE.containsKey(groovyExpression)) {
-            Class scriptClass = SCRIPT_CLASS_CACHE.get(groovyExpression);
-            script = InvokerHelper.createScript(scriptClass, binding);
-        } else {
-            script = new GroovyShell(binding).parse(groovyExpression);
-            SCRIPT_CLASS_CACHE.put(groovyExpression, script.getClass());
+    /**
+     * Compile the expression into the cache ahead of its first execution.
+     *
+     * @param expression groovy expression
+     * @throws Exception while the expression can not be compiled
+     */
+    public static void compile(String expression) throws Exception {
+        if (StringUtils.isBlank(expression)) {
+            return;
+        }
+        getScriptClass(expression);
+    }
+
+    /**
+     * Hit/miss/load/eviction statistics of the compiled script cache.
+     */
+    public static CacheStats getCacheStats() {
+        return SCRIPT_CLASS_CACHE.stats();
+    }
+
+    public static long getCacheSize() {
+        return SCRIPT_CLASS_CACHE.size();
+    }
+
+    private static Script createScript(String groovyExpression, Binding binding) throws Exception {
+        return InvokerHelper.createScript(getScriptClass(groovyExpression), binding);
+    }
+
+    private static Class<?> getScriptClass(String groovyExpression) throws Exception {
+        try {
+            return SCRIPT_CLASS_CACHE.get(groovyExpression, () -> parseClass(groovyExpression));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
         }
-        return script;
+    }
+
+    private static Class<?> parseClass(String groovyExpression) {
+        GroovyClassLoader groovyClassLoader = new GroovyClassLoader(PARENT_CLASS_LOADER, COMPILER_CONFIGURATION);
+        String scriptName = "Script" + SCRIPT_COUNTER.incrementAndGet() + ".groovy";
+        GroovyCodeSource codeSource = new GroovyCodeSource(groovyExpression, scriptName, GroovyShell.DEFAULT_CODE_BASE);
+        // not cached by the loader itself, the class is only reachable through SCRIPT_CLASS_CACHE
+        return groovyClassLoader.parseClass(codeSource, false);
     }
 
     private static Binding createBinding(Map<String, Object> infos) {
@@ -0,0 +1,34 @@
+package com.didiglobal.turbo.engine.util;
+
+import com.didiglobal.turbo.engine.model.InstanceData;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Encode the instance data list saved in a row of ei_instance_data.
+ * <p>
+ * The name of the codec is saved with the row in instance_data_encode, so rows of different codecs coexist and each
+ * is decoded by the codec it's encoded with. Implementations are registered in {@link InstanceDataCodecRegistry}, others
+ * can be added through {@link java.util.ServiceLoader} with a
+ * {@code META-INF/services/com.didiglobal.turbo.engine.util.InstanceDataCodec} file.
+ */
+public interface InstanceDataCodec {
+
+    /**
+     * @return the marker saved with the rows, unique among codecs
+     */
+    String getName();
+
+    /**
+     * @param instanceDataList instance data to save
+     * @return text saved in the instance_data column
+     */
+    String encode(Collection<InstanceData> instanceDataList);
+
+    /**
+     * @param instanceData text of the instance_data column, may be blank
+     * @return the decoded list, empty while the text is blank
+     */
+    List<InstanceData> decode(String instanceData);
+}
@@ -0,0 +1,101 @@
+package com.didiglobal.turbo.engine.util;
+
+import com.didiglobal.turbo.engine.entity.InstanceDataPO;
+import com.didiglobal.turbo.engine.model.InstanceData;
+import com.didiglobal.turbo.engine.util.impl.BinaryInstanceDataCodec;
+import com.didiglobal.turbo.engine.util.impl.JsonInstanceDataCodec;
+import com.google.common.collect.Maps;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * Registry of {@link InstanceDataCodec}s by name, rows are encoded and decoded through it.
+ * <p>
+ * A row with a blank instance_data_encode is json, as all the rows written before codecs. New rows are written with
+ * the default codec of the registry, json unless it's changed by {@code turbo.instanceData.codec}.
+ */
+@Component
+public class InstanceDataCodecRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(InstanceDataCodecRegistry.class);
+
+    private final Map<String, InstanceDataCodec> codecMap = Maps.newConcurrentMap();
+
+    private final InstanceDataCodec jsonCodec = new JsonInstanceDataCodec();
+
+    // codec of new rows
+    @Value("${turbo.instanceData.codec:json}")
+    private String defaultCodecName = JsonInstanceDataCodec.NAME;
+
+    private volatile InstanceDataCodec defaultCodec = jsonCodec;
+
+    public InstanceDataCodecRegistry() {
+        register(jsonCodec);
+        register(new BinaryInstanceDataCodec(false));
+        register(new BinaryInstanceDataCodec(true));
+        for (InstanceDataCodec codec : ServiceLoader.load(InstanceDataCodec.class)) {
+            register(codec);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException while the default codec is not registered
+     */
+    @PostConstruct
+    public void init() {
+        defaultCodec = get(defaultCodecName);
+    }
+
+    public void register(InstanceDataCodec codec) {
+        InstanceDataCodec oldCodec = codecMap.put(codec.getName(), codec);
+        if (oldCodec != null && oldCodec.getClass() != codec.getClass()) {
+            LOGGER.warn("register: codec is replaced.||name={}||oldCodec={}||newCodec={}",
+                codec.getName(), oldCodec.getClass().getName(), codec.getClass().getName());
+        }
+    }
+
+    /**
+     * @param name instance_data_encode of a row, blank for json
+     * @throws IllegalArgumentException while the codec is not registered
+     */
+    public InstanceDataCodec get(String name) {
+        if (StringUtils.isBlank(name)) {
+            return jsonCodec;
+        }
+        InstanceDataCodec codec = codecMap.get(name);
+        if (codec == null) {
+            throw new IllegalArgumentException("unknown instanceData codec: " + name);
+        }
+        return codec;
+    }
+
+    public InstanceDataCodec getDefault() {
+        return defaultCodec;
+    }
+
+    /**
+     * Decode the instanceData of the row by the codec it's saved with.
+     */
+    public Map<String, InstanceData> getInstanceDataMap(InstanceDataPO instanceDataPO) {
+        return InstanceDataUtil.getInstanceDataMap(getInstanceDataList(instanceDataPO));
+    }
+
+    public List<InstanceData> getInstanceDataList(InstanceDataPO instanceDataPO) {
+        return get(instanceDataPO.getInstanceDataEncode()).decode(instanceDataPO.getInstanceData());
+    }
+
+    /**
+     * Encode the instanceData into the row with the default codec.
+     */
+    public void setInstanceData(InstanceDataPO instanceDataPO, Map<String, InstanceData> instanceDataMap) {
+        InstanceDataUtil.setInstanceData(instanceDataPO, instanceDataMap, defaultCodec);
+    }
+}
@@ -2,19 +2,30 @@ package com.didiglobal.turbo.engine.util;
 
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.util.TypeUtils;
 import com.didiglobal.turbo.engine.common.DataType;
+import com.didiglobal.turbo.engine.entity.InstanceDataPO;
 import com.didiglobal.turbo.engine.model.InstanceData;
+import com.didiglobal.turbo.engine.util.impl.JsonInstanceDataCodec;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.MapUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
 public class InstanceDataUtil {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(InstanceDataUtil.class);
+
     private InstanceDataUtil() {}
 
     public static Map<String, InstanceData> getInstanceDataMap(List<InstanceData> instanceDataList) {
@@ -54,6 +65,38 @@ public class InstanceDataUtil {
         return JSONObject.toJSONString(instanceDataMap.values());
     }
 
+    /**
+     * Entries of instanceDataMap which are added or changed against baseInstanceDataMap.
+     *
+     * @return null while some key of baseInstanceDataMap is removed, which can't be expressed by a delta
+     */
+    public static Map<String, InstanceData> getDeltaInstanceDataMap(Map<String, InstanceData> baseInstanceDataMap,
+                                                                    Map<String, InstanceData> instanceDataMap) {
+        if (!instanceDataMap.keySet().containsAll(baseInstanceDataMap.keySet())) {
+            return null;
+        }
+        Map<String, InstanceData> deltaInstanceDataMap = Maps.newHashMap();
+        instanceDataMap.forEach((key, instanceData) -> {
+            InstanceData baseInstanceData = baseInstanceDataMap.get(key);
+            if (baseInstanceData == null
+                || !JSON.toJSONString(baseInstanceData).equals(JSON.toJSONString(instanceData))) {
+                deltaInstanceDataMap.put(key, instanceData);
+            }
+        });
+        return deltaInstanceDataMap;
+    }
+
+    /**
+     * Encode the instanceData into the row with the codec, see {@link InstanceDataCodecRegistry} for the default one.
+     */
+    public static void setInstanceData(InstanceDataPO instanceDataPO, Map<String, InstanceData> instanceDataMap,
+                                       InstanceDataCodec codec) {
+        Collection<InstanceData> instanceDataList = instanceDataMap == null ? Collections.emptyList() : instanceDataMap.values();
+        instanceDataPO.setInstanceData(codec.encode(instanceDataList));
+        // json rows keep the column blank as before, so they are readable without the column
+        instanceDataPO.setInstanceDataEncode(JsonInstanceDataCodec.NAME.equals(codec.getName()) ? null : codec.getName());
+    }
+
     public static Map<String, Object> parseInstanceDataMap(Map<String, InstanceData> instanceDataMap) {
         if (MapUtils.isEmpty(instanceDataMap)) {
             return Maps.newHashMap();
@@ -65,14 +108,67 @@ public class InstanceDataUtil {
         return dataMap;
     }
 
-    private static Object parseInstanceData(InstanceData instanceData) {
+    /**
+     * Convert the value by its declared type, the value is kept as it is while the type is absent or unknown,
+     * or while it can't be converted. A number is converted only while it's kept exactly, e.g. 1.5 or 2^31 is not an
+     * integer, and 2^53 + 1 is not a double.
+     */
+    public static Object parseInstanceData(InstanceData instanceData) {
         if (instanceData == null) {
             return null;
         }
-        String dataTypeStr = instanceData.getType();
-        DataType dataType = DataType.getType(dataTypeStr);
+        Object value = instanceData.getValue();
+        DataType dataType = DataType.getType(instanceData.getType());
+        if (value == null || dataType == null) {
+            return value;
+        }
+        try {
+            switch (dataType) {
+                case T_STRING:
+                    return TypeUtils.castToString(value);
+                case T_INTEGER:
+                    return isNumeric(value) ? toBigDecimal(value).intValueExact() : TypeUtils.castToInt(value);
+                case T_LONG:
+                    return isNumeric(value) ? toBigDecimal(value).longValueExact() : TypeUtils.castToLong(value);
+                case T_DOUBLE:
+                    return isNumeric(value) ? toDoubleExact(value) : TypeUtils.castToDouble(value);
+                case T_LIST:
+                    return value instanceof String ? JSON.parseArray((String) value) : value;
+                default:
+                    return value;
+            }
+        } catch (RuntimeException e) {
+            LOGGER.warn("parseInstanceData: value doesn't match its type.||key={}||type={}||value={}",
+                instanceData.getKey(), instanceData.getType(), value);
+            return value;
+        }
+    }
+
+    private static boolean isNumeric(Object value) {
+        return value instanceof Number || value instanceof String;
+    }
+
+    // throws NumberFormatException while it's not a finite number
+    private static BigDecimal toBigDecimal(Object value) {
+        if (value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        }
+        if (value instanceof BigInteger) {
+            return new BigDecimal((BigInteger) value);
+        }
+        return new BigDecimal(value.toString().trim());
+    }
 
-        // TODO: 2019/12/16
-        return instanceData.getValue();
+    // throws ArithmeticException while the double is not the same number
+    private static double toDoubleExact(Object value) {
+        if (value instanceof Double || value instanceof Float) {
+            return ((Number) value).doubleValue();
+        }
+        BigDecimal decimal = toBigDecimal(value);
+        double doubleValue = decimal.doubleValue();
+        if (Double.isInfinite(doubleValue) || BigDecimal.valueOf(doubleValue).compareTo(decimal) != 0) {
+            throw new ArithmeticException("double overflow or precision loss");
+        }
+        return doubleValue;
     }
 }
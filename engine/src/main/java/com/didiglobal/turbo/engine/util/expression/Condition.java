@@ -0,0 +1,19 @@
+package com.didiglobal.turbo.engine.util.expression;
+
+import java.util.Map;
+
+/**
+ * Compiled conditional expression, stateless and shared by all threads.
+ */
+public interface Condition {
+
+    /**
+     * Evaluate the condition with the data
+     *
+     * @param dataMap data for calculate
+     * @return true or false
+     * @throws UnsupportedExpressionException while the data is out of the supported subset, e.g. a missing variable
+     *                                        or values of different types to compare
+     */
+    boolean test(Map<String, Object> dataMap) throws UnsupportedExpressionException;
+}
@@ -0,0 +1,290 @@
+package com.didiglobal.turbo.engine.util.expression;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Map;
+
+/**
+ * Nodes of the compiled condition tree. Values follow the groovy semantics of the same operators, anything else
+ * is reported by {@link UnsupportedExpressionException#UNSUPPORTED_DATA}.
+ */
+final class Conditions {
+
+    private Conditions() {
+    }
+
+    interface Operand {
+        Object get(Map<String, Object> dataMap) throws UnsupportedExpressionException;
+    }
+
+    enum CompareOperator {
+        EQ("=="), NE("!="), GT(">"), GE(">="), LT("<"), LE("<=");
+
+        private final String symbol;
+
+        CompareOperator(String symbol) {
+            this.symbol = symbol;
+        }
+
+        static CompareOperator of(String symbol) {
+            for (CompareOperator operator : values()) {
+                if (operator.symbol.equals(symbol)) {
+                    return operator;
+                }
+            }
+            return null;
+        }
+    }
+
+    static final class Variable implements Operand {
+        private final String name;
+
+        Variable(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Object get(Map<String, Object> dataMap) throws UnsupportedExpressionException {
+            Object value = dataMap.get(name);
+            // missing variable: let groovy report it
+            if (value == null && !dataMap.containsKey(name)) {
+                throw UnsupportedExpressionException.UNSUPPORTED_DATA;
+            }
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    static final class Literal implements Operand {
+        private final Object value;
+
+        Literal(Object value) {
+            this.value = value;
+        }
+
+        Object getValue() {
+            return value;
+        }
+
+        @Override
+        public Object get(Map<String, Object> dataMap) {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return value instanceof String ? "'" + value + "'" : String.valueOf(value);
+        }
+    }
+
+    static final class And implements Condition {
+        private final Condition[] conditions;
+
+        And(Condition[] conditions) {
+            this.conditions = conditions;
+        }
+
+        @Override
+        public boolean test(Map<String, Object> dataMap) throws UnsupportedExpressionException {
+            for (Condition condition : conditions) {
+                if (!condition.test(dataMap)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    static final class Or implements Condition {
+        private final Condition[] conditions;
+
+        Or(Condition[] conditions) {
+            this.conditions = conditions;
+        }
+
+        @Override
+        public boolean test(Map<String, Object> dataMap) throws UnsupportedExpressionException {
+            for (Condition condition : conditions) {
+                if (condition.test(dataMap)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    static final class Not implements Condition {
+        private final Condition condition;
+
+        Not(Condition condition) {
+            this.condition = condition;
+        }
+
+        @Override
+        public boolean test(Map<String, Object> dataMap) throws UnsupportedExpressionException {
+            return !condition.test(dataMap);
+        }
+    }
+
+    /**
+     * A bare operand used as a condition, only boolean values are supported.
+     */
+    static final class Truth implements Condition {
+        private final Operand operand;
+
+        Truth(Operand operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        public boolean test(Map<String, Object> dataMap) throws UnsupportedExpressionException {
+            Object value = operand.get(dataMap);
+            if (value instanceof Boolean) {
+                return (Boolean) value;
+            }
+            throw UnsupportedExpressionException.UNSUPPORTED_DATA;
+        }
+    }
+
+    static final class Compare implements Condition {
+        private final CompareOperator operator;
+        private final Operand left;
+        private final Operand right;
+
+        Compare(CompareOperator operator, Operand left, Operand right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public boolean test(Map<String, Object> dataMap) throws UnsupportedExpressionException {
+            Object leftValue = left.get(dataMap);
+            Object rightValue = right.get(dataMap);
+            switch (operator) {
+                case EQ:
+                    return isEqual(leftValue, rightValue);
+                case NE:
+                    return !isEqual(leftValue, rightValue);
+                case GT:
+                    return compare(leftValue, rightValue) > 0;
+                case GE:
+                    return compare(leftValue, rightValue) >= 0;
+                case LT:
+                    return compare(leftValue, rightValue) < 0;
+                case LE:
+                    return compare(leftValue, rightValue) <= 0;
+                default:
+                    throw UnsupportedExpressionException.UNSUPPORTED_DATA;
+            }
+        }
+    }
+
+    /**
+     * {@code value in [literals]}, matched by equals as groovy does for a list.
+     */
+    static final class In implements Condition {
+        private final Operand operand;
+        private final Object[] values;
+
+        In(Operand operand, Object[] values) {
+            this.operand = operand;
+            this.values = values;
+        }
+
+        @Override
+        public boolean test(Map<String, Object> dataMap) throws UnsupportedExpressionException {
+            Object value = operand.get(dataMap);
+            for (Object candidate : values) {
+                if (value == null ? candidate == null : value.equals(candidate)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    static final class Constant implements Condition {
+        private final boolean value;
+
+        Constant(boolean value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean test(Map<String, Object> dataMap) {
+            return value;
+        }
+    }
+
+    static boolean isEqual(Object left, Object right) throws UnsupportedExpressionException {
+        if (left == right) {
+            return true;
+        }
+        if (left == null || right == null) {
+            return false;
+        }
+        if (left instanceof Number && right instanceof Number) {
+            return compareNumber((Number) left, (Number) right) == 0;
+        }
+        if ((left instanceof String && right instanceof String)
+            || (left instanceof Boolean && right instanceof Boolean)) {
+            return left.equals(right);
+        }
+        throw UnsupportedExpressionException.UNSUPPORTED_DATA;
+    }
+
+    static int compare(Object left, Object right) throws UnsupportedExpressionException {
+        if (left instanceof Number && right instanceof Number) {
+            return compareNumber((Number) left, (Number) right);
+        }
+        if (left instanceof String && right instanceof String) {
+            return ((String) left).compareTo((String) right);
+        }
+        throw UnsupportedExpressionException.UNSUPPORTED_DATA;
+    }
+
+    private static int compareNumber(Number left, Number right) throws UnsupportedExpressionException {
+        if (isIntegral(left) && isIntegral(right)) {
+            return Long.compare(left.longValue(), right.longValue());
+        }
+        if (isFloating(left) || isFloating(right)) {
+            if (!isSupported(left) || !isSupported(right)) {
+                throw UnsupportedExpressionException.UNSUPPORTED_DATA;
+            }
+            // the same as groovy FloatingPointMath
+            double diff = left.doubleValue() - right.doubleValue();
+            return diff == 0 ? 0 : (diff > 0 ? 1 : -1);
+        }
+        return toBigDecimal(left).compareTo(toBigDecimal(right));
+    }
+
+    private static BigDecimal toBigDecimal(Number number) throws UnsupportedExpressionException {
+        if (number instanceof BigDecimal) {
+            return (BigDecimal) number;
+        }
+        if (number instanceof BigInteger) {
+            return new BigDecimal((BigInteger) number);
+        }
+        if (isIntegral(number)) {
+            return BigDecimal.valueOf(number.longValue());
+        }
+        throw UnsupportedExpressionException.UNSUPPORTED_DATA;
+    }
+
+    private static boolean isIntegral(Number number) {
+        return number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte;
+    }
+
+    private static boolean isFloating(Number number) {
+        return number instanceof Double || number instanceof Float;
+    }
+
+    private static boolean isSupported(Number number) {
+        return isIntegral(number) || isFloating(number) || number instanceof BigDecimal || number instanceof BigInteger;
+    }
+}
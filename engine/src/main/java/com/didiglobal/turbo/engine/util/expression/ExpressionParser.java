@@ -0,0 +1,351 @@
+package com.didiglobal.turbo.engine.util.expression;
+
+import com.didiglobal.turbo.engine.util.expression.Conditions.CompareOperator;
+import com.didiglobal.turbo.engine.util.expression.Conditions.Literal;
+import com.didiglobal.turbo.engine.util.expression.Conditions.Operand;
+import com.google.common.collect.ImmutableSet;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Parse a conditional expression into a {@link Condition} tree which is evaluated without allocation.
+ * <p>
+ * The supported subset is a part of groovy with the same semantics:
+ * <ul>
+ * <li>variables, string literals in quotes, integer and decimal literals, true, false and null</li>
+ * <li>comparison: ==, !=, &gt;, &gt;=, &lt;, &lt;=</li>
+ * <li>list membership: {@code level in ['A', 'B']}</li>
+ * <li>boolean logic: &amp;&amp;, ||, ! and parentheses</li>
+ * </ul>
+ * Anything else, e.g. method calls, property access, arithmetic or GStrings, is rejected with
+ * {@link UnsupportedExpressionException}.
+ */
+public final class ExpressionParser {
+
+    // groovy keywords, besides an identifier starting in upper case may refer to a class
+    private static final Set<String> RESERVED_WORDS = ImmutableSet.of("as", "assert", "break", "case", "catch",
+        "class", "const", "continue", "def", "default", "do", "else", "enum", "extends", "finally", "for", "goto",
+        "if", "implements", "import", "instanceof", "interface", "new", "package", "return", "super", "switch",
+        "this", "throw", "throws", "trait", "try", "while");
+
+    private final String expression;
+    private final List<Token> tokens;
+    private int position;
+
+    private ExpressionParser(String expression) throws UnsupportedExpressionException {
+        this.expression = expression;
+        this.tokens = tokenize(expression);
+    }
+
+    public static Condition parse(String expression) throws UnsupportedExpressionException {
+        if (expression == null || expression.trim().isEmpty()) {
+            throw new UnsupportedExpressionException("empty expression");
+        }
+        ExpressionParser parser = new ExpressionParser(expression);
+        Condition condition = parser.parseOr();
+        parser.expect(TokenType.EOF, null);
+        return condition;
+    }
+
+    private Condition parseOr() throws UnsupportedExpressionException {
+        List<Condition> conditions = new ArrayList<>();
+        conditions.add(parseAnd());
+        while (accept(TokenType.OPERATOR, "||")) {
+            conditions.add(parseAnd());
+        }
+        return conditions.size() == 1 ? conditions.get(0) : new Conditions.Or(conditions.toArray(new Condition[0]));
+    }
+
+    private Condition parseAnd() throws UnsupportedExpressionException {
+        List<Condition> conditions = new ArrayList<>();
+        conditions.add(parseUnary());
+        while (accept(TokenType.OPERATOR, "&&")) {
+            conditions.add(parseUnary());
+        }
+        return conditions.size() == 1 ? conditions.get(0) : new Conditions.And(conditions.toArray(new Condition[0]));
+    }
+
+    private Condition parseUnary() throws UnsupportedExpressionException {
+        if (accept(TokenType.OPERATOR, "!")) {
+            if (peek().is(TokenType.OPERATOR, "(") || peek().is(TokenType.OPERATOR, "!")) {
+                return new Conditions.Not(parseUnary());
+            }
+            // ! binds tighter than comparison: !a > 1 is (!a) > 1, leave a following operator unconsumed
+            return new Conditions.Not(toCondition(parseOperand()));
+        }
+        if (accept(TokenType.OPERATOR, "(")) {
+            Condition condition = parseOr();
+            expect(TokenType.OPERATOR, ")");
+            return condition;
+        }
+        Operand left = parseOperand();
+        if (accept(TokenType.IDENTIFIER, "in")) {
+            return new Conditions.In(left, parseList());
+        }
+        Token token = peek();
+        CompareOperator operator = token.type == TokenType.OPERATOR ? CompareOperator.of(token.text) : null;
+        if (operator == null) {
+            return toCondition(left);
+        }
+        position++;
+        return new Conditions.Compare(operator, left, parseOperand());
+    }
+
+    private Condition toCondition(Operand operand) throws UnsupportedExpressionException {
+        if (operand instanceof Literal) {
+            Object value = ((Literal) operand).getValue();
+            if (value instanceof Boolean) {
+                return new Conditions.Constant((Boolean) value);
+            }
+            throw unsupported("literal used as condition");
+        }
+        return new Conditions.Truth(operand);
+    }
+
+    private Object[] parseList() throws UnsupportedExpressionException {
+        expect(TokenType.OPERATOR, "[");
+        List<Object> values = new ArrayList<>();
+        if (!accept(TokenType.OPERATOR, "]")) {
+            do {
+                Operand operand = parseOperand();
+                if (!(operand instanceof Literal)) {
+                    throw unsupported("variable in list");
+                }
+                values.add(((Literal) operand).getValue());
+            } while (accept(TokenType.OPERATOR, ","));
+            expect(TokenType.OPERATOR, "]");
+        }
+        return values.toArray();
+    }
+
+    private Operand parseOperand() throws UnsupportedExpressionException {
+        Token token = next();
+        switch (token.type) {
+            case STRING:
+                return new Literal(token.text);
+            case NUMBER:
+                return new Literal(toNumber(token.text));
+            case IDENTIFIER:
+                if ("true".equals(token.text) || "false".equals(token.text)) {
+                    return new Literal(Boolean.valueOf(token.text));
+                }
+                if ("null".equals(token.text)) {
+                    return new Literal(null);
+                }
+                if ("in".equals(token.text) || RESERVED_WORDS.contains(token.text)
+                    || Character.isUpperCase(token.text.charAt(0))) {
+                    throw unsupported("identifier " + token.text);
+                }
+                return new Conditions.Variable(token.text);
+            default:
+                throw unsupported("unexpected " + token);
+        }
+    }
+
+    // literal types are the same as groovy: Integer, Long or BigInteger for integers and BigDecimal for decimals
+    private static Number toNumber(String text) {
+        if (text.indexOf('.') >= 0) {
+            return new BigDecimal(text);
+        }
+        BigInteger value = new BigInteger(text);
+        if (value.bitLength() < Integer.SIZE) {
+            return value.intValue();
+        }
+        if (value.bitLength() < Long.SIZE) {
+            return value.longValue();
+        }
+        return value;
+    }
+
+    private Token peek() {
+        return tokens.get(position);
+    }
+
+    private Token next() {
+        Token token = tokens.get(position);
+        if (token.type != TokenType.EOF) {
+            position++;
+        }
+        return token;
+    }
+
+    private boolean accept(TokenType type, String text) {
+        if (peek().is(type, text)) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(TokenType type, String text) throws UnsupportedExpressionException {
+        if (!accept(type, text)) {
+            throw unsupported("expect " + (text == null ? type : text) + " but " + peek());
+        }
+    }
+
+    private UnsupportedExpressionException unsupported(String reason) {
+        return new UnsupportedExpressionException(reason + ": expression=" + expression);
+    }
+
+    private static List<Token> tokenize(String expression) throws UnsupportedExpressionException {
+        List<Token> tokens = new ArrayList<>();
+        int length = expression.length();
+        int i = 0;
+        while (i < length) {
+            char c = expression.charAt(i);
+            if (c == ' ' || c == '\t') {
+                i++;
+            } else if (Character.isLetter(c) || c == '_') {
+                int start = i;
+                while (i < length && (Character.isLetterOrDigit(expression.charAt(i)) || expression.charAt(i) == '_')) {
+                    i++;
+                }
+                tokens.add(new Token(TokenType.IDENTIFIER, expression.substring(start, i)));
+            } else if (isDigit(c) || (c == '-' && i + 1 < length && isDigit(expression.charAt(i + 1))
+                && isOperandExpected(tokens))) {
+                i = readNumber(expression, i, tokens);
+            } else if (c == '\'' || c == '"') {
+                i = readString(expression, i, tokens);
+            } else {
+                String operator = readOperator(expression, i);
+                if (operator == null) {
+                    throw new UnsupportedExpressionException("unsupported char '" + c + "': expression=" + expression);
+                }
+                tokens.add(new Token(TokenType.OPERATOR, operator));
+                i += operator.length();
+            }
+        }
+        tokens.add(new Token(TokenType.EOF, null));
+        return tokens;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isOperandExpected(List<Token> tokens) {
+        if (tokens.isEmpty()) {
+            return true;
+        }
+        Token last = tokens.get(tokens.size() - 1);
+        return last.type == TokenType.OPERATOR && !")".equals(last.text) && !"]".equals(last.text)
+            || last.is(TokenType.IDENTIFIER, "in");
+    }
+
+    private static int readNumber(String expression, int start, List<Token> tokens) throws UnsupportedExpressionException {
+        int length = expression.length();
+        int i = expression.charAt(start) == '-' ? start + 1 : start;
+        int digitStart = i;
+        while (i < length && isDigit(expression.charAt(i))) {
+            i++;
+        }
+        // a leading zero means octal in groovy
+        if (i - digitStart > 1 && expression.charAt(digitStart) == '0') {
+            throw new UnsupportedExpressionException("octal number: expression=" + expression);
+        }
+        if (i < length && expression.charAt(i) == '.') {
+            i++;
+            int fractionStart = i;
+            while (i < length && isDigit(expression.charAt(i))) {
+                i++;
+            }
+            if (i == fractionStart) {
+                throw new UnsupportedExpressionException("invalid number: expression=" + expression);
+            }
+        }
+        // suffixes like 1L, 1.0d, 1e3 or 0x1
+        if (i < length && (Character.isLetterOrDigit(expression.charAt(i)) || expression.charAt(i) == '_')) {
+            throw new UnsupportedExpressionException("unsupported number: expression=" + expression);
+        }
+        tokens.add(new Token(TokenType.NUMBER, expression.substring(start, i)));
+        return i;
+    }
+
+    private static int readString(String expression, int start, List<Token> tokens) throws UnsupportedExpressionException {
+        char quote = expression.charAt(start);
+        StringBuilder value = new StringBuilder();
+        int length = expression.length();
+        int i = start + 1;
+        while (i < length) {
+            char c = expression.charAt(i++);
+            if (c == quote) {
+                tokens.add(new Token(TokenType.STRING, value.toString()));
+                return i;
+            }
+            if (c == '$' && quote == '"') {
+                throw new UnsupportedExpressionException("GString: expression=" + expression);
+            }
+            if (c == '\n' || c == '\r') {
+                break;
+            }
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            char escaped = i < length ? expression.charAt(i++) : 0;
+            switch (escaped) {
+                case '\\':
+                case '\'':
+                case '"':
+                case '$':
+                    value.append(escaped);
+                    break;
+                case 'n':
+                    value.append('\n');
+                    break;
+                case 't':
+                    value.append('\t');
+                    break;
+                case 'r':
+                    value.append('\r');
+                    break;
+                case 'b':
+                    value.append('\b');
+                    break;
+                case 'f':
+                    value.append('\f');
+                    break;
+                default:
+                    throw new UnsupportedExpressionException("unsupported escape: expression=" + expression);
+            }
+        }
+        throw new UnsupportedExpressionException("unclosed string: expression=" + expression);
+    }
+
+    private static String readOperator(String expression, int start) {
+        String[] operators = {"==", "!=", ">=", "<=", "&&", "||", ">", "<", "!", "(", ")", "[", "]", ","};
+        for (String operator : operators) {
+            if (expression.startsWith(operator, start)) {
+                return operator;
+            }
+        }
+        return null;
+    }
+
+    private enum TokenType {
+        IDENTIFIER, NUMBER, STRING, OPERATOR, EOF
+    }
+
+    private static final class Token {
+        private final TokenType type;
+        private final String text;
+
+        private Token(TokenType type, String text) {
+            this.type = type;
+            this.text = text;
+        }
+
+        private boolean is(TokenType type, String text) {
+            return this.type == type && (text == null || text.equals(this.text));
+        }
+
+        @Override
+        public String toString() {
+            return type == TokenType.EOF ? "end" : text;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.didiglobal.turbo.engine.util.expression;
+
+/**
+ * Thrown while an expression or the data it's evaluated with is out of what {@link ExpressionParser} supports,
+ * the caller is expected to calculate it in another way.
+ * <p>
+ * It's a control flow signal rather than an error, so the stack trace is not filled.
+ */
+public class UnsupportedExpressionException extends Exception {
+
+    static final UnsupportedExpressionException UNSUPPORTED_DATA = new UnsupportedExpressionException("unsupported data");
+
+    public UnsupportedExpressionException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -0,0 +1,294 @@
+package com.didiglobal.turbo.engine.util.impl;
+
+import com.alibaba.fastjson.JSON;
+import com.didiglobal.turbo.engine.model.InstanceData;
+import com.didiglobal.turbo.engine.util.InstanceDataCodec;
+import com.google.common.collect.Lists;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A compact binary form of the instance data list, saved as base64 text in the instance_data column.
+ * <p>
+ * Layout: version, flags, then the body, deflated while the compressed flag is set. The body is the entry count
+ * followed by each entry: key, type, a tag of the value and the value. String, integer, long, double and boolean
+ * values are written typed and read back as the same class; any other value is written as its json text and read back
+ * as fastjson parses it, the same as the json codec does.
+ * <p>
+ * With compress enabled, bodies of at least {@link #COMPRESS_THRESHOLD} bytes are deflated.
+ */
+public class BinaryInstanceDataCodec implements InstanceDataCodec {
+
+    public static final String NAME = "binary";
+
+    public static final String DEFLATE_NAME = "binary-deflate";
+
+    static final int COMPRESS_THRESHOLD = 256;
+
+    private static final byte VERSION = 1;
+
+    private static final byte FLAG_DEFLATED = 1;
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_STRING = 1;
+    private static final byte TAG_INTEGER = 2;
+    private static final byte TAG_LONG = 3;
+    private static final byte TAG_DOUBLE = 4;
+    private static final byte TAG_BOOLEAN = 5;
+    private static final byte TAG_JSON = 6;
+
+    private final boolean compress;
+
+    public BinaryInstanceDataCodec(boolean compress) {
+        this.compress = compress;
+    }
+
+    @Override
+    public String getName() {
+        return compress ? DEFLATE_NAME : NAME;
+    }
+
+    @Override
+    public String encode(Collection<InstanceData> instanceDataList) {
+        Output body = new Output();
+        body.writeVarInt(instanceDataList == null ? 0 : instanceDataList.size());
+        if (instanceDataList != null) {
+            for (InstanceData instanceData : instanceDataList) {
+                body.writeString(instanceData.getKey());
+                body.writeString(instanceData.getType());
+                writeValue(body, instanceData.getValue());
+            }
+        }
+        byte[] bodyBytes = body.toByteArray();
+        byte flags = 0;
+        if (compress && bodyBytes.length >= COMPRESS_THRESHOLD) {
+            bodyBytes = deflate(bodyBytes);
+            flags |= FLAG_DEFLATED;
+        }
+        byte[] bytes = new byte[bodyBytes.length + 2];
+        bytes[0] = VERSION;
+        bytes[1] = flags;
+        System.arraycopy(bodyBytes, 0, bytes, 2, bodyBytes.length);
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+
+    @Override
+    public List<InstanceData> decode(String instanceData) {
+        if (StringUtils.isBlank(instanceData)) {
+            return Lists.newArrayList();
+        }
+        byte[] bytes = Base64.getDecoder().decode(instanceData);
+        if (bytes.length < 2 || bytes[0] != VERSION) {
+            throw new IllegalArgumentException("unsupported binary instanceData version: " + (bytes.length == 0 ? "" : bytes[0]));
+        }
+        byte[] bodyBytes = Arrays.copyOfRange(bytes, 2, bytes.length);
+        if ((bytes[1] & FLAG_DEFLATED) != 0) {
+            bodyBytes = inflate(bodyBytes);
+        }
+        Input body = new Input(bodyBytes);
+        int size = body.readVarInt();
+        List<InstanceData> instanceDataList = Lists.newArrayListWithCapacity(size);
+        for (int i = 0; i < size; i++) {
+            String key = body.readString();
+            String type = body.readString();
+            instanceDataList.add(new InstanceData(key, type, readValue(body)));
+        }
+        return instanceDataList;
+    }
+
+    private static void writeValue(Output output, Object value) {
+        if (value == null) {
+            output.write(TAG_NULL);
+        } else if (value instanceof String) {
+            output.write(TAG_STRING);
+            output.writeString((String) value);
+        } else if (value instanceof Integer) {
+            output.write(TAG_INTEGER);
+            output.writeLong((Integer) value);
+        } else if (value instanceof Long) {
+            output.write(TAG_LONG);
+            output.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            output.write(TAG_DOUBLE);
+            output.writeFixedLong(Double.doubleToLongBits((Double) value));
+        } else if (value instanceof Boolean) {
+            output.write(TAG_BOOLEAN);
+            output.write((Boolean) value ? 1 : 0);
+        } else {
+            output.write(TAG_JSON);
+            output.writeString(JSON.toJSONString(value));
+        }
+    }
+
+    private static Object readValue(Input input) {
+        byte tag = input.read();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_STRING:
+                return input.readString();
+            case TAG_INTEGER:
+                return (int) input.readLong();
+            case TAG_LONG:
+                return input.readLong();
+            case TAG_DOUBLE:
+                return Double.longBitsToDouble(input.readFixedLong());
+            case TAG_BOOLEAN:
+                return input.read() != 0;
+            case TAG_JSON:
+                return JSON.parse(input.readString());
+            default:
+                throw new IllegalArgumentException("unknown binary instanceData value tag: " + tag);
+        }
+    }
+
+    private static byte[] deflate(byte[] bytes) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(bytes.length / 2 + 16);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                outputStream.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return outputStream.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] bytes) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes);
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(bytes.length * 4);
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("truncated binary instanceData");
+                }
+                outputStream.write(buffer, 0, length);
+            }
+            return outputStream.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("corrupted binary instanceData", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static final class Output extends ByteArrayOutputStream {
+
+        private Output() {
+            super(256);
+        }
+
+        // unsigned LEB128
+        private void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            write(value);
+        }
+
+        // zigzag LEB128
+        private void writeLong(long value) {
+            long zigzag = (value << 1) ^ (value >> 63);
+            while ((zigzag & ~0x7FL) != 0) {
+                write((int) ((zigzag & 0x7F) | 0x80));
+                zigzag >>>= 7;
+            }
+            write((int) zigzag);
+        }
+
+        private void writeFixedLong(long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                write((int) (value >>> shift));
+            }
+        }
+
+        // length + 1, 0 for null
+        private void writeString(String value) {
+            if (value == null) {
+                writeVarInt(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length + 1);
+            write(bytes, 0, bytes.length);
+        }
+    }
+
+    private static final class Input {
+        private final byte[] bytes;
+        private int position;
+
+        private Input(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        private byte read() {
+            if (position >= bytes.length) {
+                throw new IllegalArgumentException("truncated binary instanceData");
+            }
+            return bytes[position++];
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                byte b = read();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("malformed varint in binary instanceData");
+        }
+
+        private long readLong() {
+            long zigzag = 0;
+            for (int shift = 0; shift < 70; shift += 7) {
+                byte b = read();
+                zigzag |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return (zigzag >>> 1) ^ -(zigzag & 1);
+                }
+            }
+            throw new IllegalArgumentException("malformed varlong in binary instanceData");
+        }
+
+        private long readFixedLong() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (read() & 0xFF);
+            }
+            return value;
+        }
+
+        private String readString() {
+            int length = readVarInt() - 1;
+            if (length < 0) {
+                return null;
+            }
+            if (length > bytes.length - position) {
+                throw new IllegalArgumentException("truncated binary instanceData");
+            }
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
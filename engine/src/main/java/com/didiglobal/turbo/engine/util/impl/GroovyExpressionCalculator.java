@@ -20,9 +20,7 @@ public class GroovyExpressionCalculator implements ExpressionCalculator {
 
     @Override
     public Boolean calculate(String expression, Map<String, Object> dataMap) throws ProcessException {
-        if (expression.startsWith("${") && expression.endsWith("}")) {
-            expression = expression.substring(2, expression.length() - 1);
-        }
+        expression = unwrap(expression);
         Object result = null;
         try {
             result = GroovyUtil.execute(expression, dataMap);
@@ -41,4 +39,23 @@ public class GroovyExpressionCalculator implements ExpressionCalculator {
             LOGGER.info("calculate expression.||expression={}||dataMap={}||result={}", expression, JSONObject.toJSONString(dataMap), result);
         }
     }
+
+    @Override
+    public void precompile(String expression) throws ProcessException {
+        expression = unwrap(expression);
+        try {
+            GroovyUtil.compile(expression);
+        } catch (Exception e) {
+            LOGGER.warn("precompile expression failed.||message={}||expression={}", e.getMessage(), expression);
+            String groovyExFormat = "{0}: expression={1}";
+            throw new ProcessException(ErrorEnum.GROOVY_CALCULATE_FAILED, MessageFormat.format(groovyExFormat, e.getMessage(), expression));
+        }
+    }
+
+    private String unwrap(String expression) {
+        if (expression.startsWith("${") && expression.endsWith("}")) {
+            return expression.substring(2, expression.length() - 1);
+        }
+        return expression;
+    }
 }
@@ -0,0 +1,38 @@
+package com.didiglobal.turbo.engine.util.impl;
+
+import com.alibaba.fastjson.JSON;
+import com.didiglobal.turbo.engine.model.InstanceData;
+import com.didiglobal.turbo.engine.util.InstanceDataCodec;
+import com.google.common.collect.Lists;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The fastjson text of the instance data list, the format of all the rows written before codecs.
+ */
+public class JsonInstanceDataCodec implements InstanceDataCodec {
+
+    public static final String NAME = "json";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String encode(Collection<InstanceData> instanceDataList) {
+        return JSON.toJSONString(instanceDataList == null ? Collections.emptyList() : instanceDataList);
+    }
+
+    @Override
+    public List<InstanceData> decode(String instanceData) {
+        if (StringUtils.isBlank(instanceData)) {
+            return Lists.newArrayList();
+        }
+        List<InstanceData> instanceDataList = JSON.parseArray(instanceData, InstanceData.class);
+        return instanceDataList == null ? Lists.newArrayList() : instanceDataList;
+    }
+}
@@ -0,0 +1,91 @@
+package com.didiglobal.turbo.engine.util.impl;
+
+import com.didiglobal.turbo.engine.exception.ProcessException;
+import com.didiglobal.turbo.engine.util.ExpressionCalculator;
+import com.didiglobal.turbo.engine.util.expression.Condition;
+import com.didiglobal.turbo.engine.util.expression.ExpressionParser;
+import com.didiglobal.turbo.engine.util.expression.UnsupportedExpressionException;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Resource;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Calculate simple conditions natively, e.g. {@code amount > 1000 && level == 'A'}, see {@link ExpressionParser}
+ * for the supported subset.
+ * <p>
+ * Expressions out of the subset, or evaluated with data out of it, fall back to {@link GroovyExpressionCalculator},
+ * so the result is always the same as groovy's.
+ */
+@Primary
+@Service
+public class NativeExpressionCalculator implements ExpressionCalculator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NativeExpressionCalculator.class);
+
+    private static final int CONDITION_CACHE_MAX_SIZE = 10000;
+
+    @Resource
+    private GroovyExpressionCalculator groovyExpressionCalculator;
+
+    // expression -> parsed condition, empty while the expression is out of the subset
+    private final Cache<String, Optional<Condition>> conditionCache = CacheBuilder.newBuilder()
+        .maximumSize(CONDITION_CACHE_MAX_SIZE)
+        .build();
+
+    @Override
+    public Boolean calculate(String expression, Map<String, Object> dataMap) throws ProcessException {
+        Optional<Condition> condition = getCondition(expression);
+        if (condition.isPresent()) {
+            try {
+                boolean result = condition.get().test(dataMap);
+                LOGGER.info("calculate expression natively.||expression={}||result={}", expression, result);
+                return result;
+            } catch (UnsupportedExpressionException e) {
+                LOGGER.info("calculate expression natively failed, fall back to groovy.||expression={}", expression);
+            }
+        }
+        return groovyExpressionCalculator.calculate(expression, dataMap);
+    }
+
+    @Override
+    public void precompile(String expression) throws ProcessException {
+        if (!getCondition(expression).isPresent()) {
+            groovyExpressionCalculator.precompile(expression);
+        }
+    }
+
+    private Optional<Condition> getCondition(String expression) {
+        Optional<Condition> condition = conditionCache.getIfPresent(expression);
+        if (condition != null) {
+            return condition;
+        }
+        try {
+            return conditionCache.get(expression, () -> parse(expression));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            LOGGER.warn("parse expression failed.||expression={}", expression, e.getCause());
+            return Optional.empty();
+        }
+    }
+
+    private Optional<Condition> parse(String expression) {
+        String unwrapped = expression;
+        if (unwrapped.startsWith("${") && unwrapped.endsWith("}")) {
+            unwrapped = unwrapped.substring(2, unwrapped.length() - 1);
+        }
+        try {
+            return Optional.of(ExpressionParser.parse(unwrapped));
+        } catch (UnsupportedExpressionException e) {
+            LOGGER.info("expression is not supported natively.||expression={}||message={}", expression, e.getMessage());
+            return Optional.empty();
+        }
+    }
+}
@@ -24,6 +24,7 @@ import com.didiglobal.turbo.engine.util.FlowModelUtil;
 import com.google.common.collect.Maps;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
 
@@ -88,6 +89,17 @@ public class CallActivityValidator extends ElementValidator {
         } else {
             throwElementValidatorException(flowElement, ErrorEnum.REQUIRED_ELEMENT_ATTRIBUTES);
         }
+        // 2.1.check the collection of multiple instances: a key of the main flow data, and the optional completion count
+        if (MULTIPLE.equals(properties.get(CALL_ACTIVITY_INSTANCE_TYPE).toString())) {
+            Object collection = properties.get(CALL_ACTIVITY_MULTI_INSTANCE_COLLECTION);
+            if (collection == null || StringUtils.isBlank(collection.toString())) {
+                throwElementValidatorException(flowElement, ErrorEnum.REQUIRED_ELEMENT_ATTRIBUTES);
+            }
+            Object completionCount = properties.get(CALL_ACTIVITY_MULTI_INSTANCE_COMPLETION_COUNT);
+            if (completionCount != null && NumberUtils.toInt(completionCount.toString()) <= 0) {
+                throwElementValidatorException(flowElement, ErrorEnum.MODEL_UNKNOWN_ELEMENT_VALUE);
+            }
+        }
         // 3.check data transfer
         Set<String> callActivityParamTypeSet = new TreeSet<>();
         callActivityParamTypeSet.add(Constants.CALL_ACTIVITY_PARAM_TYPE.NONE);
@@ -33,6 +33,9 @@ public class ElementValidatorFactory {
     @Resource
     private ExclusiveGatewayValidator exclusiveGatewayValidator;
 
+    @Resource
+    private ParallelGatewayValidator parallelGatewayValidator;
+
     @Resource
     private CallActivityValidator callActivityValidator;
 
@@ -61,6 +64,8 @@ public class ElementValidatorFactory {
                 return userTaskValidator;
             case FlowElementType.EXCLUSIVE_GATEWAY:
                 return exclusiveGatewayValidator;
+            case FlowElementType.PARALLEL_GATEWAY:
+                return parallelGatewayValidator;
             case FlowElementType.CALL_ACTIVITY:
                 return callActivityValidator;
             default:
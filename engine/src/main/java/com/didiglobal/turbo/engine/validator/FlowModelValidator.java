@@ -1,8 +1,8 @@
 package com.didiglobal.turbo.engine.validator;
 
+import com.didiglobal.turbo.engine.bo.FlowGraph;
 import com.didiglobal.turbo.engine.common.Constants;
 import com.didiglobal.turbo.engine.common.ErrorEnum;
-import com.didiglobal.turbo.engine.common.FlowElementType;
 import com.didiglobal.turbo.engine.exception.DefinitionException;
 import com.didiglobal.turbo.engine.exception.ProcessException;
 import com.didiglobal.turbo.engine.model.FlowElement;
@@ -53,23 +53,19 @@ public class FlowModelValidator {
             flowElementMap.put(flowElement.getKey(), flowElement);
         }
 
-        int startEventCount = 0;
-        int endEventCount = 0;
-
-        for (FlowElement flowElement : flowElementList) {
+        FlowGraph flowGraph = FlowGraph.compile(flowElementList);
+        for (int index = 0; index < flowGraph.size(); index++) {
+            FlowElement flowElement = flowGraph.getElement(index);
 
             ElementValidator elementValidator = elementValidatorFactory.getElementValidator(flowElement);
             elementValidator.validate(flowElementMap, flowElement, commonParam);
 
-            if (FlowElementType.START_EVENT == flowElement.getType()) {
-                startEventCount++;
-            }
-
-            if (FlowElementType.END_EVENT == flowElement.getType()) {
-                endEventCount++;
-            }
+            checkOutgoingResolved(flowGraph, index);
         }
 
+        int startEventCount = flowGraph.getStartEventCount();
+        int endEventCount = flowGraph.getEndEventCount();
+
         if (startEventCount != 1) {
             LOGGER.warn("message={}||startEventCount={}", ErrorEnum.START_NODE_INVALID.getErrMsg(), startEventCount);
             throw new DefinitionException(ErrorEnum.START_NODE_INVALID);
@@ -80,4 +76,16 @@ public class FlowModelValidator {
             throw new DefinitionException(ErrorEnum.END_NODE_INVALID);
         }
     }
+
+    private void checkOutgoingResolved(FlowGraph flowGraph, int index) throws DefinitionException {
+        for (int outgoing : flowGraph.getOutgoingFlows(index)) {
+            if (outgoing == FlowGraph.NONE) {
+                FlowElement flowElement = flowGraph.getElement(index);
+                String exceptionMsg = MessageFormat.format(Constants.MODEL_DEFINITION_ERROR_MSG_FORMAT,
+                    ErrorEnum.MODEL_UNKNOWN_ELEMENT_KEY, FlowModelUtil.getElementName(flowElement), flowElement.getKey());
+                LOGGER.warn(exceptionMsg);
+                throw new DefinitionException(ErrorEnum.MODEL_UNKNOWN_ELEMENT_KEY.getErrNo(), exceptionMsg);
+            }
+        }
+    }
 }
@@ -0,0 +1,62 @@
+package com.didiglobal.turbo.engine.validator;
+
+import com.didiglobal.turbo.engine.common.ErrorEnum;
+import com.didiglobal.turbo.engine.common.FlowElementType;
+import com.didiglobal.turbo.engine.exception.DefinitionException;
+import com.didiglobal.turbo.engine.model.FlowElement;
+import com.didiglobal.turbo.engine.util.FlowModelUtil;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Component
+public class ParallelGatewayValidator extends ElementValidator {
+
+    protected static final Logger LOGGER = LoggerFactory.getLogger(ParallelGatewayValidator.class);
+
+    /**
+     * Check outgoing of a fork:
+     * 1.conditions of the outgoings are ignored, all of them are taken
+     * 2.every branch has to meet a join before it reaches an endEvent, the flowInstance ends with one token
+     */
+    @Override
+    protected void checkOutgoing(Map<String, FlowElement> flowElementMap, FlowElement flowElement) throws DefinitionException {
+        super.checkOutgoing(flowElementMap, flowElement);
+        if (!FlowModelUtil.isParallelFork(flowElement)) {
+            return;
+        }
+
+        List<String> outgoingList = flowElement.getOutgoing();
+        for (String outgoingKey : outgoingList) {
+            FlowElement outgoingSequenceFlow = FlowModelUtil.getFlowElement(flowElementMap, outgoingKey);
+            if (outgoingSequenceFlow != null && StringUtils.isNotBlank(FlowModelUtil.getConditionFromSequenceFlow(outgoingSequenceFlow))) {
+                LOGGER.warn("checkOutgoing: condition of parallelGateway outgoing is ignored.||nodeKey={}||outgoingKey={}",
+                    flowElement.getKey(), outgoingKey);
+            }
+        }
+
+        Set<String> visitedKeys = new HashSet<>();
+        Deque<String> toVisitKeys = new ArrayDeque<>(outgoingList);
+        while (!toVisitKeys.isEmpty()) {
+            String elementKey = toVisitKeys.pop();
+            FlowElement element = FlowModelUtil.getFlowElement(flowElementMap, elementKey);
+            if (element == null || !visitedKeys.add(elementKey) || FlowModelUtil.isParallelJoin(element)) {
+                continue;
+            }
+            if (element.getType() == FlowElementType.END_EVENT) {
+                throwElementValidatorException(flowElement, ErrorEnum.PARALLEL_BRANCH_NOT_JOINED);
+            }
+            if (element.getOutgoing() != null) {
+                toVisitKeys.addAll(element.getOutgoing());
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.didiglobal.turbo.engine.bo;
+
+import com.didiglobal.turbo.engine.model.FlowElement;
+import com.didiglobal.turbo.engine.util.EntityBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class FlowGraphTest {
+
+    @Test
+    public void compile() {
+        FlowGraph flowGraph = FlowGraph.compile(EntityBuilder.buildFlowElementList());
+        Assert.assertEquals("startEvent1", flowGraph.getStartEvent().getKey());
+        Assert.assertEquals(1, flowGraph.getStartEventCount());
+        Assert.assertEquals(2, flowGraph.getEndEventCount());
+    }
+
+    @Test
+    public void getUniqueNextNode() {
+        FlowGraph flowGraph = FlowGraph.compile(EntityBuilder.buildFlowElementList());
+        Assert.assertEquals("userTask1", flowGraph.getUniqueNextNode("startEvent1").getKey());
+        Assert.assertEquals("exclusiveGateway1", flowGraph.getUniqueNextNode("userTask1").getKey());
+        Assert.assertNull(flowGraph.getUniqueNextNode("endEvent1"));
+        Assert.assertNull(flowGraph.getUniqueNextNode("notExistKey"));
+    }
+
+    @Test
+    public void getSuccessors() {
+        FlowGraph flowGraph = FlowGraph.compile(EntityBuilder.buildFlowElementList());
+        int gateway = flowGraph.getIndex("exclusiveGateway1");
+        int[] outgoingFlows = flowGraph.getOutgoingFlows(gateway);
+        int[] successors = flowGraph.getSuccessors(gateway);
+        Assert.assertEquals(2, successors.length);
+        Assert.assertEquals("sequenceFlow3", flowGraph.getElement(outgoingFlows[0]).getKey());
+        Assert.assertEquals("userTask2", flowGraph.getElement(successors[0]).getKey());
+        Assert.assertEquals("sequenceFlow4", flowGraph.getElement(outgoingFlows[1]).getKey());
+        Assert.assertEquals("userTask3", flowGraph.getElement(successors[1]).getKey());
+    }
+
+    @Test
+    public void getSequenceFlow() {
+        FlowGraph flowGraph = FlowGraph.compile(EntityBuilder.buildFlowElementList());
+        Assert.assertEquals("sequenceFlow4", flowGraph.getSequenceFlow("exclusiveGateway1", "userTask3").getKey());
+        Assert.assertNull(flowGraph.getSequenceFlow("userTask1", "userTask3"));
+        Assert.assertNull(flowGraph.getSequenceFlow("notExistKey", "userTask3"));
+    }
+
+    @Test
+    public void unknownOutgoing() {
+        List<FlowElement> flowElementList = EntityBuilder.buildFlowElementList();
+        for (FlowElement flowElement : flowElementList) {
+            if ("sequenceFlow1".equals(flowElement.getKey())) {
+                flowElement.getOutgoing().set(0, "notExistKey");
+            }
+        }
+        FlowGraph flowGraph = FlowGraph.compile(flowElementList);
+        int startEvent = flowGraph.getIndex("startEvent1");
+        Assert.assertEquals(FlowGraph.NONE, flowGraph.getSuccessors(startEvent)[0]);
+        Assert.assertNull(flowGraph.getUniqueNextNode("startEvent1"));
+    }
+}
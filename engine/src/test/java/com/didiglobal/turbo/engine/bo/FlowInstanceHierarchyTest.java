@@ -0,0 +1,70 @@
+package com.didiglobal.turbo.engine.bo;
+
+import com.didiglobal.turbo.engine.common.FlowInstanceMappingType;
+import com.didiglobal.turbo.engine.entity.FlowInstanceMappingPO;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class FlowInstanceHierarchyTest {
+
+    // root -callActivity1-> sub1 -callActivity2-> sub2, root -callActivity3-> sub3
+    // callActivity1 is re-executed as callActivity1New with the same sub1
+    private final List<FlowInstanceMappingPO> mappingList = Lists.newArrayList(
+        buildMappingPO(1L, "root", "callActivity1", "sub1", FlowInstanceMappingType.TERMINATED),
+        buildMappingPO(2L, "sub1", "callActivity2", "sub2", FlowInstanceMappingType.EXECUTE),
+        buildMappingPO(3L, "root", "callActivity1New", "sub1", FlowInstanceMappingType.EXECUTE),
+        buildMappingPO(4L, "root", "callActivity3", "sub3", FlowInstanceMappingType.EXECUTE));
+
+    @Test
+    public void subFlowInstanceIds() {
+        FlowInstanceHierarchy hierarchy = new FlowInstanceHierarchy("root", mappingList);
+        Assert.assertEquals(Sets.newHashSet("sub1", "sub2", "sub3"), hierarchy.getSubFlowInstanceIds("root"));
+        Assert.assertEquals(Sets.newHashSet("sub2"), hierarchy.getSubFlowInstanceIds("sub1"));
+        Assert.assertTrue(hierarchy.getSubFlowInstanceIds("sub2").isEmpty());
+    }
+
+    @Test
+    public void ancestorPath() {
+        FlowInstanceHierarchy hierarchy = new FlowInstanceHierarchy("root", mappingList);
+        List<FlowInstanceMappingPO> path = hierarchy.getAncestorPath("sub2");
+        Assert.assertEquals(2, path.size());
+        // the executing mapping wins over the terminated one
+        Assert.assertEquals("callActivity1New", path.get(0).getNodeInstanceId());
+        Assert.assertEquals("callActivity2", path.get(1).getNodeInstanceId());
+        Assert.assertTrue(hierarchy.getAncestorPath("root").isEmpty());
+        Assert.assertNull(hierarchy.getParentMapping("notExist"));
+    }
+
+    @Test
+    public void mappingList() {
+        FlowInstanceHierarchy hierarchy = new FlowInstanceHierarchy("root", mappingList);
+        Assert.assertEquals("sub1", hierarchy.getMappingList("root", "callActivity1").get(0).getSubFlowInstanceId());
+        Assert.assertTrue(hierarchy.getMappingList("root", "userTask1").isEmpty());
+        Assert.assertTrue(new FlowInstanceHierarchy("root", Lists.newArrayList()).isEmpty());
+    }
+
+    @Test
+    public void ring() {
+        FlowInstanceHierarchy hierarchy = new FlowInstanceHierarchy("root", Lists.newArrayList(
+            buildMappingPO(1L, "sub1", "callActivity1", "sub2", FlowInstanceMappingType.EXECUTE),
+            buildMappingPO(2L, "sub2", "callActivity2", "sub1", FlowInstanceMappingType.EXECUTE)));
+        Assert.assertEquals(2, hierarchy.getAncestorPath("sub1").size());
+        Assert.assertEquals(Sets.newHashSet("sub2"), hierarchy.getSubFlowInstanceIds("sub1"));
+    }
+
+    private static FlowInstanceMappingPO buildMappingPO(Long id, String flowInstanceId, String nodeInstanceId,
+                                                        String subFlowInstanceId, int type) {
+        FlowInstanceMappingPO mappingPO = new FlowInstanceMappingPO();
+        mappingPO.setId(id);
+        mappingPO.setFlowInstanceId(flowInstanceId);
+        mappingPO.setNodeInstanceId(nodeInstanceId);
+        mappingPO.setSubFlowInstanceId(subFlowInstanceId);
+        mappingPO.setRootFlowInstanceId("root");
+        mappingPO.setType(type);
+        return mappingPO;
+    }
+}
@@ -0,0 +1,38 @@
+package com.didiglobal.turbo.engine.bo;
+
+import com.didiglobal.turbo.engine.model.InstanceData;
+import com.didiglobal.turbo.engine.util.InstanceDataUtil;
+import com.google.common.collect.Lists;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+
+public class InstanceDataSnapshotTest {
+
+    @Test
+    public void getCopy() {
+        InstanceDataSnapshot snapshot = new InstanceDataSnapshot("flowInstanceId");
+        Assert.assertFalse(snapshot.contains("instanceDataId"));
+        Assert.assertNull(snapshot.get("instanceDataId"));
+
+        snapshot.put("instanceDataId", InstanceDataUtil.getInstanceDataListStr(
+            InstanceDataUtil.getInstanceDataMap(Lists.newArrayList(new InstanceData("orderId", "123")))));
+        Assert.assertTrue(snapshot.contains("instanceDataId"));
+
+        Map<String, InstanceData> instanceDataMap = snapshot.get("instanceDataId");
+        Assert.assertEquals("123", instanceDataMap.get("orderId").getValue());
+        // a modified copy leaves the snapshot unchanged
+        instanceDataMap.put("status", new InstanceData("status", "paid"));
+        Assert.assertFalse(snapshot.get("instanceDataId").containsKey("status"));
+        Assert.assertEquals(1, snapshot.size());
+    }
+
+    @Test
+    public void putEmpty() {
+        InstanceDataSnapshot snapshot = new InstanceDataSnapshot("flowInstanceId");
+        snapshot.put("instanceDataId", null);
+        Assert.assertTrue(snapshot.contains("instanceDataId"));
+        Assert.assertTrue(snapshot.get("instanceDataId").isEmpty());
+    }
+}
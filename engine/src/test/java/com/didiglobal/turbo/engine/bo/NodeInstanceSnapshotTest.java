@@ -0,0 +1,63 @@
+package com.didiglobal.turbo.engine.bo;
+
+import com.didiglobal.turbo.engine.common.NodeInstanceStatus;
+import com.didiglobal.turbo.engine.entity.NodeInstancePO;
+import com.google.common.collect.Lists;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class NodeInstanceSnapshotTest {
+
+    @Test
+    public void lookup() {
+        NodeInstanceSnapshot snapshot = new NodeInstanceSnapshot("flowInstanceId", Lists.newArrayList(
+            buildNodeInstancePO("start", "", "startEvent1", NodeInstanceStatus.COMPLETED),
+            buildNodeInstancePO("task", "start", "userTask1", NodeInstanceStatus.ACTIVE)));
+
+        Assert.assertEquals("userTask1", snapshot.get("task").getNodeKey());
+        Assert.assertNull(snapshot.get("notExist"));
+        Assert.assertEquals("task", snapshot.getBySource("start", "userTask1").getNodeInstanceId());
+        Assert.assertNull(snapshot.getBySource("start", "userTask2"));
+        Assert.assertNull(snapshot.getBySource("task", "userTask1"));
+    }
+
+    @Test
+    public void putSavedNodeInstance() {
+        NodeInstanceSnapshot snapshot = new NodeInstanceSnapshot("flowInstanceId", Lists.newArrayList(
+            buildNodeInstancePO("start", "", "startEvent1", NodeInstanceStatus.COMPLETED),
+            buildNodeInstancePO("task", "start", "userTask1", NodeInstanceStatus.ACTIVE)));
+
+        snapshot.put(buildNodeInstancePO("task", "start", "userTask1", NodeInstanceStatus.COMPLETED));
+        snapshot.put(buildNodeInstancePO("gateway", "task", "exclusiveGateway1", NodeInstanceStatus.COMPLETED));
+
+        Assert.assertEquals(3, snapshot.size());
+        Assert.assertEquals(NodeInstanceStatus.COMPLETED, (int) snapshot.get("task").getStatus());
+        Assert.assertEquals("gateway", snapshot.getBySource("task", "exclusiveGateway1").getNodeInstanceId());
+        // an updated nodeInstance keeps its place
+        List<NodeInstancePO> descList = snapshot.getDescList();
+        Assert.assertEquals("gateway", descList.get(0).getNodeInstanceId());
+        Assert.assertEquals("task", descList.get(1).getNodeInstanceId());
+        Assert.assertEquals("start", descList.get(2).getNodeInstanceId());
+    }
+
+    @Test
+    public void empty() {
+        NodeInstanceSnapshot snapshot = new NodeInstanceSnapshot("flowInstanceId", null);
+        Assert.assertEquals(0, snapshot.size());
+        Assert.assertTrue(snapshot.getDescList().isEmpty());
+        Assert.assertNull(snapshot.get(null));
+    }
+
+    private static NodeInstancePO buildNodeInstancePO(String nodeInstanceId, String sourceNodeInstanceId, String nodeKey,
+                                                      int status) {
+        NodeInstancePO nodeInstancePO = new NodeInstancePO();
+        nodeInstancePO.setFlowInstanceId("flowInstanceId");
+        nodeInstancePO.setNodeInstanceId(nodeInstanceId);
+        nodeInstancePO.setSourceNodeInstanceId(sourceNodeInstanceId);
+        nodeInstancePO.setNodeKey(nodeKey);
+        nodeInstancePO.setStatus(status);
+        return nodeInstancePO;
+    }
+}
@@ -0,0 +1,95 @@
+package com.didiglobal.turbo.engine.bo;
+
+import com.didiglobal.turbo.engine.model.InstanceData;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+
+public class VariableStoreTest {
+
+    @Test
+    public void convertByDeclaredType() {
+        VariableStore variableStore = new VariableStore();
+        variableStore.put("integer", new InstanceData("integer", "integer", "12"));
+        variableStore.put("long", new InstanceData("long", "long", 12));
+        variableStore.put("double", new InstanceData("double", "double", "1.5"));
+        variableStore.put("string", new InstanceData("string", "string", 12));
+        variableStore.put("list", new InstanceData("list", "list", "[1,2]"));
+        variableStore.put("untyped", new InstanceData("untyped", "12"));
+        variableStore.put("mismatch", new InstanceData("mismatch", "integer", "abc"));
+
+        Assert.assertEquals(12, variableStore.getValue("integer"));
+        Assert.assertEquals(12L, variableStore.getValue("long"));
+        Assert.assertEquals(1.5d, variableStore.getValue("double"));
+        Assert.assertEquals("12", variableStore.getValue("string"));
+        Assert.assertEquals(Lists.newArrayList(1, 2), variableStore.getValue("list"));
+        Assert.assertEquals("12", variableStore.getValue("untyped"));
+        // kept as it is while it can't be converted
+        Assert.assertEquals("abc", variableStore.getValue("mismatch"));
+        // the raw instance data is kept for saving
+        Assert.assertEquals("12", variableStore.get("integer").getValue());
+    }
+
+    @Test
+    public void keepLossyValue() {
+        VariableStore variableStore = new VariableStore();
+        variableStore.put("fraction", new InstanceData("fraction", "integer", 1.5));
+        variableStore.put("intOverflow", new InstanceData("intOverflow", "integer", 2147483648L));
+        variableStore.put("longOverflow", new InstanceData("longOverflow", "long", "9223372036854775808"));
+        variableStore.put("precision", new InstanceData("precision", "double", 9007199254740993L));
+        variableStore.put("wholeDouble", new InstanceData("wholeDouble", "integer", 2.0));
+        variableStore.put("longDouble", new InstanceData("longDouble", "double", 9007199254740992L));
+        variableStore.put("decimal", new InstanceData("decimal", "double", "0.1"));
+
+        // kept as they are rather than truncated or overflowed
+        Assert.assertEquals(1.5, variableStore.getValue("fraction"));
+        Assert.assertEquals(2147483648L, variableStore.getValue("intOverflow"));
+        Assert.assertEquals("9223372036854775808", variableStore.getValue("longOverflow"));
+        Assert.assertEquals(9007199254740993L, variableStore.getValue("precision"));
+        // converted while no information is lost
+        Assert.assertEquals(2, variableStore.getValue("wholeDouble"));
+        Assert.assertEquals(9007199254740992d, variableStore.getValue("longDouble"));
+        Assert.assertEquals(0.1d, variableStore.getValue("decimal"));
+    }
+
+    @Test
+    public void readOnlyDataView() {
+        VariableStore variableStore = new VariableStore();
+        Map<String, Object> dataMap = variableStore.asDataMap();
+        variableStore.put("amount", new InstanceData("amount", "integer", 1000));
+        Assert.assertSame(dataMap, variableStore.asDataMap());
+        Assert.assertEquals(1000, dataMap.get("amount"));
+        Assert.assertTrue(dataMap.containsKey("amount"));
+        Assert.assertEquals(1, dataMap.entrySet().size());
+        try {
+            dataMap.put("amount", 1);
+            Assert.fail();
+        } catch (UnsupportedOperationException e) {
+            Assert.assertEquals(1000, dataMap.get("amount"));
+        }
+    }
+
+    @Test
+    public void copyAndMerge() {
+        Map<String, InstanceData> instanceDataMap = Maps.newHashMap();
+        instanceDataMap.put("orderId", new InstanceData("orderId", "123"));
+        VariableStore variableStore = VariableStore.of(instanceDataMap);
+        Assert.assertSame(variableStore, VariableStore.of(variableStore));
+        Assert.assertNull(VariableStore.of(null));
+
+        VariableStore copy = variableStore.copy();
+        copy.put("status", new InstanceData("status", "paid"));
+        Assert.assertFalse(variableStore.containsKey("status"));
+
+        variableStore.putAll(copy);
+        Assert.assertEquals(2, variableStore.size());
+        Assert.assertSame(copy.get("status"), variableStore.get("status"));
+        Assert.assertEquals(instanceDataMap, Maps.newHashMap(VariableStore.of(instanceDataMap)));
+
+        variableStore.remove("orderId");
+        Assert.assertEquals(Lists.newArrayList("status"), Lists.newArrayList(variableStore.keySet()));
+    }
+}
@@ -0,0 +1,194 @@
+package com.didiglobal.turbo.engine.dao;
+
+import com.didiglobal.turbo.engine.common.FlowInstanceStatus;
+import com.didiglobal.turbo.engine.common.RedisConstants;
+import com.didiglobal.turbo.engine.entity.FlowDeploymentPO;
+import com.didiglobal.turbo.engine.entity.FlowInstancePO;
+import com.didiglobal.turbo.engine.metrics.EngineMetrics;
+import com.didiglobal.turbo.engine.spi.FlowCache;
+import com.didiglobal.turbo.engine.spi.impl.LocalFlowCache;
+import com.didiglobal.turbo.engine.util.EntityBuilder;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+public class FlowCacheTemplateTest {
+
+    private LocalFlowCache flowCache;
+
+    private FlowCacheTemplate flowCacheTemplate;
+
+    private final AtomicInteger loadCount = new AtomicInteger();
+
+    @Before
+    public void init() {
+        flowCache = new LocalFlowCache(100);
+        flowCacheTemplate = newTemplate(flowCache);
+    }
+
+    @Test
+    public void sharedDeployment() {
+        FlowDeploymentPO flowDeploymentPO = EntityBuilder.buildFlowDeploymentPO();
+        flowDeploymentPO.setFlowModel(EntityBuilder.buildModelString());
+        Supplier<FlowDeploymentPO> loader = counting(flowDeploymentPO);
+
+        flowCacheTemplate.getFlowDeployment(flowDeploymentPO.getFlowDeployId(), loader);
+        // another engine node on the same cache
+        FlowDeploymentPO cachedPO = newTemplate(flowCache).getFlowDeployment(flowDeploymentPO.getFlowDeployId(), loader);
+        Assert.assertEquals(1, loadCount.get());
+        Assert.assertNotSame(flowDeploymentPO, cachedPO);
+        Assert.assertEquals(flowDeploymentPO.getFlowModel(), cachedPO.getFlowModel());
+        Assert.assertEquals(flowDeploymentPO.getFlowModuleId(), cachedPO.getFlowModuleId());
+        Assert.assertEquals(1, flowCacheTemplate.getCacheStats().missCount());
+    }
+
+    @Test
+    public void invalidateOnUpdate() {
+        FlowInstancePO flowInstancePO = buildFlowInstancePO();
+        Supplier<FlowInstancePO> loader = counting(flowInstancePO);
+        String flowInstanceId = flowInstancePO.getFlowInstanceId();
+        flowCacheTemplate.getFlowInstance(flowInstanceId, loader);
+
+        flowCacheTemplate.invalidateFlowInstance(flowInstanceId);
+        flowInstancePO.setStatus(FlowInstanceStatus.COMPLETED);
+        FlowInstancePO loadedPO = flowCacheTemplate.getFlowInstance(flowInstanceId, loader);
+        Assert.assertEquals(2, loadCount.get());
+        Assert.assertEquals(FlowInstanceStatus.COMPLETED, loadedPO.getStatus().intValue());
+        // not filled while it's invalidated
+        flowCacheTemplate.getFlowInstance(flowInstanceId, loader);
+        Assert.assertEquals(3, loadCount.get());
+        Assert.assertEquals(FlowCacheTemplate.INVALIDATED, flowCache.get(RedisConstants.FLOW_INSTANCE + flowInstanceId));
+
+        // filled again once the marker expires
+        flowCache.delete(RedisConstants.FLOW_INSTANCE + flowInstanceId);
+        flowCacheTemplate.getFlowInstance(flowInstanceId, loader);
+        FlowInstancePO cachedPO = flowCacheTemplate.getFlowInstance(flowInstanceId, loader);
+        Assert.assertEquals(4, loadCount.get());
+        Assert.assertEquals(FlowInstanceStatus.COMPLETED, cachedPO.getStatus().intValue());
+        Assert.assertEquals(flowInstancePO.getFlowDeployId(), cachedPO.getFlowDeployId());
+        Assert.assertNull(cachedPO.getVersion());
+    }
+
+    @Test
+    public void staleLoadNotPutBack() {
+        FlowInstancePO flowInstancePO = buildFlowInstancePO();
+        String flowInstanceId = flowInstancePO.getFlowInstanceId();
+        // another node commits a status update between the db read of this one and its put
+        Supplier<FlowInstancePO> racingLoader = () -> {
+            FlowInstancePO loadedPO = buildFlowInstancePO();
+            loadedPO.setFlowInstanceId(flowInstanceId);
+            newTemplate(flowCache).invalidateFlowInstance(flowInstanceId);
+            return loadedPO;
+        };
+        Assert.assertEquals(FlowInstanceStatus.RUNNING, flowCacheTemplate.getFlowInstance(flowInstanceId, racingLoader).getStatus().intValue());
+
+        flowInstancePO.setStatus(FlowInstanceStatus.TERMINATED);
+        Supplier<FlowInstancePO> loader = counting(flowInstancePO);
+        Assert.assertEquals(FlowInstanceStatus.TERMINATED, flowCacheTemplate.getFlowInstance(flowInstanceId, loader).getStatus().intValue());
+        Assert.assertEquals(1, loadCount.get());
+    }
+
+    @Test
+    public void invalidateAfterCommit() {
+        FlowInstancePO flowInstancePO = buildFlowInstancePO();
+        Supplier<FlowInstancePO> loader = counting(flowInstancePO);
+        flowCacheTemplate.getFlowInstance(flowInstancePO.getFlowInstanceId(), loader);
+        String flowInstanceId = flowInstancePO.getFlowInstanceId();
+        String key = RedisConstants.FLOW_INSTANCE + flowInstanceId;
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new NoopTransactionManager());
+
+        transactionTemplate.execute(transactionStatus -> {
+            flowCacheTemplate.invalidateFlowInstance(flowInstanceId);
+            transactionStatus.setRollbackOnly();
+            return null;
+        });
+        Assert.assertEquals(FlowInstanceStatus.RUNNING, flowCacheTemplate.getFlowInstance(flowInstanceId, loader).getStatus().intValue());
+        Assert.assertEquals(1, loadCount.get());
+
+        transactionTemplate.execute(transactionStatus -> {
+            flowCacheTemplate.invalidateFlowInstance(flowInstanceId);
+            Assert.assertNotEquals(FlowCacheTemplate.INVALIDATED, flowCache.get(key));
+            // the db is read within a transaction
+            flowCacheTemplate.getFlowInstance(flowInstanceId, loader);
+            Assert.assertEquals(2, loadCount.get());
+            return null;
+        });
+        Assert.assertEquals(FlowCacheTemplate.INVALIDATED, flowCache.get(key));
+    }
+
+    @Test
+    public void fallbackToDb() {
+        FlowCache brokenFlowCache = new LocalFlowCache(100) {
+            @Override
+            public String get(String key) {
+                throw new IllegalStateException("unavailable");
+            }
+        };
+        FlowInstancePO flowInstancePO = buildFlowInstancePO();
+        Supplier<FlowInstancePO> loader = counting(flowInstancePO);
+        flowCacheTemplate = newTemplate(brokenFlowCache);
+        Assert.assertSame(flowInstancePO, flowCacheTemplate.getFlowInstance(flowInstancePO.getFlowInstanceId(), loader));
+        Assert.assertSame(flowInstancePO, flowCacheTemplate.getFlowInstance(flowInstancePO.getFlowInstanceId(), loader));
+        Assert.assertEquals(2, loadCount.get());
+    }
+
+    @Test
+    public void disabled() {
+        flowCacheTemplate = newTemplate(null);
+        FlowInstancePO flowInstancePO = buildFlowInstancePO();
+        Supplier<FlowInstancePO> loader = counting(flowInstancePO);
+        flowCacheTemplate.getFlowInstance(flowInstancePO.getFlowInstanceId(), loader);
+        flowCacheTemplate.invalidateFlowInstance(flowInstancePO.getFlowInstanceId());
+        flowCacheTemplate.getFlowInstance(flowInstancePO.getFlowInstanceId(), loader);
+        Assert.assertEquals(2, loadCount.get());
+        Assert.assertEquals(0, flowCacheTemplate.getCacheStats().requestCount());
+    }
+
+    private <T> Supplier<T> counting(T t) {
+        return () -> {
+            loadCount.incrementAndGet();
+            return t;
+        };
+    }
+
+    private static FlowCacheTemplate newTemplate(FlowCache flowCache) {
+        FlowCacheTemplate flowCacheTemplate = new FlowCacheTemplate();
+        flowCacheTemplate.init(flowCache, new EngineMetrics());
+        return flowCacheTemplate;
+    }
+
+    private static FlowInstancePO buildFlowInstancePO() {
+        FlowInstancePO flowInstancePO = EntityBuilder.buildFlowInstancePO();
+        flowInstancePO.setFlowInstanceId("testFlowInstanceId_" + System.nanoTime());
+        flowInstancePO.setStatus(FlowInstanceStatus.RUNNING);
+        flowInstancePO.setVersion(3);
+        return flowInstancePO;
+    }
+
+    private static class NoopTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
@@ -3,10 +3,12 @@ package com.didiglobal.turbo.engine.dao;
 import com.didiglobal.turbo.engine.entity.InstanceDataPO;
 import com.didiglobal.turbo.engine.runner.BaseTest;
 import com.didiglobal.turbo.engine.util.EntityBuilder;
+import com.google.common.collect.Lists;
 import org.junit.Assert;
 import org.junit.Test;
 
 import javax.annotation.Resource;
+import java.util.List;
 
 public class InstanceDataDAOTest extends BaseTest {
 
@@ -39,6 +41,18 @@ public class InstanceDataDAOTest extends BaseTest {
         Assert.assertTrue(result.getInstanceDataId().equals(instanceDataPO.getInstanceDataId()));
     }
 
+    @Test
+    public void selectByInstanceDataIds() {
+        InstanceDataPO instanceDataPO = EntityBuilder.buildDynamicInstanceDataPO();
+        instanceDataDAO.insert(instanceDataPO);
+        InstanceDataPO otherInstanceDataPO = EntityBuilder.buildDynamicInstanceDataPO();
+        instanceDataDAO.insert(otherInstanceDataPO);
+        List<InstanceDataPO> result = instanceDataDAO.selectByInstanceDataIds(instanceDataPO.getFlowInstanceId(),
+            Lists.newArrayList(instanceDataPO.getInstanceDataId(), otherInstanceDataPO.getInstanceDataId(), "notExist"));
+        Assert.assertTrue(result.size() == 2);
+        Assert.assertTrue(instanceDataDAO.selectByInstanceDataIds(instanceDataPO.getFlowInstanceId(), Lists.newArrayList()).isEmpty());
+    }
+
     @Test
     public void selectRecentOne() {
         InstanceDataPO oldInstanceDataPO = EntityBuilder.buildDynamicInstanceDataPO();
@@ -0,0 +1,254 @@
+package com.didiglobal.turbo.engine.dao;
+
+import com.didiglobal.turbo.engine.bo.InstanceDataSnapshot;
+import com.didiglobal.turbo.engine.dao.mapper.InstanceDataMapper;
+import com.didiglobal.turbo.engine.entity.InstanceDataPO;
+import com.didiglobal.turbo.engine.model.InstanceData;
+import com.didiglobal.turbo.engine.util.InstanceDataCodec;
+import com.didiglobal.turbo.engine.util.InstanceDataCodecRegistry;
+import com.didiglobal.turbo.engine.util.impl.JsonInstanceDataCodec;
+import com.didiglobal.turbo.engine.util.InstanceDataUtil;
+import com.didiglobal.turbo.engine.util.impl.BinaryInstanceDataCodec;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+public class InstanceDataDeltaTest {
+
+    private static final String FLOW_INSTANCE_ID = "flowInstanceId";
+
+    private InstanceDataDAO instanceDataDAO;
+
+    private final InstanceDataCodecRegistry instanceDataCodecRegistry = new InstanceDataCodecRegistry();
+
+    // instanceDataId -> raw row as written
+    private final Map<String, InstanceDataPO> rowMap = new LinkedHashMap<>();
+
+    private final AtomicInteger selectCount = new AtomicInteger();
+
+    // instance data of the runtime call
+    private InstanceDataSnapshot instanceDataSnapshot;
+
+    @Before
+    public void init() {
+        instanceDataDAO = new InstanceDataDAO();
+        ReflectionTestUtils.setField(instanceDataDAO, "baseMapper", memoryMapper());
+        ReflectionTestUtils.setField(instanceDataDAO, "instanceDataCodecRegistry", instanceDataCodecRegistry);
+        ReflectionTestUtils.setField(instanceDataDAO, "checkpointInterval", 3);
+        instanceDataSnapshot = new InstanceDataSnapshot(FLOW_INSTANCE_ID);
+    }
+
+    @Test
+    public void deltaChainWithCheckpoint() {
+        Map<String, InstanceData> instanceDataMap = buildInstanceDataMap(20);
+        insert("d0", instanceDataMap, "");
+        instanceDataMap.put("k1", new InstanceData("k1", "changed"));
+        insert("d1", instanceDataMap, "d0");
+        instanceDataMap.put("new", new InstanceData("new", "added"));
+        insert("d2", instanceDataMap, "d1");
+        insert("d3", instanceDataMap, "d2");
+
+        Assert.assertTrue(checkpointOf(rowMap.get("d0")).isEmpty());
+        // deltas are against the checkpoint, not the previous row
+        Assert.assertEquals("d0", rowMap.get("d1").getCheckpointInstanceDataId());
+        Assert.assertEquals(1, getRawMap("d1").size());
+        Assert.assertEquals("d0", rowMap.get("d2").getCheckpointInstanceDataId());
+        Assert.assertEquals(2, getRawMap("d2").size());
+        // checkpointInterval reached
+        Assert.assertTrue(checkpointOf(rowMap.get("d3")).isEmpty());
+        Assert.assertEquals(21, getRawMap("d3").size());
+
+        Map<String, InstanceData> d2 = InstanceDataUtil.getInstanceDataMap(
+            instanceDataDAO.select(FLOW_INSTANCE_ID, "d2").getInstanceData());
+        Assert.assertEquals(21, d2.size());
+        Assert.assertEquals("changed", d2.get("k1").getValue());
+        Assert.assertEquals("v2", d2.get("k2").getValue());
+
+        List<InstanceDataPO> batch = instanceDataDAO.selectByInstanceDataIds(FLOW_INSTANCE_ID, Lists.newArrayList("d1", "d2"));
+        Assert.assertEquals(20, InstanceDataUtil.getInstanceDataMap(batch.get(0).getInstanceData()).size());
+        Assert.assertEquals(21, InstanceDataUtil.getInstanceDataMap(batch.get(1).getInstanceData()).size());
+    }
+
+    @Test
+    public void fullWhileKeyRemoved() {
+        Map<String, InstanceData> instanceDataMap = buildInstanceDataMap(20);
+        insert("d0", instanceDataMap, "");
+        instanceDataMap.remove("k1");
+        InstanceDataPO instanceDataPO = buildInstanceDataPO("d1", instanceDataMap);
+        String instanceData = instanceDataPO.getInstanceData();
+        instanceDataDAO.insert(instanceDataPO, instanceDataMap, "d0", instanceDataSnapshot);
+
+        Assert.assertTrue(checkpointOf(rowMap.get("d1")).isEmpty());
+        Assert.assertEquals(19, getRawMap("d1").size());
+        // the caller keeps the full instanceData
+        Assert.assertEquals(instanceData, instanceDataPO.getInstanceData());
+    }
+
+    @Test
+    public void fullWhileDisabled() {
+        ReflectionTestUtils.setField(instanceDataDAO, "checkpointInterval", 0);
+        Map<String, InstanceData> instanceDataMap = buildInstanceDataMap(20);
+        insert("d0", instanceDataMap, "");
+        instanceDataMap.put("k1", new InstanceData("k1", "changed"));
+        insert("d1", instanceDataMap, "d0");
+
+        Assert.assertEquals(20, getRawMap("d1").size());
+    }
+
+    @Test
+    public void deltaOfBinaryRows() {
+        InstanceDataCodec codec = instanceDataCodecRegistry.get(BinaryInstanceDataCodec.NAME);
+        Map<String, InstanceData> instanceDataMap = buildInstanceDataMap(20);
+        insert(buildInstanceDataPO("d0", instanceDataMap, codec), instanceDataMap, "");
+        instanceDataMap.put("k1", new InstanceData("k1", 1L));
+        insert(buildInstanceDataPO("d1", instanceDataMap, codec), instanceDataMap, "d0");
+
+        Assert.assertEquals("d0", rowMap.get("d1").getCheckpointInstanceDataId());
+        Assert.assertEquals(1, instanceDataCodecRegistry.getInstanceDataMap(rowMap.get("d1")).size());
+        InstanceDataPO d1 = instanceDataDAO.select(FLOW_INSTANCE_ID, "d1");
+        Assert.assertEquals(BinaryInstanceDataCodec.NAME, d1.getInstanceDataEncode());
+        Map<String, InstanceData> d1Map = instanceDataCodecRegistry.getInstanceDataMap(d1);
+        Assert.assertEquals(20, d1Map.size());
+        Assert.assertEquals(1L, d1Map.get("k1").getValue());
+    }
+
+    @Test
+    public void deltaWithoutSelect() {
+        Map<String, InstanceData> instanceDataMap = buildInstanceDataMap(20);
+        insert("d0", instanceDataMap, "");
+        instanceDataMap.put("k1", new InstanceData("k1", "changed"));
+        insert("d1", instanceDataMap, "d0");
+
+        // a following call reads d1, its checkpoint is kept as well
+        instanceDataSnapshot = new InstanceDataSnapshot(FLOW_INSTANCE_ID);
+        instanceDataDAO.select(FLOW_INSTANCE_ID, "d1", instanceDataSnapshot);
+        Assert.assertEquals(2, selectCount.get());
+        Assert.assertTrue(instanceDataSnapshot.contains("d0"));
+
+        instanceDataMap.put("k2", new InstanceData("k2", "changed"));
+        insert("d2", instanceDataMap, "d1");
+        Assert.assertEquals(2, selectCount.get());
+        Assert.assertEquals("d0", rowMap.get("d2").getCheckpointInstanceDataId());
+        Assert.assertEquals(2, getRawMap("d2").size());
+
+        // d2 is answered by the snapshot of the call
+        Assert.assertEquals("changed", instanceDataSnapshot.get("d2").get("k2").getValue());
+    }
+
+    @Test
+    public void fullWhileBaseNotFetched() {
+        Map<String, InstanceData> instanceDataMap = buildInstanceDataMap(20);
+        insert("d0", instanceDataMap, "");
+        instanceDataSnapshot = new InstanceDataSnapshot(FLOW_INSTANCE_ID);
+        instanceDataMap.put("k1", new InstanceData("k1", "changed"));
+        insert("d1", instanceDataMap, "d0");
+
+        Assert.assertEquals(0, selectCount.get());
+        Assert.assertTrue(checkpointOf(rowMap.get("d1")).isEmpty());
+        Assert.assertEquals(20, getRawMap("d1").size());
+    }
+
+    @Test
+    public void failWhileCheckpointMissing() {
+        Map<String, InstanceData> instanceDataMap = buildInstanceDataMap(20);
+        insert("d0", instanceDataMap, "");
+        instanceDataMap.put("k1", new InstanceData("k1", "changed"));
+        insert("d1", instanceDataMap, "d0");
+        rowMap.remove("d0");
+
+        try {
+            instanceDataDAO.select(FLOW_INSTANCE_ID, "d1");
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage().contains("d0"));
+        }
+        try {
+            instanceDataDAO.selectByInstanceDataIds(FLOW_INSTANCE_ID, Lists.newArrayList("d1"));
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage().contains("d0"));
+        }
+    }
+
+    private void insert(String instanceDataId, Map<String, InstanceData> instanceDataMap, String baseInstanceDataId) {
+        insert(buildInstanceDataPO(instanceDataId, instanceDataMap), instanceDataMap, baseInstanceDataId);
+    }
+
+    private void insert(InstanceDataPO instanceDataPO, Map<String, InstanceData> instanceDataMap, String baseInstanceDataId) {
+        instanceDataDAO.insert(instanceDataPO, instanceDataMap, baseInstanceDataId, instanceDataSnapshot);
+    }
+
+    private static String checkpointOf(InstanceDataPO instanceDataPO) {
+        return instanceDataPO.getCheckpointInstanceDataId() == null ? "" : instanceDataPO.getCheckpointInstanceDataId();
+    }
+
+    private Map<String, InstanceData> getRawMap(String instanceDataId) {
+        return InstanceDataUtil.getInstanceDataMap(rowMap.get(instanceDataId).getInstanceData());
+    }
+
+    private static Map<String, InstanceData> buildInstanceDataMap(int size) {
+        Map<String, InstanceData> instanceDataMap = Maps.newHashMap();
+        for (int i = 0; i < size; i++) {
+            instanceDataMap.put("k" + i, new InstanceData("k" + i, "v" + i));
+        }
+        return instanceDataMap;
+    }
+
+    private InstanceDataPO buildInstanceDataPO(String instanceDataId, Map<String, InstanceData> instanceDataMap) {
+        return buildInstanceDataPO(instanceDataId, instanceDataMap, instanceDataCodecRegistry.get(JsonInstanceDataCodec.NAME));
+    }
+
+    private static InstanceDataPO buildInstanceDataPO(String instanceDataId, Map<String, InstanceData> instanceDataMap,
+                                                      InstanceDataCodec codec) {
+        InstanceDataPO instanceDataPO = new InstanceDataPO();
+        instanceDataPO.setFlowInstanceId(FLOW_INSTANCE_ID);
+        instanceDataPO.setInstanceDataId(instanceDataId);
+        InstanceDataUtil.setInstanceData(instanceDataPO, instanceDataMap, codec);
+        return instanceDataPO;
+    }
+
+    private InstanceDataMapper memoryMapper() {
+        return (InstanceDataMapper) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{InstanceDataMapper.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "insert":
+                        InstanceDataPO instanceDataPO = (InstanceDataPO) args[0];
+                        rowMap.put(instanceDataPO.getInstanceDataId(), copy(instanceDataPO));
+                        return 1;
+                    case "select":
+                        selectCount.incrementAndGet();
+                        return copy(rowMap.get((String) args[1]));
+                    case "selectByInstanceDataIds":
+                        selectCount.incrementAndGet();
+                        return ((List<String>) args[1]).stream().filter(rowMap::containsKey)
+                            .map(id -> copy(rowMap.get(id))).collect(Collectors.toList());
+                    default:
+                        return null;
+                }
+            });
+    }
+
+    private static InstanceDataPO copy(InstanceDataPO instanceDataPO) {
+        if (instanceDataPO == null) {
+            return null;
+        }
+        InstanceDataPO copy = new InstanceDataPO();
+        copy.setFlowInstanceId(instanceDataPO.getFlowInstanceId());
+        copy.setInstanceDataId(instanceDataPO.getInstanceDataId());
+        copy.setInstanceData(instanceDataPO.getInstanceData());
+        copy.setInstanceDataEncode(instanceDataPO.getInstanceDataEncode());
+        copy.setCheckpointInstanceDataId(instanceDataPO.getCheckpointInstanceDataId());
+        copy.setDeltaSeq(instanceDataPO.getDeltaSeq());
+        return copy;
+    }
+}
@@ -4,12 +4,15 @@ import com.didiglobal.turbo.engine.common.NodeInstanceStatus;
 import com.didiglobal.turbo.engine.entity.NodeInstancePO;
 import com.didiglobal.turbo.engine.runner.BaseTest;
 import com.didiglobal.turbo.engine.util.EntityBuilder;
+import com.google.common.collect.Lists;
 import org.junit.Assert;
 import org.junit.Test;
 
 import javax.annotation.Resource;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 public class NodeInstanceDAOTest extends BaseTest {
 
@@ -36,6 +39,42 @@ public class NodeInstanceDAOTest extends BaseTest {
         nodeInstanceDAO.insertOrUpdateList(nodeInstancePOList);
     }
 
+    @Test
+    public void batchUpdateStatus() {
+        NodeInstancePO nodeInstancePO1 = EntityBuilder.buildDynamicNodeInstancePO();
+        NodeInstancePO nodeInstancePO2 = EntityBuilder.buildDynamicNodeInstancePO();
+        nodeInstanceDAO.insert(nodeInstancePO1);
+        nodeInstanceDAO.insert(nodeInstancePO2);
+        nodeInstancePO1 = nodeInstanceDAO.selectByNodeInstanceId(nodeInstancePO1.getFlowInstanceId(), nodeInstancePO1.getNodeInstanceId());
+        nodeInstancePO2 = nodeInstanceDAO.selectByNodeInstanceId(nodeInstancePO2.getFlowInstanceId(), nodeInstancePO2.getNodeInstanceId());
+
+        List<NodeInstancePO> nodeInstancePOList = new ArrayList<>();
+        nodeInstancePO1.setStatus(NodeInstanceStatus.COMPLETED);
+        nodeInstancePOList.add(nodeInstancePO1);
+        nodeInstancePO2.setStatus(NodeInstanceStatus.DISABLED);
+        nodeInstancePOList.add(nodeInstancePO2);
+        nodeInstanceDAO.insertOrUpdateList(nodeInstancePOList);
+
+        NodeInstancePO result1 = nodeInstanceDAO.selectByNodeInstanceId(nodeInstancePO1.getFlowInstanceId(), nodeInstancePO1.getNodeInstanceId());
+        NodeInstancePO result2 = nodeInstanceDAO.selectByNodeInstanceId(nodeInstancePO2.getFlowInstanceId(), nodeInstancePO2.getNodeInstanceId());
+        Assert.assertTrue(result1.getStatus() == NodeInstanceStatus.COMPLETED);
+        Assert.assertTrue(result2.getStatus() == NodeInstanceStatus.DISABLED);
+    }
+
+    @Test
+    public void selectByFlowInstanceIds() {
+        NodeInstancePO nodeInstancePO1 = EntityBuilder.buildDynamicNodeInstancePO();
+        NodeInstancePO nodeInstancePO2 = EntityBuilder.buildDynamicNodeInstancePO();
+        nodeInstancePO2.setFlowInstanceId("testFlowInstanceId_" + UUID.randomUUID().toString());
+        nodeInstanceDAO.insert(nodeInstancePO1);
+        nodeInstanceDAO.insert(nodeInstancePO2);
+
+        Map<String, List<NodeInstancePO>> result = nodeInstanceDAO.selectByFlowInstanceIds(
+            Lists.newArrayList(nodeInstancePO1.getFlowInstanceId(), nodeInstancePO2.getFlowInstanceId()));
+        Assert.assertTrue(result.get(nodeInstancePO1.getFlowInstanceId()).size() >= 1);
+        Assert.assertTrue(result.get(nodeInstancePO2.getFlowInstanceId()).size() == 1);
+    }
+
     @Test
     public void updateStatus() {
         NodeInstancePO nodeInstancePO = EntityBuilder.buildNodeInstancePO();
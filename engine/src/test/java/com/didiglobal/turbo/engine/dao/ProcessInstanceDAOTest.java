@@ -51,4 +51,35 @@ public class ProcessInstanceDAOTest extends BaseTest {
         FlowInstancePO result = processInstanceDAO.selectByFlowInstanceId(flowInstancePO.getFlowInstanceId());
         Assert.assertTrue(result.getStatus() == FlowInstanceStatus.COMPLETED);
     }
+
+    @Test
+    public void compareAndSetStatus() {
+        FlowInstancePO flowInstancePO = EntityBuilder.buildDynamicFlowInstancePO();
+        processInstanceDAO.insert(flowInstancePO);
+        FlowInstancePO selected = processInstanceDAO.selectByFlowInstanceId(flowInstancePO.getFlowInstanceId());
+        FlowInstancePO outdated = processInstanceDAO.selectByFlowInstanceId(flowInstancePO.getFlowInstanceId());
+
+        Assert.assertTrue(processInstanceDAO.compareAndSetStatus(selected, FlowInstanceStatus.TERMINATED));
+        Assert.assertTrue(selected.getVersion() == outdated.getVersion() + 1);
+        // modified since outdated was selected
+        Assert.assertFalse(processInstanceDAO.compareAndSetStatus(outdated, FlowInstanceStatus.COMPLETED));
+        FlowInstancePO result = processInstanceDAO.selectByFlowInstanceId(flowInstancePO.getFlowInstanceId());
+        Assert.assertTrue(result.getStatus() == FlowInstanceStatus.TERMINATED);
+        Assert.assertEquals(selected.getVersion(), result.getVersion());
+    }
+
+    @Test
+    public void compareAndIncreaseVersion() {
+        FlowInstancePO flowInstancePO = EntityBuilder.buildDynamicFlowInstancePO();
+        processInstanceDAO.insert(flowInstancePO);
+        String flowInstanceId = flowInstancePO.getFlowInstanceId();
+        int version = processInstanceDAO.selectByFlowInstanceId(flowInstanceId).getVersion();
+
+        Assert.assertTrue(processInstanceDAO.compareAndIncreaseVersion(flowInstanceId, version));
+        Assert.assertFalse(processInstanceDAO.compareAndIncreaseVersion(flowInstanceId, version));
+        // a status update changes the version as well
+        processInstanceDAO.updateStatus(flowInstanceId, FlowInstanceStatus.COMPLETED);
+        Assert.assertFalse(processInstanceDAO.compareAndIncreaseVersion(flowInstanceId, version + 1));
+        Assert.assertTrue(processInstanceDAO.selectByFlowInstanceId(flowInstanceId).getVersion() == version + 2);
+    }
 }
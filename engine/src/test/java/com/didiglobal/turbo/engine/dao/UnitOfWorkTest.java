@@ -0,0 +1,356 @@
+package com.didiglobal.turbo.engine.dao;
+
+import com.didiglobal.turbo.engine.common.FlowInstanceStatus;
+import com.didiglobal.turbo.engine.common.NodeInstanceStatus;
+import com.didiglobal.turbo.engine.dao.mapper.InstanceDataMapper;
+import com.didiglobal.turbo.engine.dao.mapper.NodeInstanceLogMapper;
+import com.didiglobal.turbo.engine.dao.mapper.NodeInstanceMapper;
+import com.didiglobal.turbo.engine.dao.mapper.ProcessInstanceMapper;
+import com.didiglobal.turbo.engine.entity.FlowInstancePO;
+import com.didiglobal.turbo.engine.entity.InstanceDataPO;
+import com.didiglobal.turbo.engine.entity.NodeInstanceLogPO;
+import com.didiglobal.turbo.engine.entity.NodeInstancePO;
+import com.didiglobal.turbo.engine.metrics.EngineMetrics;
+import com.google.common.collect.Lists;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+public class UnitOfWorkTest {
+
+    private UnitOfWork unitOfWork;
+
+    private RecordingTransactionManager transactionManager;
+
+    // mapper method name and its arguments, in order
+    private final List<Object[]> mapperCallList = Lists.newArrayList();
+
+    @Before
+    public void init() {
+        NodeInstanceDAO nodeInstanceDAO = new NodeInstanceDAO();
+        ReflectionTestUtils.setField(nodeInstanceDAO, "baseMapper", recordingMapper(NodeInstanceMapper.class));
+        NodeInstanceLogDAO nodeInstanceLogDAO = new NodeInstanceLogDAO();
+        ReflectionTestUtils.setField(nodeInstanceLogDAO, "baseMapper", recordingMapper(NodeInstanceLogMapper.class));
+        ProcessInstanceDAO processInstanceDAO = new ProcessInstanceDAO();
+        ReflectionTestUtils.setField(processInstanceDAO, "baseMapper", recordingMapper(ProcessInstanceMapper.class));
+        ReflectionTestUtils.setField(processInstanceDAO, "flowCacheTemplate", new FlowCacheTemplate());
+        InstanceDataDAO instanceDataDAO = new InstanceDataDAO();
+        ReflectionTestUtils.setField(instanceDataDAO, "baseMapper", recordingMapper(InstanceDataMapper.class));
+
+        unitOfWork = new UnitOfWork();
+        ReflectionTestUtils.setField(unitOfWork, "nodeInstanceDAO", nodeInstanceDAO);
+        ReflectionTestUtils.setField(unitOfWork, "nodeInstanceLogDAO", nodeInstanceLogDAO);
+        ReflectionTestUtils.setField(unitOfWork, "processInstanceDAO", processInstanceDAO);
+        ReflectionTestUtils.setField(unitOfWork, "instanceDataDAO", instanceDataDAO);
+        ReflectionTestUtils.setField(unitOfWork, "engineMetrics", new EngineMetrics());
+        transactionManager = new RecordingTransactionManager();
+        unitOfWork.init(transactionManager);
+    }
+
+    @Test
+    public void flushAtTheEnd() {
+        NodeInstanceDAO nodeInstanceDAO = getDAO("nodeInstanceDAO");
+        NodeInstanceLogDAO nodeInstanceLogDAO = getDAO("nodeInstanceLogDAO");
+        unitOfWork.execute(() -> {
+            nodeInstanceDAO.insertOrUpdateList(Lists.newArrayList(buildNodeInstancePO("A", null), buildNodeInstancePO("B", null)));
+            nodeInstanceDAO.insertOrUpdateList(Lists.newArrayList(buildNodeInstancePO("A", null), buildNodeInstancePO("A", 1L)));
+            nodeInstanceLogDAO.insertList(Lists.newArrayList(buildNodeInstanceLogPO("A"), buildNodeInstanceLogPO("A")));
+            Assert.assertTrue(mapperCallList.isEmpty());
+            return null;
+        });
+
+        // grouped by flowInstanceId
+        Assert.assertEquals(4, mapperCallList.size());
+        Assert.assertEquals("updateStatus", mapperCallList.get(0)[0]);
+        assertBatchInsert(mapperCallList.get(1), "A", 2);
+        assertBatchInsert(mapperCallList.get(2), "B", 1);
+        assertBatchInsert(mapperCallList.get(3), "A", 2);
+        Assert.assertEquals(1, transactionManager.commitCount);
+        Assert.assertEquals(0, transactionManager.rollbackCount);
+    }
+
+    @Test
+    public void flushBatchUpdateStatus() {
+        NodeInstanceDAO nodeInstanceDAO = getDAO("nodeInstanceDAO");
+        NodeInstancePO active = buildNodeInstancePO("A", 1L);
+        NodeInstancePO otherActive = buildNodeInstancePO("A", 2L);
+        otherActive.setNodeInstanceId("otherNodeInstanceId");
+        NodeInstancePO disabled = buildNodeInstancePO("A", 1L);
+        disabled.setStatus(NodeInstanceStatus.DISABLED);
+        unitOfWork.execute(() -> {
+            nodeInstanceDAO.insertOrUpdateList(Lists.newArrayList(active, otherActive));
+            nodeInstanceDAO.insertOrUpdateList(Lists.newArrayList(disabled));
+            return null;
+        });
+
+        // one statement for all the updates, the last status of a nodeInstance wins
+        Assert.assertEquals(1, mapperCallList.size());
+        Assert.assertEquals("batchUpdateStatus", mapperCallList.get(0)[0]);
+        List<NodeInstancePO> updateList = (List<NodeInstancePO>) mapperCallList.get(0)[2];
+        Assert.assertEquals(Lists.newArrayList(otherActive, disabled), updateList);
+    }
+
+    @Test
+    public void flushPendingBeforeQuery() {
+        NodeInstanceDAO nodeInstanceDAO = getDAO("nodeInstanceDAO");
+        unitOfWork.execute(() -> {
+            nodeInstanceDAO.insertOrUpdateList(Lists.newArrayList(buildNodeInstancePO("A", null)));
+            // what UnitOfWorkInterceptor does before a query
+            UnitOfWork.flushPending();
+            Assert.assertEquals(1, mapperCallList.size());
+            return null;
+        });
+        Assert.assertEquals(1, mapperCallList.size());
+    }
+
+    @Test
+    public void nestedCallJoins() {
+        ProcessInstanceDAO processInstanceDAO = getDAO("processInstanceDAO");
+        unitOfWork.execute(() -> {
+            unitOfWork.execute(() -> {
+                processInstanceDAO.updateStatus("subFlowInstanceId", FlowInstanceStatus.END);
+                return null;
+            });
+            Assert.assertTrue(mapperCallList.isEmpty());
+            processInstanceDAO.updateStatus("flowInstanceId", FlowInstanceStatus.RUNNING);
+            processInstanceDAO.updateStatus("flowInstanceId", FlowInstanceStatus.COMPLETED);
+            return null;
+        });
+
+        // no select, and the last status of a flowInstance wins
+        Assert.assertEquals(2, mapperCallList.size());
+        Assert.assertEquals("subFlowInstanceId", ((FlowInstancePO) mapperCallList.get(0)[1]).getFlowInstanceId());
+        FlowInstancePO flowInstancePO = (FlowInstancePO) mapperCallList.get(1)[1];
+        Assert.assertEquals("flowInstanceId", flowInstancePO.getFlowInstanceId());
+        Assert.assertEquals(FlowInstanceStatus.COMPLETED, (int) flowInstancePO.getStatus());
+        Assert.assertEquals(1, transactionManager.beginCount);
+    }
+
+    @Test
+    public void rollbackOnException() {
+        NodeInstanceDAO nodeInstanceDAO = getDAO("nodeInstanceDAO");
+        try {
+            unitOfWork.execute(() -> {
+                nodeInstanceDAO.insertOrUpdateList(Lists.newArrayList(buildNodeInstancePO("A", null)));
+                throw new IllegalStateException("unexpected");
+            });
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("unexpected", e.getMessage());
+        }
+        Assert.assertTrue(mapperCallList.isEmpty());
+        Assert.assertEquals(1, transactionManager.rollbackCount);
+
+        // pending writes are dropped with the unit of work
+        nodeInstanceDAO.insertOrUpdateList(Lists.newArrayList(buildNodeInstancePO("B", null)));
+        Assert.assertEquals(1, mapperCallList.size());
+        assertBatchInsert(mapperCallList.get(0), "B", 1);
+    }
+
+    @Test
+    public void flushFailureRollsBack() {
+        NodeInstanceDAO nodeInstanceDAO = getDAO("nodeInstanceDAO");
+        ReflectionTestUtils.setField(nodeInstanceDAO, "baseMapper", Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class[]{NodeInstanceMapper.class}, (proxy, method, args) -> {
+                if (method.getDeclaringClass() == Object.class) {
+                    return method.getName().equals("toString") ? "failingMapper" : null;
+                }
+                throw new IllegalStateException("unexpected");
+            }));
+        boolean rollbackOnly = unitOfWork.execute(() -> {
+            nodeInstanceDAO.insertOrUpdateList(Lists.newArrayList(buildNodeInstancePO("A", null)));
+            try {
+                UnitOfWork.flushPending();
+                Assert.fail();
+            } catch (IllegalStateException e) {
+                Assert.assertEquals("unexpected", e.getMessage());
+            }
+            return UnitOfWork.isRollbackOnly();
+        });
+        Assert.assertTrue(rollbackOnly);
+        Assert.assertFalse(UnitOfWork.isRollbackOnly());
+        Assert.assertEquals(0, transactionManager.commitCount);
+        Assert.assertEquals(1, transactionManager.rollbackCount);
+    }
+
+    @Test
+    public void writeAtOnceWithoutUnitOfWork() {
+        ProcessInstanceDAO processInstanceDAO = getDAO("processInstanceDAO");
+        processInstanceDAO.updateStatus("flowInstanceId", FlowInstanceStatus.TERMINATED);
+        Assert.assertEquals(1, mapperCallList.size());
+        Assert.assertEquals(0, transactionManager.beginCount);
+    }
+
+    @Test
+    public void forkMergesWritesInOrder() {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            List<String> results = unitOfWork.execute(() -> {
+                List<String> forkResults = unitOfWork.fork(Lists.newArrayList(
+                    startSubFlow("S1"), startSubFlow("S2"), startSubFlow("S3")), executor);
+                Assert.assertTrue(mapperCallList.isEmpty());
+                return forkResults;
+            });
+            Assert.assertEquals(Lists.newArrayList("S1", "S2", "S3"), results);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // new rows in multi-row statements first, in the order of the works
+        Assert.assertEquals(8, mapperCallList.size());
+        Assert.assertEquals("batchInsert", mapperCallList.get(0)[0]);
+        List<FlowInstancePO> flowInstanceList = (List<FlowInstancePO>) mapperCallList.get(0)[1];
+        Assert.assertEquals("S2", flowInstanceList.get(1).getFlowInstanceId());
+        Assert.assertEquals("", flowInstanceList.get(1).getCaller());
+        Assert.assertEquals("batchInsert", mapperCallList.get(1)[0]);
+        Assert.assertEquals(3, ((List<InstanceDataPO>) mapperCallList.get(1)[1]).size());
+        assertBatchInsert(mapperCallList.get(2), "S1", 1);
+        assertBatchInsert(mapperCallList.get(4), "S3", 1);
+        Assert.assertEquals("updateStatus", mapperCallList.get(5)[0]);
+        Assert.assertEquals(1, transactionManager.commitCount);
+    }
+
+    @Test
+    public void forkFailureDropsWrites() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            unitOfWork.execute(() -> unitOfWork.fork(Lists.newArrayList(startSubFlow("S1"), () -> {
+                throw new IllegalStateException("unexpected");
+            }), executor));
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("unexpected", e.getMessage());
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertTrue(mapperCallList.isEmpty());
+        Assert.assertEquals(1, transactionManager.rollbackCount);
+    }
+
+    @Test
+    public void forkFailureIsolated() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<String> results = unitOfWork.execute(() -> unitOfWork.fork(Lists.newArrayList(startSubFlow("S1"), () -> {
+                startSubFlow("S2").get();
+                throw new IllegalStateException("unexpected");
+            }, startSubFlow("S3")), executor, e -> e.getMessage()));
+            Assert.assertEquals(Lists.newArrayList("S1", "unexpected", "S3"), results);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // the writes of S2 are dropped, the others are committed
+        List<FlowInstancePO> flowInstanceList = (List<FlowInstancePO>) mapperCallList.get(0)[1];
+        Assert.assertEquals(2, flowInstanceList.size());
+        Assert.assertEquals("S3", flowInstanceList.get(1).getFlowInstanceId());
+        assertBatchInsert(mapperCallList.get(2), "S1", 1);
+        assertBatchInsert(mapperCallList.get(3), "S3", 1);
+        Assert.assertEquals(1, transactionManager.commitCount);
+        Assert.assertEquals(0, transactionManager.rollbackCount);
+    }
+
+    // writes of a new subFlowInstance as FlowExecutor does, which reads its instanceData back
+    private Supplier<String> startSubFlow(String flowInstanceId) {
+        ProcessInstanceDAO processInstanceDAO = getDAO("processInstanceDAO");
+        InstanceDataDAO instanceDataDAO = getDAO("instanceDataDAO");
+        NodeInstanceDAO nodeInstanceDAO = getDAO("nodeInstanceDAO");
+        return () -> {
+            FlowInstancePO flowInstancePO = new FlowInstancePO();
+            flowInstancePO.setFlowInstanceId(flowInstanceId);
+            Assert.assertEquals(1, processInstanceDAO.insert(flowInstancePO));
+            InstanceDataPO instanceDataPO = new InstanceDataPO();
+            instanceDataPO.setFlowInstanceId(flowInstanceId);
+            instanceDataPO.setInstanceDataId(flowInstanceId + "Data");
+            Assert.assertEquals(1, instanceDataDAO.insert(instanceDataPO));
+            Assert.assertEquals(flowInstanceId, instanceDataDAO.select(flowInstanceId, flowInstanceId + "Data").getFlowInstanceId());
+            nodeInstanceDAO.insertOrUpdateList(Lists.newArrayList(buildNodeInstancePO(flowInstanceId, null)));
+            processInstanceDAO.updateStatus(flowInstanceId, FlowInstanceStatus.END);
+            return flowInstanceId;
+        };
+    }
+
+    private <T> T getDAO(String name) {
+        return (T) ReflectionTestUtils.getField(unitOfWork, name);
+    }
+
+    private void assertBatchInsert(Object[] mapperCall, String flowInstanceId, int size) {
+        Assert.assertEquals("batchInsert", mapperCall[0]);
+        Assert.assertEquals(flowInstanceId, mapperCall[1]);
+        Assert.assertEquals(size, ((List) mapperCall[2]).size());
+    }
+
+    private <T> T recordingMapper(Class<T> mapperClass) {
+        return (T) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{mapperClass}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return method.getName().equals("toString") ? mapperClass.getSimpleName() : null;
+            }
+            Object[] mapperCall = new Object[args.length + 1];
+            mapperCall[0] = method.getName();
+            System.arraycopy(args, 0, mapperCall, 1, args.length);
+            // lists as they're at the call, pending writes are cleared after flush
+            for (int i = 1; i < mapperCall.length; i++) {
+                if (mapperCall[i] instanceof List) {
+                    mapperCall[i] = Lists.newArrayList((List) mapperCall[i]);
+                }
+            }
+            mapperCallList.add(mapperCall);
+            if (method.getReturnType() == int.class) {
+                return 1;
+            }
+            return method.getReturnType() == boolean.class ? Boolean.TRUE : null;
+        });
+    }
+
+    private static NodeInstancePO buildNodeInstancePO(String flowInstanceId, Long id) {
+        NodeInstancePO nodeInstancePO = new NodeInstancePO();
+        nodeInstancePO.setId(id);
+        nodeInstancePO.setFlowInstanceId(flowInstanceId);
+        nodeInstancePO.setNodeInstanceId("nodeInstanceId");
+        nodeInstancePO.setStatus(NodeInstanceStatus.ACTIVE);
+        return nodeInstancePO;
+    }
+
+    private static NodeInstanceLogPO buildNodeInstanceLogPO(String flowInstanceId) {
+        NodeInstanceLogPO nodeInstanceLogPO = new NodeInstanceLogPO();
+        nodeInstanceLogPO.setFlowInstanceId(flowInstanceId);
+        return nodeInstanceLogPO;
+    }
+
+    private static class RecordingTransactionManager extends AbstractPlatformTransactionManager {
+
+        private int beginCount;
+        private int commitCount;
+        private int rollbackCount;
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+            beginCount++;
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+            commitCount++;
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+            rollbackCount++;
+        }
+    }
+}
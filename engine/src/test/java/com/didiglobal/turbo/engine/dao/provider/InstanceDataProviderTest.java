@@ -0,0 +1,54 @@
+package com.didiglobal.turbo.engine.dao.provider;
+
+import com.didiglobal.turbo.engine.entity.InstanceDataPO;
+import com.google.common.collect.Lists;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class InstanceDataProviderTest {
+
+    private final InstanceDataProvider instanceDataProvider = new InstanceDataProvider();
+
+    @Test
+    public void batchInsertWithoutOptionalColumns() {
+        String sql = batchInsert(buildInstanceData("", "", 0), buildInstanceData(null, null, null));
+        Assert.assertFalse(sql.contains("instance_data_encode"));
+        Assert.assertFalse(sql.contains("checkpoint_instance_data_id"));
+        Assert.assertFalse(sql.contains("delta_seq"));
+        Assert.assertTrue(sql.contains("#{instanceDataList[1].caller}"));
+    }
+
+    @Test
+    public void batchInsertWithOptionalColumns() {
+        String sql = batchInsert(buildInstanceData("", "", 0), buildInstanceData("binary", "checkpointId", 1));
+        Assert.assertTrue(sql.contains("instance_data, instance_data_encode, checkpoint_instance_data_id, delta_seq, type"));
+        Assert.assertTrue(sql.contains("#{instanceDataList[0].instanceDataEncode}"));
+        Assert.assertTrue(sql.contains("#{instanceDataList[0].deltaSeq}"));
+    }
+
+    @Test
+    public void batchInsertWithEncodeOnly() {
+        String sql = batchInsert(buildInstanceData("binary", "", 0));
+        Assert.assertTrue(sql.contains("instance_data_encode"));
+        Assert.assertFalse(sql.contains("delta_seq"));
+    }
+
+    private String batchInsert(InstanceDataPO... instanceDataPOs) {
+        List<InstanceDataPO> instanceDataList = Lists.newArrayList(instanceDataPOs);
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("instanceDataList", instanceDataList);
+        return instanceDataProvider.batchInsert(parameters);
+    }
+
+    private static InstanceDataPO buildInstanceData(String encode, String checkpointInstanceDataId, Integer deltaSeq) {
+        InstanceDataPO instanceDataPO = new InstanceDataPO();
+        instanceDataPO.setInstanceDataEncode(encode);
+        instanceDataPO.setCheckpointInstanceDataId(checkpointInstanceDataId);
+        instanceDataPO.setDeltaSeq(deltaSeq);
+        return instanceDataPO;
+    }
+}
@@ -0,0 +1,81 @@
+package com.didiglobal.turbo.engine.executor;
+
+import com.didiglobal.turbo.engine.model.InstanceData;
+import com.google.common.collect.Lists;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+public class ParallelGatewayExecutorTest {
+
+    @Test
+    public void mergeChangesAgainstFork() {
+        Map<String, InstanceData> forkDataMap = buildDataMap("a", 1, "b", 1);
+        // each branch carries the fork data it didn't touch
+        Map<String, InstanceData> branch1 = buildDataMap("a", 2, "b", 1);
+        Map<String, InstanceData> branch2 = buildDataMap("a", 1, "b", 2, "c", 3);
+        Set<String> conflictKeys = new LinkedHashSet<>();
+
+        Map<String, InstanceData> joinDataMap = ParallelGatewayExecutor.mergeArrivalData(forkDataMap,
+            Lists.newArrayList(branch1, branch2), conflictKeys);
+
+        Assert.assertEquals(2, joinDataMap.get("a").getValue());
+        Assert.assertEquals(2, joinDataMap.get("b").getValue());
+        Assert.assertEquals(3, joinDataMap.get("c").getValue());
+        Assert.assertTrue(conflictKeys.isEmpty());
+        // the fork data is not changed
+        Assert.assertEquals(1, forkDataMap.get("a").getValue());
+    }
+
+    @Test
+    public void mergeRemovedKey() {
+        Map<String, InstanceData> forkDataMap = buildDataMap("a", 1, "b", 1);
+        Set<String> conflictKeys = new LinkedHashSet<>();
+
+        Map<String, InstanceData> joinDataMap = ParallelGatewayExecutor.mergeArrivalData(forkDataMap,
+            Lists.newArrayList(buildDataMap("a", 1), buildDataMap("a", 1, "b", 1)), conflictKeys);
+
+        Assert.assertFalse(joinDataMap.containsKey("b"));
+        Assert.assertTrue(conflictKeys.isEmpty());
+    }
+
+    @Test
+    public void lastArrivalWinsConflict() {
+        Map<String, InstanceData> forkDataMap = buildDataMap("a", 1);
+        Set<String> conflictKeys = new LinkedHashSet<>();
+
+        Map<String, InstanceData> joinDataMap = ParallelGatewayExecutor.mergeArrivalData(forkDataMap,
+            Lists.newArrayList(buildDataMap("a", 2, "b", 1), buildDataMap("a", 3, "b", 1), buildDataMap("a", 1)), conflictKeys);
+
+        Assert.assertEquals(3, joinDataMap.get("a").getValue());
+        Assert.assertEquals(1, joinDataMap.get("b").getValue());
+        // the same value written by several branches is not a conflict
+        Assert.assertEquals(Collections.singleton("a"), conflictKeys);
+    }
+
+    @Test
+    public void mergeWithoutFork() {
+        Set<String> conflictKeys = new LinkedHashSet<>();
+
+        Map<String, InstanceData> joinDataMap = ParallelGatewayExecutor.mergeArrivalData(new HashMap<>(),
+            Lists.newArrayList(buildDataMap("a", 1, "b", 1), buildDataMap("a", 1, "b", 2)), conflictKeys);
+
+        Assert.assertEquals(1, joinDataMap.get("a").getValue());
+        Assert.assertEquals(2, joinDataMap.get("b").getValue());
+        Assert.assertEquals(Collections.singleton("b"), conflictKeys);
+    }
+
+    private static Map<String, InstanceData> buildDataMap(Object... keyValues) {
+        Map<String, InstanceData> instanceDataMap = new HashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            String key = (String) keyValues[i];
+            instanceDataMap.put(key, new InstanceData(key, keyValues[i + 1]));
+        }
+        return instanceDataMap;
+    }
+}
@@ -0,0 +1,135 @@
+package com.didiglobal.turbo.engine.executor.callactivity;
+
+import com.didiglobal.turbo.engine.common.CallActivityTaskStatus;
+import com.didiglobal.turbo.engine.common.ErrorEnum;
+import com.didiglobal.turbo.engine.dao.CallActivityTaskDAO;
+import com.didiglobal.turbo.engine.dao.UnitOfWork;
+import com.didiglobal.turbo.engine.entity.CallActivityTaskPO;
+import com.didiglobal.turbo.engine.exception.ProcessException;
+import com.didiglobal.turbo.engine.metrics.EngineMetrics;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+public class CallActivityTaskWorkerTest {
+
+    private RecordingCallActivityTaskDAO callActivityTaskDAO;
+
+    private StubExecutor stubExecutor;
+
+    private CallActivityTaskWorker callActivityTaskWorker;
+
+    private final List<String> incrementedList = new ArrayList<>();
+
+    @Before
+    public void init() {
+        callActivityTaskDAO = new RecordingCallActivityTaskDAO();
+        stubExecutor = new StubExecutor();
+        UnitOfWork unitOfWork = new UnitOfWork();
+        ReflectionTestUtils.setField(unitOfWork, "enabled", false);
+        callActivityTaskWorker = new CallActivityTaskWorker();
+        callActivityTaskWorker.init(callActivityTaskDAO, stubExecutor, unitOfWork, new EngineMetrics() {
+            @Override
+            public void increment(String name) {
+                incrementedList.add(name);
+            }
+        });
+    }
+
+    @Test
+    public void finishAfterRun() {
+        stubExecutor.status = CallActivityTaskStatus.CANCELED;
+        callActivityTaskWorker.run(buildTask(0));
+        Assert.assertEquals(CallActivityTaskStatus.CANCELED, callActivityTaskDAO.finishedStatus.intValue());
+        Assert.assertNull(callActivityTaskDAO.nextRunTime);
+    }
+
+    @Test
+    public void retryWithBackoff() {
+        stubExecutor.exception = new ProcessException(ErrorEnum.FLOW_INSTANCE_CONFLICT);
+        long startMillis = System.currentTimeMillis();
+        callActivityTaskWorker.run(buildTask(2));
+        Assert.assertNull(callActivityTaskDAO.finishedStatus);
+        // 1000ms doubled twice
+        long delayMillis = callActivityTaskDAO.nextRunTime.getTime() - startMillis;
+        Assert.assertTrue(delayMillis >= 4000 && delayMillis < 5000);
+        Assert.assertTrue(callActivityTaskDAO.errMsg.startsWith(String.valueOf(ErrorEnum.FLOW_INSTANCE_CONFLICT.getErrNo())));
+        Assert.assertFalse(incrementedList.contains("callActivityTask.failed"));
+    }
+
+    @Test
+    public void failAfterMaxRetries() {
+        stubExecutor.exception = new ProcessException(ErrorEnum.GET_FLOW_INSTANCE_FAILED);
+        callActivityTaskWorker.run(buildTask(10));
+        Assert.assertEquals(CallActivityTaskStatus.FAILED, callActivityTaskDAO.finishedStatus.intValue());
+        Assert.assertNull(callActivityTaskDAO.nextRunTime);
+        Assert.assertTrue(incrementedList.contains("callActivityTask.failed"));
+    }
+
+    @Test
+    public void leaseTakenOver() {
+        callActivityTaskDAO.leaseHeld = false;
+        callActivityTaskWorker.run(buildTask(0));
+        // the task is left to the new owner
+        Assert.assertEquals(1, stubExecutor.runCount);
+        Assert.assertNull(callActivityTaskDAO.finishedStatus);
+        Assert.assertNull(callActivityTaskDAO.nextRunTime);
+    }
+
+    private static CallActivityTaskPO buildTask(int retryCount) {
+        CallActivityTaskPO callActivityTaskPO = new CallActivityTaskPO();
+        callActivityTaskPO.setId(1L);
+        callActivityTaskPO.setFlowInstanceId("testFlowInstanceId");
+        callActivityTaskPO.setNodeInstanceId("testNodeInstanceId");
+        callActivityTaskPO.setStatus(CallActivityTaskStatus.RUNNING);
+        callActivityTaskPO.setRetryCount(retryCount);
+        callActivityTaskPO.setVersion(1);
+        return callActivityTaskPO;
+    }
+
+    private static class StubExecutor extends AsyncSingleCallActivityExecutor {
+        private int status = CallActivityTaskStatus.SUCCESS;
+        private ProcessException exception;
+        private int runCount;
+
+        @Override
+        public int runTask(CallActivityTaskPO callActivityTaskPO) throws ProcessException {
+            runCount++;
+            if (exception != null) {
+                throw exception;
+            }
+            return status;
+        }
+    }
+
+    // updates of a claimed task, which fail while leaseHeld is false
+    private static class RecordingCallActivityTaskDAO extends CallActivityTaskDAO {
+        private boolean leaseHeld = true;
+        private Integer finishedStatus;
+        private Date nextRunTime;
+        private String errMsg;
+
+        @Override
+        public boolean finish(CallActivityTaskPO callActivityTaskPO, int status, String errMsg) {
+            if (leaseHeld) {
+                this.finishedStatus = status;
+                this.errMsg = errMsg;
+            }
+            return leaseHeld;
+        }
+
+        @Override
+        public boolean retryLater(CallActivityTaskPO callActivityTaskPO, Date nextRunTime, String errMsg) {
+            if (leaseHeld) {
+                this.nextRunTime = nextRunTime;
+                this.errMsg = errMsg;
+            }
+            return leaseHeld;
+        }
+    }
+}
@@ -0,0 +1,466 @@
+package com.didiglobal.turbo.engine.executor.callactivity;
+
+import com.didiglobal.turbo.engine.bo.InstanceDataSnapshot;
+import com.didiglobal.turbo.engine.bo.NodeInstance;
+import com.didiglobal.turbo.engine.bo.NodeInstanceBO;
+import com.didiglobal.turbo.engine.common.Constants;
+import com.didiglobal.turbo.engine.common.ErrorEnum;
+import com.didiglobal.turbo.engine.common.FlowInstanceMappingType;
+import com.didiglobal.turbo.engine.common.FlowInstanceStatus;
+import com.didiglobal.turbo.engine.common.NodeInstanceStatus;
+import com.didiglobal.turbo.engine.common.RuntimeContext;
+import com.didiglobal.turbo.engine.config.BusinessConfig;
+import com.didiglobal.turbo.engine.dao.FlowInstanceMappingDAO;
+import com.didiglobal.turbo.engine.dao.InstanceDataDAO;
+import com.didiglobal.turbo.engine.dao.NodeInstanceDAO;
+import com.didiglobal.turbo.engine.dao.ProcessInstanceDAO;
+import com.didiglobal.turbo.engine.dao.UnitOfWork;
+import com.didiglobal.turbo.engine.entity.FlowInstanceMappingPO;
+import com.didiglobal.turbo.engine.entity.FlowInstancePO;
+import com.didiglobal.turbo.engine.entity.InstanceDataPO;
+import com.didiglobal.turbo.engine.entity.NodeInstancePO;
+import com.didiglobal.turbo.engine.exception.ProcessException;
+import com.didiglobal.turbo.engine.exception.SuspendException;
+import com.didiglobal.turbo.engine.metrics.EngineMetrics;
+import com.didiglobal.turbo.engine.model.FlowElement;
+import com.didiglobal.turbo.engine.model.InstanceData;
+import com.didiglobal.turbo.engine.param.CommitTaskParam;
+import com.didiglobal.turbo.engine.param.RollbackTaskParam;
+import com.didiglobal.turbo.engine.param.StartProcessParam;
+import com.didiglobal.turbo.engine.processor.RuntimeProcessor;
+import com.didiglobal.turbo.engine.result.CommitTaskResult;
+import com.didiglobal.turbo.engine.result.RollbackTaskResult;
+import com.didiglobal.turbo.engine.result.RuntimeResult;
+import com.didiglobal.turbo.engine.result.StartProcessResult;
+import com.didiglobal.turbo.engine.result.TerminateResult;
+import com.didiglobal.turbo.engine.util.InstanceDataCodecRegistry;
+import com.didiglobal.turbo.engine.util.InstanceDataUtil;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Stack;
+import java.util.stream.Collectors;
+
+public class SyncMultipleCallActivityExecutorTest {
+
+    private static final String FLOW_INSTANCE_ID = "testFlowInstanceId";
+
+    private static final String NODE_INSTANCE_ID = "testNodeInstanceId";
+
+    private static final String INSTANCE_DATA_ID = "testInstanceDataId";
+
+    private final InstanceDataCodecRegistry instanceDataCodecRegistry = new InstanceDataCodecRegistry();
+
+    // the sub flows shared by the stubs: status and variables of each subFlowInstance
+    private final Map<String, Integer> subFlowStatusMap = new LinkedHashMap<>();
+
+    private final Map<String, Map<String, InstanceData>> subFlowDataMap = new HashMap<>();
+
+    private StubRuntimeProcessor runtimeProcessor;
+
+    private StubFlowInstanceMappingDAO flowInstanceMappingDAO;
+
+    private StubInstanceDataDAO instanceDataDAO;
+
+    private SyncMultipleCallActivityExecutor executor;
+
+    private RuntimeContext runtimeContext;
+
+    @Before
+    public void init() {
+        runtimeProcessor = new StubRuntimeProcessor();
+        flowInstanceMappingDAO = new StubFlowInstanceMappingDAO();
+        instanceDataDAO = new StubInstanceDataDAO();
+        UnitOfWork unitOfWork = new UnitOfWork();
+        ReflectionTestUtils.setField(unitOfWork, "enabled", false);
+
+        executor = new SyncMultipleCallActivityExecutor();
+        ReflectionTestUtils.setField(executor, "unitOfWork", unitOfWork);
+        ReflectionTestUtils.setField(executor, "runtimeProcessor", runtimeProcessor);
+        ReflectionTestUtils.setField(executor, "businessConfig", new BusinessConfig());
+        ReflectionTestUtils.setField(executor, "engineMetrics", new EngineMetrics());
+        ReflectionTestUtils.setField(executor, "flowInstanceMappingDAO", flowInstanceMappingDAO);
+        ReflectionTestUtils.setField(executor, "processInstanceDAO", new StubProcessInstanceDAO());
+        ReflectionTestUtils.setField(executor, "nodeInstanceDAO", new StubNodeInstanceDAO());
+        ReflectionTestUtils.setField(executor, "instanceDataDAO", instanceDataDAO);
+        ReflectionTestUtils.setField(executor, "instanceDataCodecRegistry", instanceDataCodecRegistry);
+        executor.afterPropertiesSet();
+    }
+
+    @After
+    public void destroy() {
+        executor.destroy();
+    }
+
+    @Test
+    public void startFromCollection() throws Exception {
+        runtimeContext = buildRuntimeContext(Arrays.asList("a", "b", "c"), null);
+        executor.startProcessCallActivity(runtimeContext);
+
+        Assert.assertEquals(Arrays.asList("a", "b", "c"), runtimeProcessor.startedElementList);
+        // the other variables of the MainFlow are passed to each subFlowInstance
+        for (StartProcessParam startProcessParam : runtimeProcessor.startProcessParamList) {
+            Assert.assertEquals("testValue", InstanceDataUtil.getInstanceDataMap(startProcessParam.getVariables()).get("testKey").getValue());
+        }
+        Assert.assertEquals(Arrays.asList("sub-a", "sub-b", "sub-c"), flowInstanceMappingDAO.mappingList.stream()
+            .map(FlowInstanceMappingPO::getSubFlowInstanceId).collect(Collectors.toList()));
+        for (FlowInstanceMappingPO flowInstanceMappingPO : flowInstanceMappingDAO.mappingList) {
+            Assert.assertEquals(FlowInstanceMappingType.EXECUTE, flowInstanceMappingPO.getType().intValue());
+            Assert.assertEquals(NODE_INSTANCE_ID, flowInstanceMappingPO.getNodeInstanceId());
+        }
+        assertCompleted(Arrays.asList("r-a", "r-b", "r-c"));
+    }
+
+    @Test
+    public void startFromJsonString() throws Exception {
+        runtimeContext = buildRuntimeContext(" [\"a\", \"b\"]", null);
+        executor.startProcessCallActivity(runtimeContext);
+
+        Assert.assertEquals(Arrays.asList("a", "b"), runtimeProcessor.startedElementList);
+        assertCompleted(Arrays.asList("r-a", "r-b"));
+    }
+
+    @Test
+    public void startFromNotAList() {
+        runtimeContext = buildRuntimeContext("a", null);
+        try {
+            executor.startProcessCallActivity(runtimeContext);
+            Assert.fail();
+        } catch (ProcessException e) {
+            Assert.assertEquals(ErrorEnum.MISSING_DATA.getErrNo(), e.getErrNo());
+        }
+        Assert.assertTrue(runtimeProcessor.startedElementList.isEmpty());
+    }
+
+    @Test
+    public void startFromEmptyCollection() throws Exception {
+        runtimeContext = buildRuntimeContext(Collections.emptyList(), null);
+        executor.startProcessCallActivity(runtimeContext);
+
+        // nothing to wait for: the node completes at once
+        Assert.assertTrue(runtimeProcessor.startedElementList.isEmpty());
+        Assert.assertTrue(flowInstanceMappingDAO.mappingList.isEmpty());
+        Assert.assertEquals(NodeInstanceStatus.COMPLETED, runtimeContext.getCurrentNodeInstance().getStatus());
+        Assert.assertNull(runtimeContext.getInstanceDataMap().get("results"));
+        Assert.assertEquals(1, instanceDataDAO.insertedList.size());
+    }
+
+    @Test
+    public void completionCount() throws Exception {
+        runtimeProcessor.suspendElementSet.add("b");
+        runtimeContext = buildRuntimeContext(Arrays.asList("a", "b", "c"), 2);
+        executor.startProcessCallActivity(runtimeContext);
+
+        // the quorum is reached by a and c, b still RUNNING is terminated
+        Assert.assertEquals(Collections.singletonList("sub-b"), runtimeProcessor.terminatedList);
+        assertCompleted(Arrays.asList("r-a", "r-c"));
+    }
+
+    @Test
+    public void commitBySubFlowOfTask() throws Exception {
+        runtimeProcessor.suspendElementSet.addAll(Arrays.asList("a", "c"));
+        runtimeContext = buildRuntimeContext(Arrays.asList("a", "b", "c"), null);
+        try {
+            executor.startProcessCallActivity(runtimeContext);
+            Assert.fail();
+        } catch (SuspendException e) {
+            Assert.assertEquals(ErrorEnum.COMMIT_SUSPEND.getErrNo(), e.getErrNo());
+        }
+        Assert.assertEquals(NodeInstanceStatus.ACTIVE, runtimeContext.getCurrentNodeInstance().getStatus());
+        Assert.assertEquals(Arrays.asList("sub-a", "sub-c"), runtimeContext.getCallActivityRuntimeResultList().stream()
+            .map(RuntimeResult::getFlowInstanceId).collect(Collectors.toList()));
+
+        // the task of c is committed to sub-c, a is still waited for
+        runtimeContext.getSuspendNodeInstanceStack().push("task-c");
+        try {
+            executor.commitCallActivity(runtimeContext);
+            Assert.fail();
+        } catch (SuspendException e) {
+            Assert.assertEquals(ErrorEnum.COMMIT_SUSPEND.getErrNo(), e.getErrNo());
+        }
+        Assert.assertEquals("sub-c", runtimeProcessor.commitParamList.get(0).getFlowInstanceId());
+        Assert.assertEquals("task-c", runtimeProcessor.commitParamList.get(0).getTaskInstanceId());
+        Assert.assertEquals(NodeInstanceStatus.ACTIVE, runtimeContext.getCurrentNodeInstance().getStatus());
+
+        runtimeContext.getSuspendNodeInstanceStack().push("task-a");
+        executor.commitCallActivity(runtimeContext);
+        Assert.assertEquals("sub-a", runtimeProcessor.commitParamList.get(1).getFlowInstanceId());
+        Assert.assertTrue(runtimeProcessor.terminatedList.isEmpty());
+        // in the order of the collection, not of the commits
+        assertCompleted(Arrays.asList("r-a", "r-b", "r-c"));
+    }
+
+    @Test
+    public void commitUnknownTask() throws Exception {
+        runtimeProcessor.suspendElementSet.add("a");
+        runtimeContext = buildRuntimeContext(Arrays.asList("a", "b"), null);
+        try {
+            executor.startProcessCallActivity(runtimeContext);
+            Assert.fail();
+        } catch (SuspendException e) {
+            Assert.assertEquals(ErrorEnum.COMMIT_SUSPEND.getErrNo(), e.getErrNo());
+        }
+        runtimeContext.getSuspendNodeInstanceStack().push("task-unknown");
+        try {
+            executor.commitCallActivity(runtimeContext);
+            Assert.fail();
+        } catch (ProcessException e) {
+            Assert.assertEquals(ErrorEnum.GET_NODE_INSTANCE_FAILED.getErrNo(), e.getErrNo());
+        }
+        Assert.assertTrue(runtimeProcessor.commitParamList.isEmpty());
+    }
+
+    @Test
+    public void rollbackMainFlow() throws Exception {
+        runtimeProcessor.suspendElementSet.addAll(Arrays.asList("a", "b"));
+        runtimeContext = buildRuntimeContext(Arrays.asList("a", "b"), null);
+        try {
+            executor.startProcessCallActivity(runtimeContext);
+            Assert.fail();
+        } catch (SuspendException e) {
+            Assert.assertEquals(ErrorEnum.COMMIT_SUSPEND.getErrNo(), e.getErrNo());
+        }
+
+        // rollback past the CallActivity node
+        executor.doRollback(runtimeContext);
+        assertRolledBack(Arrays.asList("sub-a", "sub-b"));
+    }
+
+    @Test
+    public void rollbackSubFlowPastStartNode() throws Exception {
+        runtimeProcessor.suspendElementSet.addAll(Arrays.asList("a", "b"));
+        runtimeContext = buildRuntimeContext(Arrays.asList("a", "b"), null);
+        try {
+            executor.startProcessCallActivity(runtimeContext);
+            Assert.fail();
+        } catch (SuspendException e) {
+            Assert.assertEquals(ErrorEnum.COMMIT_SUSPEND.getErrNo(), e.getErrNo());
+        }
+
+        runtimeContext.getSuspendNodeInstanceStack().push("task-b");
+        executor.doRollback(runtimeContext);
+        Assert.assertEquals("sub-b", runtimeProcessor.rollbackParamList.get(0).getFlowInstanceId());
+        assertRolledBack(Arrays.asList("sub-a", "sub-b"));
+    }
+
+    private void assertCompleted(List<String> results) {
+        NodeInstanceBO currentNodeInstance = runtimeContext.getCurrentNodeInstance();
+        Assert.assertEquals(NodeInstanceStatus.COMPLETED, currentNodeInstance.getStatus());
+        Assert.assertEquals(results, runtimeContext.getInstanceDataMap().get("results").getValue());
+
+        Assert.assertEquals(1, instanceDataDAO.insertedList.size());
+        InstanceDataPO instanceDataPO = instanceDataDAO.insertedList.get(0);
+        Assert.assertEquals(instanceDataPO.getInstanceDataId(), runtimeContext.getInstanceDataId());
+        Assert.assertEquals(instanceDataPO.getInstanceDataId(), currentNodeInstance.getInstanceDataId());
+        Assert.assertEquals(results, instanceDataCodecRegistry.getInstanceDataMap(instanceDataPO).get("results").getValue());
+    }
+
+    private void assertRolledBack(List<String> terminatedList) {
+        Assert.assertEquals(terminatedList, runtimeProcessor.terminatedList);
+        for (FlowInstanceMappingPO flowInstanceMappingPO : flowInstanceMappingDAO.mappingList) {
+            Assert.assertEquals(FlowInstanceMappingType.TERMINATED, flowInstanceMappingPO.getType().intValue());
+        }
+        Assert.assertEquals(NodeInstanceStatus.DISABLED, runtimeContext.getCurrentNodeInstance().getStatus());
+    }
+
+    private RuntimeContext buildRuntimeContext(Object collection, Integer completionCount) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(Constants.ELEMENT_PROPERTIES.CALL_ACTIVITY_MULTI_INSTANCE_COLLECTION, "testCollection");
+        if (completionCount != null) {
+            properties.put(Constants.ELEMENT_PROPERTIES.CALL_ACTIVITY_MULTI_INSTANCE_COMPLETION_COUNT, completionCount);
+        }
+        properties.put(Constants.ELEMENT_PROPERTIES.CALL_ACTIVITY_OUT_PARAM_TYPE, Constants.CALL_ACTIVITY_PARAM_TYPE.PART);
+        properties.put(Constants.ELEMENT_PROPERTIES.CALL_ACTIVITY_OUT_PARAM,
+            "[{\"sourceType\":\"context\",\"sourceKey\":\"result\",\"targetKey\":\"results\"}]");
+        FlowElement flowElement = new FlowElement();
+        flowElement.setKey("CallActivity_1");
+        flowElement.setProperties(properties);
+
+        NodeInstanceBO nodeInstanceBO = new NodeInstanceBO();
+        nodeInstanceBO.setNodeInstanceId(NODE_INSTANCE_ID);
+        nodeInstanceBO.setNodeKey("CallActivity_1");
+        nodeInstanceBO.setInstanceDataId(INSTANCE_DATA_ID);
+        nodeInstanceBO.setStatus(NodeInstanceStatus.ACTIVE);
+
+        Map<String, InstanceData> instanceDataMap = new HashMap<>();
+        instanceDataMap.put("testCollection", new InstanceData("testCollection", collection));
+        instanceDataMap.put("testKey", new InstanceData("testKey", "testValue"));
+        instanceDataDAO.mainInstanceDataMap = new HashMap<>(instanceDataMap);
+
+        RuntimeContext runtimeContext = new RuntimeContext();
+        runtimeContext.setFlowInstanceId(FLOW_INSTANCE_ID);
+        runtimeContext.setCaller("testCaller");
+        runtimeContext.setInstanceDataId(INSTANCE_DATA_ID);
+        runtimeContext.setInstanceDataMap(instanceDataMap);
+        runtimeContext.setCurrentNodeModel(flowElement);
+        runtimeContext.setCurrentNodeInstance(nodeInstanceBO);
+        runtimeContext.setSuspendNodeInstanceStack(new Stack<>());
+        runtimeContext.setNodeInstanceList(new ArrayList<>());
+        return runtimeContext;
+    }
+
+    // subFlowInstance sub-<element>: ends with result r-<element>, or suspends on the task task-<element>
+    private class StubRuntimeProcessor extends RuntimeProcessor {
+        private final Set<String> suspendElementSet = new HashSet<>();
+        private final List<String> startedElementList = new ArrayList<>();
+        private final List<StartProcessParam> startProcessParamList = new ArrayList<>();
+        private final List<CommitTaskParam> commitParamList = new ArrayList<>();
+        private final List<RollbackTaskParam> rollbackParamList = new ArrayList<>();
+        private final List<String> terminatedList = new ArrayList<>();
+
+        @Override
+        public StartProcessResult startProcess(StartProcessParam startProcessParam) {
+            String element = (String) InstanceDataUtil.getInstanceDataMap(startProcessParam.getVariables())
+                .get(Constants.CALL_ACTIVITY_INSTANCE_TYPE.DEFAULT_ELEMENT).getValue();
+            startedElementList.add(element);
+            startProcessParamList.add(startProcessParam);
+            String subFlowInstanceId = "sub-" + element;
+            subFlowDataMap.put(subFlowInstanceId, InstanceDataUtil.getInstanceDataMap(startProcessParam.getVariables()));
+            StartProcessResult startProcessResult = new StartProcessResult();
+            if (suspendElementSet.contains(element)) {
+                suspendSubFlow(startProcessResult, subFlowInstanceId, element);
+            } else {
+                endSubFlow(startProcessResult, subFlowInstanceId, element);
+            }
+            return startProcessResult;
+        }
+
+        @Override
+        public CommitTaskResult commit(CommitTaskParam commitTaskParam) {
+            commitParamList.add(commitTaskParam);
+            String subFlowInstanceId = commitTaskParam.getFlowInstanceId();
+            CommitTaskResult commitTaskResult = new CommitTaskResult();
+            endSubFlow(commitTaskResult, subFlowInstanceId, subFlowInstanceId.substring("sub-".length()));
+            return commitTaskResult;
+        }
+
+        // the subFlowInstance is rolled back past its StartNode
+        @Override
+        public RollbackTaskResult rollback(RollbackTaskParam rollbackTaskParam) {
+            rollbackParamList.add(rollbackTaskParam);
+            RollbackTaskResult rollbackTaskResult = new RollbackTaskResult();
+            rollbackTaskResult.setErrCode(ErrorEnum.SUCCESS.getErrNo());
+            rollbackTaskResult.setFlowInstanceId(rollbackTaskParam.getFlowInstanceId());
+            rollbackTaskResult.setStatus(FlowInstanceStatus.TERMINATED);
+            return rollbackTaskResult;
+        }
+
+        @Override
+        public TerminateResult terminateProcess(String flowInstanceId, boolean effectiveForSubFlowInstance) {
+            terminatedList.add(flowInstanceId);
+            subFlowStatusMap.put(flowInstanceId, FlowInstanceStatus.TERMINATED);
+            return new TerminateResult(ErrorEnum.SUCCESS);
+        }
+
+        private void endSubFlow(RuntimeResult runtimeResult, String subFlowInstanceId, String element) {
+            Map<String, InstanceData> subFlowData = subFlowDataMap.get(subFlowInstanceId);
+            subFlowData.put("result", new InstanceData("result", "r-" + element));
+            subFlowStatusMap.put(subFlowInstanceId, FlowInstanceStatus.END);
+            runtimeResult.setErrCode(ErrorEnum.SUCCESS.getErrNo());
+            runtimeResult.setFlowInstanceId(subFlowInstanceId);
+            runtimeResult.setStatus(FlowInstanceStatus.END);
+            runtimeResult.setVariables(InstanceDataUtil.getInstanceDataList(subFlowData));
+        }
+
+        private void suspendSubFlow(RuntimeResult runtimeResult, String subFlowInstanceId, String element) {
+            subFlowStatusMap.put(subFlowInstanceId, FlowInstanceStatus.RUNNING);
+            runtimeResult.setErrCode(ErrorEnum.COMMIT_SUSPEND.getErrNo());
+            runtimeResult.setFlowInstanceId(subFlowInstanceId);
+            runtimeResult.setStatus(FlowInstanceStatus.RUNNING);
+            NodeInstance activeTaskInstance = new NodeInstance();
+            activeTaskInstance.setNodeInstanceId("task-" + element);
+            runtimeResult.setActiveTaskInstance(activeTaskInstance);
+        }
+    }
+
+    private static class StubFlowInstanceMappingDAO extends FlowInstanceMappingDAO {
+        private final List<FlowInstanceMappingPO> mappingList = new ArrayList<>();
+
+        @Override
+        public List<FlowInstanceMappingPO> selectFlowInstanceMappingPOList(String flowInstanceId, String nodeInstanceId) {
+            return mappingList.stream()
+                .filter(po -> po.getFlowInstanceId().equals(flowInstanceId) && po.getNodeInstanceId().equals(nodeInstanceId))
+                .collect(Collectors.toList());
+        }
+
+        @Override
+        public void insertList(List<FlowInstanceMappingPO> flowInstanceMappingList) {
+            mappingList.addAll(flowInstanceMappingList);
+        }
+
+        @Override
+        public void updateType(String flowInstanceId, String nodeInstanceId, int type) {
+            selectFlowInstanceMappingPOList(flowInstanceId, nodeInstanceId).forEach(po -> po.setType(type));
+        }
+    }
+
+    private class StubProcessInstanceDAO extends ProcessInstanceDAO {
+        @Override
+        public List<FlowInstancePO> selectByFlowInstanceIds(Collection<String> flowInstanceIds) {
+            List<FlowInstancePO> flowInstancePOList = new ArrayList<>();
+            for (String flowInstanceId : flowInstanceIds) {
+                FlowInstancePO flowInstancePO = new FlowInstancePO();
+                flowInstancePO.setFlowInstanceId(flowInstanceId);
+                flowInstancePO.setStatus(subFlowStatusMap.get(flowInstanceId));
+                flowInstancePOList.add(flowInstancePO);
+            }
+            return flowInstancePOList;
+        }
+    }
+
+    // task-<element> belongs to sub-<element>
+    private class StubNodeInstanceDAO extends NodeInstanceDAO {
+        @Override
+        public NodeInstancePO selectByNodeInstanceId(String flowInstanceId, String nodeInstanceId) {
+            String subFlowInstanceId = "sub-" + nodeInstanceId.substring("task-".length());
+            if (!subFlowStatusMap.containsKey(subFlowInstanceId)) {
+                return null;
+            }
+            NodeInstancePO nodeInstancePO = new NodeInstancePO();
+            nodeInstancePO.setFlowInstanceId(subFlowInstanceId);
+            nodeInstancePO.setNodeInstanceId(nodeInstanceId);
+            return nodeInstancePO;
+        }
+    }
+
+    private class StubInstanceDataDAO extends InstanceDataDAO {
+        private Map<String, InstanceData> mainInstanceDataMap;
+        private final List<InstanceDataPO> insertedList = new ArrayList<>();
+
+        @Override
+        public InstanceDataPO select(String flowInstanceId, String instanceDataId) {
+            return buildInstanceDataPO(mainInstanceDataMap);
+        }
+
+        @Override
+        public InstanceDataPO selectRecentOne(String flowInstanceId) {
+            return buildInstanceDataPO(subFlowDataMap.get(flowInstanceId));
+        }
+
+        @Override
+        public int insert(InstanceDataPO instanceDataPO, Map<String, InstanceData> instanceDataMap, String baseInstanceDataId,
+                          InstanceDataSnapshot instanceDataSnapshot) {
+            insertedList.add(instanceDataPO);
+            return 1;
+        }
+
+        private InstanceDataPO buildInstanceDataPO(Map<String, InstanceData> instanceDataMap) {
+            InstanceDataPO instanceDataPO = new InstanceDataPO();
+            instanceDataCodecRegistry.setInstanceData(instanceDataPO, instanceDataMap);
+            return instanceDataPO;
+        }
+    }
+}
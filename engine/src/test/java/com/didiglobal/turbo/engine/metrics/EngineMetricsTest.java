@@ -0,0 +1,139 @@
+package com.didiglobal.turbo.engine.metrics;
+
+import com.didiglobal.turbo.engine.common.ErrorEnum;
+import com.didiglobal.turbo.engine.param.CommonParam;
+import com.didiglobal.turbo.engine.result.CommonResult;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+public class EngineMetricsTest {
+
+    private EngineMetrics engineMetrics;
+
+    private final Map<String, Long> counterMap = Maps.newHashMap();
+
+    private final Map<String, Double> gaugeMap = Maps.newHashMap();
+
+    @Before
+    public void init() {
+        engineMetrics = new EngineMetrics();
+        ReflectionTestUtils.setField(engineMetrics, "counterService", new CounterService() {
+            @Override
+            public void increment(String metricName) {
+                counterMap.merge(metricName, 1L, Long::sum);
+            }
+
+            @Override
+            public void decrement(String metricName) {
+                counterMap.merge(metricName, -1L, Long::sum);
+            }
+
+            @Override
+            public void reset(String metricName) {
+                counterMap.remove(metricName);
+            }
+        });
+        ReflectionTestUtils.setField(engineMetrics, "gaugeService", (GaugeService) gaugeMap::put);
+    }
+
+    @Test
+    public void recordEngine() {
+        CommonResult result = engineMetrics.recordEngine("commitTask", () -> {
+            MetricsContext.tag("didi", "demo.app");
+            MetricsContext.addDbRoundTrip();
+            MetricsContext.addDbRoundTrip();
+            MetricsContext.addInstanceData("{\"key\":\"值\"}");
+            return new CommonResult(ErrorEnum.COMMIT_SUSPEND);
+        });
+
+        Assert.assertEquals(ErrorEnum.COMMIT_SUSPEND.getErrNo(), result.getErrCode());
+        Assert.assertEquals(Long.valueOf(1), counterMap.get("turbo.engine.commitTask.suspend"));
+        Assert.assertEquals(Long.valueOf(1), counterMap.get("turbo.engine.commitTask.didi.demo_app.suspend"));
+        Assert.assertTrue(gaugeMap.containsKey("timer.turbo.engine.commitTask"));
+        Assert.assertTrue(gaugeMap.containsKey("timer.turbo.engine.commitTask.didi.demo_app"));
+        Assert.assertEquals(2, gaugeMap.get("histogram.turbo.engine.commitTask.dbRoundTrips"), 0);
+        Assert.assertEquals(13, gaugeMap.get("histogram.turbo.engine.commitTask.instanceDataBytes"), 0);
+    }
+
+    @Test
+    public void recordNested() {
+        engineMetrics.recordEngine("createFlow", new CommonParam("didi", "demo"), () -> {
+            // tagged by the param already
+            MetricsContext.tag("other", "other");
+            return engineMetrics.recordEngine("getFlowModule", () -> new CommonResult(ErrorEnum.SUCCESS));
+        });
+
+        Assert.assertEquals(Long.valueOf(1), counterMap.get("turbo.engine.createFlow.didi.demo.success"));
+        Assert.assertFalse(counterMap.containsKey("turbo.engine.getFlowModule.success"));
+    }
+
+    @Test
+    public void recordConflict() {
+        engineMetrics.recordEngine("rollbackTask", () -> new CommonResult(ErrorEnum.FLOW_INSTANCE_CONFLICT));
+
+        Assert.assertEquals(Long.valueOf(1), counterMap.get("turbo.engine.rollbackTask.conflict"));
+        Assert.assertFalse(counterMap.containsKey("turbo.engine.rollbackTask.failure"));
+    }
+
+    @Test
+    public void recordBatch() {
+        List<CommonResult> resultList = engineMetrics.recordEngineBatch("startProcessBatch", () -> {
+            MetricsContext.addDbRoundTrip();
+            return Lists.newArrayList(new CommonResult(ErrorEnum.SUCCESS), new CommonResult(ErrorEnum.PARAM_INVALID),
+                new CommonResult(ErrorEnum.SUCCESS));
+        });
+
+        Assert.assertEquals(3, resultList.size());
+        Assert.assertEquals(Long.valueOf(2), counterMap.get("turbo.engine.startProcessBatch.success"));
+        Assert.assertEquals(Long.valueOf(1), counterMap.get("turbo.engine.startProcessBatch.failure"));
+        Assert.assertEquals(Long.valueOf(2), counterMap.get("turbo.engine.startProcessBatch.unknown.unknown.success"));
+        Assert.assertTrue(gaugeMap.containsKey("timer.turbo.engine.startProcessBatch"));
+        Assert.assertEquals(1, gaugeMap.get("histogram.turbo.engine.startProcessBatch.dbRoundTrips"), 0);
+    }
+
+    @Test
+    public void recordBatchException() {
+        try {
+            engineMetrics.recordEngineBatch("startProcessBatch", () -> {
+                throw new IllegalStateException("test");
+            });
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        Assert.assertEquals(Long.valueOf(1), counterMap.get("turbo.engine.startProcessBatch.exception"));
+    }
+
+    @Test
+    public void recordException() {
+        try {
+            engineMetrics.recordEngine("startProcess", () -> {
+                throw new IllegalStateException("test");
+            });
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        Assert.assertEquals(Long.valueOf(1), counterMap.get("turbo.engine.startProcess.exception"));
+        Assert.assertEquals(Long.valueOf(1), counterMap.get("turbo.engine.startProcess.unknown.unknown.exception"));
+        // the context is closed
+        MetricsContext.addDbRoundTrip();
+    }
+
+    @Test
+    public void disabled() {
+        ReflectionTestUtils.setField(engineMetrics, "gaugeService", null);
+        engineMetrics.recordEngine("startProcess", () -> new CommonResult(ErrorEnum.SUCCESS));
+        engineMetrics.increment("executor.reentrant");
+        Assert.assertTrue(counterMap.isEmpty());
+    }
+}
@@ -0,0 +1,194 @@
+package com.didiglobal.turbo.engine.processor;
+
+import com.didiglobal.turbo.engine.bo.NodeInstance;
+import com.didiglobal.turbo.engine.common.ErrorEnum;
+import com.didiglobal.turbo.engine.common.NodeInstanceStatus;
+import com.didiglobal.turbo.engine.dao.mapper.FlowDeploymentMapper;
+import com.didiglobal.turbo.engine.entity.FlowDeploymentPO;
+import com.didiglobal.turbo.engine.model.InstanceData;
+import com.didiglobal.turbo.engine.param.CommitTaskParam;
+import com.didiglobal.turbo.engine.param.RollbackTaskParam;
+import com.didiglobal.turbo.engine.param.StartProcessParam;
+import com.didiglobal.turbo.engine.result.CommitTaskResult;
+import com.didiglobal.turbo.engine.result.InstanceDataListResult;
+import com.didiglobal.turbo.engine.result.RollbackTaskResult;
+import com.didiglobal.turbo.engine.result.StartProcessResult;
+import com.didiglobal.turbo.engine.runner.BaseTest;
+import com.didiglobal.turbo.engine.util.EntityBuilder;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * StartEvent -> Fork -> UserTask1 -> Join, Fork -> UserTask2 -> Join, Join -> UserTask3 -> EndEvent
+ */
+public class ParallelGatewayProcessorTest extends BaseTest {
+
+    @Resource
+    private RuntimeProcessor runtimeProcessor;
+
+    @Resource
+    private FlowDeploymentMapper flowDeploymentMapper;
+
+    private StartProcessResult startProcess() {
+        FlowDeploymentPO flowDeploymentPO = EntityBuilder.buildParallelFlowDeploymentPO();
+        FlowDeploymentPO _flowDeploymentPO = flowDeploymentMapper.selectByDeployId(flowDeploymentPO.getFlowDeployId());
+        if (_flowDeploymentPO != null) {
+            if (!StringUtils.equals(_flowDeploymentPO.getFlowModel(), flowDeploymentPO.getFlowModel())) {
+                flowDeploymentMapper.deleteById(_flowDeploymentPO.getId());
+                flowDeploymentMapper.insert(flowDeploymentPO);
+            }
+        } else {
+            flowDeploymentMapper.insert(flowDeploymentPO);
+        }
+
+        StartProcessParam startProcessParam = new StartProcessParam();
+        startProcessParam.setFlowDeployId(flowDeploymentPO.getFlowDeployId());
+        List<InstanceData> variables = new ArrayList<>();
+        variables.add(new InstanceData("a", 1));
+        variables.add(new InstanceData("b", 1));
+        startProcessParam.setVariables(variables);
+        return runtimeProcessor.startProcess(startProcessParam);
+    }
+
+    // Fork -> UserTask1, Fork -> UserTask2
+    @Test
+    public void testForkSuspendsOnBothBranches() {
+        StartProcessResult startProcessResult = startProcess();
+        Assert.assertEquals(ErrorEnum.COMMIT_SUSPEND.getErrNo(), startProcessResult.getErrCode());
+        Assert.assertEquals("UserTask1", startProcessResult.getActiveTaskInstance().getModelKey());
+        Assert.assertNotNull(getActiveTaskInstanceId(startProcessResult.getFlowInstanceId(), "UserTask2"));
+    }
+
+    // UserTask1 -> Join waits, UserTask2 -> Join -> UserTask3
+    @Test
+    public void testJoinWaitsAcrossCalls() {
+        StartProcessResult startProcessResult = startProcess();
+        String flowInstanceId = startProcessResult.getFlowInstanceId();
+
+        CommitTaskResult commitTaskResult = commit(flowInstanceId, startProcessResult.getActiveTaskInstance().getNodeInstanceId(), "a", 2);
+        // the join waits for UserTask2, which is committed by its own taskInstanceId
+        Assert.assertEquals(ErrorEnum.COMMIT_SUSPEND.getErrNo(), commitTaskResult.getErrCode());
+        Assert.assertEquals("UserTask2", commitTaskResult.getActiveTaskInstance().getModelKey());
+
+        commitTaskResult = commit(flowInstanceId, getActiveTaskInstanceId(flowInstanceId, "UserTask2"), "b", 2);
+        Assert.assertEquals(ErrorEnum.COMMIT_SUSPEND.getErrNo(), commitTaskResult.getErrCode());
+        Assert.assertEquals("UserTask3", commitTaskResult.getActiveTaskInstance().getModelKey());
+
+        // each branch keeps its own change, and the one untouched by the other
+        InstanceDataListResult instanceDataListResult = runtimeProcessor.getInstanceData(flowInstanceId, false);
+        Assert.assertEquals("2", getValue(instanceDataListResult, "a"));
+        Assert.assertEquals("2", getValue(instanceDataListResult, "b"));
+    }
+
+    // both branches change the same key: the last arrival wins
+    @Test
+    public void testJoinConflictLastArrivalWins() {
+        StartProcessResult startProcessResult = startProcess();
+        String flowInstanceId = startProcessResult.getFlowInstanceId();
+
+        commit(flowInstanceId, startProcessResult.getActiveTaskInstance().getNodeInstanceId(), "c", 1);
+        commit(flowInstanceId, getActiveTaskInstanceId(flowInstanceId, "UserTask2"), "c", 2);
+
+        InstanceDataListResult instanceDataListResult = runtimeProcessor.getInstanceData(flowInstanceId, false);
+        Assert.assertEquals("2", getValue(instanceDataListResult, "c"));
+    }
+
+    // UserTask3 <- Join <- UserTask2: the arrival of UserTask1 waits again
+    @Test
+    public void testRollbackOverJoin() {
+        StartProcessResult startProcessResult = startProcess();
+        String flowInstanceId = startProcessResult.getFlowInstanceId();
+        commit(flowInstanceId, startProcessResult.getActiveTaskInstance().getNodeInstanceId(), "a", 2);
+        CommitTaskResult commitTaskResult = commit(flowInstanceId, getActiveTaskInstanceId(flowInstanceId, "UserTask2"), "b", 2);
+
+        RollbackTaskResult rollbackTaskResult = rollback(flowInstanceId, commitTaskResult.getActiveTaskInstance().getNodeInstanceId());
+        Assert.assertEquals(ErrorEnum.ROLLBACK_SUSPEND.getErrNo(), rollbackTaskResult.getErrCode());
+        Assert.assertEquals("UserTask2", rollbackTaskResult.getActiveTaskInstance().getModelKey());
+
+        // the join completes with the waiting arrival at once
+        commitTaskResult = commit(flowInstanceId, rollbackTaskResult.getActiveTaskInstance().getNodeInstanceId(), "b", 3);
+        Assert.assertEquals(ErrorEnum.COMMIT_SUSPEND.getErrNo(), commitTaskResult.getErrCode());
+        Assert.assertEquals("UserTask3", commitTaskResult.getActiveTaskInstance().getModelKey());
+        InstanceDataListResult instanceDataListResult = runtimeProcessor.getInstanceData(flowInstanceId, false);
+        Assert.assertEquals("2", getValue(instanceDataListResult, "a"));
+        Assert.assertEquals("3", getValue(instanceDataListResult, "b"));
+    }
+
+    // UserTask1 <- Fork
+    @Test
+    public void testRollbackOverFork() {
+        StartProcessResult startProcessResult = startProcess();
+
+        RollbackTaskResult rollbackTaskResult = rollback(startProcessResult.getFlowInstanceId(),
+            startProcessResult.getActiveTaskInstance().getNodeInstanceId());
+        Assert.assertEquals(ErrorEnum.ROLLBACK_FAILED.getErrNo(), rollbackTaskResult.getErrCode());
+    }
+
+    // UserTask1 -> Join waits, then UserTask1 is rolled back: the join no longer waits for its arrival
+    @Test
+    public void testRollbackDisablesJoinArrival() {
+        StartProcessResult startProcessResult = startProcess();
+        String flowInstanceId = startProcessResult.getFlowInstanceId();
+        String userTask1InstanceId = startProcessResult.getActiveTaskInstance().getNodeInstanceId();
+        commit(flowInstanceId, userTask1InstanceId, "a", 2);
+
+        RollbackTaskResult rollbackTaskResult = rollback(flowInstanceId, userTask1InstanceId);
+        Assert.assertEquals(ErrorEnum.ROLLBACK_SUSPEND.getErrNo(), rollbackTaskResult.getErrCode());
+        Assert.assertEquals("UserTask1", rollbackTaskResult.getActiveTaskInstance().getModelKey());
+
+        // UserTask2 arrives alone, the join waits for UserTask1 again
+        CommitTaskResult commitTaskResult = commit(flowInstanceId, getActiveTaskInstanceId(flowInstanceId, "UserTask2"), "b", 2);
+        Assert.assertEquals(ErrorEnum.COMMIT_SUSPEND.getErrNo(), commitTaskResult.getErrCode());
+        Assert.assertEquals("UserTask1", commitTaskResult.getActiveTaskInstance().getModelKey());
+
+        commitTaskResult = commit(flowInstanceId, getActiveTaskInstanceId(flowInstanceId, "UserTask1"), "a", 3);
+        Assert.assertEquals("UserTask3", commitTaskResult.getActiveTaskInstance().getModelKey());
+        InstanceDataListResult instanceDataListResult = runtimeProcessor.getInstanceData(flowInstanceId, false);
+        Assert.assertEquals("3", getValue(instanceDataListResult, "a"));
+        Assert.assertEquals("2", getValue(instanceDataListResult, "b"));
+    }
+
+    private CommitTaskResult commit(String flowInstanceId, String taskInstanceId, String key, Object value) {
+        CommitTaskParam commitTaskParam = new CommitTaskParam();
+        commitTaskParam.setFlowInstanceId(flowInstanceId);
+        commitTaskParam.setTaskInstanceId(taskInstanceId);
+        List<InstanceData> variables = new ArrayList<>();
+        variables.add(new InstanceData(key, value));
+        commitTaskParam.setVariables(variables);
+        CommitTaskResult commitTaskResult = runtimeProcessor.commit(commitTaskParam);
+        LOGGER.info("commit.||commitTaskResult={}", commitTaskResult);
+        return commitTaskResult;
+    }
+
+    private RollbackTaskResult rollback(String flowInstanceId, String taskInstanceId) {
+        RollbackTaskParam rollbackTaskParam = new RollbackTaskParam();
+        rollbackTaskParam.setFlowInstanceId(flowInstanceId);
+        rollbackTaskParam.setTaskInstanceId(taskInstanceId);
+        RollbackTaskResult rollbackTaskResult = runtimeProcessor.rollback(rollbackTaskParam);
+        LOGGER.info("rollback.||rollbackTaskResult={}", rollbackTaskResult);
+        return rollbackTaskResult;
+    }
+
+    private String getActiveTaskInstanceId(String flowInstanceId, String modelKey) {
+        for (NodeInstance nodeInstance : runtimeProcessor.getHistoryUserTaskList(flowInstanceId, false).getNodeInstanceList()) {
+            if (modelKey.equals(nodeInstance.getModelKey()) && nodeInstance.getStatus() == NodeInstanceStatus.ACTIVE) {
+                return nodeInstance.getNodeInstanceId();
+            }
+        }
+        return null;
+    }
+
+    private static String getValue(InstanceDataListResult instanceDataListResult, String key) {
+        for (InstanceData instanceData : instanceDataListResult.getVariables()) {
+            if (key.equals(instanceData.getKey())) {
+                return String.valueOf(instanceData.getValue());
+            }
+        }
+        return null;
+    }
+}
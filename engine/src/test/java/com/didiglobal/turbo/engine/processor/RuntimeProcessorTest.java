@@ -1,9 +1,13 @@
 package com.didiglobal.turbo.engine.processor;
 
 import com.alibaba.fastjson.JSON;
+import com.didiglobal.turbo.engine.bo.CompiledFlowInfo;
 import com.didiglobal.turbo.engine.bo.ElementInstance;
 import com.didiglobal.turbo.engine.bo.NodeInstance;
 import com.didiglobal.turbo.engine.common.ErrorEnum;
+import com.didiglobal.turbo.engine.dao.InstanceDataDAO;
+import com.didiglobal.turbo.engine.dao.NodeInstanceDAO;
+import com.didiglobal.turbo.engine.dao.ProcessInstanceDAO;
 import com.didiglobal.turbo.engine.dao.mapper.FlowDeploymentMapper;
 import com.didiglobal.turbo.engine.entity.FlowDeploymentPO;
 import com.didiglobal.turbo.engine.model.InstanceData;
@@ -12,14 +16,23 @@ import com.didiglobal.turbo.engine.param.RollbackTaskParam;
 import com.didiglobal.turbo.engine.param.StartProcessParam;
 import com.didiglobal.turbo.engine.result.*;
 import com.didiglobal.turbo.engine.runner.BaseTest;
+import com.didiglobal.turbo.engine.service.FlowDeploymentService;
 import com.didiglobal.turbo.engine.util.EntityBuilder;
+import com.google.common.collect.Lists;
 import org.apache.commons.lang3.StringUtils;
 import org.junit.Assert;
 import org.junit.Test;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import javax.annotation.Resource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class RuntimeProcessorTest extends BaseTest {
 
@@ -29,8 +42,16 @@ public class RuntimeProcessorTest extends BaseTest {
     @Resource
     private FlowDeploymentMapper flowDeploymentMapper;
 
-    private StartProcessResult startProcess() throws Exception {
-        // prepare
+    @Resource
+    private ProcessInstanceDAO processInstanceDAO;
+
+    @Resource
+    private InstanceDataDAO instanceDataDAO;
+
+    @Resource
+    private NodeInstanceDAO nodeInstanceDAO;
+
+    private FlowDeploymentPO prepareFlowDeployment() {
         FlowDeploymentPO flowDeploymentPO = EntityBuilder.buildSpecialFlowDeploymentPO();
         FlowDeploymentPO _flowDeploymentPO = flowDeploymentMapper.selectByDeployId(flowDeploymentPO.getFlowDeployId());
         if (_flowDeploymentPO != null) {
@@ -41,16 +62,25 @@ public class RuntimeProcessorTest extends BaseTest {
         } else {
             flowDeploymentMapper.insert(flowDeploymentPO);
         }
+        return flowDeploymentPO;
+    }
 
-        // start process
+    private StartProcessParam buildStartProcessParam(String flowDeployId) {
         StartProcessParam startProcessParam = new StartProcessParam();
-        startProcessParam.setFlowDeployId(flowDeploymentPO.getFlowDeployId());
+        startProcessParam.setFlowDeployId(flowDeployId);
         List<InstanceData> variables = new ArrayList<>();
         variables.add(new InstanceData("orderId", "123"));
         variables.add(new InstanceData("orderStatus", "1"));
         startProcessParam.setVariables(variables);
-        // build
-        return runtimeProcessor.startProcess(startProcessParam);
+        return startProcessParam;
+    }
+
+    private StartProcessResult startProcess() throws Exception {
+        // prepare
+        FlowDeploymentPO flowDeploymentPO = prepareFlowDeployment();
+
+        // start process
+        return runtimeProcessor.startProcess(buildStartProcessParam(flowDeploymentPO.getFlowDeployId()));
     }
 
     @Test
@@ -445,6 +475,90 @@ public class RuntimeProcessorTest extends BaseTest {
         Assert.assertTrue(StringUtils.equals(initData, rollbackData));
     }
 
+    // one invalid param, one unknown flowDeployId and three flowInstances of the same flowDeployId
+    @Test
+    public void testStartProcessBatch() {
+        FlowDeploymentPO flowDeploymentPO = prepareFlowDeployment();
+        List<StartProcessParam> startProcessParamList = new ArrayList<>();
+        startProcessParamList.add(buildStartProcessParam(flowDeploymentPO.getFlowDeployId()));
+        startProcessParamList.add(new StartProcessParam());
+        startProcessParamList.add(buildStartProcessParam(flowDeploymentPO.getFlowDeployId()));
+        startProcessParamList.add(buildStartProcessParam("unknownFlowDeployId"));
+        startProcessParamList.add(buildStartProcessParam(flowDeploymentPO.getFlowDeployId()));
+
+        RuntimeProcessor target = AopTestUtils.getUltimateTargetObject(runtimeProcessor);
+        FlowDeploymentService flowDeploymentService = (FlowDeploymentService) ReflectionTestUtils.getField(target, "flowDeploymentService");
+        List<String> flowDeployIdList = new ArrayList<>();
+        ReflectionTestUtils.setField(target, "flowDeploymentService", new FlowDeploymentService() {
+            @Override
+            public CompiledFlowInfo getByFlowDeployId(String flowDeployId) {
+                flowDeployIdList.add(flowDeployId);
+                return flowDeploymentService.getByFlowDeployId(flowDeployId);
+            }
+        });
+        List<String> mapperCallList = new ArrayList<>();
+        List<Object> daoList = Lists.newArrayList(processInstanceDAO, instanceDataDAO, nodeInstanceDAO);
+        List<Object> mapperList = new ArrayList<>();
+        List<StartProcessResult> startProcessResultList;
+        try {
+            for (Object dao : daoList) {
+                Object mapper = ReflectionTestUtils.getField(AopTestUtils.getUltimateTargetObject(dao), "baseMapper");
+                mapperList.add(mapper);
+                ReflectionTestUtils.setField(AopTestUtils.getUltimateTargetObject(dao), "baseMapper", recordingMapper(mapper, mapperCallList));
+            }
+            startProcessResultList = runtimeProcessor.startProcessBatch(startProcessParamList);
+        } finally {
+            ReflectionTestUtils.setField(target, "flowDeploymentService", flowDeploymentService);
+            for (int i = 0; i < mapperList.size(); i++) {
+                ReflectionTestUtils.setField(AopTestUtils.getUltimateTargetObject(daoList.get(i)), "baseMapper", mapperList.get(i));
+            }
+        }
+        LOGGER.info("testStartProcessBatch.||startProcessResultList={}||mapperCallList={}", startProcessResultList, mapperCallList);
+
+        // a result per param in the same order, the failed ones don't fail the others
+        Assert.assertEquals(5, startProcessResultList.size());
+        Assert.assertEquals(ErrorEnum.PARAM_INVALID.getErrNo(), startProcessResultList.get(1).getErrCode());
+        Assert.assertEquals(ErrorEnum.GET_FLOW_DEPLOYMENT_FAILED.getErrNo(), startProcessResultList.get(3).getErrCode());
+        Set<String> flowInstanceIdSet = new HashSet<>();
+        for (int i : new int[]{0, 2, 4}) {
+            StartProcessResult startProcessResult = startProcessResultList.get(i);
+            Assert.assertEquals(ErrorEnum.COMMIT_SUSPEND.getErrNo(), startProcessResult.getErrCode());
+            Assert.assertEquals("BranchUserTask_0scrl8d", startProcessResult.getActiveTaskInstance().getModelKey());
+            flowInstanceIdSet.add(startProcessResult.getFlowInstanceId());
+
+            NodeInstanceResult nodeInstanceResult = runtimeProcessor.getNodeInstance(startProcessResult.getFlowInstanceId(),
+                startProcessResult.getActiveTaskInstance().getNodeInstanceId(), false);
+            Assert.assertEquals(ErrorEnum.SUCCESS.getErrNo(), nodeInstanceResult.getErrCode());
+        }
+        Assert.assertEquals(3, flowInstanceIdSet.size());
+
+        // one lookup per flowDeployId
+        Assert.assertEquals(Lists.newArrayList(flowDeploymentPO.getFlowDeployId(), "unknownFlowDeployId"), flowDeployIdList);
+
+        // new flowInstances and instanceData of the batch in one statement each, nodeInstances in one per flowInstance
+        Assert.assertEquals(1, Collections.frequency(mapperCallList, "ProcessInstanceMapper.batchInsert"));
+        Assert.assertEquals(1, Collections.frequency(mapperCallList, "InstanceDataMapper.batchInsert"));
+        Assert.assertEquals(3, Collections.frequency(mapperCallList, "NodeInstanceMapper.batchInsert"));
+        Assert.assertFalse(mapperCallList.contains("ProcessInstanceMapper.insert"));
+        Assert.assertFalse(mapperCallList.contains("InstanceDataMapper.insert"));
+        Assert.assertFalse(mapperCallList.contains("NodeInstanceMapper.insert"));
+    }
+
+    // records "Mapper.method" of each call on the mapper, and calls the mapper
+    private static Object recordingMapper(Object mapper, List<String> mapperCallList) {
+        Class<?> mapperClass = mapper.getClass().getInterfaces()[0];
+        return Proxy.newProxyInstance(mapperClass.getClassLoader(), new Class[]{mapperClass}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() != Object.class) {
+                mapperCallList.add(mapperClass.getSimpleName() + "." + method.getName());
+            }
+            try {
+                return method.invoke(mapper, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        });
+    }
+
     @Test
     public void testGetNodeInstance() throws Exception {
         StartProcessResult startProcessResult = startProcess();
@@ -0,0 +1,205 @@
+package com.didiglobal.turbo.engine.service;
+
+import com.didiglobal.turbo.engine.bo.CompiledFlowInfo;
+import com.didiglobal.turbo.engine.dao.FlowDeployEpochDAO;
+import com.didiglobal.turbo.engine.dao.FlowDeploymentDAO;
+import com.didiglobal.turbo.engine.entity.FlowDeploymentPO;
+import com.didiglobal.turbo.engine.model.FlowElement;
+import com.didiglobal.turbo.engine.util.EntityBuilder;
+import com.google.common.cache.CacheStats;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class FlowDeploymentServiceTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FlowDeploymentServiceTest.class);
+
+    private FlowDeploymentService flowDeploymentService;
+
+    private CountingFlowDeploymentDAO flowDeploymentDAO;
+
+    private MemoryFlowDeployEpochDAO flowDeployEpochDAO;
+
+    @Before
+    public void init() {
+        flowDeploymentDAO = new CountingFlowDeploymentDAO();
+        flowDeployEpochDAO = new MemoryFlowDeployEpochDAO();
+        flowDeploymentService = new FlowDeploymentService();
+        ReflectionTestUtils.setField(flowDeploymentService, "flowDeploymentDAO", flowDeploymentDAO);
+        ReflectionTestUtils.setField(flowDeploymentService, "flowDeployEpochDAO", flowDeployEpochDAO);
+        flowDeploymentService.init();
+    }
+
+    @Test
+    public void getByFlowDeployId() {
+        String flowDeployId = flowDeploymentDAO.flowDeploymentPO.getFlowDeployId();
+        CompiledFlowInfo first = flowDeploymentService.getByFlowDeployId(flowDeployId);
+        CompiledFlowInfo second = flowDeploymentService.getByFlowDeployId(flowDeployId);
+
+        Assert.assertNotNull(first);
+        Assert.assertSame(first, second);
+        Assert.assertEquals(1, flowDeploymentDAO.selectCount.get());
+        Assert.assertFalse(first.getFlowElementMap().isEmpty());
+
+        CacheStats cacheStats = flowDeploymentService.getCacheStats();
+        LOGGER.info("cacheStats={}", cacheStats);
+        Assert.assertEquals(1, cacheStats.hitCount());
+        Assert.assertEquals(1, cacheStats.missCount());
+    }
+
+    @Test
+    public void getByFlowDeployIdNotExist() {
+        Assert.assertNull(flowDeploymentService.getByFlowDeployId("notExistFlowDeployId"));
+        Assert.assertNull(flowDeploymentService.getByFlowDeployId("notExistFlowDeployId"));
+        // absent deployment is not cached
+        Assert.assertEquals(2, flowDeploymentDAO.selectCount.get());
+        Assert.assertEquals(0, flowDeploymentService.getCacheSize());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void flowElementMapIsReadOnly() {
+        String flowDeployId = flowDeploymentDAO.flowDeploymentPO.getFlowDeployId();
+        CompiledFlowInfo compiledFlowInfo = flowDeploymentService.getByFlowDeployId(flowDeployId);
+        compiledFlowInfo.getFlowElementMap().put("key", new FlowElement());
+    }
+
+    @Test
+    public void concurrentMissLoadOnce() throws Exception {
+        String flowDeployId = flowDeploymentDAO.flowDeploymentPO.getFlowDeployId();
+        int threadCount = 16;
+        ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        List<Future<CompiledFlowInfo>> futureList = new ArrayList<>();
+        try {
+            for (int i = 0; i < threadCount; i++) {
+                futureList.add(executorService.submit(() -> {
+                    startLatch.await();
+                    return flowDeploymentService.getByFlowDeployId(flowDeployId);
+                }));
+            }
+            startLatch.countDown();
+            CompiledFlowInfo expected = futureList.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<CompiledFlowInfo> future : futureList) {
+                Assert.assertSame(expected, future.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+        Assert.assertEquals(1, flowDeploymentDAO.selectCount.get());
+    }
+
+    @Test
+    public void getRecentByFlowModuleId() {
+        String flowModuleId = flowDeploymentDAO.flowDeploymentPO.getFlowModuleId();
+        CompiledFlowInfo first = flowDeploymentService.getRecentByFlowModuleId(flowModuleId);
+        CompiledFlowInfo second = flowDeploymentService.getRecentByFlowModuleId(flowModuleId);
+
+        Assert.assertSame(first, second);
+        Assert.assertEquals(1, flowDeploymentDAO.selectRecentCount.get());
+        // parsed while resolving the recent deployment
+        Assert.assertEquals(0, flowDeploymentDAO.selectCount.get());
+        Assert.assertEquals(1, flowDeploymentService.getRecentCacheStats().hitCount());
+    }
+
+    @Test
+    public void onDeployed() {
+        String flowModuleId = flowDeploymentDAO.flowDeploymentPO.getFlowModuleId();
+        CompiledFlowInfo oldFlowInfo = flowDeploymentService.getRecentByFlowModuleId(flowModuleId);
+
+        FlowDeploymentPO newFlowDeploymentPO = flowDeploymentDAO.deploy();
+        flowDeploymentService.onDeployed(newFlowDeploymentPO);
+
+        CompiledFlowInfo newFlowInfo = flowDeploymentService.getRecentByFlowModuleId(flowModuleId);
+        Assert.assertNotEquals(oldFlowInfo.getFlowDeployId(), newFlowInfo.getFlowDeployId());
+        Assert.assertEquals(newFlowDeploymentPO.getFlowDeployId(), newFlowInfo.getFlowDeployId());
+        Assert.assertEquals(1, flowDeployEpochDAO.epoch.get());
+    }
+
+    @Test
+    public void deployedByOtherNode() {
+        String flowModuleId = flowDeploymentDAO.flowDeploymentPO.getFlowModuleId();
+        CompiledFlowInfo oldFlowInfo = flowDeploymentService.getRecentByFlowModuleId(flowModuleId);
+
+        // deployed by other node: nothing changes until the epoch is polled
+        FlowDeploymentPO newFlowDeploymentPO = flowDeploymentDAO.deploy();
+        flowDeployEpochDAO.increaseEpoch();
+        Assert.assertSame(oldFlowInfo, flowDeploymentService.getRecentByFlowModuleId(flowModuleId));
+
+        flowDeploymentService.refreshEpoch();
+        CompiledFlowInfo newFlowInfo = flowDeploymentService.getRecentByFlowModuleId(flowModuleId);
+        Assert.assertEquals(newFlowDeploymentPO.getFlowDeployId(), newFlowInfo.getFlowDeployId());
+    }
+
+    private static class CountingFlowDeploymentDAO extends FlowDeploymentDAO {
+
+        private final AtomicInteger selectCount = new AtomicInteger();
+
+        private final AtomicInteger selectRecentCount = new AtomicInteger();
+
+        private final FlowDeploymentPO flowDeploymentPO;
+
+        private volatile FlowDeploymentPO recentFlowDeploymentPO;
+
+        CountingFlowDeploymentDAO() {
+            flowDeploymentPO = EntityBuilder.buildFlowDeploymentPO();
+            flowDeploymentPO.setFlowModel(EntityBuilder.buildModelString());
+            recentFlowDeploymentPO = flowDeploymentPO;
+        }
+
+        FlowDeploymentPO deploy() {
+            FlowDeploymentPO newFlowDeploymentPO = EntityBuilder.buildFlowDeploymentPO();
+            newFlowDeploymentPO.setFlowDeployId("testFlowDeployId_" + System.nanoTime());
+            newFlowDeploymentPO.setFlowModel(EntityBuilder.buildModelString());
+            recentFlowDeploymentPO = newFlowDeploymentPO;
+            return newFlowDeploymentPO;
+        }
+
+        @Override
+        public FlowDeploymentPO selectRecentByFlowModuleId(String flowModuleId) {
+            selectRecentCount.incrementAndGet();
+            return recentFlowDeploymentPO.getFlowModuleId().equals(flowModuleId) ? recentFlowDeploymentPO : null;
+        }
+
+        @Override
+        public FlowDeploymentPO selectByDeployId(String flowDeployId) {
+            selectCount.incrementAndGet();
+            try {
+                // widen the window of concurrent misses
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return flowDeploymentPO.getFlowDeployId().equals(flowDeployId) ? flowDeploymentPO : null;
+        }
+    }
+
+    private static class MemoryFlowDeployEpochDAO extends FlowDeployEpochDAO {
+
+        private final AtomicLong epoch = new AtomicLong();
+
+        @Override
+        public long selectEpoch() {
+            return epoch.get();
+        }
+
+        @Override
+        public int increaseEpoch() {
+            epoch.incrementAndGet();
+            return 1;
+        }
+    }
+}
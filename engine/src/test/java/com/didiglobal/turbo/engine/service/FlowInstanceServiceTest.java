@@ -0,0 +1,234 @@
+package com.didiglobal.turbo.engine.service;
+
+import com.didiglobal.turbo.engine.bo.FlowInstanceHistory;
+import com.didiglobal.turbo.engine.common.FlowInstanceMappingType;
+import com.didiglobal.turbo.engine.dao.FlowInstanceMappingDAO;
+import com.didiglobal.turbo.engine.dao.NodeInstanceDAO;
+import com.didiglobal.turbo.engine.entity.FlowInstanceMappingPO;
+import com.didiglobal.turbo.engine.entity.NodeInstancePO;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+public class FlowInstanceServiceTest {
+
+    private FlowInstanceService flowInstanceService;
+
+    private MemoryNodeInstanceDAO nodeInstanceDAO;
+
+    private MemoryFlowInstanceMappingDAO flowInstanceMappingDAO;
+
+    // root: userTask0, callActivity1 -> sub1: userTask1, callActivity2 -> sub2: userTask2
+    @Before
+    public void init() {
+        nodeInstanceDAO = new MemoryNodeInstanceDAO();
+        nodeInstanceDAO.add("root", "userTask0");
+        nodeInstanceDAO.add("root", "callActivity1");
+        nodeInstanceDAO.add("sub1", "userTask1");
+        nodeInstanceDAO.add("sub1", "callActivity2");
+        nodeInstanceDAO.add("sub2", "userTask2");
+        flowInstanceMappingDAO = new MemoryFlowInstanceMappingDAO();
+        flowInstanceMappingDAO.add("root", "callActivity1", "sub1", "root");
+        flowInstanceMappingDAO.add("sub1", "callActivity2", "sub2", "root");
+
+        flowInstanceService = new FlowInstanceService();
+        ReflectionTestUtils.setField(flowInstanceService, "nodeInstanceDAO", nodeInstanceDAO);
+        ReflectionTestUtils.setField(flowInstanceService, "flowInstanceMappingDAO", flowInstanceMappingDAO);
+        // as after the legacy mappings are backfilled
+        ReflectionTestUtils.setField(flowInstanceService, "legacyMappingEnabled", false);
+    }
+
+    @Test
+    public void nodeInstanceIdStackOfRootTask() {
+        Stack<String> stack = flowInstanceService.getNodeInstanceIdStack("root", "userTask0");
+        Assert.assertEquals(Lists.newArrayList("userTask0"), Lists.newArrayList(stack));
+        // one indexed query, no walk
+        Assert.assertEquals(1, nodeInstanceDAO.selectCount.get());
+        Assert.assertEquals(0, flowInstanceMappingDAO.selectCount.get());
+    }
+
+    @Test
+    public void nodeInstanceIdStackOfSubTask() {
+        Stack<String> stack = flowInstanceService.getNodeInstanceIdStack("root", "userTask2");
+        Assert.assertEquals("callActivity1", stack.pop());
+        Assert.assertEquals("callActivity2", stack.pop());
+        Assert.assertEquals("userTask2", stack.pop());
+        Assert.assertEquals(1, nodeInstanceDAO.selectCount.get());
+        Assert.assertEquals(1, flowInstanceMappingDAO.selectCount.get());
+        Assert.assertEquals("sub2", flowInstanceService.getFlowInstanceIdByRootFlowInstanceIdAndNodeInstanceId("root", "userTask2"));
+    }
+
+    @Test
+    public void nodeInstanceIdStackOfLegacyMapping() {
+        ReflectionTestUtils.setField(flowInstanceService, "legacyMappingEnabled", true);
+        flowInstanceMappingDAO.mappingList.forEach(mappingPO -> mappingPO.setRootFlowInstanceId(""));
+        Stack<String> stack = flowInstanceService.getNodeInstanceIdStack("root", "userTask2");
+        Assert.assertEquals(Lists.newArrayList("userTask2", "callActivity2", "callActivity1"), Lists.newArrayList(stack));
+        Assert.assertEquals(Sets.newHashSet("sub1", "sub2"), flowInstanceService.getAllSubFlowInstanceIds("root"));
+    }
+
+    // sub1 is mapped before the upgrade, sub2 under it and sub3 after the upgrade
+    @Test
+    public void mergeLegacyMappings() {
+        ReflectionTestUtils.setField(flowInstanceService, "legacyMappingEnabled", true);
+        flowInstanceMappingDAO.mappingList.get(0).setRootFlowInstanceId("");
+        nodeInstanceDAO.add("root", "callActivity3");
+        nodeInstanceDAO.add("sub3", "callActivity4");
+        nodeInstanceDAO.add("sub4", "userTask4");
+        flowInstanceMappingDAO.add("root", "callActivity3", "sub3", "root");
+        flowInstanceMappingDAO.add("sub3", "callActivity4", "sub4", "");
+
+        Assert.assertEquals(Sets.newHashSet("sub1", "sub2", "sub3", "sub4"), flowInstanceService.getAllSubFlowInstanceIds("root"));
+        // the root query, then one legacy query per level: root, sub1 and sub3, sub2 and sub4
+        Assert.assertEquals(4, flowInstanceMappingDAO.selectCount.get());
+        Assert.assertEquals(5, flowInstanceService.getFlowInstanceHistory("root", true).getFlowInstanceCount());
+        Assert.assertEquals(Lists.newArrayList("userTask2", "callActivity2", "callActivity1"),
+            Lists.newArrayList(flowInstanceService.getNodeInstanceIdStack("root", "userTask2")));
+    }
+
+    @Test
+    public void nodeInstanceOfOtherRoot() {
+        nodeInstanceDAO.add("otherRoot", "otherUserTask");
+        Assert.assertTrue(flowInstanceService.getNodeInstanceIdStack("root", "otherUserTask").isEmpty());
+        Assert.assertTrue(flowInstanceService.getNodeInstanceIdStack("root", "notExist").isEmpty());
+        Assert.assertEquals("", flowInstanceService.getFlowInstanceIdByRootFlowInstanceIdAndNodeInstanceId("root", "otherUserTask"));
+    }
+
+    @Test
+    public void allSubFlowInstanceIds() {
+        Assert.assertEquals(Sets.newHashSet("sub1", "sub2"), flowInstanceService.getAllSubFlowInstanceIds("root"));
+        Assert.assertEquals(1, flowInstanceMappingDAO.selectCount.get());
+        Assert.assertEquals(0, nodeInstanceDAO.selectCount.get());
+    }
+
+    @Test
+    public void flowInstanceHistory() {
+        nodeInstanceDAO.add("root", "callActivity3");
+        nodeInstanceDAO.add("sub3", "userTask3");
+        flowInstanceMappingDAO.add("root", "callActivity3", "sub3", "root");
+
+        FlowInstanceHistory history = flowInstanceService.getFlowInstanceHistory("root", true);
+        Assert.assertEquals(4, history.getFlowInstanceCount());
+        Assert.assertEquals("userTask3", history.getNodeInstanceList("sub3").get(0).getNodeInstanceId());
+        Assert.assertEquals("callActivity2", history.getDescNodeInstanceList("sub1").get(0).getNodeInstanceId());
+        Assert.assertEquals("sub2", history.getMappingList("sub1", "callActivity2").get(0).getSubFlowInstanceId());
+        // one query per level: root, sub1 and sub3, sub2
+        Assert.assertEquals(3, nodeInstanceDAO.selectCount.get());
+        Assert.assertEquals(1, flowInstanceMappingDAO.selectCount.get());
+
+        FlowInstanceHistory rootHistory = flowInstanceService.getFlowInstanceHistory("root", false);
+        Assert.assertEquals(1, rootHistory.getFlowInstanceCount());
+        Assert.assertTrue(rootHistory.getMappingList("root", "callActivity1").isEmpty());
+    }
+
+    private static class MemoryNodeInstanceDAO extends NodeInstanceDAO {
+
+        private final List<NodeInstancePO> nodeInstanceList = Lists.newArrayList();
+        private final AtomicInteger selectCount = new AtomicInteger();
+
+        private void add(String flowInstanceId, String nodeInstanceId) {
+            NodeInstancePO nodeInstancePO = new NodeInstancePO();
+            nodeInstancePO.setId((long) nodeInstanceList.size() + 1);
+            nodeInstancePO.setFlowInstanceId(flowInstanceId);
+            nodeInstancePO.setNodeInstanceId(nodeInstanceId);
+            nodeInstancePO.setInstanceDataId("");
+            nodeInstanceList.add(nodeInstancePO);
+        }
+
+        @Override
+        public NodeInstancePO selectByNodeInstanceId(String flowInstanceId, String nodeInstanceId) {
+            selectCount.incrementAndGet();
+            return nodeInstanceList.stream()
+                .filter(nodeInstancePO -> nodeInstancePO.getNodeInstanceId().equals(nodeInstanceId))
+                .findFirst().orElse(null);
+        }
+
+        @Override
+        public List<NodeInstancePO> selectByFlowInstanceId(String flowInstanceId) {
+            return Lists.reverse(selectDescByFlowInstanceId(flowInstanceId));
+        }
+
+        @Override
+        public Map<String, List<NodeInstancePO>> selectByFlowInstanceIds(Collection<String> flowInstanceIds) {
+            selectCount.incrementAndGet();
+            Map<String, List<NodeInstancePO>> nodeInstanceMap = new LinkedHashMap<>();
+            nodeInstanceList.stream()
+                .filter(nodeInstancePO -> flowInstanceIds.contains(nodeInstancePO.getFlowInstanceId()))
+                .forEach(nodeInstancePO -> nodeInstanceMap.computeIfAbsent(nodeInstancePO.getFlowInstanceId(),
+                    key -> Lists.newArrayList()).add(nodeInstancePO));
+            return nodeInstanceMap;
+        }
+
+        @Override
+        public List<NodeInstancePO> selectDescByFlowInstanceId(String flowInstanceId) {
+            selectCount.incrementAndGet();
+            return Lists.reverse(nodeInstanceList.stream()
+                .filter(nodeInstancePO -> nodeInstancePO.getFlowInstanceId().equals(flowInstanceId))
+                .collect(Collectors.toList()));
+        }
+    }
+
+    private static class MemoryFlowInstanceMappingDAO extends FlowInstanceMappingDAO {
+
+        private final List<FlowInstanceMappingPO> mappingList = Lists.newArrayList();
+        private final AtomicInteger selectCount = new AtomicInteger();
+
+        private void add(String flowInstanceId, String nodeInstanceId, String subFlowInstanceId, String rootFlowInstanceId) {
+            FlowInstanceMappingPO mappingPO = new FlowInstanceMappingPO();
+            mappingPO.setId((long) mappingList.size() + 1);
+            mappingPO.setFlowInstanceId(flowInstanceId);
+            mappingPO.setNodeInstanceId(nodeInstanceId);
+            mappingPO.setSubFlowInstanceId(subFlowInstanceId);
+            mappingPO.setRootFlowInstanceId(rootFlowInstanceId);
+            mappingPO.setType(FlowInstanceMappingType.EXECUTE);
+            mappingList.add(mappingPO);
+        }
+
+        @Override
+        public List<FlowInstanceMappingPO> selectByFlowInstanceId(String flowInstanceId) {
+            selectCount.incrementAndGet();
+            return mappingList.stream()
+                .filter(mappingPO -> mappingPO.getFlowInstanceId().equals(flowInstanceId))
+                .collect(Collectors.toList());
+        }
+
+        @Override
+        public List<FlowInstanceMappingPO> selectByRootFlowInstanceId(String rootFlowInstanceId) {
+            selectCount.incrementAndGet();
+            return mappingList.stream()
+                .filter(mappingPO -> mappingPO.getRootFlowInstanceId().equals(rootFlowInstanceId))
+                .collect(Collectors.toList());
+        }
+
+        @Override
+        public List<FlowInstanceMappingPO> selectLegacyByFlowInstanceIds(Collection<String> flowInstanceIds) {
+            selectCount.incrementAndGet();
+            return mappingList.stream()
+                .filter(mappingPO -> flowInstanceIds.contains(mappingPO.getFlowInstanceId()) && mappingPO.getRootFlowInstanceId().isEmpty())
+                .collect(Collectors.toList());
+        }
+
+        @Override
+        public List<FlowInstanceMappingPO> selectSameRootBySubFlowInstanceId(String subFlowInstanceId) {
+            selectCount.incrementAndGet();
+            String rootFlowInstanceId = mappingList.stream()
+                .filter(mappingPO -> mappingPO.getSubFlowInstanceId().equals(subFlowInstanceId) && !mappingPO.getRootFlowInstanceId().isEmpty())
+                .map(FlowInstanceMappingPO::getRootFlowInstanceId)
+                .findFirst().orElse(null);
+            return mappingList.stream()
+                .filter(mappingPO -> mappingPO.getRootFlowInstanceId().equals(rootFlowInstanceId))
+                .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.didiglobal.turbo.engine.service;
+
+import com.didiglobal.turbo.engine.common.ErrorEnum;
+import com.didiglobal.turbo.engine.metrics.EngineMetrics;
+import com.didiglobal.turbo.engine.metrics.MetricsContext;
+import com.didiglobal.turbo.engine.model.InstanceData;
+import com.didiglobal.turbo.engine.result.CommonResult;
+import com.didiglobal.turbo.engine.spi.HookService;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.Lists;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.MDC;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class HookInvokeServiceTest {
+
+    private static final String TRACE_ID = "X-B3-TraceId";
+
+    private HookInvokeService hookInvokeService;
+
+    @Before
+    public void init() {
+        hookInvokeService = new HookInvokeService();
+        ReflectionTestUtils.setField(hookInvokeService, "engineMetrics", new EngineMetrics());
+        ReflectionTestUtils.setField(hookInvokeService, "timeoutMillis", 200L);
+        ReflectionTestUtils.setField(hookInvokeService, "totalTimeoutMillis", 300L);
+        hookInvokeService.afterPropertiesSet();
+    }
+
+    @After
+    public void destroy() {
+        hookInvokeService.destroy();
+    }
+
+    @Test
+    public void mergeInHookOrder() {
+        // the first hook completes last, the second one still overrides it
+        setHookServices(new SleepHookService(100, "k", "first"), new SleepHookService(0, "k", "second"),
+            new SleepHookService(0, "other", "third"));
+        Map<String, InstanceData> instanceDataMap = hookInvokeService.invoke("flowInstanceId", "hookInfoParam", "nodeKey", "nodeInstanceId", null);
+        Assert.assertEquals(2, instanceDataMap.size());
+        Assert.assertEquals("second", instanceDataMap.get("k").getValue());
+        Assert.assertEquals("third", instanceDataMap.get("other").getValue());
+    }
+
+    @Test
+    public void concurrent() {
+        CountDownLatch latch = new CountDownLatch(2);
+        HookService first = (flowInstanceId, nodeInstanceId, nodeKey, hookInfoParam) -> awaitOther(latch, "first");
+        HookService second = (flowInstanceId, nodeInstanceId, nodeKey, hookInfoParam) -> awaitOther(latch, "second");
+        setHookServices(first, second);
+        // sequential invocation would time out waiting for the other hook
+        Map<String, InstanceData> instanceDataMap = hookInvokeService.invoke("flowInstanceId", "hookInfoParam", "nodeKey", "nodeInstanceId", null);
+        Assert.assertEquals(2, instanceDataMap.size());
+    }
+
+    @Test
+    public void partialResult() {
+        HookService failed = (flowInstanceId, nodeInstanceId, nodeKey, hookInfoParam) -> {
+            throw new IllegalStateException("unavailable");
+        };
+        setHookServices(new SleepHookService(0, "fast", "value"), new SleepHookService(2000, "slow", "value"), failed);
+        long startMillis = System.currentTimeMillis();
+        Map<String, InstanceData> instanceDataMap = hookInvokeService.invoke("flowInstanceId", "hookInfoParam", "nodeKey", "nodeInstanceId", null);
+        Assert.assertTrue(System.currentTimeMillis() - startMillis < 1000);
+        Assert.assertEquals(1, instanceDataMap.size());
+        Assert.assertTrue(instanceDataMap.containsKey("fast"));
+    }
+
+    @Test
+    public void timeoutSinceSubmission() {
+        ReflectionTestUtils.setField(hookInvokeService, "totalTimeoutMillis", 1000L);
+        // the second hook is not waited for another timeoutMillis after the first one completes
+        setHookServices(new SleepHookService(150, "first", "value"), new SleepHookService(400, "second", "value"));
+        Map<String, InstanceData> instanceDataMap = hookInvokeService.invoke("flowInstanceId", "hookInfoParam", "nodeKey", "nodeInstanceId", null);
+        Assert.assertEquals(1, instanceDataMap.size());
+        Assert.assertTrue(instanceDataMap.containsKey("first"));
+    }
+
+    @Test
+    public void callerContext() {
+        Map<String, Double> gaugeMap = new HashMap<>();
+        EngineMetrics engineMetrics = new EngineMetrics();
+        ReflectionTestUtils.setField(engineMetrics, "counterService", new CounterService() {
+            @Override
+            public void increment(String metricName) {
+            }
+
+            @Override
+            public void decrement(String metricName) {
+            }
+
+            @Override
+            public void reset(String metricName) {
+            }
+        });
+        ReflectionTestUtils.setField(engineMetrics, "gaugeService", (GaugeService) gaugeMap::put);
+        List<String> traceIdList = new CopyOnWriteArrayList<>();
+        HookService hookService = (flowInstanceId, nodeInstanceId, nodeKey, hookInfoParam) -> {
+            traceIdList.add(String.valueOf(MDC.get(TRACE_ID)));
+            MetricsContext.addDbRoundTrip();
+            return Lists.newArrayList(new InstanceData("k", "v"));
+        };
+        setHookServices(hookService, hookService);
+
+        MDC.put(TRACE_ID, "traceId");
+        try {
+            engineMetrics.recordEngine("commitTask", () -> {
+                hookInvokeService.invoke("flowInstanceId", "hookInfoParam", "nodeKey", "nodeInstanceId", null);
+                return new CommonResult(ErrorEnum.SUCCESS);
+            });
+        } finally {
+            MDC.remove(TRACE_ID);
+        }
+        Assert.assertEquals(Lists.newArrayList("traceId", "traceId"), traceIdList);
+        Assert.assertEquals(2, gaugeMap.get("histogram.turbo.engine.commitTask.dbRoundTrips"), 0);
+    }
+
+    @Test
+    public void cacheDisabledByDefault() {
+        CountingHookService hookService = new CountingHookService(60000L);
+        setHookServices(hookService);
+        hookInvokeService.invoke("flowInstanceId", "hookInfoParam", "nodeKey", "nodeInstanceId", null);
+        hookInvokeService.invoke("flowInstanceId", "hookInfoParam", "nodeKey", "nodeInstanceId", null);
+        Assert.assertEquals(2, hookService.count);
+        Assert.assertEquals(0, hookInvokeService.getCacheSize());
+    }
+
+    @Test
+    public void cacheByKeyVariables() {
+        ReflectionTestUtils.setField(hookInvokeService, "cacheEnabled", true);
+        CountingHookService hookService = new CountingHookService(60000L);
+        setHookServices(hookService);
+        Map<String, InstanceData> instanceDataMap = new HashMap<>();
+        instanceDataMap.put("amount", new InstanceData("amount", "integer", 1));
+        instanceDataMap.put("ignored", new InstanceData("ignored", "string", "a"));
+
+        Assert.assertEquals(1, hookInvokeService.invoke("flowInstanceId", "hookInfoParam", "nodeKey", "nodeInstanceId", instanceDataMap).get("count").getValue());
+        // other variables and other nodes share the result
+        instanceDataMap.put("ignored", new InstanceData("ignored", "string", "b"));
+        Assert.assertEquals(1, hookInvokeService.invoke("flowInstanceId", "hookInfoParam", "otherNodeKey", "otherNodeInstanceId", instanceDataMap).get("count").getValue());
+        // a key variable, the hookInfoParam or the flowInstance changed
+        instanceDataMap.put("amount", new InstanceData("amount", "integer", 2));
+        Assert.assertEquals(2, hookInvokeService.invoke("flowInstanceId", "hookInfoParam", "nodeKey", "nodeInstanceId", instanceDataMap).get("count").getValue());
+        Assert.assertEquals(3, hookInvokeService.invoke("flowInstanceId", "otherHookInfoParam", "nodeKey", "nodeInstanceId", instanceDataMap).get("count").getValue());
+        Assert.assertEquals(4, hookInvokeService.invoke("otherFlowInstanceId", "hookInfoParam", "nodeKey", "nodeInstanceId", instanceDataMap).get("count").getValue());
+
+        CacheStats cacheStats = hookInvokeService.getCacheStats();
+        Assert.assertEquals(1, cacheStats.hitCount());
+        Assert.assertEquals(4, cacheStats.missCount());
+        Assert.assertEquals(4, hookInvokeService.getCacheSize());
+    }
+
+    @Test
+    public void cacheExpired() throws Exception {
+        ReflectionTestUtils.setField(hookInvokeService, "cacheEnabled", true);
+        CountingHookService hookService = new CountingHookService(50L);
+        setHookServices(hookService);
+        hookInvokeService.invoke("flowInstanceId", "hookInfoParam", "nodeKey", "nodeInstanceId", null);
+        Thread.sleep(100L);
+        Map<String, InstanceData> instanceDataMap = hookInvokeService.invoke("flowInstanceId", "hookInfoParam", "nodeKey", "nodeInstanceId", null);
+        Assert.assertEquals(2, instanceDataMap.get("count").getValue());
+        Assert.assertEquals(0, hookInvokeService.getCacheStats().hitCount());
+        Assert.assertEquals(2, hookInvokeService.getCacheStats().missCount());
+    }
+
+    @Test
+    public void cacheBounded() {
+        ReflectionTestUtils.setField(hookInvokeService, "cacheEnabled", true);
+        ReflectionTestUtils.setField(hookInvokeService, "cacheMaxWeight", 1024L);
+        hookInvokeService.destroy();
+        hookInvokeService.afterPropertiesSet();
+        setHookServices(new CountingHookService(60000L));
+        for (int i = 0; i < 100; i++) {
+            hookInvokeService.invoke("flowInstanceId" + i, "hookInfoParam", "nodeKey", "nodeInstanceId", null);
+        }
+        Assert.assertTrue(hookInvokeService.getCacheSize() < 100);
+        Assert.assertTrue(hookInvokeService.getCacheStats().evictionCount() > 0);
+    }
+
+    private void setHookServices(HookService... hookServices) {
+        ReflectionTestUtils.setField(hookInvokeService, "hookServices", Lists.newArrayList(hookServices));
+    }
+
+    private static List<InstanceData> awaitOther(CountDownLatch latch, String key) {
+        latch.countDown();
+        try {
+            if (!latch.await(1, TimeUnit.SECONDS)) {
+                return Lists.newArrayList();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return Lists.newArrayList(new InstanceData(key, "value"));
+    }
+
+    private static class CountingHookService implements HookService {
+        private final long cacheTtlMillis;
+        private volatile int count;
+
+        private CountingHookService(long cacheTtlMillis) {
+            this.cacheTtlMillis = cacheTtlMillis;
+        }
+
+        @Override
+        public synchronized List<InstanceData> invoke(String flowInstanceId, String nodeInstanceId, String nodeKey, String hookInfoParam) {
+            return Lists.newArrayList(new InstanceData("count", ++count));
+        }
+
+        @Override
+        public long getCacheTtlMillis() {
+            return cacheTtlMillis;
+        }
+
+        @Override
+        public List<String> getCacheKeyVariables() {
+            return Lists.newArrayList("amount");
+        }
+    }
+
+    private static class SleepHookService implements HookService {
+        private final long sleepMillis;
+        private final String key;
+        private final String value;
+
+        private SleepHookService(long sleepMillis, String key, String value) {
+            this.sleepMillis = sleepMillis;
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public List<InstanceData> invoke(String flowInstanceId, String nodeInstanceId, String nodeKey, String hookInfoParam) {
+            try {
+                Thread.sleep(sleepMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return Lists.newArrayList();
+            }
+            return Lists.newArrayList(new InstanceData(key, value));
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.didiglobal.turbo.engine.spi.impl;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RedisFlowCacheTest {
+
+    private StandInRedisServer server;
+
+    private RedisFlowCache flowCache;
+
+    @Before
+    public void init() throws IOException {
+        server = new StandInRedisServer("secret");
+        flowCache = new RedisFlowCache("127.0.0.1", server.getPort(), "secret", 2, 1000, 2);
+    }
+
+    @After
+    public void destroy() throws IOException {
+        flowCache.close();
+        server.close();
+    }
+
+    @Test
+    public void getSetDelete() {
+        Assert.assertNull(flowCache.get("key"));
+        flowCache.set("key", "值\r\nvalue", 60);
+        Assert.assertEquals("值\r\nvalue", flowCache.get("key"));
+        Assert.assertEquals("60", server.expireMap.get("2:key"));
+
+        Assert.assertFalse(flowCache.setIfAbsent("key", "other", 60));
+        Assert.assertTrue(flowCache.setIfAbsent("otherKey", "other", 60));
+        Assert.assertEquals("值\r\nvalue", flowCache.get("key"));
+
+        flowCache.delete("key");
+        Assert.assertNull(flowCache.get("key"));
+        // one connection reused for all the commands
+        Assert.assertEquals(1, server.connectionCount.get());
+    }
+
+    @Test
+    public void authFailed() throws IOException {
+        RedisFlowCache unauthorized = new RedisFlowCache("127.0.0.1", server.getPort(), "wrong", 0, 1000, 2);
+        try {
+            unauthorized.get("key");
+            Assert.fail();
+        } catch (JedisConnectionException e) {
+            Assert.assertTrue(e.getCause().getMessage().contains("WRONGPASS"));
+        } finally {
+            unauthorized.close();
+        }
+    }
+
+    @Test
+    public void serverDown() throws IOException {
+        flowCache.set("key", "value", 60);
+        server.close();
+        try {
+            flowCache.get("key");
+            Assert.fail();
+        } catch (JedisConnectionException e) {
+            // the broken connection is dropped
+        }
+        try {
+            flowCache.get("key");
+            Assert.fail();
+        } catch (JedisConnectionException e) {
+            // connection refused
+        }
+    }
+
+    /**
+     * Serves AUTH, SELECT, GET, SET [NX] [EX], SETEX, DEL and QUIT of RESP, one thread per connection.
+     */
+    private static class StandInRedisServer {
+        private final ServerSocket serverSocket;
+        private final String password;
+        private final List<Socket> sockets = new ArrayList<>();
+        // database:key
+        private final Map<String, String> valueMap = new ConcurrentHashMap<>();
+        private final Map<String, String> expireMap = new ConcurrentHashMap<>();
+        private final AtomicInteger connectionCount = new AtomicInteger();
+
+        private StandInRedisServer(String password) throws IOException {
+            this.serverSocket = new ServerSocket(0);
+            this.password = password;
+            Thread acceptor = new Thread(this::accept, "stand-in-redis");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        private int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        private void accept() {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    connectionCount.incrementAndGet();
+                    synchronized (sockets) {
+                        sockets.add(socket);
+                    }
+                    Thread handler = new Thread(() -> serve(socket), "stand-in-redis-connection");
+                    handler.setDaemon(true);
+                    handler.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+
+        private void serve(Socket socket) {
+            try {
+                InputStream input = new BufferedInputStream(socket.getInputStream());
+                OutputStream output = new BufferedOutputStream(socket.getOutputStream());
+                boolean authorized = false;
+                String database = "0";
+                while (true) {
+                    List<String> command = readCommand(input);
+                    if (command == null) {
+                        return;
+                    }
+                    String name = command.get(0).toUpperCase();
+                    if ("QUIT".equals(name)) {
+                        writeLine(output, "+OK");
+                        output.flush();
+                        socket.close();
+                        return;
+                    } else if ("AUTH".equals(name)) {
+                        authorized = password.equals(command.get(1));
+                        writeLine(output, authorized ? "+OK" : "-WRONGPASS invalid password");
+                    } else if (!authorized) {
+                        writeLine(output, "-NOAUTH Authentication required.");
+                    } else if ("SELECT".equals(name)) {
+                        database = command.get(1);
+                        writeLine(output, "+OK");
+                    } else if ("GET".equals(name)) {
+                        writeBulk(output, valueMap.get(database + ":" + command.get(1)));
+                    } else if ("SET".equals(name)) {
+                        String key = database + ":" + command.get(1);
+                        if (command.contains("NX") && valueMap.containsKey(key)) {
+                            writeBulk(output, null);
+                        } else {
+                            valueMap.put(key, command.get(2));
+                            int exIndex = command.indexOf("EX");
+                            if (exIndex > 0) {
+                                expireMap.put(key, command.get(exIndex + 1));
+                            }
+                            writeLine(output, "+OK");
+                        }
+                    } else if ("SETEX".equals(name)) {
+                        String key = database + ":" + command.get(1);
+                        valueMap.put(key, command.get(3));
+                        expireMap.put(key, command.get(2));
+                        writeLine(output, "+OK");
+                    } else if ("DEL".equals(name)) {
+                        writeLine(output, ":" + (valueMap.remove(database + ":" + command.get(1)) == null ? 0 : 1));
+                    } else {
+                        writeLine(output, "-ERR unknown command '" + name + "'");
+                    }
+                    output.flush();
+                }
+            } catch (IOException e) {
+                // closed
+            }
+        }
+
+        private static List<String> readCommand(InputStream input) throws IOException {
+            int type = input.read();
+            if (type < 0) {
+                return null;
+            }
+            int count = Integer.parseInt(readLine(input));
+            List<String> command = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                input.read();
+                byte[] bytes = new byte[Integer.parseInt(readLine(input))];
+                int offset = 0;
+                while (offset < bytes.length) {
+                    offset += input.read(bytes, offset, bytes.length - offset);
+                }
+                readLine(input);
+                command.add(new String(bytes, StandardCharsets.UTF_8));
+            }
+            return command;
+        }
+
+        private static String readLine(InputStream input) throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int b;
+            while ((b = input.read()) != '\r') {
+                if (b < 0) {
+                    throw new IOException("closed");
+                }
+                line.write(b);
+            }
+            input.read();
+            return new String(line.toByteArray(), StandardCharsets.UTF_8);
+        }
+
+        private static void writeLine(OutputStream output, String line) throws IOException {
+            output.write((line + "\r\n").getBytes(StandardCharsets.UTF_8));
+        }
+
+        private static void writeBulk(OutputStream output, String value) throws IOException {
+            if (value == null) {
+                writeLine(output, "$-1");
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeLine(output, "$" + bytes.length);
+            output.write(bytes);
+            output.write("\r\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        private void close() throws IOException {
+            serverSocket.close();
+            synchronized (sockets) {
+                for (Socket socket : sockets) {
+                    socket.close();
+                }
+            }
+        }
+    }
+}
@@ -1150,4 +1150,67 @@ public class EntityBuilder {
         flowModel.setFlowElementList(flowElementList);
         return flowModel;
     }
+
+    // For parallelGateway runtime tests [ParallelGatewayProcessorTest] to use:
+    // StartEvent -> fork -> UserTask1 -> join, fork -> UserTask2 -> join, join -> UserTask3 -> EndEvent
+    public static FlowDeploymentPO buildParallelFlowDeploymentPO() {
+        FlowDeploymentPO flowDeploymentPO = new FlowDeploymentPO();
+        flowDeploymentPO.setFlowName(flowName);
+        flowDeploymentPO.setFlowKey(flowKey);
+        flowDeploymentPO.setFlowModuleId("parallelFlowModuleId");
+        flowDeploymentPO.setFlowDeployId("parallelFlowDeployId");
+        flowDeploymentPO.setFlowModel(JSON.toJSONString(buildParallelFlowModel()));
+        flowDeploymentPO.setStatus(FlowDeploymentStatus.DEPLOYED);
+        flowDeploymentPO.setCreateTime(new Date());
+        flowDeploymentPO.setModifyTime(new Date());
+        flowDeploymentPO.setOperator(operator);
+        flowDeploymentPO.setRemark(remark);
+        return flowDeploymentPO;
+    }
+
+    public static FlowModel buildParallelFlowModel() {
+        List<FlowElement> flowElementList = Lists.newArrayList();
+        flowElementList.add(buildParallelElement("StartEvent", FlowElementType.START_EVENT, null, "SequenceFlow0"));
+        flowElementList.add(buildParallelElement("Fork", FlowElementType.PARALLEL_GATEWAY, "SequenceFlow0", "SequenceFlow1", "SequenceFlow2"));
+        flowElementList.add(buildParallelElement("UserTask1", FlowElementType.USER_TASK, "SequenceFlow1", "SequenceFlow3"));
+        flowElementList.add(buildParallelElement("UserTask2", FlowElementType.USER_TASK, "SequenceFlow2", "SequenceFlow4"));
+        FlowElement join = buildParallelElement("Join", FlowElementType.PARALLEL_GATEWAY, "SequenceFlow3", "SequenceFlow5");
+        join.setIncoming(Lists.newArrayList("SequenceFlow3", "SequenceFlow4"));
+        flowElementList.add(join);
+        flowElementList.add(buildParallelElement("UserTask3", FlowElementType.USER_TASK, "SequenceFlow5", "SequenceFlow6"));
+        flowElementList.add(buildParallelElement("EndEvent", FlowElementType.END_EVENT, "SequenceFlow6", null));
+        flowElementList.add(buildParallelSequenceFlow("SequenceFlow0", "StartEvent", "Fork"));
+        flowElementList.add(buildParallelSequenceFlow("SequenceFlow1", "Fork", "UserTask1"));
+        flowElementList.add(buildParallelSequenceFlow("SequenceFlow2", "Fork", "UserTask2"));
+        flowElementList.add(buildParallelSequenceFlow("SequenceFlow3", "UserTask1", "Join"));
+        flowElementList.add(buildParallelSequenceFlow("SequenceFlow4", "UserTask2", "Join"));
+        flowElementList.add(buildParallelSequenceFlow("SequenceFlow5", "Join", "UserTask3"));
+        flowElementList.add(buildParallelSequenceFlow("SequenceFlow6", "UserTask3", "EndEvent"));
+        FlowModel flowModel = new FlowModel();
+        flowModel.setFlowElementList(flowElementList);
+        return flowModel;
+    }
+
+    private static FlowElement buildParallelElement(String key, int type, String incoming, String... outgoings) {
+        FlowElement flowElement = new FlowElement();
+        flowElement.setKey(key);
+        flowElement.setType(type);
+        flowElement.setIncoming(incoming == null ? Lists.newArrayList() : Lists.newArrayList(incoming));
+        List<String> outgoingList = Lists.newArrayList();
+        for (String outgoing : outgoings) {
+            if (outgoing != null) {
+                outgoingList.add(outgoing);
+            }
+        }
+        flowElement.setOutgoing(outgoingList);
+        flowElement.setProperties(new HashMap<>());
+        return flowElement;
+    }
+
+    private static FlowElement buildParallelSequenceFlow(String key, String incoming, String outgoing) {
+        FlowElement sequenceFlow = buildParallelElement(key, FlowElementType.SEQUENCE_FLOW, incoming, outgoing);
+        sequenceFlow.getProperties().put("defaultConditions", "false");
+        sequenceFlow.getProperties().put("conditionsequenceflow", "");
+        return sequenceFlow;
+    }
 }
@@ -0,0 +1,40 @@
+package com.didiglobal.turbo.engine.util;
+
+import com.alibaba.fastjson.JSON;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+public class FlowModelUtilTest {
+
+    private static final String PROPERTIES = "{\"name\":\"UserTask\",\"form\":{\"fields\":[\"a\",\"b\"]},\"tags\":[{\"k\":\"v\"}]}";
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void freezePropertiesNestedMap() {
+        Map<String, Object> properties = FlowModelUtil.freezeProperties(JSON.parseObject(PROPERTIES));
+        ((Map<String, Object>) properties.get("form")).put("key", "value");
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void freezePropertiesNestedList() {
+        Map<String, Object> properties = FlowModelUtil.freezeProperties(JSON.parseObject(PROPERTIES));
+        Map<String, Object> form = (Map<String, Object>) properties.get("form");
+        ((List<Object>) form.get("fields")).add("c");
+    }
+
+    @Test
+    public void copyProperties() {
+        Map<String, Object> frozenProperties = FlowModelUtil.freezeProperties(JSON.parseObject(PROPERTIES));
+        Map<String, Object> properties = FlowModelUtil.copyProperties(frozenProperties);
+        Assert.assertEquals(frozenProperties, properties);
+
+        // the copy is modifiable and leaves the frozen properties as they are
+        properties.put("name", "other");
+        ((List<Object>) ((Map<String, Object>) properties.get("form")).get("fields")).add("c");
+        ((Map<String, Object>) ((List<Object>) properties.get("tags")).get(0)).put("k", "other");
+        Assert.assertEquals(JSON.parseObject(PROPERTIES), JSON.parseObject(JSON.toJSONString(frozenProperties)));
+        Assert.assertNull(FlowModelUtil.copyProperties(null));
+    }
+}
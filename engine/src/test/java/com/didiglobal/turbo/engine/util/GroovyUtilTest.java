@@ -2,11 +2,19 @@ package com.didiglobal.turbo.engine.util;
 
 import com.didiglobal.turbo.engine.runner.BaseTest;
 import com.google.common.collect.Maps;
+import org.junit.Assert;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 public class GroovyUtilTest {
 
@@ -35,4 +43,51 @@ public class GroovyUtilTest {
             LOGGER.warn("catch exception", e);
         }
     }
+
+    @Test
+    public void executeCompiled() throws Exception {
+        String expression = "a > 1 && b == 'compiled'";
+        GroovyUtil.compile(expression);
+        long loadCount = GroovyUtil.getCacheStats().loadCount();
+
+        Map<String, Object> dataMap = Maps.newHashMap();
+        dataMap.put("a", 2);
+        dataMap.put("b", "compiled");
+        Assert.assertEquals(Boolean.TRUE, GroovyUtil.execute(expression, dataMap));
+        dataMap.put("a", 0);
+        Assert.assertEquals(Boolean.FALSE, GroovyUtil.execute(expression, dataMap));
+        Assert.assertEquals(loadCount, GroovyUtil.getCacheStats().loadCount());
+    }
+
+    @Test(expected = Exception.class)
+    public void compileInvalid() throws Exception {
+        GroovyUtil.compile("a >");
+    }
+
+    @Test
+    public void concurrentCompileOnce() throws Exception {
+        String expression = "a == " + System.nanoTime();
+        long loadCount = GroovyUtil.getCacheStats().loadCount();
+        int threadCount = 16;
+        ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        List<Future<Object>> futureList = new ArrayList<>();
+        try {
+            for (int i = 0; i < threadCount; i++) {
+                futureList.add(executorService.submit(() -> {
+                    startLatch.await();
+                    Map<String, Object> dataMap = Maps.newHashMap();
+                    dataMap.put("a", 1);
+                    return GroovyUtil.execute(expression, dataMap);
+                }));
+            }
+            startLatch.countDown();
+            for (Future<Object> future : futureList) {
+                Assert.assertEquals(Boolean.FALSE, future.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+        Assert.assertEquals(loadCount + 1, GroovyUtil.getCacheStats().loadCount());
+    }
 }
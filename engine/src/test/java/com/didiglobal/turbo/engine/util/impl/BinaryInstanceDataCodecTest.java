@@ -0,0 +1,111 @@
+package com.didiglobal.turbo.engine.util.impl;
+
+import com.alibaba.fastjson.JSONArray;
+import com.didiglobal.turbo.engine.entity.InstanceDataPO;
+import com.didiglobal.turbo.engine.model.InstanceData;
+import com.didiglobal.turbo.engine.util.InstanceDataCodec;
+import com.didiglobal.turbo.engine.util.InstanceDataCodecRegistry;
+import com.didiglobal.turbo.engine.util.InstanceDataUtil;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+public class BinaryInstanceDataCodecTest {
+
+    private final InstanceDataCodecRegistry instanceDataCodecRegistry = new InstanceDataCodecRegistry();
+
+
+    @Test
+    public void typedValues() {
+        List<InstanceData> instanceDataList = Lists.newArrayList(
+            new InstanceData("string", "string", "中文 value"),
+            new InstanceData("integer", "integer", -12),
+            new InstanceData("long", "long", Long.MAX_VALUE),
+            new InstanceData("double", "double", 0.1d),
+            new InstanceData("boolean", null, true),
+            new InstanceData("null", null, null),
+            new InstanceData("list", "list", Lists.newArrayList(1, "a")),
+            new InstanceData("decimal", null, new BigDecimal("1.25")));
+        for (InstanceDataCodec codec : Lists.newArrayList(new BinaryInstanceDataCodec(false), new BinaryInstanceDataCodec(true))) {
+            List<InstanceData> decodedList = codec.decode(codec.encode(instanceDataList));
+            Assert.assertEquals(instanceDataList.size(), decodedList.size());
+            Map<String, InstanceData> decodedMap = InstanceDataUtil.getInstanceDataMap(decodedList);
+            Assert.assertEquals("中文 value", decodedMap.get("string").getValue());
+            Assert.assertEquals("string", decodedMap.get("string").getType());
+            Assert.assertEquals(-12, decodedMap.get("integer").getValue());
+            Assert.assertEquals(Long.MAX_VALUE, decodedMap.get("long").getValue());
+            Assert.assertEquals(0.1d, decodedMap.get("double").getValue());
+            Assert.assertEquals(Boolean.TRUE, decodedMap.get("boolean").getValue());
+            Assert.assertNull(decodedMap.get("boolean").getType());
+            Assert.assertNull(decodedMap.get("null").getValue());
+            // other values are read back as fastjson parses them
+            Assert.assertEquals(JSONArray.parseArray("[1,\"a\"]"), decodedMap.get("list").getValue());
+            Assert.assertEquals(new BigDecimal("1.25"), decodedMap.get("decimal").getValue());
+        }
+    }
+
+    @Test
+    public void compressLargeBody() {
+        Map<String, InstanceData> instanceDataMap = Maps.newHashMap();
+        for (int i = 0; i < 100; i++) {
+            instanceDataMap.put("variable" + i, new InstanceData("variable" + i, "value" + i));
+        }
+        String binary = new BinaryInstanceDataCodec(false).encode(instanceDataMap.values());
+        String deflated = new BinaryInstanceDataCodec(true).encode(instanceDataMap.values());
+        String json = new JsonInstanceDataCodec().encode(instanceDataMap.values());
+        Assert.assertTrue(binary.length() < json.length());
+        Assert.assertTrue(deflated.length() < binary.length());
+        Assert.assertEquals(100, new BinaryInstanceDataCodec(true).decode(deflated).size());
+        // the flag is per row, a small body is left uncompressed
+        Assert.assertEquals(new BinaryInstanceDataCodec(false).encode(Lists.newArrayList(new InstanceData("k", 1))),
+            new BinaryInstanceDataCodec(true).encode(Lists.newArrayList(new InstanceData("k", 1))));
+    }
+
+    @Test
+    public void rowsOfDifferentCodecs() {
+        Map<String, InstanceData> instanceDataMap = Maps.newHashMap();
+        instanceDataMap.put("k", new InstanceData("k", "v"));
+
+        InstanceDataPO binaryPO = new InstanceDataPO();
+        InstanceDataUtil.setInstanceData(binaryPO, instanceDataMap, instanceDataCodecRegistry.get(BinaryInstanceDataCodec.NAME));
+        Assert.assertEquals(BinaryInstanceDataCodec.NAME, binaryPO.getInstanceDataEncode());
+
+        InstanceDataPO jsonPO = new InstanceDataPO();
+        InstanceDataUtil.setInstanceData(jsonPO, instanceDataMap, instanceDataCodecRegistry.get(JsonInstanceDataCodec.NAME));
+        Assert.assertNull(jsonPO.getInstanceDataEncode());
+        Assert.assertEquals("[{\"key\":\"k\",\"value\":\"v\"}]", jsonPO.getInstanceData());
+
+        Assert.assertEquals("v", instanceDataCodecRegistry.getInstanceDataMap(binaryPO).get("k").getValue());
+        Assert.assertEquals("v", instanceDataCodecRegistry.getInstanceDataMap(jsonPO).get("k").getValue());
+        Assert.assertTrue(instanceDataCodecRegistry.getInstanceDataMap(new InstanceDataPO()).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownCodec() {
+        instanceDataCodecRegistry.get("unknown");
+    }
+
+    @Test
+    public void defaultCodecPerRegistry() {
+        InstanceDataCodecRegistry binaryRegistry = new InstanceDataCodecRegistry();
+        ReflectionTestUtils.setField(binaryRegistry, "defaultCodecName", BinaryInstanceDataCodec.NAME);
+        binaryRegistry.init();
+        Map<String, InstanceData> instanceDataMap = Maps.newHashMap();
+        instanceDataMap.put("k", new InstanceData("k", "v"));
+
+        InstanceDataPO binaryPO = new InstanceDataPO();
+        binaryRegistry.setInstanceData(binaryPO, instanceDataMap);
+        Assert.assertEquals(BinaryInstanceDataCodec.NAME, binaryPO.getInstanceDataEncode());
+        // another registry keeps its own default
+        InstanceDataPO jsonPO = new InstanceDataPO();
+        instanceDataCodecRegistry.setInstanceData(jsonPO, instanceDataMap);
+        Assert.assertNull(jsonPO.getInstanceDataEncode());
+        Assert.assertEquals("v", instanceDataCodecRegistry.getInstanceDataMap(binaryPO).get("k").getValue());
+    }
+}
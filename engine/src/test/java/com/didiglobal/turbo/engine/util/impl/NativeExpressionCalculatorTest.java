@@ -0,0 +1,143 @@
+package com.didiglobal.turbo.engine.util.impl;
+
+import com.didiglobal.turbo.engine.exception.ProcessException;
+import com.didiglobal.turbo.engine.util.expression.ExpressionParser;
+import com.didiglobal.turbo.engine.util.expression.UnsupportedExpressionException;
+import com.google.common.collect.Maps;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+public class NativeExpressionCalculatorTest {
+
+    private static final String[] SUPPORTED_EXPRESSIONS = {
+        "amount > 1000 && level == 'A'",
+        "${amount >= 1000}",
+        "amount < 1000.5 || level != \"B\"",
+        "rate > 0.5 && rate <= 1",
+        "bigAmount == 1000 && count > 2",
+        "level in ['A', 'B'] && !(amount < 10)",
+        "count in [1, 2, 3]",
+        "count in []",
+        "remark == null || remark != null",
+        "vip && level == 'A'",
+        "!vip || amount > -1",
+        "!!vip",
+        "level < 'B' && name == \"it's\"",
+        "true && (false || count == 3)",
+        "name == 'a\\'b'"
+    };
+
+    private static final String[] UNSUPPORTED_EXPRESSIONS = {
+        "amount + 1 > 1000",
+        "level.equals('A')",
+        "level == \"${amount}\"",
+        "amount > 1000L",
+        "amount > 010",
+        "amount = 1000",
+        "level ==~ /A/",
+        "Math.max(amount, 1) > 0",
+        "a > 1\n&& b == 1",
+        "level in levels",
+        "'A'",
+        "!amount > 1"
+    };
+
+    private NativeExpressionCalculator nativeExpressionCalculator;
+
+    private GroovyExpressionCalculator groovyExpressionCalculator;
+
+    @Before
+    public void init() {
+        groovyExpressionCalculator = new GroovyExpressionCalculator();
+        nativeExpressionCalculator = new NativeExpressionCalculator();
+        ReflectionTestUtils.setField(nativeExpressionCalculator, "groovyExpressionCalculator", groovyExpressionCalculator);
+    }
+
+    @Test
+    public void parse() throws Exception {
+        for (String expression : SUPPORTED_EXPRESSIONS) {
+            if (expression.startsWith("${")) {
+                expression = expression.substring(2, expression.length() - 1);
+            }
+            Assert.assertNotNull(expression, ExpressionParser.parse(expression));
+        }
+        for (String expression : UNSUPPORTED_EXPRESSIONS) {
+            try {
+                ExpressionParser.parse(expression);
+                Assert.fail("supported unexpectedly: " + expression);
+            } catch (UnsupportedExpressionException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void sameAsGroovy() throws Exception {
+        Map<String, Object>[] dataMaps = buildDataMaps();
+        for (String expression : SUPPORTED_EXPRESSIONS) {
+            for (Map<String, Object> dataMap : dataMaps) {
+                assertSameResult(expression, dataMap);
+            }
+        }
+    }
+
+    @Test
+    public void fallback() throws Exception {
+        Map<String, Object> dataMap = buildDataMaps()[0];
+        // out of the subset
+        Assert.assertTrue(nativeExpressionCalculator.calculate("amount + 1 > 1000", dataMap));
+        // data out of the subset: string compared with number
+        dataMap.put("amount", "2000");
+        assertSameResult("amount == 2000", dataMap);
+    }
+
+    @Test(expected = ProcessException.class)
+    public void missingData() throws Exception {
+        nativeExpressionCalculator.calculate("notExist > 1", buildDataMaps()[0]);
+    }
+
+    private void assertSameResult(String expression, Map<String, Object> dataMap) throws Exception {
+        Boolean expected;
+        try {
+            expected = groovyExpressionCalculator.calculate(expression, dataMap);
+        } catch (ProcessException e) {
+            expected = null;
+        }
+        Boolean actual;
+        try {
+            actual = nativeExpressionCalculator.calculate(expression, dataMap);
+        } catch (ProcessException e) {
+            actual = null;
+        }
+        Assert.assertEquals(expression + " " + dataMap, expected, actual);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object>[] buildDataMaps() {
+        Map<String, Object> dataMap1 = Maps.newHashMap();
+        dataMap1.put("amount", 2000);
+        dataMap1.put("level", "A");
+        dataMap1.put("rate", 0.75d);
+        dataMap1.put("bigAmount", new BigDecimal("1000.00"));
+        dataMap1.put("count", 3L);
+        dataMap1.put("remark", null);
+        dataMap1.put("vip", true);
+        dataMap1.put("name", "a'b");
+
+        Map<String, Object> dataMap2 = Maps.newHashMap();
+        dataMap2.put("amount", 5L);
+        dataMap2.put("level", "C");
+        dataMap2.put("rate", 1);
+        dataMap2.put("bigAmount", 999.99f);
+        dataMap2.put("count", 3);
+        dataMap2.put("remark", "remark");
+        dataMap2.put("vip", false);
+        dataMap2.put("name", "it's");
+        return new Map[]{dataMap1, dataMap2};
+    }
+}
@@ -0,0 +1,71 @@
+package com.didiglobal.turbo.engine.validator;
+
+import com.didiglobal.turbo.engine.common.ErrorEnum;
+import com.didiglobal.turbo.engine.common.FlowElementType;
+import com.didiglobal.turbo.engine.exception.DefinitionException;
+import com.didiglobal.turbo.engine.model.FlowElement;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class ParallelGatewayValidatorTest {
+
+    private final ParallelGatewayValidator parallelGatewayValidator = new ParallelGatewayValidator();
+
+    /**
+     * fork -> userTask1 -> join, fork -> userTask2 -> join, join -> endEvent
+     */
+    @Test
+    public void checkJoinedBranches() throws DefinitionException {
+        Map<String, FlowElement> flowElementMap = buildForkJoin();
+        parallelGatewayValidator.checkOutgoing(flowElementMap, flowElementMap.get("fork"));
+        parallelGatewayValidator.checkOutgoing(flowElementMap, flowElementMap.get("join"));
+    }
+
+    @Test
+    public void checkBranchWithoutJoin() {
+        Map<String, FlowElement> flowElementMap = buildForkJoin();
+        // userTask2 -> endEvent
+        flowElementMap.put("sequenceFlow5", buildElement("sequenceFlow5", FlowElementType.SEQUENCE_FLOW, "userTask2", "endEvent"));
+        flowElementMap.get("userTask2").setOutgoing(Collections.singletonList("sequenceFlow5"));
+        try {
+            parallelGatewayValidator.checkOutgoing(flowElementMap, flowElementMap.get("fork"));
+            Assert.fail();
+        } catch (DefinitionException e) {
+            Assert.assertEquals(ErrorEnum.PARALLEL_BRANCH_NOT_JOINED.getErrNo(), e.getErrNo());
+        }
+    }
+
+    private static Map<String, FlowElement> buildForkJoin() {
+        Map<String, FlowElement> flowElementMap = new HashMap<>();
+        FlowElement fork = buildElement("fork", FlowElementType.PARALLEL_GATEWAY, "sequenceFlow0", null);
+        fork.setOutgoing(Arrays.asList("sequenceFlow1", "sequenceFlow2"));
+        FlowElement join = buildElement("join", FlowElementType.PARALLEL_GATEWAY, null, "sequenceFlow6");
+        join.setIncoming(Arrays.asList("sequenceFlow3", "sequenceFlow4"));
+        flowElementMap.put("fork", fork);
+        flowElementMap.put("join", join);
+        flowElementMap.put("sequenceFlow1", buildElement("sequenceFlow1", FlowElementType.SEQUENCE_FLOW, "fork", "userTask1"));
+        flowElementMap.put("sequenceFlow2", buildElement("sequenceFlow2", FlowElementType.SEQUENCE_FLOW, "fork", "userTask2"));
+        flowElementMap.put("userTask1", buildElement("userTask1", FlowElementType.USER_TASK, "sequenceFlow1", "sequenceFlow3"));
+        flowElementMap.put("userTask2", buildElement("userTask2", FlowElementType.USER_TASK, "sequenceFlow2", "sequenceFlow4"));
+        flowElementMap.put("sequenceFlow3", buildElement("sequenceFlow3", FlowElementType.SEQUENCE_FLOW, "userTask1", "join"));
+        flowElementMap.put("sequenceFlow4", buildElement("sequenceFlow4", FlowElementType.SEQUENCE_FLOW, "userTask2", "join"));
+        flowElementMap.put("sequenceFlow6", buildElement("sequenceFlow6", FlowElementType.SEQUENCE_FLOW, "join", "endEvent"));
+        flowElementMap.put("endEvent", buildElement("endEvent", FlowElementType.END_EVENT, "sequenceFlow6", null));
+        return flowElementMap;
+    }
+
+    private static FlowElement buildElement(String key, int type, String incoming, String outgoing) {
+        FlowElement flowElement = new FlowElement();
+        flowElement.setKey(key);
+        flowElement.setType(type);
+        flowElement.setIncoming(incoming == null ? Collections.emptyList() : Collections.singletonList(incoming));
+        flowElement.setOutgoing(outgoing == null ? Collections.emptyList() : Collections.singletonList(outgoing));
+        flowElement.setProperties(new HashMap<>());
+        return flowElement;
+    }
+}